@@ -35,13 +35,18 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 import org.json.JSONObject;
 
 import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.github.sdankbar.qml.models.list.DecodedListModel;
 import com.github.sdankbar.qml.models.list.JQMLListModel;
 import com.github.sdankbar.qml.models.list.ListListener;
 import com.github.sdankbar.qml.models.list.SignalLock;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -49,11 +54,18 @@ import com.google.common.collect.ImmutableSet;
 public class MockJQMLListModel<K> implements JQMLListModel<K> {
 
 	private final String modelName;
+	// Null if unknown, in which case the binary format can't be read
+	private final Set<K> keys;
 	private final List<Map<K, JVariant>> delegate = new ArrayList<>();
 	private final Map<String, JVariant> rootData = new HashMap<>();
 
 	public MockJQMLListModel(final String name) {
+		this(name, null);
+	}
+
+	public MockJQMLListModel(final String name, final Set<K> keys) {
 		this.modelName = Objects.requireNonNull(name, "name is null");
+		this.keys = keys != null ? ImmutableSet.copyOf(keys) : null;
 	}
 
 	@Override
@@ -279,7 +291,7 @@ public class MockJQMLListModel<K> implements JQMLListModel<K> {
 
 	@Override
 	public SignalLock lockSignals() {
-		return new SignalLock(null);
+		return new SignalLock((Runnable) null);
 	}
 
 	@Override
@@ -314,6 +326,43 @@ public class MockJQMLListModel<K> implements JQMLListModel<K> {
 		// TODO Auto-generated method stub
 	}
 
+	@Override
+	public ModelSnapshot snapshot(final JSONObject obj, final ImmutableSet<String> rootKeysToPersist) {
+		final Map<String, JVariant> rootSnapshot = new HashMap<>();
+		for (final String s : rootKeysToPersist) {
+			getRootValue(s).ifPresent(v -> rootSnapshot.put(s, v));
+		}
+		final ImmutableList<ImmutableMap<K, JVariant>> rows = delegate.stream().map(ImmutableMap::copyOf)
+				.collect(ImmutableList.toImmutableList());
+		return new ModelSnapshot() {
+			@Override
+			public void write(final OutputStream stream) throws IOException {
+				serialize(stream, obj, rootKeysToPersist);
+			}
+
+			@Override
+			public void write(final BinaryModelWriter writer) throws IOException {
+				writer.writeMap(rootSnapshot);
+				writer.writeVarInt(rows.size());
+				for (final Map<K, JVariant> row : rows) {
+					writer.writeMap(row);
+				}
+				writer.writeBoolean(obj != null);
+				if (obj != null) {
+					writer.writeString(obj.toString());
+				}
+			}
+		};
+	}
+
+	@Override
+	public JSONObject deserialize(final BinaryModelReader reader, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		final DecodedListModel decoded = decode(reader, rootKeysToPersist);
+		decoded.assign();
+		return decoded.getAdditional();
+	}
+
 	@Override
 	public JSONObject deserialize(final InputStream stream, final ImmutableSet<String> rootKeysToPersist)
 			throws IOException {
@@ -321,6 +370,64 @@ public class MockJQMLListModel<K> implements JQMLListModel<K> {
 		return null;
 	}
 
+	@Override
+	public DecodedListModel decode(final BinaryModelReader reader, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		if (keys == null) {
+			throw new UnsupportedOperationException(
+					"Mock list model " + modelName + " was created without its keys, so can't read the binary format");
+		}
+
+		final Map<String, JVariant> rootValues = reader.readStringMap();
+		final Map<String, K> keysByName = BinaryModelReader.keysByName(keys);
+		final int count = reader.readCount();
+		final List<Map<K, JVariant>> list = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			list.add(reader.readMap(keysByName));
+		}
+		final JSONObject additional = reader.readBoolean() ? new JSONObject(reader.readString()) : null;
+
+		return new DecodedListModel() {
+			@Override
+			public void assign() {
+				for (final String s : rootKeysToPersist) {
+					final JVariant v = rootValues.get(s);
+					if (v != null) {
+						putRootValue(s, v);
+					} else {
+						removeRootValue(s);
+					}
+				}
+				MockJQMLListModel.this.assign(list);
+			}
+
+			@Override
+			public JSONObject getAdditional() {
+				return additional;
+			}
+		};
+	}
+
+	@Override
+	public DecodedListModel decode(final InputStream stream, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		return decoded();
+	}
+
+	private static DecodedListModel decoded() {
+		return new DecodedListModel() {
+			@Override
+			public void assign() {
+				// Empty Implementation
+			}
+
+			@Override
+			public JSONObject getAdditional() {
+				return null;
+			}
+		};
+	}
+
 	@Override
 	public void registerModelChangedListener(final Runnable r) {
 
@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.github.sdankbar.qml.JQMLApplication;
 import com.github.sdankbar.qml.JQMLModelFactory;
@@ -47,7 +48,10 @@ import com.github.sdankbar.qml.models.list.JQMLXYSeriesModel;
 import com.github.sdankbar.qml.models.singleton.JQMLConstantsModel;
 import com.github.sdankbar.qml.models.singleton.JQMLSingletonModel;
 import com.github.sdankbar.qml.models.table.JQMLTableModel;
-import com.github.sdankbar.qml.models.table.JQMLTableModelImpl;
+import com.github.sdankbar.qml.persistence.JournalPolicy;
+import com.github.sdankbar.qml.persistence.ModelPersistence;
+import com.github.sdankbar.qml.persistence.PersistenceFormat;
+import com.github.sdankbar.qml.persistence.RestoreBatch;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
@@ -60,6 +64,9 @@ public class MockJQMLModelFactory implements JQMLModelFactory {
 	private final Set<String> modelNames = new HashSet<>();
 
 	private final JQMLApplication<?> app;
+	// Null until persistence is enabled. Until then persisting and restoring
+	// models does nothing, rather than failing as in JQMLModelFactoryImpl.
+	private ModelPersistence persistence = null;
 
 	public MockJQMLModelFactory(final JQMLApplication<?> app) {
 		this.app = Objects.requireNonNull(app, "app is null");
@@ -88,7 +95,7 @@ public class MockJQMLModelFactory implements JQMLModelFactory {
 	public <K extends Enum<K>> JQMLListModel<K> createListModel(final String name, final Class<K> enumClass,
 			final PutMode putMode) {
 		checkModelName(name);
-		final JQMLListModel<K> temp = new MockJQMLListModel<>(name);
+		final JQMLListModel<K> temp = new MockJQMLListModel<>(name, EnumSet.allOf(enumClass));
 		listModels.put(name, temp);
 		return temp;
 	}
@@ -96,7 +103,7 @@ public class MockJQMLModelFactory implements JQMLModelFactory {
 	@Override
 	public <K> JQMLListModel<K> createListModel(final String name, final Set<K> keys, final PutMode putMode) {
 		checkModelName(name);
-		final JQMLListModel<K> temp = new MockJQMLListModel<>(name);
+		final JQMLListModel<K> temp = new MockJQMLListModel<>(name, keys);
 		listModels.put(name, temp);
 		return temp;
 	}
@@ -119,7 +126,7 @@ public class MockJQMLModelFactory implements JQMLModelFactory {
 	public <K extends Enum<K>> JQMLSingletonModel<K> createSingletonModel(final String name, final Class<K> enumClass,
 			final PutMode putMode) {
 		checkModelName(name);
-		final JQMLSingletonModel<K> temp = new MockJQMLSingletonModel<>(name);
+		final JQMLSingletonModel<K> temp = new MockJQMLSingletonModel<>(name, EnumSet.allOf(enumClass));
 		singletonModels.put(name, temp);
 		return temp;
 	}
@@ -127,7 +134,7 @@ public class MockJQMLModelFactory implements JQMLModelFactory {
 	@Override
 	public <K> JQMLSingletonModel<K> createSingletonModel(final String name, final Set<K> keys, final PutMode putMode) {
 		checkModelName(name);
-		final JQMLSingletonModel<K> temp = new MockJQMLSingletonModel<>(name);
+		final JQMLSingletonModel<K> temp = new MockJQMLSingletonModel<>(name, keys);
 		singletonModels.put(name, temp);
 		return temp;
 	}
@@ -184,44 +191,78 @@ public class MockJQMLModelFactory implements JQMLModelFactory {
 
 	@Override
 	public void enablePersistence(final Duration writeDelay, final File persistenceDirectory) {
-		// TODO Auto-generated method stub
+		if (persistence != null) {
+			persistence.shutdown();
+		}
+
+		persistence = new ModelPersistence(app.getQMLThreadExecutor(), writeDelay, persistenceDirectory);
+	}
+
+	@Override
+	public void enablePersistence(final Duration writeDelay, final File persistenceDirectory,
+			final PersistenceFormat format) {
+		if (persistence != null) {
+			persistence.shutdown();
+		}
+
+		persistence = new ModelPersistence(app.getQMLThreadExecutor(), writeDelay, persistenceDirectory, format);
+	}
+
+	@Override
+	public void enablePersistence(final Duration writeDelay, final File persistenceDirectory,
+			final PersistenceFormat format, final JournalPolicy journalPolicy) {
+		Objects.requireNonNull(journalPolicy, "journalPolicy is null");
+		if (persistence != null) {
+			persistence.shutdown();
+		}
+
+		persistence = new ModelPersistence(app.getQMLThreadExecutor(), writeDelay, persistenceDirectory, format,
+				journalPolicy);
 	}
 
 	@Override
 	public void enableAutoPersistenceForModel(final JQMLSingletonModel<?> model) {
-		// TODO Auto-generated method stub
+		if (persistence != null) {
+			persistence.autoPersistModel(model);
+		}
 	}
 
 	@Override
 	public void enableAutoPersistenceForModel(final JQMLListModel<?> model) {
-		// TODO Auto-generated method stub
+		if (persistence != null) {
+			persistence.autoPersistModel(model, ImmutableSet.of());
+		}
 	}
 
 	@Override
 	public boolean restoreModel(final JQMLSingletonModel<?> model) {
-		return false;
+		return persistence != null && persistence.restoreModel(model);
 	}
 
 	@Override
 	public boolean restoreModel(final JQMLListModel<?> model) {
-		return false;
+		return persistence != null && persistence.restoreModel(model, ImmutableSet.of());
 	}
 
 	@Override
 	public void persistModel(final JQMLSingletonModel<?> model) {
-		// TODO Auto-generated method stub
+		if (persistence != null) {
+			persistence.persistModel(model);
+		}
 	}
 
 	@Override
 	public void persistModel(final JQMLListModel<?> model) {
-		// TODO Auto-generated method stub
+		if (persistence != null) {
+			persistence.persistModel(model, ImmutableSet.of());
+		}
 	}
 
 	@Override
 	public <K extends Enum<K>> JQMLTableModel<K> createTableModel(final String name, final Class<K> enumClass,
 			final PutMode putMode) {
 		final ImmutableSet<K> userKeys = ImmutableSet.copyOf(EnumSet.allOf(enumClass));
-		final JQMLTableModelImpl<K> model = new JQMLTableModelImpl<>(name, userKeys, app, putMode);
+		final MockJQMLTableModel<K> model = new MockJQMLTableModel<>(name, userKeys, app, putMode);
 		tableModels.put(name, model);
 		return model;
 	}
@@ -229,70 +270,118 @@ public class MockJQMLModelFactory implements JQMLModelFactory {
 	@Override
 	public <K> JQMLTableModel<K> createTableModel(final String modelName, final ImmutableSet<K> keySet,
 			final SelectionMode mode, final PutMode putMode) {
-		final JQMLTableModelImpl<K> model = new JQMLTableModelImpl<>(modelName, keySet, app, putMode);
+		final MockJQMLTableModel<K> model = new MockJQMLTableModel<>(modelName, keySet, app, putMode);
 		tableModels.put(modelName, model);
 		return model;
 	}
 
 	@Override
-	public void enableAutoPersistenceForModel(final JQMLTableModel<?> model) {
-		// TODO Auto-generated method stub
+	public <K extends Enum<K>> JQMLTableModel<K> createSparseTableModel(final String modelName,
+			final Class<K> enumClass, final ImmutableMap<K, JVariant> defaultValues, final PutMode putMode) {
+		return createSparseTableModel(modelName, ImmutableSet.copyOf(EnumSet.allOf(enumClass)), defaultValues,
+				putMode);
+	}
 
+	@Override
+	public <K> JQMLTableModel<K> createSparseTableModel(final String modelName, final ImmutableSet<K> keySet,
+			final ImmutableMap<K, JVariant> defaultValues, final PutMode putMode) {
+		final MockJQMLTableModel<K> model = new MockJQMLTableModel<>(modelName, keySet, app, putMode, defaultValues);
+		tableModels.put(modelName, model);
+		return model;
 	}
 
 	@Override
-	public void persistModel(final JQMLTableModel<?> model) {
-		// TODO Auto-generated method stub
+	public void enableAutoPersistenceForModel(final JQMLTableModel<?> model) {
+		if (persistence != null) {
+			persistence.autoPersistModel(model, ImmutableSet.of());
+		}
+	}
 
+	@Override
+	public void persistModel(final JQMLTableModel<?> model) {
+		if (persistence != null) {
+			persistence.persistModel(model, ImmutableSet.of());
+		}
 	}
 
 	@Override
 	public boolean restoreModel(final JQMLTableModel<?> model) {
-		// TODO Auto-generated method stub
-		return false;
+		return persistence != null && persistence.restoreModel(model, ImmutableSet.of());
+	}
+
+	@Override
+	public void enableAutoPersistenceForModel(final JQMLFlatTreeModel<?> model) {
+		if (persistence != null) {
+			persistence.autoPersistModel(model);
+		}
+	}
+
+	@Override
+	public void persistModel(final JQMLFlatTreeModel<?> model) {
+		if (persistence != null) {
+			persistence.persistModel(model);
+		}
+	}
+
+	@Override
+	public boolean restoreModel(final JQMLFlatTreeModel<?> model) {
+		return persistence != null && persistence.restoreModel(model);
+	}
+
+	@Override
+	public CompletableFuture<ImmutableSet<String>> restoreAll(final RestoreBatch batch) {
+		Objects.requireNonNull(batch, "batch is null");
+		if (persistence == null) {
+			return CompletableFuture.completedFuture(ImmutableSet.of());
+		}
+		return persistence.restoreAll(batch);
 	}
 
 	@Override
 	public void flushPersistence() {
-		// TODO Auto-generated method stub
+		if (persistence != null) {
+			persistence.flush();
+		}
 	}
 
 	@Override
 	public void enableAutoPersistenceForModel(final JQMLListModel<?> model,
 			final ImmutableSet<String> rootKeysToPersist) {
-		// TODO Auto-generated method stub
-
+		if (persistence != null) {
+			persistence.autoPersistModel(model, rootKeysToPersist);
+		}
 	}
 
 	@Override
 	public void enableAutoPersistenceForModel(final JQMLTableModel<?> model,
 			final ImmutableSet<String> rootKeysToPersist) {
-		// TODO Auto-generated method stub
-
+		if (persistence != null) {
+			persistence.autoPersistModel(model, rootKeysToPersist);
+		}
 	}
 
 	@Override
 	public void persistModel(final JQMLListModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
-		// TODO Auto-generated method stub
-
+		if (persistence != null) {
+			persistence.persistModel(model, rootKeysToPersist);
+		}
 	}
 
 	@Override
 	public void persistModel(final JQMLTableModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
-		// TODO Auto-generated method stub
-
+		if (persistence != null) {
+			persistence.persistModel(model, rootKeysToPersist);
+		}
 	}
 
 	@Override
 	public boolean restoreModel(final JQMLListModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
-		// TODO Auto-generated method stub
-		return false;
+		return persistence != null && persistence.restoreModel(model, rootKeysToPersist);
 	}
 
 	@Override
 	public boolean restoreModel(final JQMLTableModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
-		// TODO Auto-generated method stub
-		return false;
+		return persistence != null && persistence.restoreModel(model, rootKeysToPersist);
 	}
 
 	@Override
@@ -33,15 +33,28 @@ import java.util.Set;
 
 import com.github.sdankbar.qml.JVariant;
 import com.github.sdankbar.qml.models.interfaces.ChangeListener;
+import com.github.sdankbar.qml.models.interfaces.DecodedModel;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
 import com.github.sdankbar.qml.models.singleton.JQMLSingletonModel;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 
 public class MockJQMLSingletonModel<K> implements JQMLSingletonModel<K> {
 
 	private final String modelName;
+	// Null if unknown, in which case the binary format can't be read
+	private final Set<K> keys;
 	private final Map<K, JVariant> delegate = new HashMap<>();
 
 	public MockJQMLSingletonModel(final String name) {
+		this(name, null);
+	}
+
+	public MockJQMLSingletonModel(final String name, final Set<K> keys) {
 		this.modelName = Objects.requireNonNull(name, "name is null");
+		this.keys = keys != null ? ImmutableSet.copyOf(keys) : null;
 	}
 
 	@Override
@@ -130,9 +143,48 @@ public class MockJQMLSingletonModel<K> implements JQMLSingletonModel<K> {
 		// TODO Auto-generated method stub
 	}
 
+	@Override
+	public ModelSnapshot snapshot() {
+		final ImmutableMap<K, JVariant> values = ImmutableMap.copyOf(delegate);
+		return new ModelSnapshot() {
+			@Override
+			public void write(final OutputStream stream) throws IOException {
+				serialize(stream);
+			}
+
+			@Override
+			public void write(final BinaryModelWriter writer) throws IOException {
+				writer.writeMap(values);
+			}
+		};
+	}
+
+	@Override
+	public void deserialize(final BinaryModelReader reader) throws IOException {
+		decode(reader).assign();
+	}
+
 	@Override
 	public void deserialize(final InputStream stream) throws IOException {
 		// TODO Auto-generated method stub
 	}
 
+	@Override
+	public DecodedModel decode(final BinaryModelReader reader) throws IOException {
+		if (keys == null) {
+			throw new UnsupportedOperationException("Mock singleton model " + modelName
+					+ " was created without its keys, so can't read the binary format");
+		}
+
+		final Map<K, JVariant> values = reader.readMap(BinaryModelReader.keysByName(keys));
+		return () -> assign(values);
+	}
+
+	@Override
+	public DecodedModel decode(final InputStream stream) throws IOException {
+		return () -> {
+			// Empty Implementation
+		};
+	}
+
 }
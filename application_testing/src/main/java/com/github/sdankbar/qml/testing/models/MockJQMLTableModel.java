@@ -0,0 +1,372 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.testing.models;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.json.JSONObject;
+
+import com.github.sdankbar.qml.JQMLApplication;
+import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.models.AbstractJQMLMapModel.PutMode;
+import com.github.sdankbar.qml.models.interfaces.DecodedModel;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.github.sdankbar.qml.models.list.DecodedListModel;
+import com.github.sdankbar.qml.models.list.JQMLListModel;
+import com.github.sdankbar.qml.models.list.SignalLock;
+import com.github.sdankbar.qml.models.table.JQMLTableModel;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Mock JQMLTableModel that stores its cells, in row major order, in a
+ * JQMLListModel. Does not require a native table model, so it can be used with
+ * MockJQMLModelFactory.
+ *
+ * @param <K> Key type of the table's cells.
+ */
+public class MockJQMLTableModel<K> implements JQMLTableModel<K> {
+
+	private static <K> K getKey(final ImmutableSet<K> keys, final String keyName) {
+		for (final K v : keys) {
+			if (v.toString().equals(keyName)) {
+				return v;
+			}
+		}
+		throw new IllegalArgumentException("Failed to find key: " + keyName);
+	}
+
+	private final JQMLListModel<K> listModel;
+	private int rowCount = 0;
+	private int columnCount = 1;
+
+	private final K rowKey;
+	private final K columnKey;
+	private final ImmutableMap<K, JVariant> defaultValues;
+
+	public MockJQMLTableModel(final String modelName, final ImmutableSet<K> keys, final JQMLApplication<?> app,
+			final PutMode putMode) {
+		this(modelName, keys, app, putMode, ImmutableMap.of());
+	}
+
+	/**
+	 * @param modelName     Name of the model.
+	 * @param keys          Set of keys this model can use. Must contain keys
+	 *                      named "row" and "column".
+	 * @param app           Application whose model factory creates the backing
+	 *                      list model.
+	 * @param putMode       Specifies how put operations behave.
+	 * @param defaultValues Values every cell holds for the roles that have not
+	 *                      been set, in place of the defaults QML reads from a
+	 *                      sparse table model.
+	 */
+	public MockJQMLTableModel(final String modelName, final ImmutableSet<K> keys, final JQMLApplication<?> app,
+			final PutMode putMode, final ImmutableMap<K, JVariant> defaultValues) {
+		rowKey = getKey(keys, "row");
+		columnKey = getKey(keys, "column");
+		this.defaultValues = Objects.requireNonNull(defaultValues, "defaultValues is null");
+		listModel = app.getModelFactory().createListModel(modelName, keys, putMode);
+	}
+
+	private Map<K, JVariant> withDefaults(final Map<K, JVariant> data) {
+		if (defaultValues.isEmpty()) {
+			return data;
+		}
+		final Map<K, JVariant> map = new HashMap<>(defaultValues);
+		map.putAll(data);
+		return map;
+	}
+
+	private int index(final int row, final int column) {
+		Preconditions.checkArgument(row < rowCount, "Invalid row index: %s", row);
+		Preconditions.checkArgument(column < columnCount, "Invalid column index: %s", column);
+		return indexNoCheck(row, column);
+	}
+
+	private int indexNoCheck(final int row, final int column) {
+		return row * columnCount + column;
+	}
+
+	@Override
+	public void addColumn() {
+		addColumn(columnCount);
+	}
+
+	@Override
+	public void addColumn(final int column) {
+		Preconditions.checkArgument(column <= columnCount, "Invalid column index: %s", column);
+		for (int i = rowCount - 1; i >= 0; --i) {
+			final int index = indexNoCheck(i, column);
+			listModel.add(index, defaultValues);
+		}
+		++columnCount;
+		updateIndices();
+	}
+
+	@Override
+	public void addColumns(final int column, final int count) {
+		Preconditions.checkArgument(count >= 0, "Invalid count: %s", count);
+		for (int i = 0; i < count; ++i) {
+			addColumn(column);
+		}
+	}
+
+	@Override
+	public void removeColumn() {
+		removeColumn(columnCount - 1);
+	}
+
+	@Override
+	public void removeColumn(final int column) {
+		Preconditions.checkArgument(column < columnCount, "Invalid column index: %s", column);
+		for (int i = rowCount - 1; i >= 0; --i) {
+			final int index = indexNoCheck(i, column);
+			listModel.remove(index);
+		}
+		--columnCount;
+		updateIndices();
+	}
+
+	@Override
+	public void removeColumns(final int column, final int count) {
+		Preconditions.checkArgument(count >= 0, "Invalid count: %s", count);
+		for (int i = 0; i < count; ++i) {
+			removeColumn(column);
+		}
+	}
+
+	@Override
+	public void addRow() {
+		addRow(rowCount);
+	}
+
+	@Override
+	public void addRow(final int row) {
+		Preconditions.checkArgument(row <= rowCount, "Invalid row index: %s", row);
+		final int index = indexNoCheck(row, 0);
+		for (int i = 0; i < columnCount; ++i) {
+			listModel.add(index, defaultValues);
+		}
+		++rowCount;
+		updateIndices();
+	}
+
+	@Override
+	public void addRows(final int row, final int count) {
+		Preconditions.checkArgument(count >= 0, "Invalid count: %s", count);
+		for (int i = 0; i < count; ++i) {
+			addRow(row);
+		}
+	}
+
+	@Override
+	public void removeRow() {
+		removeRow(rowCount - 1);
+	}
+
+	@Override
+	public void removeRow(final int row) {
+		Preconditions.checkArgument(row < rowCount, "Invalid row index: %s", row);
+		final int index = indexNoCheck(row, 0);
+		for (int i = 0; i < columnCount; ++i) {
+			listModel.remove(index);
+		}
+		--rowCount;
+		updateIndices();
+	}
+
+	@Override
+	public void removeRows(final int row, final int count) {
+		Preconditions.checkArgument(count >= 0, "Invalid count: %s", count);
+		for (int i = 0; i < count; ++i) {
+			removeRow(row);
+		}
+	}
+
+	@Override
+	public Map<K, JVariant> get(final int row, final int column) {
+		return listModel.get(index(row, column));
+	}
+
+	/**
+	 * @return The name of this model.
+	 */
+	@Override
+	public String getModelName() {
+		return listModel.getModelName();
+	}
+
+	/**
+	 * Returns a value from the root value map.
+	 *
+	 * @param key Key of the value to return.
+	 * @return The key's value or Optional.empty().
+	 */
+	@Override
+	public Optional<JVariant> getRootValue(final String key) {
+		return listModel.getRootValue(key);
+	}
+
+	/**
+	 * Puts a value in the root value map.
+	 *
+	 * @param key  The value's key
+	 * @param data The new value.
+	 */
+	@Override
+	public void putRootValue(final String key, final JVariant data) {
+		listModel.putRootValue(key, data);
+	}
+
+	/**
+	 * Removes a value from the root value map.
+	 *
+	 * @param key Key to remove.
+	 */
+	@Override
+	public void removeRootValue(final String key) {
+		listModel.removeRootValue(key);
+	}
+
+	@Override
+	public void setData(final int row, final int column, final Map<K, JVariant> data) {
+		listModel.setData(index(row, column), withDefaults(data));
+		final Map<K, JVariant> map = get(row, column);
+		map.putAll(ImmutableMap.of(rowKey, new JVariant(row), columnKey, new JVariant(column)));
+	}
+
+	@Override
+	public void serialize(final OutputStream stream, final ImmutableSet<String> rootKeysToPersist) throws IOException {
+		snapshot(rootKeysToPersist).write(stream);
+	}
+
+	@Override
+	public ModelSnapshot snapshot(final ImmutableSet<String> rootKeysToPersist) {
+		final JSONObject additional = new JSONObject();
+		additional.put("rows", rowCount);
+		additional.put("columns", columnCount);
+		return listModel.snapshot(additional, rootKeysToPersist);
+	}
+
+	@Override
+	public void deserialize(final InputStream stream, final ImmutableSet<String> rootKeysToPersist) throws IOException {
+		decode(stream, rootKeysToPersist).assign();
+	}
+
+	@Override
+	public void deserialize(final BinaryModelReader reader, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		decode(reader, rootKeysToPersist).assign();
+	}
+
+	@Override
+	public DecodedModel decode(final InputStream stream, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		return decoded(listModel.decode(stream, rootKeysToPersist));
+	}
+
+	@Override
+	public DecodedModel decode(final BinaryModelReader reader, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		return decoded(listModel.decode(reader, rootKeysToPersist));
+	}
+
+	private DecodedModel decoded(final DecodedListModel decoded) {
+		final JSONObject obj = decoded.getAdditional();
+		Objects.requireNonNull(obj, "Invalid data");
+		final int rows = obj.getInt("rows");
+		final int columns = obj.getInt("columns");
+		return () -> {
+			decoded.assign();
+			rowCount = rows;
+			columnCount = columns;
+
+			updateIndices();
+		};
+	}
+
+	/**
+	 * Register to receive callbacks when any part of the model changes, ex. add,
+	 * remove, update, reorder, root data, etc.
+	 */
+	@Override
+	public void registerModelChangedListener(final Runnable r) {
+		listModel.registerModelChangedListener(r);
+	}
+
+	/**
+	 * Unregister to receive callbacks when any part of the model changes.
+	 */
+	@Override
+	public void unregisterModelChangedListener(final Runnable r) {
+		listModel.unregisterModelChangedListener(r);
+	}
+
+	@Override
+	public SignalLock lockSignals() {
+		return listModel.lockSignals();
+	}
+
+	@Override
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return columnCount;
+	}
+
+	private void updateIndices() {
+		for (int row = 0; row < rowCount; ++row) {
+			for (int column = 0; column < columnCount; ++column) {
+				final Map<K, JVariant> map = get(row, column);
+				map.putAll(ImmutableMap.of(rowKey, new JVariant(row), columnKey, new JVariant(column)));
+			}
+		}
+
+		putRootValue("row_count", new JVariant(rowCount));
+		putRootValue("column_count", new JVariant(columnCount));
+	}
+
+	@Override
+	public void assign(final int rows, final int columns, final List<Map<K, JVariant>> list) {
+		Objects.requireNonNull(list, "list is null");
+		Preconditions.checkArgument(rows * columns == list.size(), "list length does not equal rows * columns");
+
+		listModel.assign(list.stream().map(this::withDefaults).collect(Collectors.toList()));
+		rowCount = rows;
+		columnCount = columns;
+		updateIndices();
+	}
+}
@@ -56,15 +56,22 @@ SOURCES += \
     impl/invoketarget.cpp \
     impl/listmodelfunctions.cpp \
     impl/painter.cpp \
+    impl/painterbenchmarkfunctions.cpp \
+    impl/paintergroupregistry.cpp \
+    impl/painterimageregistry.cpp \
     impl/painterinstructions.cpp \
     impl/qmllogging.cpp \
     impl/eventdispatcher.cpp \
     impl/requestbuilder.cpp \
+    impl/rolestore.cpp \
     impl/singletonmodelfunctions.cpp \
+    impl/tablemodelfunctions.cpp \
     impl/userinputsimulator.cpp \
     impl/qmlimageprovider.cpp \
+    impl/qmlasyncimageprovider.cpp \
     impl/jpolyline.cpp \
     impl/qmltest.cpp \
+    impl/scenepainter.cpp \
     impl/qmldatatransfer.cpp \
     impl/jniutilities.cpp \
     impl/keyeventpreprocessor.cpp \
@@ -83,17 +90,24 @@ HEADERS += \
     include/jniutilities.h \
     include/listmodelfunctions.h \
     include/painter.h \
+    include/painterbenchmarkfunctions.h \
+    include/paintergroupregistry.h \
+    include/painterimageregistry.h \
     include/painterinstructions.h \
     include/qmldatatransfer.h \
     include/eventbuilder.h \
     include/qmllogging.h \
     include/eventdispatcher.h \
     include/requestbuilder.h \
+    include/rolestore.h \
     include/singletonmodelfunctions.h \
+    include/tablemodelfunctions.h \
     include/userinputsimulator.h \
     include/qmlimageprovider.h \
+    include/qmlasyncimageprovider.h \
     include/jpolyline.h \
     include/qmltest.h \
+    include/scenepainter.h \
     include/keyeventpreprocessor.h \
     include/jdevelopmenttools.h
 
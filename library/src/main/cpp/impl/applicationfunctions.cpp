@@ -32,6 +32,7 @@
 #include <jpolyline.h>
 #include <dashedrectangle.h>
 #include <painter.h>
+#include <scenepainter.h>
 #include <QQmlContext>
 #include <QTimer>
 #include <QDateTime>
@@ -41,14 +42,19 @@
 #include <QFontMetrics>
 #include <QScreen>
 #include <QApplication>
+#include <QPainter>
 #include <iostream>
 #include <functional>
 #include <singletonmodelfunctions.h>
 #include <listmodelfunctions.h>
 #include <flattreemodelfunctions.h>
+#include <tablemodelfunctions.h>
 #include <keyeventpreprocessor.h>
 #include <jdevelopmenttools.h>
 
+#include "paintergroupregistry.h"
+#include "painterimageregistry.h"
+#include "qmlasyncimageprovider.h"
 #include "qmlimageprovider.h"
 #include "qmldatatransfer.h"
 #include <QQmlContext>
@@ -253,6 +259,29 @@ JNICALL void addImageProvider(JNIEnv* env, jclass, jstring id, jobject c)
     }
 }
 
+JNICALL void addAsyncImageProvider(JNIEnv* env, jclass, jstring id, jobject c)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        ApplicationFunctions::get()->addAsyncImageProviderObject(
+                    JNIUtilities::toQString(env, id), env->NewGlobalRef(c));
+    }
+}
+
+JNICALL void completeImageRequest(JNIEnv* env, jclass, jlong requestID, jobject jImage)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        // Converted on the calling Java thread so the Qt thread never waits on pixel copies.
+        QImage image;
+        if (jImage != nullptr)
+        {
+            image = ApplicationFunctions::get()->toQImage(env, jImage);
+        }
+        QMLAsyncImageResponse::complete(requestID, image);
+    }
+}
+
 JNICALL jobjectArray getScreens(JNIEnv* env, jclass)
 {
     if (ApplicationFunctions::check(env))
@@ -368,16 +397,81 @@ JNICALL void saveScreenshot(JNIEnv* env, jclass, jstring path)
     }
 }
 
-JNICALL jobject renderPainterInstructionsToImage(JNIEnv* env, jclass, jint length, jbyteArray data, jint w, jint h)
+static void paintOffThread(PainterInstructions& instr, QImage& image)
+{
+    image.fill(Qt::transparent);
+    QPainter painter(&image);
+    instr.paint(painter);
+}
+
+JNICALL void renderPainterInstructionsToArray(JNIEnv* env, jclass, jint length, jbyteArray data, jint w, jint h,
+                                              jintArray pixels)
+{
+    // Rasterizes on the calling thread into a reused per-thread scratch image.
+    thread_local QImage scratch;
+    if (scratch.width() != w || scratch.height() != h)
+    {
+        scratch = QImage(w, h, QImage::Format_ARGB32);
+    }
+
+    unsigned char* copy = new unsigned char[length];
+    env->GetByteArrayRegion(data, 0, length, reinterpret_cast<jbyte*>(copy));
+    PainterInstructions instr(length, copy);
+    paintOffThread(instr, scratch);
+
+    // ARGB32 scanlines are tightly packed, so the image is one contiguous run of ints.
+    env->SetIntArrayRegion(pixels, 0, w * h, reinterpret_cast<const jint*>(scratch.constBits()));
+}
+
+JNICALL void renderPainterInstructionsToBuffer(JNIEnv* env, jclass, jint length, jbyteArray data, jint w, jint h,
+                                               jobject buffer)
 {
-    jbyte* array = env->GetByteArrayElements(data, NULL);
+    void* address = env->GetDirectBufferAddress(buffer);
+    if (address == nullptr || env->GetDirectBufferCapacity(buffer) < static_cast<jlong>(w) * h * 4)
+    {
+        JNIUtilities::throwQMLException(env, "Buffer is not direct or is too small for the image");
+        return;
+    }
+
     unsigned char* copy = new unsigned char[length];
-    memcpy(copy, array, length);
+    env->GetByteArrayRegion(data, 0, length, reinterpret_cast<jbyte*>(copy));
     PainterInstructions instr(length, copy);
-    QImage ret = instr.toImage(w, h);
-    env->ReleaseByteArrayElements(data, array, JNI_ABORT);
+    QImage image(static_cast<uchar*>(address), w, h, w * 4, QImage::Format_ARGB32);
+    paintOffThread(instr, image);
+}
 
-    return QMLDataTransfer::toJVariant(env, ret);
+JNICALL jboolean containsPainterImage(JNIEnv*, jclass, jlong handle)
+{
+    return PainterImageRegistry::contains(handle);
+}
+
+JNICALL void registerPainterImage(JNIEnv* env, jclass, jlong handle, jint w, jint h, jintArray pixels, jboolean premultiplied)
+{
+    QImage image(w, h, premultiplied ? QImage::Format_ARGB32_Premultiplied : QImage::Format_ARGB32);
+    env->GetIntArrayRegion(pixels, 0, w * h, reinterpret_cast<jint*>(image.bits()));
+    PainterImageRegistry::insert(handle, image);
+}
+
+JNICALL void setPainterImageCacheSize(JNIEnv*, jclass, jlong bytes)
+{
+    PainterImageRegistry::setMaxBytes(bytes);
+}
+
+JNICALL jboolean containsPainterGroup(JNIEnv*, jclass, jlong handle)
+{
+    return PainterGroupRegistry::contains(handle);
+}
+
+JNICALL void registerPainterGroup(JNIEnv* env, jclass, jlong handle, jint length, jbyteArray data)
+{
+    unsigned char* copy = new unsigned char[length];
+    env->GetByteArrayRegion(data, 0, length, reinterpret_cast<jbyte*>(copy));
+    PainterGroupRegistry::insert(handle, std::make_shared<PainterGroup>(length, copy));
+}
+
+JNICALL void setPainterGroupCacheSize(JNIEnv*, jclass, jlong bytes)
+{
+    PainterGroupRegistry::setMaxBytes(bytes);
 }
 
 void ApplicationFunctions::create(int* argc, char** argv)
@@ -388,10 +482,12 @@ void ApplicationFunctions::create(int* argc, char** argv)
     qmlRegisterType<KeyEventPreProcessor>("com.github.sdankbar.jaqumal", 0, 4, "KeyEventPreProcessor");
     qmlRegisterUncreatableType<GenericListModel>("com.github.sdankbar.jaqumal", 0, 4, "GenericListModel", "Cannot create GenericListModel");
     qmlRegisterUncreatableType<GenericFlatTreeModel>("com.github.sdankbar.jaqumal", 0, 4, "GenericFlatTreeModel", "Cannot create GenericFlatTreeModel");
+    qmlRegisterUncreatableType<GenericTableModel>("com.github.sdankbar.jaqumal", 0, 4, "GenericTableModel", "Cannot create GenericTableModel");
     qmlRegisterUncreatableType<GenericObjectModel>("com.github.sdankbar.jaqumal", 0, 4, "GenericObjectModel", "Cannot create GenericObjectModel");
     qmlRegisterType<JPolyline>("com.github.sdankbar.jaqumal", 0, 4, "JPolyline");
     qmlRegisterType<DashedRectangle>("com.github.sdankbar.jaqumal", 0, 4, "DashedRectangle");
     qmlRegisterType<Painter>("com.github.sdankbar.jaqumal", 0, 4, "Painter");
+    qmlRegisterType<ScenePainter>("com.github.sdankbar.jaqumal", 0, 4, "ScenePainter");
     qmlRegisterType<JDevelopmentTools>("com.github.sdankbar.jaqumal", 0, 4, "JDevTools");
 
     SINGLETON = new ApplicationFunctions(*argc, argv);
@@ -469,10 +565,15 @@ jclass ApplicationFunctions::jscreenClass;
 jmethodID ApplicationFunctions::jscreenContructor;
 jclass ApplicationFunctions::imageProviderClass;
 jmethodID ApplicationFunctions::imageProviderInvoke;
+jclass ApplicationFunctions::asyncImageProviderClass;
+jmethodID ApplicationFunctions::asyncImageProviderRequest;
+jmethodID ApplicationFunctions::asyncImageProviderCancel;
 jclass ApplicationFunctions::bufferedImageClass;
 jmethodID ApplicationFunctions::bufferedImageGetWidth;
 jmethodID ApplicationFunctions::bufferedImageGetHeight;
-jmethodID ApplicationFunctions::bufferedImageGetRGB;
+jclass ApplicationFunctions::imageTransferClass;
+jmethodID ApplicationFunctions::imageTransferToARGB;
+jmethodID ApplicationFunctions::imageTransferIsPremultiplied;
 JNIEnv* ApplicationFunctions::mainEnv = nullptr;
 
 void ApplicationFunctions::initialize(JNIEnv* env)
@@ -483,11 +584,16 @@ void ApplicationFunctions::initialize(JNIEnv* env)
     jscreenContructor= env->GetMethodID(jscreenClass, "<init>", "(IIIID)V");
     imageProviderClass= JNIUtilities::findClassGlobalReference(env, "com/github/sdankbar/qml/cpp/jni/interfaces/ImageProviderCallback");
     imageProviderInvoke= env->GetMethodID(imageProviderClass, "invoke", "(Ljava/lang/String;II)Ljava/awt/image/BufferedImage;");
+    asyncImageProviderClass= JNIUtilities::findClassGlobalReference(env, "com/github/sdankbar/qml/cpp/jni/interfaces/AsyncImageProviderCallback");
+    asyncImageProviderRequest= env->GetMethodID(asyncImageProviderClass, "request", "(JLjava/lang/String;II)V");
+    asyncImageProviderCancel= env->GetMethodID(asyncImageProviderClass, "cancel", "(J)V");
 
     bufferedImageClass= JNIUtilities::findClassGlobalReference(env, "java/awt/image/BufferedImage");
     bufferedImageGetWidth= env->GetMethodID(bufferedImageClass, "getWidth", "()I");
     bufferedImageGetHeight= env->GetMethodID(bufferedImageClass, "getHeight", "()I");
-    bufferedImageGetRGB= env->GetMethodID(bufferedImageClass, "getRGB", "(IIII[III)[I");
+    imageTransferClass= JNIUtilities::findClassGlobalReference(env, "com/github/sdankbar/qml/utility/ImageTransfer");
+    imageTransferToARGB= env->GetStaticMethodID(imageTransferClass, "toARGB", "(Ljava/awt/image/BufferedImage;)[I");
+    imageTransferIsPremultiplied= env->GetStaticMethodID(imageTransferClass, "isPremultiplied", "(Ljava/awt/image/BufferedImage;)Z");
 
     static JNINativeMethod methods[] = {
         JNIUtilities::createJNIMethod("createQApplication",    "([Ljava/lang/String;)V",    (void *)&createQApplication),
@@ -503,6 +609,8 @@ void ApplicationFunctions::initialize(JNIEnv* env)
         JNIUtilities::createJNIMethod("quitQApplication",    "()V",    (void *)&quitQApplication),
         JNIUtilities::createJNIMethod("runQMLTests",    "(Ljava/lang/String;[Ljava/lang/String;)I",    (void *)&runQMLTests),
         JNIUtilities::createJNIMethod("addImageProvider",    "(Ljava/lang/String;Lcom/github/sdankbar/qml/cpp/jni/interfaces/ImageProviderCallback;)V",    (void *)&addImageProvider),
+        JNIUtilities::createJNIMethod("addAsyncImageProvider",    "(Ljava/lang/String;Lcom/github/sdankbar/qml/cpp/jni/interfaces/AsyncImageProviderCallback;)V",    (void *)&addAsyncImageProvider),
+        JNIUtilities::createJNIMethod("completeImageRequest",    "(JLjava/awt/image/BufferedImage;)V",    (void *)&completeImageRequest),
         JNIUtilities::createJNIMethod("getScreens",    "()[Lcom/github/sdankbar/qml/JScreen;",    (void *)&getScreens),
         JNIUtilities::createJNIMethod("invoke",    "(Lcom/github/sdankbar/qml/cpp/jni/interfaces/InvokeCallback;)V",    (void *)&invoke),
         JNIUtilities::createJNIMethod("enableEventLogging", "()V", (void *)&enableEventLogging),
@@ -519,7 +627,14 @@ void ApplicationFunctions::initialize(JNIEnv* env)
         JNIUtilities::createJNIMethod("injectKeyPressIntoApplication", "(IILjava/lang/String;ZI)V", (void *)&injectKeyPressIntoApplication),
         JNIUtilities::createJNIMethod("injectKeyReleaseIntoApplication", "(IILjava/lang/String;ZI)V", (void *)&injectKeyReleaseIntoApplication),
         JNIUtilities::createJNIMethod("saveScreenshot", "(Ljava/lang/String;)V", (void *)&saveScreenshot),
-        JNIUtilities::createJNIMethod("renderPainterInstructionsToImage", "(I[BII)Lcom/github/sdankbar/qml/JVariant;", (void *)&renderPainterInstructionsToImage),
+        JNIUtilities::createJNIMethod("renderPainterInstructionsToArray", "(I[BII[I)V", (void *)&renderPainterInstructionsToArray),
+        JNIUtilities::createJNIMethod("renderPainterInstructionsToBuffer", "(I[BIILjava/nio/ByteBuffer;)V", (void *)&renderPainterInstructionsToBuffer),
+        JNIUtilities::createJNIMethod("containsPainterImage", "(J)Z", (void *)&containsPainterImage),
+        JNIUtilities::createJNIMethod("registerPainterImage", "(JII[IZ)V", (void *)&registerPainterImage),
+        JNIUtilities::createJNIMethod("setPainterImageCacheSize", "(J)V", (void *)&setPainterImageCacheSize),
+        JNIUtilities::createJNIMethod("containsPainterGroup", "(J)Z", (void *)&containsPainterGroup),
+        JNIUtilities::createJNIMethod("registerPainterGroup", "(JI[B)V", (void *)&registerPainterGroup),
+        JNIUtilities::createJNIMethod("setPainterGroupCacheSize", "(J)V", (void *)&setPainterGroupCacheSize),
     };
     jclass javaClass = env->FindClass("com/github/sdankbar/qml/cpp/jni/ApplicationFunctions");
     env->RegisterNatives(javaClass, methods, sizeof(methods) / sizeof(methods[0]));
@@ -531,7 +646,9 @@ void ApplicationFunctions::uninitialize(JNIEnv* env)
     env->DeleteGlobalRef(loggingCallback);
     env->DeleteGlobalRef(jscreenClass);
     env->DeleteGlobalRef(imageProviderClass);
+    env->DeleteGlobalRef(asyncImageProviderClass);
     env->DeleteGlobalRef(bufferedImageClass);
+    env->DeleteGlobalRef(imageTransferClass);
 }
 
 ApplicationFunctions* ApplicationFunctions::SINGLETON = nullptr;
@@ -551,7 +668,9 @@ ApplicationFunctions::ApplicationFunctions(int32_t& argc, char** argv) :
     m_qmlEngine(new QQmlApplicationEngine(m_qapp)),
     m_uiSim(),
     m_logging(),
-    m_eventLogger(nullptr)
+    m_eventLogger(nullptr),
+    m_sceneGraphWindow(nullptr),
+    m_scenePainter(nullptr)
 {
     m_qmlEngine->rootContext()->setContextProperty("log", QVariant::fromValue(&m_logging));
     m_qmlEngine->rootContext()->setContextProperty("userInputSim", QVariant::fromValue(&m_uiSim));
@@ -569,6 +688,10 @@ ApplicationFunctions::~ApplicationFunctions()
 
         m_qapp->closeAllWindows();
 
+        delete m_sceneGraphWindow;
+        m_sceneGraphWindow = nullptr;
+        m_scenePainter = nullptr;
+
         QList<QObject*> roots = m_qmlEngine->rootObjects();
         for (QObject* obj: roots)
         {
@@ -655,6 +778,13 @@ void ApplicationFunctions::addImageProviderObject(const QString& id, jobject jav
                 id, new QMLImageProvider(createImageProviderFunctionCallback(mainEnv, javaImageProviderCallback)));
 }
 
+void ApplicationFunctions::addAsyncImageProviderObject(const QString& id, jobject javaAsyncImageProviderCallback)
+{
+    m_qmlEngine->addImageProvider(
+                id, new QMLAsyncImageProvider(createAsyncImageRequestCallback(javaAsyncImageProviderCallback),
+                                              createAsyncImageCancelCallback(javaAsyncImageProviderCallback)));
+}
+
 void ApplicationFunctions::setWindowIcon(const QIcon& icon)
 {
     m_qapp->setWindowIcon(icon);
@@ -701,9 +831,40 @@ std::function<QImage(const QString&,int32_t,int32_t)> ApplicationFunctions::crea
     return func;
 }
 
-void cleanupMemory2(void* ptr)
+std::function<void(jlong,const QString&,int32_t,int32_t)> ApplicationFunctions::createAsyncImageRequestCallback(jobject obj)
 {
-    delete static_cast<unsigned char*>(ptr);
+    std::function<void(jlong,const QString&,int32_t,int32_t)> func = [=] (jlong requestID, const QString& id, int32_t w, int32_t h) {
+        // Called from Qt's image loader threads, which stay attached for their lifetime.
+        JNIEnv* threadEnv = JNIUtilities::attachThreadAsDaemon();
+        jstring jStr = JNIUtilities::toJString(threadEnv, id);
+        threadEnv->CallVoidMethod(obj, asyncImageProviderRequest, requestID, jStr, w, h);
+        threadEnv->DeleteLocalRef(jStr);
+
+        if (threadEnv->ExceptionCheck())
+        {
+            std::cerr << "Exception when calling async image provider" << std::endl;
+            threadEnv->ExceptionDescribe();
+            threadEnv->ExceptionClear();
+            QMLAsyncImageResponse::complete(requestID, QImage());
+        }
+    };
+    return func;
+}
+
+std::function<void(jlong)> ApplicationFunctions::createAsyncImageCancelCallback(jobject obj)
+{
+    std::function<void(jlong)> func = [=] (jlong requestID) {
+        JNIEnv* threadEnv = JNIUtilities::attachThreadAsDaemon();
+        threadEnv->CallVoidMethod(obj, asyncImageProviderCancel, requestID);
+
+        if (threadEnv->ExceptionCheck())
+        {
+            std::cerr << "Exception when cancelling async image request" << std::endl;
+            threadEnv->ExceptionDescribe();
+            threadEnv->ExceptionClear();
+        }
+    };
+    return func;
 }
 
 QImage ApplicationFunctions::toQImage(JNIEnv* env, jobject bufferedImage)
@@ -727,25 +888,46 @@ QImage ApplicationFunctions::toQImage(JNIEnv* env, jobject bufferedImage)
     }
 
     jintArray pixelData = static_cast<jintArray>(
-                env->CallObjectMethod(bufferedImage, bufferedImageGetRGB, 0, 0, w, h, nullptr, 0, w));
+                env->CallStaticObjectMethod(imageTransferClass, imageTransferToARGB, bufferedImage));
+    jboolean premultiplied = JNI_FALSE;
+    if (!env->ExceptionCheck())
+    {
+        premultiplied = env->CallStaticBooleanMethod(imageTransferClass, imageTransferIsPremultiplied, bufferedImage);
+    }
 
     if (env->ExceptionCheck())
     {
-        std::cerr << "Exception when calling converting buffered image to QImage (getRGB)" << std::endl;
+        std::cerr << "Exception when calling converting buffered image to QImage (toARGB)" << std::endl;
         env->ExceptionDescribe();
         env->ExceptionClear();
         return QImage();
     }
     else
     {
-        const int32_t pixels = w * h;
-        const int32_t byteCount = 4 * pixels;
-        unsigned char* copy = new unsigned char[byteCount];
-        env->GetIntArrayRegion(pixelData, 0, pixels,  reinterpret_cast<jint*>(copy));
-        return QImage(copy, w, h, QImage::Format_ARGB32, &cleanupMemory2);
+        // Same single copy as QMLDataTransfer's setImage, straight into the image's storage.
+        QImage image(w, h, premultiplied ? QImage::Format_ARGB32_Premultiplied : QImage::Format_ARGB32);
+        env->GetIntArrayRegion(pixelData, 0, w * h, reinterpret_cast<jint*>(image.bits()));
+        env->DeleteLocalRef(pixelData);
+        return image;
     }
 }
 
+QImage ApplicationFunctions::renderWithSceneGraph(const PainterInstructions& instructions, int32_t width, int32_t height)
+{
+    // The window is kept so repeated renders reuse the scene graph and its nodes.
+    if (!m_sceneGraphWindow)
+    {
+        m_sceneGraphWindow = new QQuickWindow();
+        m_sceneGraphWindow->setColor(Qt::transparent);
+        m_scenePainter = new ScenePainter(m_sceneGraphWindow->contentItem());
+    }
+    m_sceneGraphWindow->resize(width, height);
+    m_scenePainter->setSize(QSizeF(width, height));
+    m_scenePainter->setInstructions(instructions);
+
+    return m_sceneGraphWindow->grabWindow();
+}
+
 void ApplicationFunctions::addToContext(const QString& name, const QVariant& value)
 {
     m_objectLookupMap.insert(name, value);
@@ -36,7 +36,10 @@
 #include <QFontMetrics>
 #include <QScreen>
 #include <QApplication>
+#include <algorithm>
 #include <functional>
+#include <iostream>
+#include <iterator>
 
 #include <applicationfunctions.h>
 #include <jniutilities.h>
@@ -45,6 +48,16 @@
 namespace
 {
 const QString SUBMODEL_ROLE("SUBMODEL");
+
+int32_t roleColumnCount(const QHash<int, QByteArray>& roleMap)
+{
+    int32_t count = 0;
+    for (int key: roleMap.keys())
+    {
+        count = std::max(count, key - Qt::UserRole + 1);
+    }
+    return count;
+}
 }
 
 std::deque<int32_t> toTreePath(jint* index, int32_t count)
@@ -90,7 +103,7 @@ jlong JNICALL createGenericFlatTreeModel(JNIEnv* env, jclass, jstring modelName,
         env->ReleaseIntArrayElements(roleIndices, roleArray, JNI_ABORT);
 
 
-        GenericFlatTreeModel* modelPtr = new GenericFlatTreeModel(modelNameStr, roleNameMap, 0);
+        GenericFlatTreeModel* modelPtr = new GenericFlatTreeModel(modelNameStr, roleNameMap);
         ApplicationFunctions::get()->addToContext(modelNameStr, modelPtr);
         return reinterpret_cast<jlong>(modelPtr);
     }
@@ -300,8 +313,93 @@ void JNICALL assignGenericFlatTreeModelData(JNIEnv* env, jclass, jlong pointer,
     }
 }
 
+/*
+ * Class:     com_github_sdankbar_qml_cpp_jni_flat_tree_FlatTreeQMLAPIFast
+ * Method:    loadGenericFlatTreeModelSubtree
+ * Signature: (J[I[IZ)I
+ */
+jint JNICALL loadGenericFlatTreeModelSubtree(JNIEnv* env, jclass, jlong pointer, jintArray path, jintArray structure,
+                                             jboolean replace)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericFlatTreeModel*>(pointer);
+        std::deque<int32_t> indicies = toTreePath(env, path);
+
+        const jsize length = env->GetArrayLength(structure);
+        std::vector<int32_t> structureVec(length);
+        env->GetIntArrayRegion(structure, 0, length, reinterpret_cast<jint*>(structureVec.data()));
+
+        jint ret = modelPtr->loadSubtree(indicies,
+                                         structureVec,
+                                         replace,
+                                         QMLDataTransfer::getPendingVariants(),
+                                         QMLDataTransfer::getPendingRoleIndices());
+        QMLDataTransfer::clearPendingData();
+        return ret;
+    }
+    else
+    {
+        return -1;
+    }
+}
+
+void JNICALL lockFlatTreeDataChangedSignal(JNIEnv* env, jclass, jlong pointer)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericFlatTreeModel*>(pointer);
+        modelPtr->lockDataChangedSignal();
+    }
+}
+
+void JNICALL unlockFlatTreeDataChangedSignal(JNIEnv* env, jclass, jlong pointer)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericFlatTreeModel*>(pointer);
+        modelPtr->unlockDataChangedSignal();
+    }
+}
+
+void JNICALL setGenericFlatTreeModelExpanded(JNIEnv* env, jclass, jlong pointer, jintArray path, jboolean expanded)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericFlatTreeModel*>(pointer);
+        std::deque<int32_t> indicies = toTreePath(env, path);
+        modelPtr->setExpanded(indicies, expanded);
+    }
+}
+
+void JNICALL registerFlatTreeModelChangedCallback(JNIEnv* env, jclass, jlong pointer, jobject c)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericFlatTreeModel*>(pointer);
+        jobject globalC = env->NewGlobalRef(c);
+        modelPtr->registerModelChangedListener(globalC);
+    }
+}
+
+void JNICALL registerFlatTreeExpansionCallback(JNIEnv* env, jclass, jlong pointer, jobject c)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericFlatTreeModel*>(pointer);
+        jobject globalC = env->NewGlobalRef(c);
+        modelPtr->registerExpansionCallback(globalC);
+    }
+}
+
+jclass FlatTreeModelFunctions::expansionClass;
+jmethodID FlatTreeModelFunctions::expansionMethod;
+
 void FlatTreeModelFunctions::initialize(JNIEnv* env)
 {
+    expansionClass = JNIUtilities::findClassGlobalReference(env, "com/github/sdankbar/qml/cpp/jni/interfaces/TreeExpansionCallback");
+    expansionMethod = env->GetMethodID(expansionClass, "invoke", "([IZ)V");
+
     JNINativeMethod methods[] = {
         JNIUtilities::createJNIMethod("createGenericFlatTreeModel",    "(Ljava/lang/String;[Ljava/lang/String;[I)J",    (void *)&createGenericFlatTreeModel),
         JNIUtilities::createJNIMethod("appendGenericFlatTreeModelData",    "(J[I)I",    (void *)&appendGenericFlatTreeModelData),
@@ -315,6 +413,12 @@ void FlatTreeModelFunctions::initialize(JNIEnv* env)
         JNIUtilities::createJNIMethod("reorderGenericFlatTreeModel",    "(J[I[I)V",    (void *)&reorderGenericFlatTreeModel),
         JNIUtilities::createJNIMethod("setGenericFlatTreeModelData",    "(J[I)V",    (void *)&setGenericFlatTreeModelData),
         JNIUtilities::createJNIMethod("assignGenericFlatTreeModelData",    "(J[I)V",    (void *)&assignGenericFlatTreeModelData),
+        JNIUtilities::createJNIMethod("loadGenericFlatTreeModelSubtree",    "(J[I[IZ)I",    (void *)&loadGenericFlatTreeModelSubtree),
+        JNIUtilities::createJNIMethod("lockDataChangedSignal",    "(J)V",    (void *)&lockFlatTreeDataChangedSignal),
+        JNIUtilities::createJNIMethod("unlockDataChangedSignal",    "(J)V",    (void *)&unlockFlatTreeDataChangedSignal),
+        JNIUtilities::createJNIMethod("setGenericFlatTreeModelExpanded",    "(J[IZ)V",    (void *)&setGenericFlatTreeModelExpanded),
+        JNIUtilities::createJNIMethod("registerExpansionCallback",    "(JLcom/github/sdankbar/qml/cpp/jni/interfaces/TreeExpansionCallback;)V",    (void *)&registerFlatTreeExpansionCallback),
+        JNIUtilities::createJNIMethod("registerModelChangedCallback",    "(JLcom/github/sdankbar/qml/cpp/jni/interfaces/InvokeCallback;)V",    (void *)&registerFlatTreeModelChangedCallback),
     };
     jclass javaClass = env->FindClass("com/github/sdankbar/qml/cpp/jni/flat_tree/FlatTreeModelFunctions");
     env->RegisterNatives(javaClass, methods, sizeof(methods)/sizeof(JNINativeMethod));
@@ -326,12 +430,30 @@ void FlatTreeModelFunctions::uninitialize(JNIEnv*)
     // Empty Implementation
 }
 
+void FlatTreeModelFunctions::invokeExpansionCallback(jobject callback, jintArray path, bool expanded)
+{
+    JNIEnv* env = ApplicationFunctions::mainEnv;
+    env->CallVoidMethod(callback, expansionMethod, path, static_cast<jboolean>(expanded));
+    if (env->ExceptionCheck())
+    {
+        std::cerr << "Exception when calling TreeExpansionCallback" << std::endl;
+        env->ExceptionDescribe();
+        env->ExceptionClear();
+    }
+}
+
 
-GenericFlatTreeModel::GenericFlatTreeModel(const QString& modelName, const QHash<int, QByteArray>& roleMap, int32_t depth)
+GenericFlatTreeModel::GenericFlatTreeModel(const QString& modelName, const QHash<int, QByteArray>& roleMap)
     : QAbstractListModel(nullptr),
       m_modelName(modelName),
-      m_roleNames(roleMap),
-      m_depth(depth)
+      m_roleData(roleColumnCount(roleMap)),
+      m_renumberFrom(0),
+      m_dataChangedLocked(false),
+      m_submodelIndex(-1),
+      m_parentRoleIndex(-1),
+      m_flatIndexRoleIndex(-1),
+      m_expandedRoleIndex(-1),
+      m_roleNames(roleMap)
 {
     auto iter = m_roleNames.constBegin();
     auto end = m_roleNames.constEnd();
@@ -349,6 +471,10 @@ GenericFlatTreeModel::GenericFlatTreeModel(const QString& modelName, const QHash
         {
             m_flatIndexRoleIndex = iter.key();
         }
+        else if (QString(iter.value()) == "IS_EXPANDED")
+        {
+            m_expandedRoleIndex = iter.key();
+        }
 
         m_indexToStringRoleMap[iter.key()] = iter.value();
         m_stringToIndexRoleMap[iter.value()] = iter.key();
@@ -360,33 +486,6 @@ const QString& GenericFlatTreeModel::modelName() const
     return m_modelName;
 }
 
-QSharedPointer<GenericFlatTreeModel> GenericFlatTreeModel::getSubmodel(qint32 row, bool create)
-{
-    if (row < m_rowData.size())
-    {
-        auto iter = m_rowData[row].find(m_submodelIndex);
-        if (iter != m_rowData[row].end())
-        {
-            return qvariant_cast<QSharedPointer<GenericFlatTreeModel> >(iter.value());
-        }
-        else if (create)
-        {
-            QSharedPointer<GenericFlatTreeModel> p =
-                    QSharedPointer<GenericFlatTreeModel>::create(m_modelName, m_roleNames, m_depth + 1);
-            m_rowData[row].insert(m_submodelIndex, QVariant::fromValue(p));
-            return p;
-        }
-        else
-        {
-            return QSharedPointer<GenericFlatTreeModel>();
-        }
-    }
-    else
-    {
-        return QSharedPointer<GenericFlatTreeModel>();
-    }
-}
-
 int GenericFlatTreeModel::rowCount(const QModelIndex &parent) const
 {
     // For list models only the root node (an invalid parent) should return the list's size. For all
@@ -407,24 +506,9 @@ QVariant GenericFlatTreeModel::data(const QModelIndex &index, int role) const
     {
         return QVariant();
     }
-    if (index.row() >= 0 && index.row() < m_flatData.size())
+    if (index.row() >= 0 && index.row() < m_flatData.size() && m_indexToStringRoleMap.contains(role))
     {
-        const auto& data = m_flatData[index.row()];
-        if (m_indexToStringRoleMap.contains(role))
-        {
-            if (data->contains(role))
-            {
-                return *(data->find(role));
-            }
-            else
-            {
-                return QVariant();
-            }
-        }
-        else
-        {
-            return QVariant();
-        }
+        return roleData(m_flatData[index.row()], index.row(), role);
     }
     else
     {
@@ -441,81 +525,34 @@ bool GenericFlatTreeModel::setData(const QModelIndex &i, const QVariant &value,
 
     if (i.row() >= 0 && i.row() < m_flatData.size())
     {
-        auto& data = m_flatData[i.row()];
-        data->insert(role, value);
-        emit dataChanged(index(i.row(), 0), index(i.row(), 0));
-        return true;
-    }
-    else
-    {
-        return false;
-    }
-}
-
-QVariant GenericFlatTreeModel::getRowData(std::deque<int32_t>& indicies, int32_t roleIndex)
-{
-    if (indicies.size() == 1)
-    {
-        int32_t row = indicies[0];
-        if (0 <= row && row < m_rowData.size())
+        if (role == m_expandedRoleIndex)
         {
-            auto iter = m_rowData[row].find(roleIndex);
-            if (iter != m_rowData[row].end())
-            {
-                return iter.value();
-            }
-            else
-            {
-                return QVariant();
-            }
+            setExpanded(i.row(), value.toBool());
         }
         else
         {
-            return QVariant();
+            setNodeData(m_flatData[i.row()], role, value);
+            emitNodeChanged(m_flatData[i.row()]);
+            callbackModelChangedListeners();
         }
+        return true;
     }
     else
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
-        {
-            indicies.pop_front();
-            return p->getRowData(indicies, roleIndex);
-        }
-        else
-        {
-            return QVariant();
-        }
+        return false;
     }
 }
 
-const QHash<int32_t, QVariant>& GenericFlatTreeModel::getRowData(std::deque<int32_t>& indicies)
+QVariant GenericFlatTreeModel::getRowData(std::deque<int32_t>& indicies, int32_t roleIndex)
 {
-    static const QHash<int32_t, QVariant> empty;
-    if (indicies.size() == 1)
+    const FlatTreeNode* node = findNode(indicies);
+    if (node != nullptr && node != &m_root)
     {
-        int32_t row = indicies[0];
-        if (0 <= row && row < m_rowData.size())
-        {
-            return m_rowData[row];
-        }
-        else
-        {
-            return empty;
-        }
+        return roleData(node, -1, roleIndex);
     }
     else
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0], false);
-        if (p)
-        {
-            indicies.pop_front();
-            return p->getRowData(indicies);
-        }
-        else
-        {
-            return empty;
-        }
+        return QVariant();
     }
 }
 
@@ -523,7 +560,7 @@ QVariant GenericFlatTreeModel::getRowData(qint32 flatRow, qint32 roleIndex) cons
 {
     if (0 <= flatRow && flatRow < m_flatData.size())
     {
-        return m_flatData[flatRow]->value(roleIndex);
+        return roleData(m_flatData[flatRow], flatRow, roleIndex);
     }
     else
     {
@@ -546,10 +583,15 @@ QVariant GenericFlatTreeModel::getRowData(qint32 flatRow, const QString& roleNam
 
 void GenericFlatTreeModel::setRowData(qint32 flatRow, const QVariant& value, qint32 roleIndex)
 {
-    if (flatRow >= 0 && flatRow < m_flatData.size())
+    if (roleIndex == m_expandedRoleIndex)
+    {
+        setExpanded(flatRow, value.toBool());
+    }
+    else if (flatRow >= 0 && flatRow < m_flatData.size())
     {
-        m_flatData[flatRow]->insert(roleIndex, value);
-        emit dataChanged(index(flatRow, 0), index(flatRow, 0));
+        setNodeData(m_flatData[flatRow], roleIndex, value);
+        emitNodeChanged(m_flatData[flatRow]);
+        callbackModelChangedListeners();
     }
 }
 
@@ -569,379 +611,801 @@ qint32 GenericFlatTreeModel::getSize() const
 
 void GenericFlatTreeModel::setRowData(std::deque<int32_t>& indicies, const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
 {
-    std::deque<int32_t> indiciesCopy = indicies;
-    int32_t added = 0;
-    if (indicies.size() == 1)
+    FlatTreeNode* parent = findParent(indicies);
+    if (parent == nullptr)
     {
-        int32_t row = indicies[0];
-        while (m_rowData.size() <= row)
-        {
-            QHash<int32_t, QVariant> map;
-            m_rowData.push_back(map);
-            ++added;
-        }
+        return;
+    }
 
-        for (int32_t i = 0; i < roleIndex.size(); ++i)
+    const int32_t row = indicies.back();
+    const int32_t existing = parent->m_children.size();
+    if (row >= existing)
+    {
+        // Setting past the end of the child list adds empty rows up to and including row.
+        static const std::vector<QVariant> NO_DATA;
+        std::vector<std::unique_ptr<FlatTreeNode> > nodes;
+        for (int32_t i = existing; i < row; ++i)
         {
-            m_rowData[row].insert(roleIndex[i], data[i]);
+            nodes.push_back(newNode(NO_DATA, QVector<int32_t>()));
         }
+        nodes.push_back(newNode(data, roleIndex));
+        spliceNodes(parent, existing, nodes);
     }
     else
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
+        FlatTreeNode* node = parent->m_children[row].get();
+        for (int32_t i = 0; i < roleIndex.size(); ++i)
         {
-            indicies.pop_front();
-            p->setRowData(indicies, data, roleIndex);
+            setNodeData(node, roleIndex[i], data[i]);
         }
+        emitNodeChanged(node);
     }
+}
 
-    if (m_depth == 0)
+void GenericFlatTreeModel::assignRowData(std::deque<int32_t>& indicies, const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
+{
+    FlatTreeNode* parent = findParent(indicies);
+    if (parent != nullptr && indicies.back() < static_cast<int32_t>(parent->m_children.size()))
     {
-        updateFlatData(indiciesCopy, added);
+        m_roleData.clearRow(parent->m_children[indicies.back()]->m_slot);
     }
+    setRowData(indicies, data, roleIndex);
 }
 
-void GenericFlatTreeModel::assignRowData(std::deque<int32_t>& indicies, const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
+int32_t GenericFlatTreeModel::appendRowData(std::deque<int32_t>& indicies, const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
 {
-    std::deque<int32_t> indiciesCopy = indicies;
-    int32_t added = 0;
-    if (indicies.size() == 1)
+    FlatTreeNode* parent = findNode(indicies);
+    if (parent == nullptr)
     {
-        int32_t row = indicies[0];
-        while (m_rowData.size() <= row)
+        return -1;
+    }
+
+    std::vector<std::unique_ptr<FlatTreeNode> > nodes;
+    nodes.push_back(newNode(data, roleIndex));
+    const int32_t newIndex = parent->m_children.size();
+    spliceNodes(parent, newIndex, nodes);
+    return newIndex;
+}
+
+int32_t GenericFlatTreeModel::loadSubtree(std::deque<int32_t>& indicies, const std::vector<int32_t>& structure,
+                                          bool replace, const std::vector<QVariant>& data,
+                                          const QVector<int32_t>& roleIndex)
+{
+    FlatTreeNode* parent = findNode(indicies);
+    if (parent == nullptr || structure.empty())
+    {
+        return -1;
+    }
+
+    // Build every node before touching the model so malformed input leaves it unchanged.
+    const int32_t topCount = structure[0];
+    size_t structurePos = 1;
+    size_t dataPos = 0;
+    std::vector<std::unique_ptr<FlatTreeNode> > nodes;
+    nodes.reserve(std::max(topCount, 0));
+    for (int32_t i = 0; i < topCount; ++i)
+    {
+        std::unique_ptr<FlatTreeNode> n = buildSubtree(structure, structurePos, data, roleIndex, dataPos);
+        if (!n)
         {
-            QHash<int32_t, QVariant> map;
-            m_rowData.push_back(map);
-            ++added;
+            std::cerr << "Malformed subtree passed to " << m_modelName.toStdString() << std::endl;
+            for (auto& built: nodes)
+            {
+                releaseSlots(built.get());
+            }
+            return -1;
         }
+        nodes.push_back(std::move(n));
+    }
 
-        m_rowData[row].clear();
-        for (int32_t i = 0; i < roleIndex.size(); ++i)
+    if (replace && parent == &m_root)
+    {
+        // Replacing the whole tree is cheaper to present as a reset than as a removal and an insertion.
+        flushDataChanged();
+        beginResetModel();
+        for (auto& old: m_root.m_children)
         {
-            m_rowData[row].insert(roleIndex[i], data[i]);
+            releaseSlots(old.get());
         }
+        m_root.m_children = std::move(nodes);
+        m_root.m_visibleSize = 1;
+        m_flatData.clear();
+        for (auto& n: m_root.m_children)
+        {
+            n->m_parent = &m_root;
+            m_root.m_visibleSize += n->m_visibleSize;
+            appendPreorder(n.get(), m_flatData);
+        }
+        flatDataMoved(0);
+        endResetModel();
+        return 0;
     }
-    else
+
+    if (replace)
+    {
+        removeChildren(parent);
+    }
+    const int32_t first = parent->m_children.size();
+    spliceNodes(parent, first, nodes);
+    return first;
+}
+
+void GenericFlatTreeModel::insertRowData(std::deque<int32_t>& indicies, const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
+{
+    FlatTreeNode* parent = findParent(indicies);
+    if (parent == nullptr)
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
+        return;
+    }
+
+    std::vector<std::unique_ptr<FlatTreeNode> > nodes;
+    nodes.push_back(newNode(data, roleIndex));
+    const int32_t row = std::min(indicies.back(), static_cast<int32_t>(parent->m_children.size()));
+    spliceNodes(parent, row, nodes);
+}
+
+void GenericFlatTreeModel::erase(std::deque<int32_t>& indicies)
+{
+    FlatTreeNode* parent = findParent(indicies);
+    if (parent != nullptr && indicies.back() < static_cast<int32_t>(parent->m_children.size()))
+    {
+        removeNode(parent, indicies.back());
+    }
+}
+
+QHash<int, QByteArray> GenericFlatTreeModel::roleNames() const
+{
+    return m_roleNames;
+}
+
+void GenericFlatTreeModel::clear(std::deque<int32_t>& indicies, int32_t roleIndex)
+{
+    FlatTreeNode* node = findNode(indicies);
+    if (node != nullptr && node != &m_root)
+    {
+        if (roleIndex == m_submodelIndex)
         {
-            indicies.pop_front();
-            p->setRowData(indicies, data, roleIndex);
+            removeChildren(node);
+        }
+        else if (m_roleData.contains(node->m_slot, roleIndex - Qt::UserRole))
+        {
+            m_roleData.clear(node->m_slot, roleIndex - Qt::UserRole);
+            emitNodeChanged(node);
         }
     }
+}
 
-    if (m_depth == 0)
+void GenericFlatTreeModel::clear(std::deque<int32_t>& indicies)
+{
+    FlatTreeNode* node = findNode(indicies);
+    if (node != nullptr && node != &m_root)
     {
-        updateFlatData(indiciesCopy, added);
+        // Clearing a node also clears its children.
+        removeChildren(node);
+        m_roleData.clearRow(node->m_slot);
+        emitNodeChanged(node);
     }
 }
 
-int32_t GenericFlatTreeModel::appendRowData(std::deque<int32_t>& indicies, const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
+int32_t GenericFlatTreeModel::getSize(std::deque<int32_t>& indicies)
 {
-    std::deque<int32_t> indiciesCopy = indicies;
-    int32_t retVal = -1;
-    if (indicies.size() == 0)
+    const FlatTreeNode* node = findNode(indicies);
+    if (node != nullptr)
     {
-        int32_t newIndex = m_rowData.size();
-        std::deque<int32_t> newIndexList;
-        newIndexList.push_back(newIndex);
-        setRowData(newIndexList, data, roleIndex);
-        retVal = newIndex;
+        return node->m_children.size();
     }
     else
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
+        return 0;
+    }
+}
+
+bool GenericFlatTreeModel::containsRole(std::deque<int32_t>& indicies, int32_t roleIndex)
+{
+    const FlatTreeNode* node = findNode(indicies);
+    if (node != nullptr && node != &m_root)
+    {
+        if (roleIndex == m_parentRoleIndex || roleIndex == m_flatIndexRoleIndex || roleIndex == m_expandedRoleIndex)
+        {
+            return true;
+        }
+        else if (roleIndex == m_submodelIndex)
         {
-            indicies.pop_front();
-            retVal = p->appendRowData(indicies, data, roleIndex);
+            return !node->m_children.empty();
         }
         else
         {
-            retVal = -1;
+            return m_roleData.contains(node->m_slot, roleIndex - Qt::UserRole);
         }
     }
-
-    if (m_depth == 0 && retVal != -1)
+    else
     {
-        indiciesCopy.push_back(retVal);
-        updateFlatData(indiciesCopy, 1);
+        return false;
     }
-    return retVal;
 }
 
-void GenericFlatTreeModel::insertRowData(std::deque<int32_t>& indicies, const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
+void GenericFlatTreeModel::reorder(std::deque<int32_t>& indicies, const std::vector<int32_t>& ordering)
 {
-    std::deque<int32_t> indiciesCopy = indicies;
-    if (indicies.size() == 1)
+    FlatTreeNode* node = findNode(indicies);
+    if (node == nullptr || ordering.size() != node->m_children.size() || node->m_children.empty())
     {
-        int32_t row = indicies[0];
-        int32_t actualRow = std::min((qsizetype) row, m_rowData.size());
-        QHash<int32_t, QVariant> map;
-        for (int32_t i = 0; i < roleIndex.size(); ++i)
+        return;
+    }
+
+    const bool visible = childrenVisible(node);
+    if (visible)
+    {
+        flushDataChanged();
+        emit layoutAboutToBeChanged();
+    }
+
+    std::vector<std::unique_ptr<FlatTreeNode> > reordered;
+    reordered.reserve(ordering.size());
+    for (int32_t i: ordering)
+    {
+        reordered.push_back(std::move(node->m_children[i]));
+    }
+    node->m_children.swap(reordered);
+
+    if (!visible)
+    {
+        return;
+    }
+
+    // Only the rows below node move, so rebuild just that range of the flat list.
+    const int32_t first = flatIndexOf(node) + 1;
+    QVector<FlatTreeNode*> block;
+    block.reserve(node->m_visibleSize - 1);
+    for (const auto& child: node->m_children)
+    {
+        appendPreorder(child.get(), block);
+    }
+
+    const QModelIndexList oldPersistent = persistentIndexList();
+    QHash<const FlatTreeNode*, int32_t> newRows;
+    if (!oldPersistent.isEmpty())
+    {
+        newRows.reserve(block.size());
+        for (int32_t i = 0; i < block.size(); ++i)
         {
-            map.insert(roleIndex[i], data[i]);
+            newRows.insert(block[i], first + i);
         }
-        m_rowData.insert(actualRow, map);
     }
-    else
+    QModelIndexList newPersistent;
+    newPersistent.reserve(oldPersistent.size());
+    for (const QModelIndex& i: oldPersistent)
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
+        if (first <= i.row() && i.row() < first + block.size())
         {
-            indicies.pop_front();
-            p->insertRowData(indicies, data, roleIndex);
+            newPersistent.append(index(newRows.value(m_flatData[i.row()]), 0));
+        }
+        else
+        {
+            newPersistent.append(i);
         }
     }
 
-    if (m_depth == 0)
+    std::copy(block.begin(), block.end(), m_flatData.begin() + first);
+    flatDataMoved(first);
+    changePersistentIndexList(oldPersistent, newPersistent);
+
+    emit layoutChanged();
+}
+
+FlatTreeNode* GenericFlatTreeModel::findNode(const std::deque<int32_t>& indicies) const
+{
+    const FlatTreeNode* node = &m_root;
+    for (int32_t i: indicies)
     {
-        updateFlatData(indiciesCopy, 1);
+        if (0 <= i && i < static_cast<int32_t>(node->m_children.size()))
+        {
+            node = node->m_children[i].get();
+        }
+        else
+        {
+            return nullptr;
+        }
     }
+    return const_cast<FlatTreeNode*>(node);
 }
 
-void GenericFlatTreeModel::erase(std::deque<int32_t>& indicies)
+FlatTreeNode* GenericFlatTreeModel::findParent(const std::deque<int32_t>& indicies) const
 {
-    std::deque<int32_t> indiciesCopy = indicies;
-    if (indicies.size() == 1)
+    if (indicies.empty() || indicies.back() < 0)
     {
-        if (indicies[0] < m_rowData.size())
+        return nullptr;
+    }
+
+    const FlatTreeNode* node = &m_root;
+    for (size_t d = 0; d + 1 < indicies.size(); ++d)
+    {
+        const int32_t i = indicies[d];
+        if (0 <= i && i < static_cast<int32_t>(node->m_children.size()))
         {
-            m_rowData.removeAt(indicies[0]);
+            node = node->m_children[i].get();
+        }
+        else
+        {
+            return nullptr;
         }
     }
-    else
+    return const_cast<FlatTreeNode*>(node);
+}
+
+int32_t GenericFlatTreeModel::flatIndexOf(const FlatTreeNode* node) const
+{
+    if (node == &m_root)
+    {
+        return -1;
+    }
+
+    const int32_t cached = node->m_flatIndex;
+    if (0 <= cached && cached < m_flatData.size() && m_flatData[cached] == node)
+    {
+        return cached;
+    }
+
+    // Splices only invalidate the cached indices of the rows after them, so
+    // renumber forward from the first stale row until the node is found. Each row
+    // is renumbered at most once per splice.
+    for (int32_t i = m_renumberFrom; i < m_flatData.size(); ++i)
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
+        m_flatData[i]->m_flatIndex = i;
+        if (m_flatData[i] == node)
         {
-            indicies.pop_front();
-            p->erase(indicies);
+            m_renumberFrom = i + 1;
+            return i;
         }
     }
+    m_renumberFrom = m_flatData.size();
+    return -1;
+}
+
+void GenericFlatTreeModel::flatDataMoved(int32_t firstRow)
+{
+    m_renumberFrom = std::min(m_renumberFrom, firstRow);
+}
 
-    if (m_depth == 0)
+bool GenericFlatTreeModel::childrenVisible(const FlatTreeNode* node) const
+{
+    for (; node != nullptr; node = node->m_parent)
     {
-        updateFlatData(indiciesCopy, 1);
+        if (!node->m_expanded)
+        {
+            return false;
+        }
     }
+    return true;
 }
 
-QHash<int, QByteArray> GenericFlatTreeModel::roleNames() const
+bool GenericFlatTreeModel::isVisible(const FlatTreeNode* node) const
 {
-    return m_roleNames;
+    return node != &m_root && childrenVisible(node->m_parent);
 }
 
-void GenericFlatTreeModel::clear(std::deque<int32_t>& indicies, int32_t roleIndex)
+QVariant GenericFlatTreeModel::roleData(const FlatTreeNode* node, qint32 flatRow, int32_t roleIndex) const
 {
-    std::deque<int32_t> indiciesCopy = indicies;
-    if (indicies.size() == 1)
+    if (roleIndex == m_flatIndexRoleIndex)
     {
-        int32_t row = indicies[0];
-        if (row < m_rowData.size())
+        if (flatRow >= 0)
         {
-            auto iter = m_rowData[row].find(roleIndex);
-            if (iter != m_rowData[row].end())
-            {
-                m_rowData[row].remove(roleIndex);
-            }
+            return flatRow;
         }
+        return isVisible(node) ? flatIndexOf(node) : -1;
+    }
+    else if (roleIndex == m_parentRoleIndex)
+    {
+        return isVisible(node) ? flatIndexOf(node->m_parent) : -1;
+    }
+    else if (roleIndex == m_expandedRoleIndex)
+    {
+        return node->m_expanded;
     }
     else
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
-        {
-            indicies.pop_front();
-            p->clear(indicies, roleIndex);
-        }
+        return m_roleData.get(node->m_slot, roleIndex - Qt::UserRole);
     }
+}
 
-    if (m_depth == 0)
+void GenericFlatTreeModel::spliceNodes(FlatTreeNode* parent, int32_t row, std::vector<std::unique_ptr<FlatTreeNode> >& nodes)
+{
+    if (nodes.empty())
+    {
+        return;
+    }
+
+    int32_t added = 0;
+    for (auto& n: nodes)
     {
-        updateFlatData(indiciesCopy, 0);
+        n->m_parent = parent;
+        added += n->m_visibleSize;
     }
+
+    if (!childrenVisible(parent))
+    {
+        // Children of collapsed nodes are not part of the flat list.
+        parent->m_children.insert(parent->m_children.begin() + row,
+                                  std::make_move_iterator(nodes.begin()),
+                                  std::make_move_iterator(nodes.end()));
+        adjustVisibleSizes(parent, added);
+        return;
+    }
+
+    int32_t flatPos;
+    if (row < static_cast<int32_t>(parent->m_children.size()))
+    {
+        flatPos = flatIndexOf(parent->m_children[row].get());
+    }
+    else
+    {
+        flatPos = flatIndexOf(parent) + parent->m_visibleSize;
+    }
+
+    QVector<FlatTreeNode*> block;
+    block.reserve(added);
+    for (auto& n: nodes)
+    {
+        appendPreorder(n.get(), block);
+    }
+
+    flushDataChanged();
+    beginInsertRows(QModelIndex(), flatPos, flatPos + added - 1);
+    parent->m_children.insert(parent->m_children.begin() + row,
+                              std::make_move_iterator(nodes.begin()),
+                              std::make_move_iterator(nodes.end()));
+    m_flatData.insert(flatPos, added, nullptr);
+    std::copy(block.begin(), block.end(), m_flatData.begin() + flatPos);
+    flatDataMoved(flatPos);
+    adjustVisibleSizes(parent, added);
+    endInsertRows();
 }
-void GenericFlatTreeModel::clear(std::deque<int32_t>& indicies)
+
+void GenericFlatTreeModel::removeNode(FlatTreeNode* parent, int32_t row)
+{
+    FlatTreeNode* node = parent->m_children[row].get();
+    const int32_t removed = node->m_visibleSize;
+    if (!isVisible(node))
+    {
+        adjustVisibleSizes(parent, -removed);
+        releaseSlots(node);
+        parent->m_children.erase(parent->m_children.begin() + row);
+        return;
+    }
+
+    const int32_t flatPos = flatIndexOf(node);
+    flushDataChanged();
+    beginRemoveRows(QModelIndex(), flatPos, flatPos + removed - 1);
+    m_flatData.remove(flatPos, removed);
+    flatDataMoved(flatPos);
+    adjustVisibleSizes(parent, -removed);
+    releaseSlots(node);
+    parent->m_children.erase(parent->m_children.begin() + row);
+    endRemoveRows();
+}
+
+void GenericFlatTreeModel::removeChildren(FlatTreeNode* node)
 {
-    std::deque<int32_t> indiciesCopy = indicies;
-    if (indicies.size() == 1)
+    if (node->m_children.empty())
+    {
+        return;
+    }
+
+    const int32_t removed = node->m_visibleSize - 1;
+    if (removed == 0 || !isVisible(node))
     {
-        int32_t row = indicies[0];
-        if (row < m_rowData.size())
+        adjustVisibleSizes(node, -removed);
+        for (auto& child: node->m_children)
         {
-            m_rowData[row].clear();
+            releaseSlots(child.get());
         }
+        node->m_children.clear();
+        return;
     }
-    else
+
+    const int32_t flatPos = flatIndexOf(node) + 1;
+    flushDataChanged();
+    beginRemoveRows(QModelIndex(), flatPos, flatPos + removed - 1);
+    m_flatData.remove(flatPos, removed);
+    flatDataMoved(flatPos);
+    adjustVisibleSizes(node, -removed);
+    for (auto& child: node->m_children)
+    {
+        releaseSlots(child.get());
+    }
+    node->m_children.clear();
+    endRemoveRows();
+}
+
+void GenericFlatTreeModel::adjustVisibleSizes(FlatTreeNode* node, int32_t delta)
+{
+    // A collapsed node's size does not include its children, so changes below it
+    // don't propagate any further up the tree.
+    for (; node != nullptr && node->m_expanded && delta != 0; node = node->m_parent)
+    {
+        node->m_visibleSize += delta;
+    }
+}
+
+void GenericFlatTreeModel::appendPreorder(FlatTreeNode* node, QVector<FlatTreeNode*>& list) const
+{
+    list.append(node);
+    if (node->m_expanded)
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
+        for (const auto& child: node->m_children)
         {
-            indicies.pop_front();
-            p->clear(indicies);
+            appendPreorder(child.get(), list);
         }
     }
+}
 
-    if (m_depth == 0)
+std::unique_ptr<FlatTreeNode> GenericFlatTreeModel::newNode(const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
+{
+    auto node = std::make_unique<FlatTreeNode>();
+    node->m_slot = m_roleData.acquireRow();
+    for (int32_t i = 0; i < roleIndex.size(); ++i)
     {
-        updateFlatData(indiciesCopy, 0);
+        setNodeData(node.get(), roleIndex[i], data[i]);
     }
+    return node;
 }
 
-int32_t GenericFlatTreeModel::getSize(std::deque<int32_t>& indicies)
+// Builds a node and its descendants from a serialized subtree. structure holds a (role count, child count, expanded)
+// triple for each node in preorder, and data/roleIndex hold each node's roles in the same order. Returns nullptr if the
+// serialized data is malformed.
+std::unique_ptr<FlatTreeNode> GenericFlatTreeModel::buildSubtree(const std::vector<int32_t>& structure, size_t& structurePos,
+                                                                 const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex,
+                                                                 size_t& dataPos)
 {
-    if (indicies.size() == 0)
+    if (structurePos + 3 > structure.size())
     {
-        return m_rowData.size();
+        return nullptr;
     }
-    else
+    const int32_t roleCount = structure[structurePos++];
+    const int32_t childCount = structure[structurePos++];
+    const bool expanded = structure[structurePos++] != 0;
+    if (roleCount < 0 || childCount < 0 || dataPos + roleCount > data.size() ||
+        dataPos + roleCount > static_cast<size_t>(roleIndex.size()))
+    {
+        return nullptr;
+    }
+
+    auto node = std::make_unique<FlatTreeNode>();
+    node->m_slot = m_roleData.acquireRow();
+    node->m_expanded = expanded;
+    for (int32_t i = 0; i < roleCount; ++i, ++dataPos)
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
+        setNodeData(node.get(), roleIndex[dataPos], data[dataPos]);
+    }
+
+    node->m_children.reserve(childCount);
+    for (int32_t i = 0; i < childCount; ++i)
+    {
+        std::unique_ptr<FlatTreeNode> child = buildSubtree(structure, structurePos, data, roleIndex, dataPos);
+        if (!child)
         {
-            indicies.pop_front();
-            return p->getSize(indicies);
+            releaseSlots(node.get());
+            return nullptr;
         }
-        else
+        child->m_parent = node.get();
+        if (expanded)
         {
-            return 0;
+            node->m_visibleSize += child->m_visibleSize;
         }
+        node->m_children.push_back(std::move(child));
     }
+    return node;
 }
 
-bool GenericFlatTreeModel::containsRole(std::deque<int32_t>& indicies, int32_t roleIndex)
+void GenericFlatTreeModel::releaseSlots(FlatTreeNode* node)
 {
-    if (indicies.size() == 1)
+    m_roleData.releaseRow(node->m_slot);
+    node->m_slot = -1;
+    for (auto& child: node->m_children)
     {
-        int32_t row = indicies[0];
-        if (row < m_rowData.size())
-        {
-            return m_rowData[row].contains(roleIndex);
-        }
-        else
+        releaseSlots(child.get());
+    }
+}
+
+void GenericFlatTreeModel::setNodeData(FlatTreeNode* node, int32_t roleIndex, const QVariant& value)
+{
+    m_roleData.set(node->m_slot, roleIndex - Qt::UserRole, value);
+}
+
+void GenericFlatTreeModel::setExpanded(std::deque<int32_t>& indicies, bool expanded)
+{
+    FlatTreeNode* node = findNode(indicies);
+    if (node != nullptr)
+    {
+        setExpanded(node, expanded);
+    }
+}
+
+void GenericFlatTreeModel::setExpanded(qint32 flatRow, bool expanded)
+{
+    if (0 <= flatRow && flatRow < m_flatData.size())
+    {
+        FlatTreeNode* node = m_flatData[flatRow];
+        if (node->m_expanded != expanded)
         {
-            return false;
+            setExpanded(node, expanded);
+            callbackExpansionListeners(node, expanded);
         }
     }
+}
+
+bool GenericFlatTreeModel::isExpanded(qint32 flatRow) const
+{
+    if (0 <= flatRow && flatRow < m_flatData.size())
+    {
+        return m_flatData[flatRow]->m_expanded;
+    }
     else
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
-        {
-            indicies.pop_front();
-            return p->containsRole(indicies, roleIndex);
-        }
-        else
-        {
-            return false;
-        }
+        return false;
     }
 }
 
-void GenericFlatTreeModel::updateFlatData(std::deque<int32_t>& indicies, int32_t rowsChanged)
+void GenericFlatTreeModel::setExpanded(FlatTreeNode* node, bool expanded)
 {
-    // TODO test and improve this function
-    if (rowsChanged > 0)
+    if (node == &m_root || node->m_expanded == expanded)
     {
-        QList<QHash<int32_t, QVariant>*> list;
-        int32_t flatIndex = 0;
-        updateFlatData(indicies, list, -1, flatIndex);
+        return;
+    }
 
-        if (rowsChanged > 1)
-        {
-            beginResetModel();
-            m_flatData.swap(list);
-            endResetModel();
-        }
-        else if (list.size() > m_flatData.size())
+    int32_t childRows = 0;
+    for (const auto& child: node->m_children)
+    {
+        childRows += child->m_visibleSize;
+    }
+
+    const bool visible = isVisible(node);
+    if (visible && childRows > 0)
+    {
+        const int32_t first = flatIndexOf(node) + 1;
+        flushDataChanged();
+        if (expanded)
         {
-            // Gained a row
-            int32_t newIndex = treeIndexToFlatIndex(indicies);
-            beginInsertRows(QModelIndex(), newIndex, newIndex);
-            m_flatData.swap(list);
+            node->m_expanded = true;
+            QVector<FlatTreeNode*> block;
+            block.reserve(childRows);
+            for (const auto& child: node->m_children)
+            {
+                appendPreorder(child.get(), block);
+            }
+
+            beginInsertRows(QModelIndex(), first, first + childRows - 1);
+            m_flatData.insert(first, childRows, nullptr);
+            std::copy(block.begin(), block.end(), m_flatData.begin() + first);
+            flatDataMoved(first);
+            node->m_visibleSize += childRows;
+            adjustVisibleSizes(node->m_parent, childRows);
             endInsertRows();
         }
-        else if (list.size() < m_flatData.size())
+        else
         {
-            // Lost a row
-            int32_t removedIndex = 0;
-            for (; removedIndex < list.size(); ++removedIndex)
-            {
-                if (m_flatData[removedIndex] != list[removedIndex])
-                {
-                    break;
-                }
-            }
-            beginRemoveRows(QModelIndex(), removedIndex, removedIndex);
-            m_flatData.swap(list);
+            beginRemoveRows(QModelIndex(), first, first + childRows - 1);
+            m_flatData.remove(first, childRows);
+            flatDataMoved(first);
+            node->m_visibleSize -= childRows;
+            adjustVisibleSizes(node->m_parent, -childRows);
+            node->m_expanded = false;
             endRemoveRows();
         }
     }
+    else
+    {
+        node->m_expanded = expanded;
+        node->m_visibleSize = expanded ? 1 + childRows : 1;
+        adjustVisibleSizes(node->m_parent, expanded ? childRows : -childRows);
+    }
 
+    if (visible)
+    {
+        // The node's IS_EXPANDED role changed.
+        emitNodeChanged(node);
+    }
+}
+
+void GenericFlatTreeModel::registerExpansionCallback(jobject c)
+{
+    m_expansionCallbacks.push_back(c);
+}
+
+void GenericFlatTreeModel::registerModelChangedListener(jobject c)
+{
+    m_modelChangedCallbacks.push_back(c);
+}
 
-    const QHash<int32_t, QVariant>& data = getRowData(indicies);
-    for (int32_t i = 0; i < m_flatData.size(); ++i)
+void GenericFlatTreeModel::callbackModelChangedListeners()
+{
+    for (const jobject& c: m_modelChangedCallbacks)
     {
-        if (&data == m_flatData[i])
-        {
-          emit dataChanged(index(i, 0), index(i, 0));
-        }
+        JNIUtilities::invokeCallback(ApplicationFunctions::mainEnv, c);
     }
 }
 
-void GenericFlatTreeModel::updateFlatData(std::deque<int32_t>& indicies, QList<QHash<int32_t, QVariant>* >& list, int32_t parentIndex, int32_t& flatIndex)
+void GenericFlatTreeModel::callbackExpansionListeners(const FlatTreeNode* node, bool expanded)
 {
-    for (int32_t i = 0; i < m_rowData.size(); ++i)
+    if (m_expansionCallbacks.empty())
     {
-        list.append(&m_rowData[i]);
-        m_rowData[i].insert(m_parentRoleIndex, parentIndex);
-        m_rowData[i].insert(m_flatIndexRoleIndex, flatIndex++);
+        return;
+    }
 
-        QSharedPointer<GenericFlatTreeModel> submodel = getSubmodel(i, false);
-        if (submodel)
+    QVector<jint> path;
+    for (; node != &m_root; node = node->m_parent)
+    {
+        const auto& siblings = node->m_parent->m_children;
+        for (size_t i = 0; i < siblings.size(); ++i)
         {
-            submodel->updateFlatData(indicies, list, list.size() - 1, flatIndex);
+            if (siblings[i].get() == node)
+            {
+                path.prepend(i);
+                break;
+            }
         }
     }
+
+    JNIEnv* env = ApplicationFunctions::mainEnv;
+    jintArray array = env->NewIntArray(path.size());
+    env->SetIntArrayRegion(array, 0, path.size(), reinterpret_cast<const jint*>(path.constData()));
+    for (const jobject& c: m_expansionCallbacks)
+    {
+        FlatTreeModelFunctions::invokeExpansionCallback(c, array, expanded);
+    }
+    env->DeleteLocalRef(array);
 }
 
-int32_t GenericFlatTreeModel::treeIndexToFlatIndex(const std::deque<int32_t>& indicies)
+void GenericFlatTreeModel::emitNodeChanged(const FlatTreeNode* node)
 {
-    std::deque<int32_t> copy = indicies;
-    QHash<int32_t, QVariant> map = getRowData(copy);
-    auto iter = map.find(m_flatIndexRoleIndex);
-    if (iter != map.end())
+    if (!isVisible(node))
+    {
+        return;
+    }
+
+    const int32_t row = flatIndexOf(node);
+    if (m_dataChangedLocked)
     {
-        return iter.value().toInt();
+        m_dirtyRows.insert(row);
     }
     else
     {
-        return -1;
+        emit dataChanged(index(row, 0), index(row, 0));
     }
 }
 
-void GenericFlatTreeModel::reorder(std::deque<int32_t>& indicies, const std::vector<int32_t>& ordering)
+void GenericFlatTreeModel::flushDataChanged()
 {
-    if (indicies.size() == 0)
+    if (m_dirtyRows.isEmpty())
     {
-        QList<QHash<int32_t, QVariant> > swapArea;
-        for (int32_t i = 0; i < m_rowData.size(); ++i)
-        {
-            QHash<int32_t, QVariant> temp;
-            temp.swap(m_rowData[ordering[i]]);
-            swapArea.append(temp);
-        }
-        m_rowData.swap(swapArea);
+        return;
     }
-    else
+
+    // Emit one signal per contiguous run of modified rows.
+    QVector<int32_t> rows(m_dirtyRows.begin(), m_dirtyRows.end());
+    std::sort(rows.begin(), rows.end());
+    int32_t first = rows[0];
+    int32_t last = first;
+    for (int32_t i = 1; i < rows.size(); ++i)
     {
-        QSharedPointer<GenericFlatTreeModel> p = getSubmodel(indicies[0]);
-        if (p)
+        const int32_t row = rows[i];
+        if (row > last + 1)
         {
-            indicies.pop_front();
-            p->reorder(indicies, ordering);
+            emit dataChanged(index(first, 0), index(last, 0));
+            first = row;
         }
+        last = row;
     }
+    emit dataChanged(index(first, 0), index(last, 0));
+    m_dirtyRows.clear();
+}
+
+void GenericFlatTreeModel::lockDataChangedSignal()
+{
+    m_dataChangedLocked = true;
+}
+
+void GenericFlatTreeModel::unlockDataChangedSignal()
+{
+    m_dataChangedLocked = false;
+    flushDataChanged();
 }
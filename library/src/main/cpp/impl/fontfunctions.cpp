@@ -289,26 +289,33 @@ jint JNICALL scaleToFit(JNIEnv* env, jclass, jint w, jint h, jstring inputString
 
     const QRect constraint(0, 0, w, h);
     // TODO allow passing flags
-    const int32_t startingSize = getSize(JNIUtilities::getFont(fontIndex));
-    int32_t workingIndex = fontIndex;
-    int32_t lastFittingIndex = workingIndex;
-    const int32_t maxIndex = workingIndex + (startingSize - minimumSize);
-    QRect bounds = JNIUtilities::getFontMetrics(workingIndex).boundingRect(constraint, 0, qStr);
+    // Smaller sizes are derived here rather than looked up by index, since the
+    // font cache only holds the sizes that have been requested.
+    QFont font = JNIUtilities::getFont(fontIndex);
+    const bool usePointSize = font.pointSize() > 0;
+    int32_t workingSize = getSize(font);
+    int32_t lastFittingSize = workingSize;
+    QRect bounds = JNIUtilities::getFontMetrics(fontIndex).boundingRect(constraint, 0, qStr);
     while (bounds.width() > w || bounds.height() > h)
     {
-        lastFittingIndex = workingIndex;
-        ++workingIndex;
-        if (workingIndex > maxIndex)
+        lastFittingSize = workingSize;
+        --workingSize;
+        if (workingSize < minimumSize)
         {
             break;
         }
+        if (usePointSize)
+        {
+            font.setPointSize(workingSize);
+        }
         else
         {
-            bounds = JNIUtilities::getFontMetrics(workingIndex).boundingRect(constraint, 0, qStr);
+            font.setPixelSize(workingSize);
         }
+        bounds = QFontMetrics(font).boundingRect(constraint, 0, qStr);
     }
 
-    return lastFittingIndex;
+    return lastFittingSize;
 }
 
 jint JNICALL loadFont(JNIEnv* env, jclass, jstring filePath)
@@ -31,6 +31,8 @@
 #include "flattreemodelfunctions.h"
 #include "singletonmodelfunctions.h"
 #include "listmodelfunctions.h"
+#include "tablemodelfunctions.h"
+#include "painterbenchmarkfunctions.h"
 #include <math.h>
 #include <QFontMetrics>
 
@@ -77,6 +79,8 @@ jint JNI_OnLoad(JavaVM* vm, void*)
     FlatTreeModelFunctions::initialize(env);
     ListModelFunctions::initialize(env);
     SingletonModelFunctions::initialize(env);
+    TableModelFunctions::initialize(env);
+    PainterBenchmarkFunctions::initialize(env);
 
     // Return the JNI Version as required by method
     return JNI_VERSION_1_2;
@@ -99,8 +103,8 @@ jclass JNIUtilities::qmlExceptionClass;
 jclass JNIUtilities::callbackClass;
 jmethodID JNIUtilities::callbackMethod;
 JavaVM* JNIUtilities::javaVM;
-std::vector<QFont> JNIUtilities::fontCache;
-std::vector<QFontMetrics> JNIUtilities::fontMetricsCache;
+std::atomic<JNIUtilities::FontEntry*> JNIUtilities::fontChunks[JNIUtilities::FONT_CHUNK_COUNT];
+std::mutex JNIUtilities::fontCacheMutex;
 
 void JNIUtilities::initialize(JavaVM* vm, JNIEnv* env)
 {
@@ -169,22 +173,53 @@ JNIEnv* JNIUtilities::attachThread()
     return threadEnv;
 }
 
+JNIEnv* JNIUtilities::attachThreadAsDaemon()
+{
+    JNIEnv* threadEnv;
+    if (javaVM->GetEnv((void **)&threadEnv, JNI_VERSION_1_2) == JNI_EDETACHED)
+    {
+        JavaVMAttachArgs args;
+        args.version = JNI_VERSION_1_2;
+        args.name = NULL;
+        args.group = NULL;
+        javaVM->AttachCurrentThreadAsDaemon((void **)&threadEnv, &args);
+    }
+
+    return threadEnv;
+}
+
 void JNIUtilities::dettachThread()
 {
     javaVM->DetachCurrentThread();
 }
 
+JNIUtilities::FontEntry::FontEntry() :
+    font(),
+    metrics(font)
+{
+    // Empty Implementation
+}
+
 void JNIUtilities::cacheFont(size_t fontIndex, const QFont& font)
 {
-    if (fontIndex >= fontCache.size())
+    const size_t chunkIndex = fontIndex / FONT_CHUNK_SIZE;
+    if (chunkIndex >= FONT_CHUNK_COUNT)
+    {
+        std::cerr << "Font index " << fontIndex << " exceeds the font cache's capacity" << std::endl;
+        return;
+    }
+
+    std::lock_guard<std::mutex> lock(fontCacheMutex);
+    FontEntry* chunk = fontChunks[chunkIndex].load(std::memory_order_relaxed);
+    if (chunk == nullptr)
     {
-        size_t initSize = 32;
-        size_t newSize = qMax(initSize, 2 * fontCache.size());
-        fontCache.resize(newSize);
-        fontMetricsCache.resize(newSize, QFontMetrics(QFont()));
+        chunk = new FontEntry[FONT_CHUNK_SIZE];
     }
-    fontCache[fontIndex] = font;
-    fontMetricsCache[fontIndex] = QFontMetrics(font);
+    FontEntry& entry = chunk[fontIndex % FONT_CHUNK_SIZE];
+    entry.font = font;
+    entry.metrics = QFontMetrics(font);
+    // Publishes the entry to readers that load the chunk pointer.
+    fontChunks[chunkIndex].store(chunk, std::memory_order_release);
 }
 
 JNIUtilities::JNIUtilities()
@@ -297,6 +297,7 @@ void ListModelFunctions::uninitialize(JNIEnv*)
 GenericListModel::GenericListModel(const QString& modelName, const QHash<int, QByteArray>& roleMap)
     : QAbstractListModel(nullptr),
       m_modelName(modelName),
+      m_rowData(roleMap.size()),
       m_roleNames(roleMap),
       m_dataChangedLocked(false)
 {
@@ -356,15 +357,15 @@ int GenericListModel::rowCount(const QModelIndex &parent) const
     }
     else
     {
-        return m_rowData.size();
+        return m_rowData.rowCount();
     }
 }
 
 QVariant GenericListModel::data(const QModelIndex &index, int role) const
 {
-    if (index.isValid() && index.row() < m_rowData.size())
+    if (index.isValid())
     {
-        return m_rowData[index.row()][role - Qt::UserRole];
+        return m_rowData.get(index.row(), role - Qt::UserRole);
     }
     else
     {
@@ -374,10 +375,9 @@ QVariant GenericListModel::data(const QModelIndex &index, int role) const
 
 bool GenericListModel::setData(const QModelIndex &i, const QVariant &value, int role)
 {
-    if (i.isValid() && i.row() < m_rowData.size())
+    if (i.isValid() && i.row() < m_rowData.rowCount())
     {
-        QVector<QVariant>& data = m_rowData[i.row()];
-        data[role - Qt::UserRole] = value;
+        m_rowData.set(i.row(), role - Qt::UserRole, value);
         if (!m_dataChangedLocked) {
             emit dataChanged(index(i.row(), 0), index(i.row(), 0));
         }
@@ -393,13 +393,12 @@ bool GenericListModel::setData(const QModelIndex &i, const QVariant &value, int
 QVariantMap GenericListModel::getData(qint32 row) const
 {
     QVariantMap map;
-    if (0 <= row && row < m_rowData.size())
+    if (0 <= row && row < m_rowData.rowCount())
     {
-        const QVector<QVariant>& data = m_rowData[row];
         for (int32_t roleIndex: m_roleNames.keys())
         {
             const QString& roleName = m_roleNames[roleIndex];
-            map.insert(roleName, data[roleIndex - Qt::UserRole]);
+            map.insert(roleName, m_rowData.get(row, roleIndex - Qt::UserRole));
         }
     }
 
@@ -408,13 +407,12 @@ QVariantMap GenericListModel::getData(qint32 row) const
 
 QVariant GenericListModel::getData(qint32 row, const QString& propertyName) const
 {
-    if (0 <= row && row < m_rowData.size())
+    if (0 <= row && row < m_rowData.rowCount())
     {
-        const QVector<QVariant>& data = m_rowData[row];
         if (m_stringToIndexRoleMap.contains(propertyName))
         {
             const int key = m_stringToIndexRoleMap.value(propertyName);
-            return data[key - Qt::UserRole];
+            return m_rowData.get(row, key - Qt::UserRole);
         }
         else
         {
@@ -427,35 +425,20 @@ QVariant GenericListModel::getData(qint32 row, const QString& propertyName) cons
     }
 }
 
-const QVariant& GenericListModel::getRowData(qint32 row, int32_t roleIndex) const
+QVariant GenericListModel::getRowData(qint32 row, int32_t roleIndex) const
 {
-    if (row < m_rowData.size())
-    {
-        return m_rowData[row][roleIndex - Qt::UserRole];
-    }
-    else
-    {
-        static const QVariant invalid;
-        return invalid;
-    }
+    return m_rowData.get(row, roleIndex - Qt::UserRole);
 }
 
 void GenericListModel::setRowData(qint32 row, std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
 {
-    if (m_rowData.size() <= row)
+    if (m_rowData.rowCount() <= row)
     {
-        beginInsertRows(QModelIndex(), m_rowData.size(), row);
-        while (m_rowData.size() <= row)
-        {
-            QVector<QVariant> map;
-            map.resize(m_stringToIndexRoleMap.size());
-            m_rowData.push_back(map);
-        }
-
-        QVector<QVariant>& map = m_rowData[row];
+        beginInsertRows(QModelIndex(), m_rowData.rowCount(), row);
+        m_rowData.insertRows(m_rowData.rowCount(), row + 1 - m_rowData.rowCount());
         for (int32_t i = 0; i < roleIndex.size(); ++i)
         {
-            map[roleIndex[i] - Qt::UserRole] = data[i];
+            m_rowData.set(row, roleIndex[i] - Qt::UserRole, data[i]);
         }
 
         endInsertRows();
@@ -463,10 +446,9 @@ void GenericListModel::setRowData(qint32 row, std::vector<QVariant>& data, const
     }
     else
     {
-        QVector<QVariant>& entry = m_rowData[row];
         for (int32_t i = 0; i < roleIndex.size(); ++i)
         {
-            entry[roleIndex[i] - Qt::UserRole].swap(data[i]);
+            m_rowData.set(row, roleIndex[i] - Qt::UserRole, data[i]);
         }
         if (!m_dataChangedLocked) {
             emit dataChanged(index(row, 0), index(row, 0), roleIndex);
@@ -478,24 +460,13 @@ void GenericListModel::setRowData(qint32 row, std::vector<QVariant>& data, const
 
 void GenericListModel::assignRowData(qint32 row, std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
 {
-    if (m_rowData.size() <= row)
+    if (m_rowData.rowCount() <= row)
     {
-        beginInsertRows(QModelIndex(), m_rowData.size(), row);
-        while (m_rowData.size() <= row)
-        {
-            QVector<QVariant> map;
-            map.resize(m_stringToIndexRoleMap.size());
-            m_rowData.push_back(map);
-        }
-
-        QVector<QVariant>& map = m_rowData[row];
-        for (int32_t i = 0; i < map.size(); ++i)
-        {
-            map[i] = QVariant();
-        }
+        beginInsertRows(QModelIndex(), m_rowData.rowCount(), row);
+        m_rowData.insertRows(m_rowData.rowCount(), row + 1 - m_rowData.rowCount());
         for (int32_t i = 0; i < roleIndex.size(); ++i)
         {
-            map[roleIndex[i] - Qt::UserRole] = data[i];
+            m_rowData.set(row, roleIndex[i] - Qt::UserRole, data[i]);
         }
 
         endInsertRows();
@@ -503,14 +474,10 @@ void GenericListModel::assignRowData(qint32 row, std::vector<QVariant>& data, co
     }
     else
     {
-        QVector<QVariant>& entry = m_rowData[row];
-        for (int32_t i = 0; i < entry.size(); ++i)
-        {
-            entry[i] = QVariant();
-        }
+        m_rowData.clearRow(row);
         for (int32_t i = 0; i < roleIndex.size(); ++i)
         {
-            entry[roleIndex[i] - Qt::UserRole].swap(data[i]);
+            m_rowData.set(row, roleIndex[i] - Qt::UserRole, data[i]);
         }
         if (!m_dataChangedLocked) {
             emit dataChanged(index(row, 0), index(row, 0));
@@ -522,22 +489,20 @@ void GenericListModel::assignRowData(qint32 row, std::vector<QVariant>& data, co
 
 int32_t GenericListModel::appendRowData(std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
 {
-    int32_t newIndex = m_rowData.size();
-    insertRowData(m_rowData.size(), data, roleIndex);
+    int32_t newIndex = m_rowData.rowCount();
+    insertRowData(newIndex, data, roleIndex);
     return newIndex;
 }
 
 void GenericListModel::insertRowData(qint32 row, std::vector<QVariant>& data, QVector<int32_t> roleIndex)
 {
-    int32_t actualRow = std::min((qsizetype)row, m_rowData.size());
+    int32_t actualRow = std::min(row, m_rowData.rowCount());
     beginInsertRows(QModelIndex(), actualRow, actualRow);
-    QVector<QVariant> map;
-    map.resize(m_stringToIndexRoleMap.size());
+    m_rowData.insertRows(actualRow, 1);
     for (int32_t i = 0; i < roleIndex.size(); ++i)
     {
-       map[roleIndex[i] - Qt::UserRole].swap(data[i]);
+       m_rowData.set(actualRow, roleIndex[i] - Qt::UserRole, data[i]);
     }
-    m_rowData.insert(actualRow, map);
 
     endInsertRows();
     emit sizeChanged();
@@ -548,7 +513,7 @@ void GenericListModel::insertRowData(qint32 row, std::vector<QVariant>& data, QV
 void GenericListModel::erase(qint32 row)
 {
     beginRemoveRows(QModelIndex(), row, row);
-    m_rowData.removeAt(row);
+    m_rowData.removeRows(row, 1);
     endRemoveRows();
     emit sizeChanged();
 
@@ -562,9 +527,9 @@ QHash<int, QByteArray> GenericListModel::roleNames() const
 
 void GenericListModel::clear(qint32 row, int32_t roleIndex)
 {
-    if (row < m_rowData.size())
+    if (row < m_rowData.rowCount())
     {
-        m_rowData[row][roleIndex - Qt::UserRole] = QVariant();
+        m_rowData.clear(row, roleIndex - Qt::UserRole);
         if (!m_dataChangedLocked) {
             emit dataChanged(index(row, 0), index(row, 0));
         }
@@ -574,44 +539,28 @@ void GenericListModel::clear(qint32 row, int32_t roleIndex)
 }
 void GenericListModel::clear(qint32 row)
 {
-    if (row < m_rowData.size())
+    if (row < m_rowData.rowCount())
     {
-        if (!m_rowData[row].isEmpty())
-        {
-            m_rowData[row].resize(0);
-            m_rowData[row].resize(m_stringToIndexRoleMap.size());
-            if (!m_dataChangedLocked) {
-                emit dataChanged(index(row, 0), index(row, 0));
-            }
-
-            callbackModelChangedListeners();
+        m_rowData.clearRow(row);
+        if (!m_dataChangedLocked) {
+            emit dataChanged(index(row, 0), index(row, 0));
         }
+
+        callbackModelChangedListeners();
     }
 }
 
 
 bool GenericListModel::containsRole(qint32 row, int32_t roleIndex)
 {
-    if (row < m_rowData.size())
-    {
-        return m_rowData[row][roleIndex - Qt::UserRole].isValid();
-    }
-    else
-    {
-        return false;
-    }
+    return m_rowData.contains(row, roleIndex - Qt::UserRole);
 }
 
 void GenericListModel::reorder(const std::vector<int32_t>& ordering)
 {
     beginResetModel();
 
-    QVector<QVector<QVariant> > swapArea;
-    for (int32_t i = 0; i < m_rowData.size(); ++i)
-    {
-        swapArea.append(m_rowData[ordering[i]]);
-    }
-    m_rowData.swap(swapArea);
+    m_rowData.reorder(ordering);
 
     endResetModel();
 
@@ -620,7 +569,7 @@ void GenericListModel::reorder(const std::vector<int32_t>& ordering)
 
 qint32 GenericListModel::size() const
 {
-    return m_rowData.size();
+    return m_rowData.rowCount();
 }
 
 void GenericListModel::lockDataChangedSignal()
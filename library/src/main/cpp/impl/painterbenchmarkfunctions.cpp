@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#include "painterbenchmarkfunctions.h"
+
+#include "jniutilities.h"
+
+#include <applicationfunctions.h>
+#include <painterinstructions.h>
+#include <qmldatatransfer.h>
+#include <QImage>
+#include <QPainter>
+#include <QQuickWindow>
+
+JNICALL jobject renderPainterInstructionsWithSceneGraph(JNIEnv* env, jclass, jint length, jbyteArray data, jint w, jint h)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        unsigned char* copy = new unsigned char[length];
+        env->GetByteArrayRegion(data, 0, length, reinterpret_cast<jbyte*>(copy));
+        PainterInstructions instr(length, copy);
+        QImage ret = ApplicationFunctions::get()->renderWithSceneGraph(instr, w, h);
+
+        return QMLDataTransfer::toJVariant(env, ret);
+    }
+    else
+    {
+        return nullptr;
+    }
+}
+
+JNICALL void repaintPainterInstructions(JNIEnv* env, jclass, jint length, jbyteArray data, jint w, jint h,
+                                       jint repaints)
+{
+    // Paints one PainterInstructions repeatedly, as a Painter item does. The
+    // byte stream is decoded when instr is constructed, so only the replay of
+    // the decoded commands is repeated.
+    unsigned char* copy = new unsigned char[length];
+    env->GetByteArrayRegion(data, 0, length, reinterpret_cast<jbyte*>(copy));
+    PainterInstructions instr(length, copy);
+    QImage image(w, h, QImage::Format_ARGB32_Premultiplied);
+    for (jint i = 0; i < repaints; ++i)
+    {
+        image.fill(Qt::transparent);
+        QPainter painter(&image);
+        instr.paint(painter);
+    }
+}
+
+JNICALL void setSceneGraphBackend(JNIEnv* env, jclass, jstring backend)
+{
+    // Qt only reads the backend when the first window is created.
+    if (ApplicationFunctions::get() != nullptr)
+    {
+        JNIUtilities::throwQMLException(env, "Attempted to set the scene graph backend after QApplication was created");
+        return;
+    }
+    QQuickWindow::setSceneGraphBackend(JNIUtilities::toQString(env, backend));
+}
+
+void PainterBenchmarkFunctions::initialize(JNIEnv* env)
+{
+    jclass javaClass = env->FindClass("com/github/sdankbar/qml/cpp/jni/PainterBenchmarkFunctions");
+    if (javaClass == nullptr)
+    {
+        // Only the tests provide the class.
+        env->ExceptionClear();
+        return;
+    }
+
+    JNINativeMethod methods[] = {
+        JNIUtilities::createJNIMethod("renderPainterInstructionsWithSceneGraph", "(I[BII)Lcom/github/sdankbar/qml/JVariant;", (void *)&renderPainterInstructionsWithSceneGraph),
+        JNIUtilities::createJNIMethod("repaintPainterInstructions", "(I[BIII)V", (void *)&repaintPainterInstructions),
+        JNIUtilities::createJNIMethod("setSceneGraphBackend", "(Ljava/lang/String;)V", (void *)&setSceneGraphBackend),
+    };
+    env->RegisterNatives(javaClass, methods, sizeof(methods)/sizeof(JNINativeMethod));
+    env->DeleteLocalRef(javaClass);
+}
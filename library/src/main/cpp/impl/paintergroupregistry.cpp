@@ -0,0 +1,132 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#include "paintergroupregistry.h"
+#include <QPainter>
+
+PainterGroup::PainterGroup(unsigned int length, unsigned char* instructions) :
+    m_length(length),
+    m_instructions(length, instructions),
+    m_picture(),
+    m_recorded()
+{
+    // Empty Implementation
+}
+
+void PainterGroup::paint(QPainter& p)
+{
+    std::call_once(m_recorded, [this] () {
+        QPainter recorder(&m_picture);
+        m_instructions.paint(recorder);
+    });
+
+    p.save();
+    p.drawPicture(0, 0, m_picture);
+    p.restore();
+}
+
+unsigned int PainterGroup::length() const
+{
+    return m_length;
+}
+
+const PainterInstructions& PainterGroup::instructions() const
+{
+    return m_instructions;
+}
+
+std::mutex PainterGroupRegistry::mutex;
+std::unordered_map<int64_t, PainterGroupRegistry::Entry> PainterGroupRegistry::groups;
+std::list<int64_t> PainterGroupRegistry::lru;
+int64_t PainterGroupRegistry::bytes = 0;
+int64_t PainterGroupRegistry::maxBytes = 64 * 1024 * 1024;
+
+bool PainterGroupRegistry::contains(int64_t handle)
+{
+    std::lock_guard<std::mutex> lock(mutex);
+    auto iter = groups.find(handle);
+    if (iter != groups.end())
+    {
+        touch(iter->second);
+        return true;
+    }
+    else
+    {
+        return false;
+    }
+}
+
+void PainterGroupRegistry::insert(int64_t handle, const std::shared_ptr<PainterGroup>& group)
+{
+    std::lock_guard<std::mutex> lock(mutex);
+    auto iter = groups.find(handle);
+    if (iter != groups.end())
+    {
+        touch(iter->second);
+        return;
+    }
+
+    lru.push_front(handle);
+    groups[handle] = Entry{group, lru.begin()};
+    bytes += group->length();
+    evict();
+}
+
+std::shared_ptr<PainterGroup> PainterGroupRegistry::get(int64_t handle)
+{
+    std::lock_guard<std::mutex> lock(mutex);
+    auto iter = groups.find(handle);
+    if (iter != groups.end())
+    {
+        touch(iter->second);
+        return iter->second.group;
+    }
+    else
+    {
+        return std::shared_ptr<PainterGroup>();
+    }
+}
+
+void PainterGroupRegistry::setMaxBytes(int64_t max)
+{
+    std::lock_guard<std::mutex> lock(mutex);
+    maxBytes = max;
+    evict();
+}
+
+void PainterGroupRegistry::touch(Entry& entry)
+{
+    lru.splice(lru.begin(), lru, entry.lruPosition);
+}
+
+void PainterGroupRegistry::evict()
+{
+    // Groups already resolved by PainterInstructions stay alive through their
+    // shared_ptr, so eviction only affects instructions that have not painted yet.
+    while (bytes > maxBytes && lru.size() > 1)
+    {
+        auto iter = groups.find(lru.back());
+        bytes -= iter->second.group->length();
+        groups.erase(iter);
+        lru.pop_back();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#include "painterimageregistry.h"
+
+std::mutex PainterImageRegistry::mutex;
+std::unordered_map<int64_t, PainterImageRegistry::Entry> PainterImageRegistry::images;
+std::list<int64_t> PainterImageRegistry::lru;
+int64_t PainterImageRegistry::bytes = 0;
+int64_t PainterImageRegistry::maxBytes = 64 * 1024 * 1024;
+
+bool PainterImageRegistry::contains(int64_t handle)
+{
+    std::lock_guard<std::mutex> lock(mutex);
+    auto iter = images.find(handle);
+    if (iter != images.end())
+    {
+        touch(iter->second);
+        return true;
+    }
+    else
+    {
+        return false;
+    }
+}
+
+void PainterImageRegistry::insert(int64_t handle, const QImage& image)
+{
+    std::lock_guard<std::mutex> lock(mutex);
+    auto iter = images.find(handle);
+    if (iter != images.end())
+    {
+        touch(iter->second);
+        return;
+    }
+
+    lru.push_front(handle);
+    images[handle] = Entry{image, lru.begin()};
+    bytes += image.sizeInBytes();
+    evict();
+}
+
+QImage PainterImageRegistry::get(int64_t handle)
+{
+    std::lock_guard<std::mutex> lock(mutex);
+    auto iter = images.find(handle);
+    if (iter != images.end())
+    {
+        touch(iter->second);
+        return iter->second.image;
+    }
+    else
+    {
+        return QImage();
+    }
+}
+
+void PainterImageRegistry::setMaxBytes(int64_t max)
+{
+    std::lock_guard<std::mutex> lock(mutex);
+    maxBytes = max;
+    evict();
+}
+
+void PainterImageRegistry::touch(Entry& entry)
+{
+    lru.splice(lru.begin(), lru, entry.lruPosition);
+}
+
+void PainterImageRegistry::evict()
+{
+    // The most recently used image is always kept so that an image larger than
+    // the limit can still be drawn by the instructions that registered it.
+    while (bytes > maxBytes && lru.size() > 1)
+    {
+        auto iter = images.find(lru.back());
+        bytes -= iter->second.image.sizeInBytes();
+        images.erase(iter);
+        lru.pop_back();
+    }
+}
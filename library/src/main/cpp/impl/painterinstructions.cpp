@@ -22,15 +22,17 @@
  */
 #include "painterinstructions.h"
 #include "jniutilities.h"
+#include "paintergroupregistry.h"
+#include "painterimageregistry.h"
 #include <QPainter>
 #include <QStaticText>
+#include <iostream>
 
-namespace
-{
-void cleanupMemory(void* ptr)
-{
-    delete static_cast<unsigned char*>(ptr);
-}
+namespace {
+constexpr size_t I = sizeof(jint);
+constexpr size_t D = sizeof(jdouble);
+constexpr size_t L = sizeof(jlong);
+constexpr size_t B = sizeof(jbyte);
 }
 
 PainterInstructions::PainterInstructions() :
@@ -46,23 +48,180 @@ PainterInstructions::PainterInstructions(unsigned int length, unsigned char* ins
     m_instructions(instructions),
     m_end(instructions + length)
 {
-    // Empty Implementation
+    // The byte stream is decoded once and the commands are replayed on every
+    // paint. Decoding also resolves the images and groups drawn, so they are
+    // held even if the registries evict them before the first paint.
+    decode();
 }
 
 void PainterInstructions::paint(QPainter& p)
+{
+    for (const Command& c : m_commands)
+    {
+        execute(p, c);
+    }
+}
+
+void PainterInstructions::decode()
 {
     unsigned char* ptr = m_instructions.get();
     PainterFunctions nextFunc = getNextFunction(ptr);
     while (nextFunc != none)
     {
-        paint(p, nextFunc, ptr);
+        decode(nextFunc, ptr);
         nextFunc = getNextFunction(ptr);
     }
 }
 
-void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned char*& ptr)
+void PainterInstructions::decode(PainterFunctions func, unsigned char*& ptr)
 {
+    Command c = { func, ptr, -1 };
     switch (func) {
+    case resetTransform:
+    case restore:
+    case save:
+    case none:
+        break;
+    case setClipping:
+        skip(ptr, B);
+        break;
+    case setCompositionMode:
+        skip(ptr, I);
+        break;
+    case setRenderHint:
+        skip(ptr, I + B);
+        break;
+    case drawPointInteger:
+        skip(ptr, 2 * I);
+        break;
+    case drawEllipseInteger:
+    case drawLineInteger:
+    case drawRectInteger:
+    case eraseRect:
+        skip(ptr, 4 * I);
+        break;
+    case fillRectInteger:
+    case setClipRectInteger:
+        skip(ptr, 5 * I);
+        break;
+    case drawArcInteger:
+    case drawChordInteger:
+    case drawPieInteger:
+        skip(ptr, 6 * I);
+        break;
+    case drawRoundedRectInteger:
+        skip(ptr, 4 * I + 2 * D);
+        break;
+    case drawImageInteger:
+        skip(ptr, 8 * I);
+        getImage(getLong(ptr));
+        break;
+    case rotate:
+    case setOpacity:
+        skip(ptr, D);
+        break;
+    case scale:
+    case shear:
+    case translate:
+    case drawPointDouble:
+        skip(ptr, 2 * D);
+        break;
+    case drawEllipseDouble:
+    case drawLineDouble:
+    case drawRectDouble:
+        skip(ptr, 4 * D);
+        break;
+    case fillRectDouble:
+    case setClipRectDouble:
+        skip(ptr, 4 * D + I);
+        break;
+    case drawArcDouble:
+    case drawChordDouble:
+    case drawPieDouble:
+        skip(ptr, 4 * D + 2 * I);
+        break;
+    case drawRoundedRectDouble:
+        skip(ptr, 6 * D);
+        break;
+    case drawImageDouble:
+        skip(ptr, 8 * D);
+        getImage(getLong(ptr));
+        break;
+    case drawGroup:
+        getGroup(getLong(ptr));
+        break;
+    case drawConvexPolygonInteger:
+    case drawLinesInteger:
+    case drawPointsInteger:
+    case drawPolylineInteger:
+        c.object = addPolygon(ptr);
+        break;
+    case drawPolygonInteger:
+        skip(ptr, I);
+        c.object = addPolygon(ptr);
+        break;
+    case drawConvexPolygonDouble:
+    case drawLinesDouble:
+    case drawPointsDouble:
+    case drawPolylineDouble:
+        c.object = addPolygonF(ptr);
+        break;
+    case drawPolygonDouble:
+        skip(ptr, I);
+        c.object = addPolygonF(ptr);
+        break;
+    case drawTextSimple:
+        skip(ptr, 2 * I);
+        c.object = addString(ptr);
+        break;
+    case drawTextComplex:
+        skip(ptr, 5 * I);
+        c.object = addString(ptr);
+        break;
+    case drawTextSimpleDouble:
+        skip(ptr, 2 * D);
+        c.object = addString(ptr);
+        break;
+    case drawTextComplexDouble:
+        skip(ptr, 4 * D + I);
+        c.object = addString(ptr);
+        break;
+    case drawStaticText:
+    case drawStaticTextDouble: {
+        skip(ptr, func == drawStaticText ? 2 * I : 2 * D);
+        c.object = static_cast<int32_t>(m_staticTexts.size());
+        m_staticTexts.emplace_back(getString(ptr));
+        break;
+    }
+    case setFont: {
+        const int32_t fontIndex = getInteger(ptr);
+        c.object = static_cast<int32_t>(m_fonts.size());
+        m_fonts.push_back(JNIUtilities::getFont(fontIndex));
+        break;
+    }
+    case setPen: {
+        const QColor color = QColor::fromRgba(getInteger(ptr));
+        const double w = getDouble(ptr);
+        const Qt::PenStyle ps = static_cast<Qt::PenStyle>(getInteger(ptr));
+        const Qt::PenCapStyle pcs = static_cast<Qt::PenCapStyle>(getInteger(ptr));
+        const Qt::PenJoinStyle pjs = static_cast<Qt::PenJoinStyle>(getInteger(ptr));
+        c.object = static_cast<int32_t>(m_pens.size());
+        m_pens.emplace_back(QBrush(color), w, ps, pcs, pjs);
+        break;
+    }
+    case setPenColor: {
+        c.object = static_cast<int32_t>(m_pens.size());
+        m_pens.emplace_back(QColor::fromRgba(getInteger(ptr)));
+        break;
+    }
+    }
+    m_commands.push_back(c);
+}
+
+void PainterInstructions::execute(QPainter& p, const Command& c)
+{
+    unsigned char* ptr = c.args;
+    switch (c.func) {
     case drawArcInteger: {
         const int32_t x = getInteger(ptr);
         const int32_t y = getInteger(ptr);
@@ -84,16 +243,8 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         break;
     }
     case drawConvexPolygonInteger: {
-        const int32_t length = getInteger(ptr);
-        QPoint* points = new QPoint[length];
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const int32_t x = getInteger(ptr);
-            const int32_t y = getInteger(ptr);
-            points[i] = QPoint(x, y);
-        }
-        p.drawConvexPolygon(points, length);
-        delete[] points;
+        const QPolygon& poly = m_polygons[c.object];
+        p.drawConvexPolygon(poly.constData(), poly.size());
         break;
     }
     case drawEllipseInteger: {
@@ -115,24 +266,8 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         const int32_t wSource = getInteger(ptr);
         const int32_t hSource = getInteger(ptr);
         const QRect source(xSource, ySource, wSource, hSource);
-        const int32_t w = getInteger(ptr);
-        const int32_t h = getInteger(ptr);
-        const int32_t copyLength = 4 * w * h;
-        auto iter = m_cachedImages.find(ptr);
-        if (iter != m_cachedImages.end())
-        {
-            ptr += copyLength;
-            p.drawImage(target, iter->second, source);
-        }
-        else
-        {
-            unsigned char* copy = new unsigned char[copyLength];
-            memcpy(copy, ptr, copyLength);
-            const QImage image(copy, w, h, QImage::Format_ARGB32, &cleanupMemory);
-            m_cachedImages[ptr] = image;
-            ptr += copyLength;
-            p.drawImage(target, image, source);
-        }
+        const int64_t handle = getLong(ptr);
+        p.drawImage(target, getImage(handle), source);
         break;
     }
     case drawLineInteger: {
@@ -144,16 +279,8 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         break;
     }
     case drawLinesInteger: {
-        const int32_t length = getInteger(ptr);
-        QPoint* points = new QPoint[length];
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const int32_t x = getInteger(ptr);
-            const int32_t y = getInteger(ptr);
-            points[i] = QPoint(x, y);
-        }
-        p.drawLines(points, length);
-        delete[] points;
+        const QPolygon& poly = m_polygons[c.object];
+        p.drawLines(poly.constData(), poly.size() / 2);
         break;
     }
     case drawPieInteger: {
@@ -173,44 +300,19 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         break;
     }
     case drawPointsInteger: {
-        const int32_t length = getInteger(ptr);
-        QPoint* points = new QPoint[length];
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const int32_t x = getInteger(ptr);
-            const int32_t y = getInteger(ptr);
-            points[i] = QPoint(x, y);
-        }
-        p.drawPoints(points, length);
-        delete[] points;
+        const QPolygon& poly = m_polygons[c.object];
+        p.drawPoints(poly.constData(), poly.size());
         break;
     }
     case drawPolygonInteger: {
         const Qt::FillRule rule = static_cast<Qt::FillRule>(getInteger(ptr));
-        const int32_t length = getInteger(ptr);
-        QPoint* points = new QPoint[length];
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const int32_t x = getInteger(ptr);
-            const int32_t y = getInteger(ptr);
-            points[i] = QPoint(x, y);
-        }
-        p.drawPolygon(points, length, rule);
-        delete[] points;
+        const QPolygon& poly = m_polygons[c.object];
+        p.drawPolygon(poly.constData(), poly.size(), rule);
         break;
     }
-    case drawPolylineInteger: {
-        const int32_t length = getInteger(ptr);
-        QPolygon poly;
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const int32_t x = getInteger(ptr);
-            const int32_t y = getInteger(ptr);
-            poly << QPoint(x, y);
-        }
-        p.drawPolyline(poly);
+    case drawPolylineInteger:
+        p.drawPolyline(m_polygons[c.object]);
         break;
-    }
     case drawRectInteger: {
         const int32_t x = getInteger(ptr);
         const int32_t y = getInteger(ptr);
@@ -232,27 +334,13 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
     case drawStaticText: {
         const int32_t x = getInteger(ptr);
         const int32_t y = getInteger(ptr);
-        const auto iter = m_cachedStaticText.find(ptr);
-        if (iter != m_cachedStaticText.end())
-        {
-            const int32_t length = getInteger(ptr);
-            ptr += length;
-            p.drawStaticText(x, y, iter->second);
-        }
-        else
-        {
-            unsigned char* tempPtr = ptr;
-            QStaticText temp(getString(ptr));
-            p.drawStaticText(x, y, temp);
-            m_cachedStaticText[tempPtr] = temp;
-        }
+        p.drawStaticText(x, y, m_staticTexts[c.object]);
         break;
     }
     case drawTextSimple: {
-        int32_t x = getInteger(ptr);
-        int32_t y = getInteger(ptr);
-        QString text = getString(ptr);
-        p.drawText(x, y, text);
+        const int32_t x = getInteger(ptr);
+        const int32_t y = getInteger(ptr);
+        p.drawText(x, y, m_strings[c.object]);
         break;
     }
     case drawTextComplex: {
@@ -261,8 +349,7 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         const int32_t w = getInteger(ptr);
         const int32_t h = getInteger(ptr);
         const int32_t flags = getInteger(ptr);
-        QString text = getString(ptr);
-        p.drawText(x, y, w, h, flags, text);
+        p.drawText(x, y, w, h, flags, m_strings[c.object]);
         break;
     }
     case eraseRect: {
@@ -278,8 +365,8 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         const int32_t y = getInteger(ptr);
         const int32_t w = getInteger(ptr);
         const int32_t h = getInteger(ptr);
-        const QColor c = QColor::fromRgba(getInteger(ptr));
-        p.fillRect(x, y, w, h, c);
+        const QColor color = QColor::fromRgba(getInteger(ptr));
+        p.fillRect(x, y, w, h, color);
         break;
     }
     case resetTransform:
@@ -322,35 +409,18 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         p.setCompositionMode(mode);
         break;
     }
-    case setFont: {
-        const int32_t fontptr = getInteger(ptr);
-        p.setFont(JNIUtilities::getFont(fontptr));
+    case setFont:
+        p.setFont(m_fonts[c.object]);
         break;
-    }
     case setOpacity: {
         const double opacity = getDouble(ptr);
         p.setOpacity(opacity);
         break;
     }
-    case setPen: {
-        const QColor c = QColor::fromRgba(getInteger(ptr));
-        const double w = getDouble(ptr);
-        const Qt::PenStyle ps = static_cast<Qt::PenStyle>(getInteger(ptr));
-        const Qt::PenCapStyle pcs = static_cast<Qt::PenCapStyle>(getInteger(ptr));
-        const Qt::PenJoinStyle pjs = static_cast<Qt::PenJoinStyle>(getInteger(ptr));
-        const QPen pen(QBrush(c),
-                       w,
-                       ps,
-                       pcs,
-                       pjs);
-        p.setPen(pen);
+    case setPen:
+    case setPenColor:
+        p.setPen(m_pens[c.object]);
         break;
-    }
-    case setPenColor: {
-        const QColor c = QColor::fromRgba(getInteger(ptr));
-        p.setPen(c);
-        break;
-    }
     case setRenderHint: {
         const QPainter::RenderHint hint =
             static_cast<QPainter::RenderHint>(getInteger(ptr));
@@ -366,7 +436,7 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
     case translate: {
         double tx = getDouble(ptr);
         double ty = getDouble(ptr);
-         p.translate(tx, ty);
+        p.translate(tx, ty);
         break;
     }
     case drawArcDouble: {
@@ -390,16 +460,8 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         break;
     }
     case drawConvexPolygonDouble: {
-        const int32_t length = getInteger(ptr);
-        QPointF* points = new QPointF[length];
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const double x = getDouble(ptr);
-            const double y = getDouble(ptr);
-            points[i] = QPointF(x, y);
-        }
-        p.drawConvexPolygon(points, length);
-        delete[] points;
+        const QPolygonF& poly = m_polygonsF[c.object];
+        p.drawConvexPolygon(poly.constData(), poly.size());
         break;
     }
     case drawEllipseDouble: {
@@ -421,45 +483,21 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         const double wSource = getDouble(ptr);
         const double hSource = getDouble(ptr);
         const QRectF source(xSource, ySource, wSource, hSource);
-        const int32_t w = getInteger(ptr);
-        const int32_t h = getInteger(ptr);
-        const int32_t copyLength = 4 * w * h;
-        auto iter = m_cachedImages.find(ptr);
-        if (iter != m_cachedImages.end())
-        {
-            ptr += copyLength;
-            p.drawImage(target, iter->second, source);
-        }
-        else
-        {
-            unsigned char* copy = new unsigned char[copyLength];
-            memcpy(copy, ptr, copyLength);
-            const QImage image(copy, w, h, QImage::Format_ARGB32, &cleanupMemory);
-            m_cachedImages[ptr] = image;
-            ptr += copyLength;
-            p.drawImage(target, image, source);
-        }
+        const int64_t handle = getLong(ptr);
+        p.drawImage(target, getImage(handle), source);
         break;
     }
     case drawLineDouble: {
         const double x1 = getDouble(ptr);
         const double y1 = getDouble(ptr);
         const double x2 = getDouble(ptr);
-        const int32_t y2 = getDouble(ptr);
+        const double y2 = getDouble(ptr);
         p.drawLine(QLineF(x1, y1, x2, y2));
         break;
     }
     case drawLinesDouble: {
-        const int32_t length = getInteger(ptr);
-        QPointF* points = new QPointF[length];
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const double x = getDouble(ptr);
-            const double y = getDouble(ptr);
-            points[i] = QPointF(x, y);
-        }
-        p.drawLines(points, length);
-        delete[] points;
+        const QPolygonF& poly = m_polygonsF[c.object];
+        p.drawLines(poly.constData(), poly.size() / 2);
         break;
     }
     case drawPieDouble: {
@@ -479,50 +517,25 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         break;
     }
     case drawPointsDouble: {
-        const int32_t length = getInteger(ptr);
-        QPointF* points = new QPointF[length];
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const double x = getDouble(ptr);
-            const double y = getDouble(ptr);
-            points[i] = QPointF(x, y);
-        }
-        p.drawPoints(points, length);
-        delete[] points;
+        const QPolygonF& poly = m_polygonsF[c.object];
+        p.drawPoints(poly.constData(), poly.size());
         break;
     }
     case drawPolygonDouble: {
         const Qt::FillRule rule = static_cast<Qt::FillRule>(getInteger(ptr));
-        const int32_t length = getInteger(ptr);
-        QPointF* points = new QPointF[length];
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const double x = getDouble(ptr);
-            const double y = getDouble(ptr);
-            points[i] = QPointF(x, y);
-        }
-        p.drawPolygon(points, length, rule);
-        delete[] points;
+        const QPolygonF& poly = m_polygonsF[c.object];
+        p.drawPolygon(poly.constData(), poly.size(), rule);
         break;
     }
-    case drawPolylineDouble: {
-        const int32_t length = getInteger(ptr);
-        QPolygonF poly;
-        for (int32_t i = 0; i < length; ++i)
-        {
-            const double x = getDouble(ptr);
-            const double y = getDouble(ptr);
-            poly << QPointF(x, y);
-        }
-        p.drawPolyline(poly);
+    case drawPolylineDouble:
+        p.drawPolyline(m_polygonsF[c.object]);
         break;
-    }
     case drawRectDouble: {
         const double x = getDouble(ptr);
         const double y = getDouble(ptr);
         const double w = getDouble(ptr);
         const double h = getDouble(ptr);
-        p.drawRect(x, y, w, h);
+        p.drawRect(QRectF(x, y, w, h));
         break;
     }
     case drawRoundedRectDouble: {
@@ -538,27 +551,13 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
     case drawStaticTextDouble: {
         const double x = getDouble(ptr);
         const double y = getDouble(ptr);
-        const auto iter = m_cachedStaticText.find(ptr);
-        if (iter != m_cachedStaticText.end())
-        {
-            const int32_t length = getInteger(ptr);
-            ptr += length;
-            p.drawStaticText(QPointF(x, y), iter->second);
-        }
-        else
-        {
-            unsigned char* tempPtr = ptr;
-            QStaticText temp(getString(ptr));
-            p.drawStaticText(QPointF(x, y), temp);
-            m_cachedStaticText[tempPtr] = temp;
-        }
+        p.drawStaticText(QPointF(x, y), m_staticTexts[c.object]);
         break;
     }
     case drawTextSimpleDouble: {
-        double x = getDouble(ptr);
-        double y = getDouble(ptr);
-        QString text = getString(ptr);
-        p.drawText(QPointF(x, y), text);
+        const double x = getDouble(ptr);
+        const double y = getDouble(ptr);
+        p.drawText(QPointF(x, y), m_strings[c.object]);
         break;
     }
     case drawTextComplexDouble: {
@@ -567,8 +566,7 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         const double w = getDouble(ptr);
         const double h = getDouble(ptr);
         const int32_t flags = getInteger(ptr);
-        QString text = getString(ptr);
-        p.drawText(QRectF(x, y, w, h), flags, text);
+        p.drawText(QRectF(x, y, w, h), flags, m_strings[c.object]);
         break;
     }
     case fillRectDouble: {
@@ -576,8 +574,8 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         const double y = getDouble(ptr);
         const double w = getDouble(ptr);
         const double h = getDouble(ptr);
-        const QColor c = QColor::fromRgba(getInteger(ptr));
-        p.fillRect(QRectF(x, y, w, h), c);
+        const QColor color = QColor::fromRgba(getInteger(ptr));
+        p.fillRect(QRectF(x, y, w, h), color);
         break;
     }
     case setClipRectDouble: {
@@ -589,12 +587,60 @@ void PainterInstructions::paint(QPainter& p, PainterFunctions func, unsigned cha
         p.setClipRect(QRectF(x, y, w, h), op);
         break;
     }
+    case drawGroup: {
+        const int64_t handle = getLong(ptr);
+        std::shared_ptr<PainterGroup> group = getGroup(handle);
+        if (group)
+        {
+            group->paint(p);
+        }
+        break;
+    }
     case none:
         // Do nothing
         break;
     }
 }
 
+void PainterInstructions::skip(unsigned char*& ptr, size_t bytes) const
+{
+    ptr = (static_cast<size_t>(m_end - ptr) > bytes) ? ptr + bytes : m_end;
+}
+
+int32_t PainterInstructions::addPolygon(unsigned char*& ptr)
+{
+    const int32_t length = qMax(0, getInteger(ptr));
+    QPolygon poly(length);
+    for (int32_t i = 0; i < length; ++i)
+    {
+        const int32_t x = getInteger(ptr);
+        const int32_t y = getInteger(ptr);
+        poly[i] = QPoint(x, y);
+    }
+    m_polygons.push_back(poly);
+    return static_cast<int32_t>(m_polygons.size() - 1);
+}
+
+int32_t PainterInstructions::addPolygonF(unsigned char*& ptr)
+{
+    const int32_t length = qMax(0, getInteger(ptr));
+    QPolygonF poly(length);
+    for (int32_t i = 0; i < length; ++i)
+    {
+        const double x = getDouble(ptr);
+        const double y = getDouble(ptr);
+        poly[i] = QPointF(x, y);
+    }
+    m_polygonsF.push_back(poly);
+    return static_cast<int32_t>(m_polygonsF.size() - 1);
+}
+
+int32_t PainterInstructions::addString(unsigned char*& ptr)
+{
+    m_strings.push_back(getString(ptr));
+    return static_cast<int32_t>(m_strings.size() - 1);
+}
+
 PainterInstructions::PainterFunctions PainterInstructions::getNextFunction(unsigned char*& ptr) const
 {
     unsigned char* next = ptr + sizeof(jint);
@@ -630,6 +676,18 @@ int32_t PainterInstructions::getInteger(unsigned char*& ptr) const
         return 0;
     }
 }
+int64_t PainterInstructions::getLong(unsigned char*& ptr) const
+{
+    unsigned char* next = ptr + sizeof(jlong);
+    if (next <= m_end) {
+        int64_t v;
+        memcpy(&v, ptr, sizeof(jlong));
+        ptr = next;
+        return v;
+    } else {
+        return 0;
+    }
+}
 double PainterInstructions::getDouble(unsigned char*& ptr) const
 {
     unsigned char* next = ptr + sizeof(jdouble);
@@ -643,6 +701,50 @@ double PainterInstructions::getDouble(unsigned char*& ptr) const
     }
 }
 
+QImage PainterInstructions::getImage(int64_t handle)
+{
+    // Images are kept once resolved so later paints are not affected if the
+    // registry evicts them.
+    auto iter = m_cachedImages.find(handle);
+    if (iter != m_cachedImages.end())
+    {
+        return iter->second;
+    }
+
+    const QImage image = PainterImageRegistry::get(handle);
+    if (!image.isNull())
+    {
+        m_cachedImages[handle] = image;
+    }
+    else
+    {
+        // Java registers images and groups again before sending instructions, so
+        // this is only reached if the instructions were sent without them.
+        std::cerr << "Painter image " << handle << " is not registered" << std::endl;
+    }
+    return image;
+}
+
+std::shared_ptr<PainterGroup> PainterInstructions::getGroup(int64_t handle)
+{
+    auto iter = m_cachedGroups.find(handle);
+    if (iter != m_cachedGroups.end())
+    {
+        return iter->second;
+    }
+
+    std::shared_ptr<PainterGroup> group = PainterGroupRegistry::get(handle);
+    if (group)
+    {
+        m_cachedGroups[handle] = group;
+    }
+    else
+    {
+        std::cerr << "Painter group " << handle << " is not registered" << std::endl;
+    }
+    return group;
+}
+
 QString PainterInstructions::getString(unsigned char*& ptr) const
 {
     int32_t length = getInteger(ptr);
@@ -655,19 +757,19 @@ QString PainterInstructions::getString(unsigned char*& ptr) const
     }
 }
 
-jbyteArray PainterInstructions::cloneIntoJavaArray(JNIEnv* env) const
+const std::unordered_map<int64_t, QImage>& PainterInstructions::images() const
 {
-    jbyteArray javaObject = env->NewByteArray(m_length);
-    jbyte* mem = env->GetByteArrayElements(javaObject, nullptr);
-    memcpy(mem, m_instructions.get(), m_length);
-    env->ReleaseByteArrayElements(javaObject, mem, 0);
-    return javaObject;
+    return m_cachedImages;
+}
+
+const std::unordered_map<int64_t, std::shared_ptr<PainterGroup>>& PainterInstructions::groups() const
+{
+    return m_cachedGroups;
 }
 
-QImage PainterInstructions::toImage(int32_t width, int32_t height)
+jbyteArray PainterInstructions::cloneIntoJavaArray(JNIEnv* env) const
 {
-    QImage ret(width, height, QImage::Format_ARGB32);
-    QPainter painter(&ret);
-    paint(painter);
-    return ret;
+    jbyteArray javaObject = env->NewByteArray(m_length);
+    env->SetByteArrayRegion(javaObject, 0, m_length, reinterpret_cast<const jbyte*>(m_instructions.get()));
+    return javaObject;
 }
@@ -0,0 +1,123 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#include "qmlasyncimageprovider.h"
+#include <QQuickTextureFactory>
+#include <atomic>
+#include <mutex>
+#include <unordered_map>
+
+namespace
+{
+    std::mutex pendingMutex;
+    std::unordered_map<jlong, QMLAsyncImageResponse*> pendingResponses;
+    std::atomic<jlong> nextRequestID(1);
+}
+
+QMLAsyncImageResponse::QMLAsyncImageResponse(jlong requestID, std::function<void(jlong)> cancelCallback) :
+    m_requestID(requestID),
+    m_cancelCallback(cancelCallback),
+    m_image(),
+    m_done(false)
+{
+    std::lock_guard<std::mutex> lock(pendingMutex);
+    pendingResponses[m_requestID] = this;
+}
+
+QMLAsyncImageResponse::~QMLAsyncImageResponse()
+{
+    std::lock_guard<std::mutex> lock(pendingMutex);
+    pendingResponses.erase(m_requestID);
+}
+
+QQuickTextureFactory* QMLAsyncImageResponse::textureFactory() const
+{
+    return QQuickTextureFactory::textureFactoryForImage(m_image);
+}
+
+void QMLAsyncImageResponse::cancel()
+{
+    {
+        std::lock_guard<std::mutex> lock(pendingMutex);
+        if (m_done)
+        {
+            return;
+        }
+        m_done = true;
+    }
+
+    // Lets Java interrupt the load, then releases the response back to the engine.
+    m_cancelCallback(m_requestID);
+    emit finished();
+}
+
+jlong QMLAsyncImageResponse::requestID() const
+{
+    return m_requestID;
+}
+
+void QMLAsyncImageResponse::complete(jlong requestID, const QImage& image)
+{
+    // The lock is held until finished is queued so the engine cannot delete the
+    // response while it is being completed.
+    std::lock_guard<std::mutex> lock(pendingMutex);
+    auto iter = pendingResponses.find(requestID);
+    if (iter != pendingResponses.end() && !iter->second->m_done)
+    {
+        QMLAsyncImageResponse* response = iter->second;
+        response->m_done = true;
+        response->m_image = image;
+        QMetaObject::invokeMethod(response, "finished", Qt::QueuedConnection);
+    }
+}
+
+QMLAsyncImageProvider::QMLAsyncImageProvider(std::function<void(jlong,const QString&,int32_t,int32_t)> requestCallback,
+                                             std::function<void(jlong)> cancelCallback) :
+    QQuickAsyncImageProvider(),
+    javaRequestCallback(requestCallback),
+    javaCancelCallback(cancelCallback)
+{
+    // Empty Implementation
+}
+
+QMLAsyncImageProvider::~QMLAsyncImageProvider()
+{
+    // Empty Implementation
+}
+
+QQuickImageResponse* QMLAsyncImageProvider::requestImageResponse(const QString& id, const QSize& requestedSize)
+{
+    int correctedWidth = 50;
+    int correctedHeight = 50;
+    if (requestedSize.width() > 0)
+    {
+      correctedWidth = requestedSize.width();
+    }
+    if (requestedSize.height() > 0)
+    {
+      correctedHeight = requestedSize.height();
+    }
+
+    QMLAsyncImageResponse* response = new QMLAsyncImageResponse(nextRequestID++, javaCancelCallback);
+    javaRequestCallback(response->requestID(), id, correctedWidth, correctedHeight);
+    return response;
+}
@@ -34,12 +34,88 @@
 #include <QFont>
 
 #include "jniutilities.h"
+#include "paintergroupregistry.h"
 #include "painterinstructions.h"
 #include <iostream>
+#include <unordered_map>
+#include <vector>
 
 namespace
 {
 const std::size_t MAX_SIZE = 1024;
+
+/**
+ * The images and groups drawn by PainterInstructions, flattened so they can be
+ * sent to Java along with the instructions. Images and groups are referred to
+ * by their index and each group is added after the groups it draws.
+ */
+struct PainterPayload
+{
+    std::unordered_map<int64_t, int32_t> imageIndexes;
+    std::vector<QImage> images;
+    std::unordered_map<int64_t, int32_t> groupIndexes;
+    std::vector<std::shared_ptr<PainterGroup>> groups;
+    std::vector<std::vector<int32_t>> groupImages;
+    std::vector<std::vector<int32_t>> groupGroups;
+
+    std::vector<int32_t> addImages(const PainterInstructions& instructions)
+    {
+        std::vector<int32_t> indexes;
+        for (const auto& entry : instructions.images())
+        {
+            auto iter = imageIndexes.find(entry.first);
+            if (iter == imageIndexes.end())
+            {
+                iter = imageIndexes.emplace(entry.first, static_cast<int32_t>(images.size())).first;
+                images.push_back(entry.second);
+            }
+            indexes.push_back(iter->second);
+        }
+        return indexes;
+    }
+
+    std::vector<int32_t> addGroups(const PainterInstructions& instructions)
+    {
+        std::vector<int32_t> indexes;
+        for (const auto& entry : instructions.groups())
+        {
+            auto iter = groupIndexes.find(entry.first);
+            if (iter == groupIndexes.end())
+            {
+                std::vector<int32_t> drawnImages = addImages(entry.second->instructions());
+                std::vector<int32_t> drawnGroups = addGroups(entry.second->instructions());
+                iter = groupIndexes.emplace(entry.first, static_cast<int32_t>(groups.size())).first;
+                groups.push_back(entry.second);
+                groupImages.push_back(std::move(drawnImages));
+                groupGroups.push_back(std::move(drawnGroups));
+            }
+            indexes.push_back(iter->second);
+        }
+        return indexes;
+    }
+};
+
+jintArray toJavaArray(JNIEnv* env, const std::vector<int32_t>& values)
+{
+    const jsize length = static_cast<jsize>(values.size());
+    jintArray array = env->NewIntArray(length);
+    env->SetIntArrayRegion(array, 0, length, reinterpret_cast<const jint*>(values.data()));
+    return array;
+}
+
+jobjectArray toJavaArray(JNIEnv* env, const std::vector<std::vector<int32_t>>& values)
+{
+    jclass intArrayClass = env->FindClass("[I");
+    jobjectArray array = env->NewObjectArray(static_cast<jsize>(values.size()), intArrayClass, nullptr);
+    for (std::size_t i = 0; i < values.size(); ++i)
+    {
+        jintArray element = toJavaArray(env, values[i]);
+        env->SetObjectArrayElement(array, static_cast<jsize>(i), element);
+        env->DeleteLocalRef(element);
+    }
+    env->DeleteLocalRef(intArrayClass);
+    return array;
+}
 }
 
 Q_DECLARE_METATYPE(PainterInstructions);
@@ -153,21 +229,13 @@ JNICALL void setDateTime(JNIEnv*, jclass, jlong seconds, jint nanos, jint roleIn
     QMLDataTransfer::storeRef(QDateTime::fromMSecsSinceEpoch(seconds * 1000L + nanos / 1000000L), roleIndex);
 }
 
-void cleanupMemory(void* ptr)
+JNICALL void setImage(JNIEnv* env, jclass, jint w, jint h, jintArray pixels, jboolean premultiplied, jint roleIndex)
 {
-    delete static_cast<unsigned char*>(ptr);
-}
-
-JNICALL void setImage(JNIEnv* env, jclass, jint w, jint h, jbyteArray data, jint roleIndex)
-{
-    jbyte* array = env->GetByteArrayElements(data, NULL);
-
-    const int32_t copyLength = 4 * w * h;
-    unsigned char* copy = new unsigned char[copyLength];
-    memcpy(copy, array, copyLength);
-    QMLDataTransfer::storeRef(QImage(copy, w, h, QImage::Format_ARGB32, &cleanupMemory), roleIndex);
-
-    env->ReleaseByteArrayElements(data, array, JNI_ABORT);
+    // ARGB ints in native byte order are the QImage ARGB32 layout, so the pixels
+    // are copied once, straight into the image's storage.
+    QImage image(w, h, premultiplied ? QImage::Format_ARGB32_Premultiplied : QImage::Format_ARGB32);
+    env->GetIntArrayRegion(pixels, 0, w * h, reinterpret_cast<jint*>(image.bits()));
+    QMLDataTransfer::storeRef(image, roleIndex);
 }
 
 JNICALL void setFont(JNIEnv*, jclass, jint fontIndex, jint roleIndex)
@@ -194,14 +262,10 @@ JNICALL void setPolyline(JNIEnv* env, jclass, jint length, jdoubleArray data, ji
 
 JNICALL void setPainterInstructions(JNIEnv* env, jclass, jint length, jbyteArray data, jint roleIndex)
 {
-    jbyte* array = env->GetByteArrayElements(data, NULL);
-
     unsigned char* copy = new unsigned char[length];
-    memcpy(copy, array, length);
+    env->GetByteArrayRegion(data, 0, length, reinterpret_cast<jbyte*>(copy));
     PainterInstructions instr(length, copy);
     QMLDataTransfer::storeRef(instr, roleIndex);
-
-    env->ReleaseByteArrayElements(data, array, JNI_ABORT);
 }
 
 std::function<jobject(JNIEnv*, jclass, jmethodID, const QVariant&)> QMLDataTransfer::toJVariantFunc;
@@ -224,9 +288,12 @@ jmethodID QMLDataTransfer::fromRectangleMethod;
 jmethodID QMLDataTransfer::fromRectangleFMethod;
 jmethodID QMLDataTransfer::fromURLMethod;
 jmethodID QMLDataTransfer::fromUUIDMethod;
-jmethodID QMLDataTransfer::fromPainterInstructions;
 jmethodID QMLDataTransfer::fromStorableMethod;
 
+jclass QMLDataTransfer::painterInstructionsClass;
+jmethodID QMLDataTransfer::painterInstructionsFromNative;
+jmethodID QMLDataTransfer::painterInstructionsConstructor;
+
 jmethodID QMLDataTransfer::booleanConstructor;
 jmethodID QMLDataTransfer::byteArrayConstructor;
 jmethodID QMLDataTransfer::doubleConstructor;
@@ -256,7 +323,6 @@ void QMLDataTransfer::initialize(JNIEnv* env)
     fromRectangleFMethod = env->GetStaticMethodID(jvariantClass, "fromRectangle", "(DDDD)Lcom/github/sdankbar/qml/JVariant;");
     fromURLMethod = env->GetStaticMethodID(jvariantClass, "fromURL", "(Ljava/lang/String;)Lcom/github/sdankbar/qml/JVariant;");
     fromUUIDMethod = env->GetStaticMethodID(jvariantClass, "fromUUID", "(Ljava/lang/String;)Lcom/github/sdankbar/qml/JVariant;");
-    fromPainterInstructions = env->GetStaticMethodID(jvariantClass, "fromPainterInstructions", "([B)Lcom/github/sdankbar/qml/JVariant;");
     fromStorableMethod = env->GetStaticMethodID(jvariantClass, "fromStorable",
                                                 "(Lcom/github/sdankbar/qml/JVariant$Storable;)Lcom/github/sdankbar/qml/JVariant;");
 
@@ -267,6 +333,11 @@ void QMLDataTransfer::initialize(JNIEnv* env)
     integerConstructor= env->GetMethodID(jvariantClass, "<init>", "(I)V");
     longConstructor= env->GetMethodID(jvariantClass, "<init>", "(J)V");
     stringConstructor= env->GetMethodID(jvariantClass, "<init>", "(Ljava/lang/String;)V");
+    painterInstructionsConstructor = env->GetMethodID(jvariantClass, "<init>", "(Lcom/github/sdankbar/qml/painting/PainterInstructions;)V");
+
+    painterInstructionsClass = JNIUtilities::findClassGlobalReference(env, "com/github/sdankbar/qml/painting/PainterInstructions");
+    painterInstructionsFromNative = env->GetStaticMethodID(painterInstructionsClass, "fromNative",
+                                                           "([B[I[I[I[Z[[I[[B[[I[[I)Lcom/github/sdankbar/qml/painting/PainterInstructions;");
 
     JNINativeMethod methods[] = {
         JNIUtilities::createJNIMethod("setInteger",    "(II)V",    (void *)&setInteger),
@@ -287,7 +358,7 @@ void QMLDataTransfer::initialize(JNIEnv* env)
         JNIUtilities::createJNIMethod("setByteArray",    "([BI)V",    (void *)&setByteArray),
         JNIUtilities::createJNIMethod("setColor",    "(II)V",    (void *)&setColor),
         JNIUtilities::createJNIMethod("setDateTime",    "(JII)V",    (void *)&setDateTime),
-        JNIUtilities::createJNIMethod("setImage",    "(II[BI)V",    (void *)&setImage),
+        JNIUtilities::createJNIMethod("setImage",    "(II[IZI)V",    (void *)&setImage),
         JNIUtilities::createJNIMethod("setFont",    "(II)V",    (void *)&setFont),
         JNIUtilities::createJNIMethod("setPolyline",    "(I[DI)V",    (void *)&setPolyline),
         JNIUtilities::createJNIMethod("setPainterInstructions",    "(I[BI)V",    (void *)&setPainterInstructions),
@@ -300,6 +371,7 @@ void QMLDataTransfer::initialize(JNIEnv* env)
 void QMLDataTransfer::uninitialize(JNIEnv* env)
 {
     env->DeleteGlobalRef(jvariantClass);
+    env->DeleteGlobalRef(painterInstructionsClass);
 }
 
 void QMLDataTransfer::setJVariantConverter(
@@ -412,9 +484,7 @@ jobject QMLDataTransfer::toJVariant(JNIEnv* env, const QVariant& value)
     default:
         if (value.canConvert<PainterInstructions>())
         {
-            const PainterInstructions p = value.value<PainterInstructions>();
-            jbyteArray data = p.cloneIntoJavaArray(env);
-            return env->CallStaticObjectMethod(jvariantClass, fromPainterInstructions, data);
+            return toJVariant(env, value.value<PainterInstructions>());
         }
         else if (value.canConvert<QPolygonF>())
         {
@@ -446,6 +516,60 @@ jobject QMLDataTransfer::toJVariant(JNIEnv* env, const QVariant& value)
     }
 }
 
+jobject QMLDataTransfer::toJVariant(JNIEnv* env, const PainterInstructions& instructions)
+{
+    // Instructions only contain the handles of the images and groups they draw,
+    // so those are sent along with them to be persisted and registered again.
+    PainterPayload payload;
+    const std::vector<int32_t> images = payload.addImages(instructions);
+    const std::vector<int32_t> groups = payload.addGroups(instructions);
+
+    const jsize imageCount = static_cast<jsize>(payload.images.size());
+    std::vector<int32_t> imageSizes;
+    jbooleanArray premultiplied = env->NewBooleanArray(imageCount);
+    jclass intArrayClass = env->FindClass("[I");
+    jobjectArray pixels = env->NewObjectArray(imageCount, intArrayClass, nullptr);
+    for (jsize i = 0; i < imageCount; ++i)
+    {
+        // Registered images are ARGB32, so the pixels are one contiguous run of
+        // ints and match the pixels their handle was computed from.
+        const QImage& image = payload.images[i];
+        imageSizes.push_back(image.width());
+        imageSizes.push_back(image.height());
+        const jboolean p = image.format() == QImage::Format_ARGB32_Premultiplied;
+        env->SetBooleanArrayRegion(premultiplied, i, 1, &p);
+
+        const jsize count = image.width() * image.height();
+        jintArray array = env->NewIntArray(count);
+        env->SetIntArrayRegion(array, 0, count, reinterpret_cast<const jint*>(image.constBits()));
+        env->SetObjectArrayElement(pixels, i, array);
+        env->DeleteLocalRef(array);
+    }
+    env->DeleteLocalRef(intArrayClass);
+
+    const jsize groupCount = static_cast<jsize>(payload.groups.size());
+    jclass byteArrayClass = env->FindClass("[B");
+    jobjectArray groupData = env->NewObjectArray(groupCount, byteArrayClass, nullptr);
+    for (jsize i = 0; i < groupCount; ++i)
+    {
+        jbyteArray array = payload.groups[i]->instructions().cloneIntoJavaArray(env);
+        env->SetObjectArrayElement(groupData, i, array);
+        env->DeleteLocalRef(array);
+    }
+    env->DeleteLocalRef(byteArrayClass);
+
+    jobject javaInstructions = env->CallStaticObjectMethod(
+                painterInstructionsClass, painterInstructionsFromNative,
+                instructions.cloneIntoJavaArray(env), toJavaArray(env, images), toJavaArray(env, groups),
+                toJavaArray(env, imageSizes), premultiplied, pixels, groupData,
+                toJavaArray(env, payload.groupImages), toJavaArray(env, payload.groupGroups));
+    if (env->ExceptionCheck())
+    {
+        return nullptr;
+    }
+    return env->NewObject(jvariantClass, painterInstructionsConstructor, javaInstructions);
+}
+
 QMLDataTransfer::QMLDataTransfer()
 {
     // Empty Implementation
@@ -0,0 +1,375 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#include "rolestore.h"
+
+#include <algorithm>
+
+namespace
+{
+template<typename T>
+void permute(std::vector<T>& values, const std::vector<int32_t>& ordering)
+{
+    if (values.empty())
+    {
+        return;
+    }
+
+    std::vector<T> reordered;
+    reordered.reserve(values.size());
+    for (int32_t i: ordering)
+    {
+        reordered.push_back(values[i]);
+    }
+    values.swap(reordered);
+}
+
+template<typename T>
+void eraseRange(std::vector<T>& values, int32_t row, int32_t count)
+{
+    if (!values.empty())
+    {
+        values.erase(values.begin() + row, values.begin() + row + count);
+    }
+}
+}
+
+RoleStore::RoleStore(int32_t columnCount)
+    : m_columns(std::max(columnCount, 0)),
+      m_rowCount(0)
+{
+    // Empty Implementation
+}
+
+int32_t RoleStore::rowCount() const
+{
+    return m_rowCount;
+}
+
+int32_t RoleStore::columnCount() const
+{
+    return m_columns.size();
+}
+
+RoleStore::Kind RoleStore::kindOf(const QVariant& value)
+{
+    switch (value.typeId())
+    {
+    case QMetaType::Int:
+        return Kind::Int;
+    case QMetaType::Double:
+        return Kind::Double;
+    case QMetaType::Bool:
+        return Kind::Bool;
+    case QMetaType::QString:
+        return Kind::String;
+    default:
+        return Kind::Variant;
+    }
+}
+
+QVariant RoleStore::value(const Column& column, int32_t row) const
+{
+    if (!column.m_present[row])
+    {
+        return QVariant();
+    }
+
+    switch (column.m_kind)
+    {
+    case Kind::Int:
+        return QVariant(column.m_ints[row]);
+    case Kind::Double:
+        return QVariant(column.m_doubles[row]);
+    case Kind::Bool:
+        return QVariant(column.m_ints[row] != 0);
+    case Kind::String:
+        return QVariant(m_strings[column.m_ints[row]]);
+    case Kind::Variant:
+        return column.m_variants[row];
+    default:
+        return QVariant();
+    }
+}
+
+QVariant RoleStore::get(int32_t row, int32_t column) const
+{
+    if (0 <= row && row < m_rowCount && 0 <= column && column < columnCount())
+    {
+        return value(m_columns[column], row);
+    }
+    else
+    {
+        return QVariant();
+    }
+}
+
+bool RoleStore::contains(int32_t row, int32_t column) const
+{
+    return 0 <= row && row < m_rowCount && 0 <= column && column < columnCount() && m_columns[column].m_present[row];
+}
+
+void RoleStore::allocate(Column& column, Kind kind)
+{
+    column.m_kind = kind;
+    switch (kind)
+    {
+    case Kind::Int:
+    case Kind::Bool:
+    case Kind::String:
+        column.m_ints.assign(m_rowCount, 0);
+        break;
+    case Kind::Double:
+        column.m_doubles.assign(m_rowCount, 0.0);
+        break;
+    case Kind::Variant:
+        column.m_variants.assign(m_rowCount, QVariant());
+        break;
+    default:
+        break;
+    }
+}
+
+void RoleStore::convertToVariant(Column& column)
+{
+    std::vector<QVariant> variants(m_rowCount);
+    for (int32_t row = 0; row < m_rowCount; ++row)
+    {
+        if (column.m_present[row])
+        {
+            variants[row] = value(column, row);
+            releaseValue(column, row);
+        }
+    }
+
+    std::vector<int32_t>().swap(column.m_ints);
+    std::vector<double>().swap(column.m_doubles);
+    column.m_variants.swap(variants);
+    column.m_kind = Kind::Variant;
+}
+
+void RoleStore::releaseValue(Column& column, int32_t row)
+{
+    if (!column.m_present[row])
+    {
+        return;
+    }
+
+    if (column.m_kind == Kind::String)
+    {
+        releaseString(column.m_ints[row]);
+    }
+    else if (column.m_kind == Kind::Variant)
+    {
+        column.m_variants[row] = QVariant();
+    }
+}
+
+void RoleStore::set(int32_t row, int32_t column, const QVariant& v)
+{
+    if (row < 0 || m_rowCount <= row || column < 0 || columnCount() <= column)
+    {
+        return;
+    }
+    if (!v.isValid())
+    {
+        clear(row, column);
+        return;
+    }
+
+    Column& c = m_columns[column];
+    const Kind kind = kindOf(v);
+    if (c.m_kind == Kind::Empty)
+    {
+        allocate(c, kind);
+    }
+    else if (c.m_kind != kind && c.m_kind != Kind::Variant)
+    {
+        convertToVariant(c);
+    }
+
+    releaseValue(c, row);
+    switch (c.m_kind)
+    {
+    case Kind::Int:
+        c.m_ints[row] = v.toInt();
+        break;
+    case Kind::Double:
+        c.m_doubles[row] = v.toDouble();
+        break;
+    case Kind::Bool:
+        c.m_ints[row] = v.toBool() ? 1 : 0;
+        break;
+    case Kind::String:
+        c.m_ints[row] = intern(v.toString());
+        break;
+    default:
+        c.m_variants[row] = v;
+        break;
+    }
+    c.m_present[row] = true;
+}
+
+void RoleStore::clear(int32_t row, int32_t column)
+{
+    if (0 <= row && row < m_rowCount && 0 <= column && column < columnCount())
+    {
+        Column& c = m_columns[column];
+        releaseValue(c, row);
+        c.m_present[row] = false;
+    }
+}
+
+void RoleStore::clearRow(int32_t row)
+{
+    for (int32_t column = 0; column < columnCount(); ++column)
+    {
+        clear(row, column);
+    }
+}
+
+void RoleStore::insertRows(int32_t row, int32_t count)
+{
+    row = std::clamp(row, 0, m_rowCount);
+    if (count <= 0)
+    {
+        return;
+    }
+
+    for (Column& c: m_columns)
+    {
+        c.m_present.insert(c.m_present.begin() + row, count, false);
+        switch (c.m_kind)
+        {
+        case Kind::Int:
+        case Kind::Bool:
+        case Kind::String:
+            c.m_ints.insert(c.m_ints.begin() + row, count, 0);
+            break;
+        case Kind::Double:
+            c.m_doubles.insert(c.m_doubles.begin() + row, count, 0.0);
+            break;
+        case Kind::Variant:
+            c.m_variants.insert(c.m_variants.begin() + row, count, QVariant());
+            break;
+        default:
+            break;
+        }
+    }
+    m_rowCount += count;
+}
+
+void RoleStore::removeRows(int32_t row, int32_t count)
+{
+    if (row < 0 || count <= 0 || m_rowCount < row + count)
+    {
+        return;
+    }
+
+    for (Column& c: m_columns)
+    {
+        for (int32_t r = row; r < row + count; ++r)
+        {
+            releaseValue(c, r);
+        }
+        c.m_present.erase(c.m_present.begin() + row, c.m_present.begin() + row + count);
+        eraseRange(c.m_ints, row, count);
+        eraseRange(c.m_doubles, row, count);
+        eraseRange(c.m_variants, row, count);
+    }
+    m_rowCount -= count;
+}
+
+void RoleStore::reorder(const std::vector<int32_t>& ordering)
+{
+    if (static_cast<int32_t>(ordering.size()) != m_rowCount)
+    {
+        return;
+    }
+
+    for (Column& c: m_columns)
+    {
+        permute(c.m_present, ordering);
+        permute(c.m_ints, ordering);
+        permute(c.m_doubles, ordering);
+        permute(c.m_variants, ordering);
+    }
+}
+
+int32_t RoleStore::acquireRow()
+{
+    if (!m_freeRows.empty())
+    {
+        const int32_t row = m_freeRows.back();
+        m_freeRows.pop_back();
+        return row;
+    }
+
+    insertRows(m_rowCount, 1);
+    return m_rowCount - 1;
+}
+
+void RoleStore::releaseRow(int32_t row)
+{
+    if (0 <= row && row < m_rowCount)
+    {
+        clearRow(row);
+        m_freeRows.push_back(row);
+    }
+}
+
+int32_t RoleStore::intern(const QString& str)
+{
+    auto iter = m_stringIds.find(str);
+    if (iter != m_stringIds.end())
+    {
+        ++m_stringRefs[iter.value()];
+        return iter.value();
+    }
+
+    int32_t id;
+    if (!m_freeStrings.empty())
+    {
+        id = m_freeStrings.back();
+        m_freeStrings.pop_back();
+        m_strings[id] = str;
+        m_stringRefs[id] = 1;
+    }
+    else
+    {
+        id = m_strings.size();
+        m_strings.append(str);
+        m_stringRefs.append(1);
+    }
+    m_stringIds.insert(str, id);
+    return id;
+}
+
+void RoleStore::releaseString(int32_t id)
+{
+    if (--m_stringRefs[id] == 0)
+    {
+        m_stringIds.remove(m_strings[id]);
+        m_strings[id] = QString();
+        m_freeStrings.push_back(id);
+    }
+}
@@ -0,0 +1,476 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#include "scenepainter.h"
+#include <QPaintDevice>
+#include <QPaintEngine>
+#include <QPainter>
+#include <QQuickWindow>
+#include <QSGFlatColorMaterial>
+#include <QSGGeometryNode>
+#include <QSGImageNode>
+#include <QSGRendererInterface>
+#include <QSGTexture>
+#include <climits>
+#include <cmath>
+#include <vector>
+
+namespace
+{
+
+/**
+ * Primitives of one color, in painting order.
+ */
+struct Batch
+{
+    QRgb color;
+    std::vector<QSGGeometry::Point2D> lines;
+    std::vector<QSGGeometry::Point2D> triangles;
+};
+
+/**
+ * Paint engine that turns the QPainter calls made by PainterInstructions into
+ * transformed, colored line and triangle vertices.
+ */
+class PrimitivePaintEngine : public QPaintEngine
+{
+public:
+    PrimitivePaintEngine() :
+        QPaintEngine(QPaintEngine::AllFeatures),
+        m_pen(),
+        m_brush(),
+        m_transform(),
+        m_opacity(1.0)
+    {
+        // Empty Implementation
+    }
+
+    virtual bool begin(QPaintDevice*) override
+    {
+        return true;
+    }
+
+    virtual bool end() override
+    {
+        return true;
+    }
+
+    virtual Type type() const override
+    {
+        return QPaintEngine::User;
+    }
+
+    virtual void updateState(const QPaintEngineState& state) override
+    {
+        const QPaintEngine::DirtyFlags flags = state.state();
+        if (flags & QPaintEngine::DirtyPen)
+        {
+            m_pen = state.pen();
+        }
+        if (flags & QPaintEngine::DirtyBrush)
+        {
+            m_brush = state.brush();
+        }
+        if (flags & QPaintEngine::DirtyTransform)
+        {
+            m_transform = state.transform();
+        }
+        if (flags & QPaintEngine::DirtyOpacity)
+        {
+            m_opacity = state.opacity();
+        }
+    }
+
+    virtual void drawLines(const QLineF* lines, int lineCount) override
+    {
+        for (int i = 0; i < lineCount; ++i)
+        {
+            stroke(lines[i].p1(), lines[i].p2());
+        }
+    }
+
+    virtual void drawRects(const QRectF* rects, int rectCount) override
+    {
+        for (int i = 0; i < rectCount; ++i)
+        {
+            const QRectF& r = rects[i];
+            if (m_brush.style() != Qt::NoBrush)
+            {
+                fill(r.topLeft(), r.topRight(), r.bottomRight(), r.bottomLeft(), m_brush.color());
+            }
+            stroke(r.topLeft(), r.topRight());
+            stroke(r.topRight(), r.bottomRight());
+            stroke(r.bottomRight(), r.bottomLeft());
+            stroke(r.bottomLeft(), r.topLeft());
+        }
+    }
+
+    virtual void drawPoints(const QPointF* points, int pointCount) override
+    {
+        if (m_pen.style() == Qt::NoPen)
+        {
+            return;
+        }
+
+        const qreal half = std::max(1.0, penWidth()) / 2;
+        for (int i = 0; i < pointCount; ++i)
+        {
+            const QPointF p = m_transform.map(points[i]);
+            addQuad(p + QPointF(-half, -half), p + QPointF(half, -half),
+                    p + QPointF(half, half), p + QPointF(-half, half), penColor());
+        }
+    }
+
+    virtual void drawPolygon(const QPointF* points, int pointCount, PolygonDrawMode mode) override
+    {
+        if (mode == QPaintEngine::ConvexMode && m_brush.style() != Qt::NoBrush)
+        {
+            const QRgb color = withOpacity(m_brush.color());
+            const QPointF first = m_transform.map(points[0]);
+            for (int i = 2; i < pointCount; ++i)
+            {
+                addTriangle(first, m_transform.map(points[i - 1]), m_transform.map(points[i]), color);
+            }
+        }
+        for (int i = 1; i < pointCount; ++i)
+        {
+            stroke(points[i - 1], points[i]);
+        }
+        if (mode != QPaintEngine::PolylineMode && pointCount > 2)
+        {
+            stroke(points[pointCount - 1], points[0]);
+        }
+    }
+
+    virtual void drawPath(const QPainterPath& path) override
+    {
+        // Only outlines are supported, arbitrary fills would need triangulation.
+        for (const QPolygonF& polygon : path.toSubpathPolygons())
+        {
+            drawPolygon(polygon.constData(), polygon.size(), QPaintEngine::PolylineMode);
+        }
+    }
+
+    virtual void drawPixmap(const QRectF&, const QPixmap&, const QRectF&) override
+    {
+        // Not supported
+    }
+
+    virtual void drawImage(const QRectF&, const QImage&, const QRectF&, Qt::ImageConversionFlags) override
+    {
+        // Not supported
+    }
+
+    virtual void drawTextItem(const QPointF&, const QTextItem&) override
+    {
+        // Not supported
+    }
+
+    const std::vector<Batch>& batches() const
+    {
+        return m_batches;
+    }
+
+private:
+
+    qreal penWidth() const
+    {
+        if (m_pen.isCosmetic() || m_pen.widthF() == 0)
+        {
+            return std::max(1.0, m_pen.widthF());
+        }
+        else
+        {
+            return m_pen.widthF() * std::sqrt(std::abs(m_transform.determinant()));
+        }
+    }
+
+    QRgb withOpacity(const QColor& color) const
+    {
+        QColor c = color;
+        c.setAlphaF(c.alphaF() * m_opacity);
+        return c.rgba();
+    }
+
+    QRgb penColor() const
+    {
+        return withOpacity(m_pen.color());
+    }
+
+    Batch& batch(QRgb color)
+    {
+        // Consecutive primitives of the same color share a batch, so painting
+        // order between colors is preserved.
+        if (m_batches.empty() || m_batches.back().color != color)
+        {
+            m_batches.push_back(Batch{color, {}, {}});
+        }
+        return m_batches.back();
+    }
+
+    void addTriangle(const QPointF& a, const QPointF& b, const QPointF& c, QRgb color)
+    {
+        std::vector<QSGGeometry::Point2D>& v = batch(color).triangles;
+        const QPointF corners[] = {a, b, c};
+        for (const QPointF& p : corners)
+        {
+            QSGGeometry::Point2D point;
+            point.set(static_cast<float>(p.x()), static_cast<float>(p.y()));
+            v.push_back(point);
+        }
+    }
+
+    void addQuad(const QPointF& a, const QPointF& b, const QPointF& c, const QPointF& d, QRgb color)
+    {
+        addTriangle(a, b, c, color);
+        addTriangle(a, c, d, color);
+    }
+
+    void fill(const QPointF& a, const QPointF& b, const QPointF& c, const QPointF& d, const QColor& color)
+    {
+        addQuad(m_transform.map(a), m_transform.map(b), m_transform.map(c), m_transform.map(d), withOpacity(color));
+    }
+
+    void stroke(const QPointF& from, const QPointF& to)
+    {
+        if (m_pen.style() == Qt::NoPen)
+        {
+            return;
+        }
+
+        const QPointF a = m_transform.map(from);
+        const QPointF b = m_transform.map(to);
+        const qreal width = penWidth();
+        if (width <= 1)
+        {
+            std::vector<QSGGeometry::Point2D>& v = batch(penColor()).lines;
+            QSGGeometry::Point2D p1;
+            p1.set(static_cast<float>(a.x()), static_cast<float>(a.y()));
+            QSGGeometry::Point2D p2;
+            p2.set(static_cast<float>(b.x()), static_cast<float>(b.y()));
+            v.push_back(p1);
+            v.push_back(p2);
+        }
+        else
+        {
+            const QPointF delta = b - a;
+            const qreal length = std::hypot(delta.x(), delta.y());
+            if (length > 0)
+            {
+                const QPointF normal(-delta.y() * width / (2 * length), delta.x() * width / (2 * length));
+                addQuad(a + normal, b + normal, b - normal, a - normal, penColor());
+            }
+        }
+    }
+
+    QPen m_pen;
+    QBrush m_brush;
+    QTransform m_transform;
+    qreal m_opacity;
+    std::vector<Batch> m_batches;
+};
+
+class PrimitiveDevice : public QPaintDevice
+{
+public:
+    PrimitiveDevice(int32_t width, int32_t height) :
+        m_width(width),
+        m_height(height),
+        m_engine()
+    {
+        // Empty Implementation
+    }
+
+    virtual QPaintEngine* paintEngine() const override
+    {
+        return &m_engine;
+    }
+
+    const std::vector<Batch>& batches() const
+    {
+        return m_engine.batches();
+    }
+
+protected:
+    virtual int metric(PaintDeviceMetric metric) const override
+    {
+        switch (metric) {
+        case PdmWidth:
+            return m_width;
+        case PdmHeight:
+            return m_height;
+        case PdmWidthMM:
+            return m_width * 254 / 960;
+        case PdmHeightMM:
+            return m_height * 254 / 960;
+        case PdmNumColors:
+            return INT_MAX;
+        case PdmDepth:
+            return 32;
+        case PdmDpiX:
+        case PdmDpiY:
+        case PdmPhysicalDpiX:
+        case PdmPhysicalDpiY:
+            return 96;
+        case PdmDevicePixelRatio:
+            return 1;
+        case PdmDevicePixelRatioScaled:
+            return static_cast<int>(devicePixelRatioFScale());
+        default:
+            return 0;
+        }
+    }
+
+private:
+    const int32_t m_width;
+    const int32_t m_height;
+    mutable PrimitivePaintEngine m_engine;
+};
+
+void setGeometry(QSGNode* parent, QSGGeometryNode*& node, const std::vector<QSGGeometry::Point2D>& vertices,
+                 unsigned int mode, QRgb color)
+{
+    if (!node)
+    {
+        node = new QSGGeometryNode();
+        node->setGeometry(new QSGGeometry(QSGGeometry::defaultAttributes_Point2D(), 0));
+        node->setFlag(QSGNode::OwnsGeometry);
+        node->setMaterial(new QSGFlatColorMaterial());
+        node->setFlag(QSGNode::OwnsMaterial);
+        parent->appendChildNode(node);
+    }
+
+    // allocate() keeps the existing vertex storage when the count is unchanged.
+    QSGGeometry* geometry = node->geometry();
+    geometry->allocate(static_cast<int>(vertices.size()));
+    geometry->setDrawingMode(mode);
+    memcpy(geometry->vertexDataAsPoint2D(), vertices.data(), vertices.size() * sizeof(QSGGeometry::Point2D));
+    node->markDirty(QSGNode::DirtyGeometry);
+
+    QSGFlatColorMaterial* material = static_cast<QSGFlatColorMaterial*>(node->material());
+    const QColor c = QColor::fromRgba(color);
+    if (material->color() != c)
+    {
+        material->setColor(c);
+        node->markDirty(QSGNode::DirtyMaterial);
+    }
+}
+
+}
+
+ScenePainter::ScenePainter(QQuickItem* parent):
+    QQuickItem(parent),
+    m_instructions()
+{
+    setFlag(QQuickItem::ItemHasContents);
+}
+
+ScenePainter::~ScenePainter()
+{
+    // Empty Implementation
+}
+
+const PainterInstructions& ScenePainter::instructions() const
+{
+    return m_instructions;
+}
+
+void ScenePainter::setInstructions(const PainterInstructions& instructions)
+{
+    m_instructions = instructions;
+    update();
+    emit instructionsChanged(m_instructions);
+}
+
+QSGNode* ScenePainter::updatePaintNode(QSGNode* oldNode, UpdatePaintNodeData*)
+{
+    if (window()->rendererInterface()->graphicsApi() == QSGRendererInterface::Software)
+    {
+        return updateImageNode(oldNode);
+    }
+    else
+    {
+        return updateGeometryNodes(oldNode);
+    }
+}
+
+QSGNode* ScenePainter::updateGeometryNodes(QSGNode* oldNode)
+{
+    PrimitiveDevice device(static_cast<int32_t>(width()), static_cast<int32_t>(height()));
+    {
+        QPainter painter(&device);
+        m_instructions.paint(painter);
+    }
+
+    QSGNode* root = oldNode ? oldNode : new QSGNode();
+
+    // Existing geometry nodes are reused in order so their vertex buffers can be
+    // updated in place.
+    QSGNode* child = root->firstChild();
+    for (const Batch& batch : device.batches())
+    {
+        if (!batch.triangles.empty())
+        {
+            QSGGeometryNode* node = static_cast<QSGGeometryNode*>(child);
+            setGeometry(root, node, batch.triangles, QSGGeometry::DrawTriangles, batch.color);
+            child = node->nextSibling();
+        }
+        if (!batch.lines.empty())
+        {
+            QSGGeometryNode* node = static_cast<QSGGeometryNode*>(child);
+            setGeometry(root, node, batch.lines, QSGGeometry::DrawLines, batch.color);
+            child = node->nextSibling();
+        }
+    }
+    while (child)
+    {
+        QSGNode* next = child->nextSibling();
+        root->removeChildNode(child);
+        delete child;
+        child = next;
+    }
+
+    return root;
+}
+
+QSGNode* ScenePainter::updateImageNode(QSGNode* oldNode)
+{
+    const int32_t w = std::max(1, static_cast<int32_t>(width()));
+    const int32_t h = std::max(1, static_cast<int32_t>(height()));
+
+    QImage image(w, h, QImage::Format_ARGB32_Premultiplied);
+    image.fill(Qt::transparent);
+    {
+        QPainter painter(&image);
+        m_instructions.paint(painter);
+    }
+
+    QSGImageNode* node = static_cast<QSGImageNode*>(oldNode);
+    if (!node)
+    {
+        node = window()->createImageNode();
+        node->setOwnsTexture(true);
+    }
+    node->setTexture(window()->createTextureFromImage(image));
+    node->setRect(0, 0, w, h);
+    return node;
+}
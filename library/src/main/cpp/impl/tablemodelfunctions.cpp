@@ -0,0 +1,861 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#include "tablemodelfunctions.h"
+
+#include "jniutilities.h"
+
+#include <algorithm>
+#include <limits>
+
+#include <applicationfunctions.h>
+#include <qmldatatransfer.h>
+
+jlong JNICALL createGenericTableModel(JNIEnv* env, jclass, jstring modelName, jobjectArray roleStrings, jintArray roleIndices,
+                                      jint rowRoleIndex, jint columnRoleIndex, jboolean sparse)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        QString modelNameStr = JNIUtilities::toQString(env, modelName);
+
+        const size_t length = env->GetArrayLength(roleStrings);
+        QHash<int, QByteArray> roleMap;
+        jint* roleArray = env->GetIntArrayElements(roleIndices, nullptr);
+        for (size_t i = 0; i < length; ++i)
+        {
+            jstring jStr = static_cast<jstring>(env->GetObjectArrayElement(roleStrings, i));
+            QString n = JNIUtilities::toQString(env, jStr);
+            int index = roleArray[i];
+            roleMap[index] = n.toUtf8();
+        }
+        env->ReleaseIntArrayElements(roleIndices, roleArray, JNI_ABORT);
+
+        GenericTableModel* modelPtr = new GenericTableModel(modelNameStr, roleMap, rowRoleIndex, columnRoleIndex, sparse);
+        ApplicationFunctions::get()->addToContext(modelNameStr, modelPtr);
+        return reinterpret_cast<jlong>(modelPtr);
+    }
+    else
+    {
+        return 0;
+    }
+}
+
+void JNICALL insertGenericTableModelRows(JNIEnv* env, jclass, jlong pointer, jint row, jint count)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->insertTableRows(row, count);
+    }
+}
+
+void JNICALL removeGenericTableModelRows(JNIEnv* env, jclass, jlong pointer, jint row, jint count)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->removeTableRows(row, count);
+    }
+}
+
+void JNICALL insertGenericTableModelColumns(JNIEnv* env, jclass, jlong pointer, jint column, jint count)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->insertTableColumns(column, count);
+    }
+}
+
+void JNICALL removeGenericTableModelColumns(JNIEnv* env, jclass, jlong pointer, jint column, jint count)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->removeTableColumns(column, count);
+    }
+}
+
+void JNICALL resizeGenericTableModel(JNIEnv* env, jclass, jlong pointer, jint rows, jint columns)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->resize(rows, columns);
+    }
+}
+
+void JNICALL clearAllGenericTableModelData(JNIEnv* env, jclass, jlong pointer, jint row, jint column)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->clear(row, column);
+    }
+}
+
+void JNICALL clearGenericTableModelData(JNIEnv* env, jclass, jlong pointer, jint row, jint column, jint role)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->clear(row, column, role);
+    }
+}
+
+jobject JNICALL getGenericTableModelData(JNIEnv* env, jclass, jlong pointer, jint row, jint column, jint roleIndex)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        return QMLDataTransfer::toJVariant(env, modelPtr->getCellData(row, column, roleIndex));
+    }
+    else
+    {
+        return nullptr;
+    }
+}
+
+jboolean JNICALL isGenericTableModelRolePresent(JNIEnv* env, jclass, jlong pointer, jint row, jint column, jint roleIndex)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        return modelPtr->containsRole(row, column, roleIndex);
+    }
+    else
+    {
+        return false;
+    }
+}
+
+void JNICALL setGenericTableModelData(JNIEnv* env, jclass, jlong pointer, jint row, jint column)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->setCellData(row, column, QMLDataTransfer::getPendingVariants(), QMLDataTransfer::getPendingRoleIndices());
+        QMLDataTransfer::clearPendingData();
+    }
+}
+
+void JNICALL assignGenericTableModelData(JNIEnv* env, jclass, jlong pointer, jint row, jint column)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->assignCellData(row, column, QMLDataTransfer::getPendingVariants(), QMLDataTransfer::getPendingRoleIndices());
+        QMLDataTransfer::clearPendingData();
+    }
+}
+
+void JNICALL setGenericTableModelRoleDefaults(JNIEnv* env, jclass, jlong pointer)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->setRoleDefaults(QMLDataTransfer::getPendingVariants(), QMLDataTransfer::getPendingRoleIndices());
+        QMLDataTransfer::clearPendingData();
+    }
+}
+
+jintArray JNICALL getGenericTableModelPopulatedCells(JNIEnv* env, jclass, jlong pointer)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        const QVector<qint32> cells = modelPtr->getPopulatedCells();
+        jintArray array = env->NewIntArray(cells.size());
+        env->SetIntArrayRegion(array, 0, cells.size(), reinterpret_cast<const jint*>(cells.constData()));
+        return array;
+    }
+    else
+    {
+        return nullptr;
+    }
+}
+
+void JNICALL putRootValueIntoTableModel(JNIEnv* env, jclass, jlong pointer, jstring key)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        QString keyStr = JNIUtilities::toQString(env, key);
+        QVariant dataVar = QMLDataTransfer::retrieve(0);
+        modelPtr->putRootValue(keyStr, dataVar);
+        QMLDataTransfer::clearPendingData();
+    }
+}
+
+jobject JNICALL getRootValueFromTableModel(JNIEnv* env, jclass, jlong pointer, jstring key)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        QString keyStr = JNIUtilities::toQString(env, key);
+        return QMLDataTransfer::toJVariant(env, modelPtr->getRootValue(keyStr));
+    }
+    else
+    {
+        return nullptr;
+    }
+}
+
+void JNICALL removeRootValueFromTableModel(JNIEnv* env, jclass, jlong pointer, jstring key)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        QString keyStr = JNIUtilities::toQString(env, key);
+        modelPtr->removeRootValue(keyStr);
+    }
+}
+
+void JNICALL lockTableDataChangedSignal(JNIEnv* env, jclass, jlong pointer)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->lockDataChangedSignal();
+    }
+}
+
+void JNICALL unlockTableDataChangedSignal(JNIEnv* env, jclass, jlong pointer)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(pointer);
+        modelPtr->unlockDataChangedSignal();
+    }
+}
+
+void JNICALL registerTableModelChangedCallback(JNIEnv* env, jclass, jlong longPtr, jobject c)
+{
+    if (ApplicationFunctions::check(env))
+    {
+        auto modelPtr = reinterpret_cast<GenericTableModel*>(longPtr);
+        jobject globalC = env->NewGlobalRef(c);
+        modelPtr->registerModelChangedListener(globalC);
+    }
+}
+
+void TableModelFunctions::initialize(JNIEnv* env)
+{
+    JNINativeMethod methods[] = {
+        JNIUtilities::createJNIMethod("createGenericTableModel",    "(Ljava/lang/String;[Ljava/lang/String;[IIIZ)J",    (void *)&createGenericTableModel),
+        JNIUtilities::createJNIMethod("insertGenericTableModelRows",    "(JII)V",    (void *)&insertGenericTableModelRows),
+        JNIUtilities::createJNIMethod("removeGenericTableModelRows",    "(JII)V",    (void *)&removeGenericTableModelRows),
+        JNIUtilities::createJNIMethod("insertGenericTableModelColumns",    "(JII)V",    (void *)&insertGenericTableModelColumns),
+        JNIUtilities::createJNIMethod("removeGenericTableModelColumns",    "(JII)V",    (void *)&removeGenericTableModelColumns),
+        JNIUtilities::createJNIMethod("resizeGenericTableModel",    "(JII)V",    (void *)&resizeGenericTableModel),
+        JNIUtilities::createJNIMethod("clearAllGenericTableModelData",    "(JII)V",    (void *)&clearAllGenericTableModelData),
+        JNIUtilities::createJNIMethod("clearGenericTableModelData",    "(JIII)V",    (void *)&clearGenericTableModelData),
+        JNIUtilities::createJNIMethod("getGenericTableModelData",    "(JIII)Lcom/github/sdankbar/qml/JVariant;",    (void *)&getGenericTableModelData),
+        JNIUtilities::createJNIMethod("isGenericTableModelRolePresent",    "(JIII)Z",    (void *)&isGenericTableModelRolePresent),
+        JNIUtilities::createJNIMethod("setGenericTableModelData",    "(JII)V",    (void *)&setGenericTableModelData),
+        JNIUtilities::createJNIMethod("assignGenericTableModelData",    "(JII)V",    (void *)&assignGenericTableModelData),
+        JNIUtilities::createJNIMethod("setGenericTableModelRoleDefaults",    "(J)V",    (void *)&setGenericTableModelRoleDefaults),
+        JNIUtilities::createJNIMethod("getGenericTableModelPopulatedCells",    "(J)[I",    (void *)&getGenericTableModelPopulatedCells),
+        JNIUtilities::createJNIMethod("getRootValueFromTableModel",    "(JLjava/lang/String;)Lcom/github/sdankbar/qml/JVariant;",    (void *)&getRootValueFromTableModel),
+        JNIUtilities::createJNIMethod("putRootValueIntoTableModel",    "(JLjava/lang/String;)V",    (void *)&putRootValueIntoTableModel),
+        JNIUtilities::createJNIMethod("removeRootValueFromTableModel",    "(JLjava/lang/String;)V",    (void *)&removeRootValueFromTableModel),
+        JNIUtilities::createJNIMethod("lockDataChangedSignal",    "(J)V",    (void *)&lockTableDataChangedSignal),
+        JNIUtilities::createJNIMethod("unlockDataChangedSignal",    "(J)V",    (void *)&unlockTableDataChangedSignal),
+        JNIUtilities::createJNIMethod("registerModelChangedCallback",    "(JLcom/github/sdankbar/qml/cpp/jni/interfaces/InvokeCallback;)V",    (void *)&registerTableModelChangedCallback),
+    };
+    jclass javaClass = env->FindClass("com/github/sdankbar/qml/cpp/jni/table/TableModelFunctions");
+    env->RegisterNatives(javaClass, methods, sizeof(methods)/sizeof(JNINativeMethod));
+    env->DeleteLocalRef(javaClass);
+}
+
+void TableModelFunctions::uninitialize(JNIEnv*)
+{
+
+}
+
+GenericTableModel::GenericTableModel(const QString& modelName, const QHash<int, QByteArray>& roleMap, int32_t rowRoleIndex, int32_t columnRoleIndex, bool sparse)
+    : QAbstractTableModel(nullptr),
+      m_modelName(modelName),
+      m_sparse(sparse),
+      m_rowCount(0),
+      m_columnCount(0),
+      m_roleDefaults(roleMap.size()),
+      m_roleNames(roleMap),
+      m_rowRoleIndex(rowRoleIndex),
+      m_columnRoleIndex(columnRoleIndex),
+      m_dataChangedLocked(false),
+      m_pendingCallback(false),
+      m_dirtyTop(std::numeric_limits<qint32>::max()),
+      m_dirtyLeft(std::numeric_limits<qint32>::max()),
+      m_dirtyBottom(-1),
+      m_dirtyRight(-1)
+{
+    auto iter = m_roleNames.constBegin();
+    auto end = m_roleNames.constEnd();
+    for (; iter != end; ++iter)
+    {
+        m_stringToIndexRoleMap[iter.value()] = iter.key();
+    }
+}
+
+const QString& GenericTableModel::modelName() const
+{
+    return m_modelName;
+}
+
+const QVariantMap& GenericTableModel::root() const
+{
+    return m_root;
+}
+
+void GenericTableModel::putRootValue(const QString& key, const QVariant& value)
+{
+    m_root[key] = value;
+    emit rootChanged();
+    callbackModelChangedListeners();
+}
+
+void GenericTableModel::removeRootValue(const QString& key)
+{
+    m_root.remove(key);
+    emit rootChanged();
+    callbackModelChangedListeners();
+}
+
+const QVariant& GenericTableModel::getRootValue(const QString& key)
+{
+    auto iter = m_root.find(key);
+    if (iter != m_root.end())
+    {
+        return iter.value();
+    }
+    else
+    {
+        static const QVariant EMPTY;
+        return EMPTY;
+    }
+}
+
+int GenericTableModel::rowCount(const QModelIndex& parent) const
+{
+    if (parent.isValid())
+    {
+        return 0;
+    }
+    else
+    {
+        return m_rowCount;
+    }
+}
+
+int GenericTableModel::columnCount(const QModelIndex& parent) const
+{
+    if (parent.isValid())
+    {
+        return 0;
+    }
+    else
+    {
+        return m_columnCount;
+    }
+}
+
+QVariant GenericTableModel::data(const QModelIndex& index, int role) const
+{
+    if (index.isValid())
+    {
+        QVariant value = getCellData(index.row(), index.column(), role);
+        const int32_t i = role - Qt::UserRole;
+        if (!value.isValid() && 0 <= i && i < m_roleDefaults.size())
+        {
+            return m_roleDefaults[i];
+        }
+        return value;
+    }
+    else
+    {
+        return QVariant();
+    }
+}
+
+QHash<int, QByteArray> GenericTableModel::roleNames() const
+{
+    return m_roleNames;
+}
+
+bool GenericTableModel::setData(const QModelIndex& i, const QVariant& value, int role)
+{
+    if (i.isValid() && isValidCell(i.row(), i.column()) && role != m_rowRoleIndex && role != m_columnRoleIndex &&
+            m_roleNames.contains(role))
+    {
+        cellForWrite(i.row(), i.column())[role - Qt::UserRole] = value;
+        emitCellChanged(i.row(), i.column(), { role });
+        callbackModelChangedListeners();
+        return true;
+    }
+    else
+    {
+        return false;
+    }
+}
+
+QVariantMap GenericTableModel::getData(qint32 row, qint32 column) const
+{
+    QVariantMap map;
+    if (isValidCell(row, column))
+    {
+        auto iter = m_roleNames.constBegin();
+        auto end = m_roleNames.constEnd();
+        for (; iter != end; ++iter)
+        {
+            map.insert(iter.value(), getCellData(row, column, iter.key()));
+        }
+    }
+    return map;
+}
+
+QVariant GenericTableModel::getData(qint32 row, qint32 column, const QString& propertyName) const
+{
+    auto iter = m_stringToIndexRoleMap.constFind(propertyName);
+    if (iter != m_stringToIndexRoleMap.constEnd())
+    {
+        return getCellData(row, column, iter.value());
+    }
+    else
+    {
+        return QVariant();
+    }
+}
+
+void GenericTableModel::insertTableRows(qint32 row, qint32 count)
+{
+    if (count > 0 && 0 <= row && row <= m_rowCount)
+    {
+        beginInsertRows(QModelIndex(), row, row + count - 1);
+        if (m_sparse)
+        {
+            m_sparseCells.insert(row, count, QHash<qint32, QVector<QVariant> >());
+        }
+        else
+        {
+            m_cells.insert(row, count, QVector<QVector<QVariant> >(m_columnCount));
+        }
+        m_rowCount += count;
+        endInsertRows();
+        emit sizeChanged();
+
+        callbackModelChangedListeners();
+    }
+}
+
+void GenericTableModel::removeTableRows(qint32 row, qint32 count)
+{
+    if (count > 0 && 0 <= row && row + count <= m_rowCount)
+    {
+        beginRemoveRows(QModelIndex(), row, row + count - 1);
+        if (m_sparse)
+        {
+            m_sparseCells.remove(row, count);
+        }
+        else
+        {
+            m_cells.remove(row, count);
+        }
+        m_rowCount -= count;
+        endRemoveRows();
+        emit sizeChanged();
+
+        callbackModelChangedListeners();
+    }
+}
+
+void GenericTableModel::insertTableColumns(qint32 column, qint32 count)
+{
+    if (count > 0 && 0 <= column && column <= m_columnCount)
+    {
+        beginInsertColumns(QModelIndex(), column, column + count - 1);
+        if (m_sparse)
+        {
+            for (QHash<qint32, QVector<QVariant> >& rowCells: m_sparseCells)
+            {
+                if (!rowCells.isEmpty())
+                {
+                    QHash<qint32, QVector<QVariant> > shifted;
+                    shifted.reserve(rowCells.size());
+                    for (auto iter = rowCells.begin(); iter != rowCells.end(); ++iter)
+                    {
+                        const qint32 c = iter.key() < column ? iter.key() : iter.key() + count;
+                        shifted.insert(c, std::move(iter.value()));
+                    }
+                    rowCells.swap(shifted);
+                }
+            }
+        }
+        else
+        {
+            for (QVector<QVector<QVariant> >& rowCells: m_cells)
+            {
+                rowCells.insert(column, count, QVector<QVariant>());
+            }
+        }
+        m_columnCount += count;
+        endInsertColumns();
+        emit sizeChanged();
+
+        callbackModelChangedListeners();
+    }
+}
+
+void GenericTableModel::removeTableColumns(qint32 column, qint32 count)
+{
+    if (count > 0 && 0 <= column && column + count <= m_columnCount)
+    {
+        beginRemoveColumns(QModelIndex(), column, column + count - 1);
+        if (m_sparse)
+        {
+            for (QHash<qint32, QVector<QVariant> >& rowCells: m_sparseCells)
+            {
+                if (!rowCells.isEmpty())
+                {
+                    QHash<qint32, QVector<QVariant> > shifted;
+                    shifted.reserve(rowCells.size());
+                    for (auto iter = rowCells.begin(); iter != rowCells.end(); ++iter)
+                    {
+                        if (iter.key() < column)
+                        {
+                            shifted.insert(iter.key(), std::move(iter.value()));
+                        }
+                        else if (iter.key() >= column + count)
+                        {
+                            shifted.insert(iter.key() - count, std::move(iter.value()));
+                        }
+                    }
+                    rowCells.swap(shifted);
+                }
+            }
+        }
+        else
+        {
+            for (QVector<QVector<QVariant> >& rowCells: m_cells)
+            {
+                rowCells.remove(column, count);
+            }
+        }
+        m_columnCount -= count;
+        endRemoveColumns();
+        emit sizeChanged();
+
+        callbackModelChangedListeners();
+    }
+}
+
+void GenericTableModel::resize(qint32 rows, qint32 columns)
+{
+    beginResetModel();
+    m_rowCount = std::max(rows, 0);
+    m_columnCount = std::max(columns, 0);
+    m_cells.clear();
+    m_sparseCells.clear();
+    if (m_sparse)
+    {
+        m_sparseCells.resize(m_rowCount);
+    }
+    else
+    {
+        m_cells.resize(m_rowCount, QVector<QVector<QVariant> >(m_columnCount));
+    }
+    // Cells modified before the reset no longer need to be signaled.
+    m_dirtyTop = std::numeric_limits<qint32>::max();
+    m_dirtyLeft = std::numeric_limits<qint32>::max();
+    m_dirtyBottom = -1;
+    m_dirtyRight = -1;
+    endResetModel();
+    emit sizeChanged();
+
+    callbackModelChangedListeners();
+}
+
+void GenericTableModel::setCellData(qint32 row, qint32 column, std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
+{
+    if (isValidCell(row, column))
+    {
+        QVector<QVariant>& cell = cellForWrite(row, column);
+        for (int32_t i = 0; i < roleIndex.size(); ++i)
+        {
+            cell[roleIndex[i] - Qt::UserRole].swap(data[i]);
+        }
+        emitCellChanged(row, column, roleIndex);
+        callbackModelChangedListeners();
+    }
+}
+
+void GenericTableModel::assignCellData(qint32 row, qint32 column, std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
+{
+    if (isValidCell(row, column))
+    {
+        if (roleIndex.isEmpty())
+        {
+            eraseCell(row, column);
+        }
+        else
+        {
+            QVector<QVariant>& cell = cellForWrite(row, column);
+            cell.fill(QVariant(), m_roleNames.size());
+            for (int32_t i = 0; i < roleIndex.size(); ++i)
+            {
+                cell[roleIndex[i] - Qt::UserRole].swap(data[i]);
+            }
+        }
+        emitCellChanged(row, column);
+        callbackModelChangedListeners();
+    }
+}
+
+QVariant GenericTableModel::getCellData(qint32 row, qint32 column, int32_t roleIndex) const
+{
+    if (!isValidCell(row, column))
+    {
+        return QVariant();
+    }
+    else if (roleIndex == m_rowRoleIndex)
+    {
+        return row;
+    }
+    else if (roleIndex == m_columnRoleIndex)
+    {
+        return column;
+    }
+    else
+    {
+        const QVector<QVariant>* cell = findCell(row, column);
+        const int32_t i = roleIndex - Qt::UserRole;
+        if (cell != nullptr && 0 <= i && i < cell->size())
+        {
+            return cell->at(i);
+        }
+        else
+        {
+            return QVariant();
+        }
+    }
+}
+
+void GenericTableModel::clear(qint32 row, qint32 column, int32_t roleIndex)
+{
+    const int32_t i = roleIndex - Qt::UserRole;
+    const QVector<QVariant>* cell = isValidCell(row, column) ? findCell(row, column) : nullptr;
+    if (cell != nullptr && 0 <= i && i < cell->size())
+    {
+        cellForWrite(row, column)[i] = QVariant();
+        emitCellChanged(row, column, { roleIndex });
+        callbackModelChangedListeners();
+    }
+}
+
+void GenericTableModel::clear(qint32 row, qint32 column)
+{
+    if (isValidCell(row, column) && eraseCell(row, column))
+    {
+        emitCellChanged(row, column);
+        callbackModelChangedListeners();
+    }
+}
+
+bool GenericTableModel::containsRole(qint32 row, qint32 column, int32_t roleIndex) const
+{
+    return getCellData(row, column, roleIndex).isValid();
+}
+
+void GenericTableModel::setRoleDefaults(std::vector<QVariant>& data, const QVector<int32_t>& roleIndex)
+{
+    m_roleDefaults.fill(QVariant(), m_roleNames.size());
+    for (int32_t i = 0; i < roleIndex.size(); ++i)
+    {
+        m_roleDefaults[roleIndex[i] - Qt::UserRole].swap(data[i]);
+    }
+    if (m_rowCount > 0 && m_columnCount > 0)
+    {
+        emit dataChanged(index(0, 0), index(m_rowCount - 1, m_columnCount - 1));
+    }
+}
+
+QVector<qint32> GenericTableModel::getPopulatedCells() const
+{
+    QVector<qint32> cells;
+    for (qint32 row = 0; row < m_rowCount; ++row)
+    {
+        if (m_sparse)
+        {
+            const QHash<qint32, QVector<QVariant> >& rowCells = m_sparseCells[row];
+            for (auto iter = rowCells.constBegin(); iter != rowCells.constEnd(); ++iter)
+            {
+                cells.append(row);
+                cells.append(iter.key());
+            }
+        }
+        else
+        {
+            const QVector<QVector<QVariant> >& rowCells = m_cells[row];
+            for (qint32 column = 0; column < m_columnCount; ++column)
+            {
+                if (!rowCells[column].isEmpty())
+                {
+                    cells.append(row);
+                    cells.append(column);
+                }
+            }
+        }
+    }
+    return cells;
+}
+
+qint32 GenericTableModel::rows() const
+{
+    return m_rowCount;
+}
+
+qint32 GenericTableModel::columns() const
+{
+    return m_columnCount;
+}
+
+void GenericTableModel::lockDataChangedSignal()
+{
+    m_dataChangedLocked = true;
+}
+
+void GenericTableModel::unlockDataChangedSignal()
+{
+    m_dataChangedLocked = false;
+
+    const qint32 bottom = std::min(m_dirtyBottom, rows() - 1);
+    const qint32 right = std::min(m_dirtyRight, columns() - 1);
+    if (m_dirtyTop <= bottom && m_dirtyLeft <= right)
+    {
+        emit dataChanged(index(m_dirtyTop, m_dirtyLeft), index(bottom, right));
+    }
+    m_dirtyTop = std::numeric_limits<qint32>::max();
+    m_dirtyLeft = std::numeric_limits<qint32>::max();
+    m_dirtyBottom = -1;
+    m_dirtyRight = -1;
+
+    if (m_pendingCallback)
+    {
+        m_pendingCallback = false;
+        callbackModelChangedListeners();
+    }
+}
+
+void GenericTableModel::registerModelChangedListener(jobject c)
+{
+    callbacks.push_back(c);
+}
+
+bool GenericTableModel::isValidCell(qint32 row, qint32 column) const
+{
+    return 0 <= row && row < m_rowCount && 0 <= column && column < m_columnCount;
+}
+
+const QVector<QVariant>* GenericTableModel::findCell(qint32 row, qint32 column) const
+{
+    if (m_sparse)
+    {
+        const QHash<qint32, QVector<QVariant> >& rowCells = m_sparseCells[row];
+        auto iter = rowCells.constFind(column);
+        if (iter != rowCells.constEnd())
+        {
+            return &iter.value();
+        }
+        else
+        {
+            return nullptr;
+        }
+    }
+    else
+    {
+        const QVector<QVariant>& cell = m_cells[row][column];
+        if (cell.isEmpty())
+        {
+            return nullptr;
+        }
+        else
+        {
+            return &cell;
+        }
+    }
+}
+
+QVector<QVariant>& GenericTableModel::cellForWrite(qint32 row, qint32 column)
+{
+    QVector<QVariant>& cell = m_sparse ? m_sparseCells[row][column] : m_cells[row][column];
+    if (cell.isEmpty())
+    {
+        cell.resize(m_roleNames.size());
+    }
+    return cell;
+}
+
+bool GenericTableModel::eraseCell(qint32 row, qint32 column)
+{
+    if (m_sparse)
+    {
+        return m_sparseCells[row].remove(column);
+    }
+    else
+    {
+        QVector<QVariant>& cell = m_cells[row][column];
+        const bool hadData = !cell.isEmpty();
+        cell.clear();
+        return hadData;
+    }
+}
+
+void GenericTableModel::emitCellChanged(qint32 row, qint32 column, const QVector<int>& roles)
+{
+    if (m_dataChangedLocked)
+    {
+        m_dirtyTop = std::min(m_dirtyTop, row);
+        m_dirtyLeft = std::min(m_dirtyLeft, column);
+        m_dirtyBottom = std::max(m_dirtyBottom, row);
+        m_dirtyRight = std::max(m_dirtyRight, column);
+    }
+    else
+    {
+        const QModelIndex i = index(row, column);
+        emit dataChanged(i, i, roles);
+    }
+}
+
+void GenericTableModel::callbackModelChangedListeners()
+{
+    if (m_dataChangedLocked)
+    {
+        m_pendingCallback = true;
+    }
+    else
+    {
+        for (const jobject& c: callbacks)
+        {
+            JNIUtilities::invokeCallback(ApplicationFunctions::mainEnv, c);
+        }
+    }
+}
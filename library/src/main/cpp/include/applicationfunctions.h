@@ -29,6 +29,9 @@
 #include <userinputsimulator.h>
 
 class EventLogger;
+class PainterInstructions;
+class QQuickWindow;
+class ScenePainter;
 
 class ApplicationFunctions : public QObject
 {
@@ -63,11 +66,14 @@ public:
     void setLoggingObject(jobject callbackObject);
     void createEventLogger();
     void addImageProviderObject(const QString& id, jobject javaImageProviderCallback);
+    void addAsyncImageProviderObject(const QString& id, jobject javaAsyncImageProviderCallback);
     void setWindowIcon(const QIcon& icon);
     QList<QScreen*> getScreensList();
     jobjectArray createJScreenArray(JNIEnv* env, int32_t length);
     jobject createJScreen(JNIEnv* env, int32_t x, int32_t y, int32_t w, int32_t h, double dpi);
     std::function<QImage(const QString&,int32_t,int32_t)> createImageProviderFunctionCallback(JNIEnv* env, jobject obj);
+    std::function<void(jlong,const QString&,int32_t,int32_t)> createAsyncImageRequestCallback(jobject obj);
+    std::function<void(jlong)> createAsyncImageCancelCallback(jobject obj);
 
     void addToContext(const QString& name, const QVariant& value);
 
@@ -85,6 +91,8 @@ public:
 
     QImage toQImage(JNIEnv* env, jobject bufferedImage);
 
+    QImage renderWithSceneGraph(const PainterInstructions& instructions, int32_t width, int32_t height);
+
     void installEventFilterToApplication(QObject* obj);
     void removeEventFilterFromApplication(QObject* obj);
 
@@ -130,10 +138,16 @@ private:
     static jclass imageProviderClass;
     static jmethodID imageProviderInvoke;
 
+    static jclass asyncImageProviderClass;
+    static jmethodID asyncImageProviderRequest;
+    static jmethodID asyncImageProviderCancel;
+
     static jclass bufferedImageClass;
     static jmethodID bufferedImageGetWidth;
     static jmethodID bufferedImageGetHeight;
-    static jmethodID bufferedImageGetRGB;
+    static jclass imageTransferClass;
+    static jmethodID imageTransferToARGB;
+    static jmethodID imageTransferIsPremultiplied;
 
     static int32_t recursionDepth;
 
@@ -142,6 +156,8 @@ private:
     UserInputSimulator m_uiSim;
     QMLLogging m_logging;
     EventLogger* m_eventLogger;
+    QQuickWindow* m_sceneGraphWindow;
+    ScenePainter* m_scenePainter;
     QVariantMap m_objectLookupMap;
 };
 
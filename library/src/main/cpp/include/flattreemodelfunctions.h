@@ -24,14 +24,40 @@
 
 #include <jni.h>
 #include <QAbstractListModel>
+#include <QHash>
+#include <QSet>
+#include <QVariant>
+#include <QVector>
 #include <deque>
+#include <rolestore.h>
+#include <memory>
+#include <vector>
 
 class FlatTreeModelFunctions
 {
 public:
     static void initialize(JNIEnv* env);
     static void uninitialize(JNIEnv* env);
+
+    static void invokeExpansionCallback(jobject callback, jintArray path, bool expanded);
 private:
+    static jclass expansionClass;
+    static jmethodID expansionMethod;
+};
+
+struct FlatTreeNode
+{
+    // Row holding this node's roles in the model's RoleStore.
+    int32_t m_slot = -1;
+    FlatTreeNode* m_parent = nullptr;
+    std::vector<std::unique_ptr<FlatTreeNode> > m_children;
+    // Number of rows this node's subtree occupies in the flat list, including the
+    // node itself. Descendants of collapsed nodes are not counted.
+    int32_t m_visibleSize = 1;
+    bool m_expanded = true;
+    // Last known position in the flat list. Only trusted if the flat list still
+    // holds this node at that position.
+    int32_t m_flatIndex = -1;
 };
 
 class GenericFlatTreeModel : public QAbstractListModel
@@ -42,8 +68,7 @@ class GenericFlatTreeModel : public QAbstractListModel
 public:
     explicit GenericFlatTreeModel(
             const QString& modelName,
-            const QHash<int, QByteArray>& roleMap,
-            int32_t depth);
+            const QHash<int, QByteArray>& roleMap);
 
     const QString& modelName() const;
 
@@ -61,8 +86,10 @@ public:
 
     void insertRowData(std::deque<int32_t>& indicies, const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex);
 
+    int32_t loadSubtree(std::deque<int32_t>& indicies, const std::vector<int32_t>& structure, bool replace,
+                        const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex);
+
     QVariant getRowData(std::deque<int32_t>& indicies, int32_t roleIndex);
-    const QHash<int32_t, QVariant>& getRowData(std::deque<int32_t>& indicies);
     QVariant getRowData(qint32 flatRow, qint32 roleIndex) const;
     Q_INVOKABLE QVariant getRowData(qint32 flatRow, const QString& roleName) const;
     void setRowData(qint32 flatRow, const QVariant& value, qint32 roleIndex);
@@ -77,32 +104,67 @@ public:
 
     int32_t getSize(std::deque<int32_t>& indicies);
     bool containsRole(std::deque<int32_t>& indicies, int32_t roleIndex);
-private:
 
-    void emitSignal(qint32 row);
-    QSharedPointer<GenericFlatTreeModel> getSubmodel(qint32 row, bool create = true);
+    void lockDataChangedSignal();
+    void unlockDataChangedSignal();
 
-    void updateFlatData(std::deque<int32_t>& indicies, int32_t rowsChanged);
-    void updateFlatData(std::deque<int32_t>& indicies, QList<QHash<int32_t, QVariant>*>& list, int32_t parentIndex, int32_t& flatIndex);
+    void setExpanded(std::deque<int32_t>& indicies, bool expanded);
+    Q_INVOKABLE void setExpanded(qint32 flatRow, bool expanded);
+    Q_INVOKABLE bool isExpanded(qint32 flatRow) const;
+    void registerExpansionCallback(jobject c);
+    // Listeners are only told about changes made from QML. Changes made through the Java API are reported on the
+    // Java side.
+    void registerModelChangedListener(jobject c);
+private:
 
-    int32_t treeIndexToFlatIndex(const std::deque<int32_t>& indicies);
+    FlatTreeNode* findNode(const std::deque<int32_t>& indicies) const;
+    FlatTreeNode* findParent(const std::deque<int32_t>& indicies) const;
+    int32_t flatIndexOf(const FlatTreeNode* node) const;
+    bool childrenVisible(const FlatTreeNode* node) const;
+    bool isVisible(const FlatTreeNode* node) const;
+    QVariant roleData(const FlatTreeNode* node, qint32 flatRow, int32_t roleIndex) const;
+
+    void spliceNodes(FlatTreeNode* parent, int32_t row, std::vector<std::unique_ptr<FlatTreeNode> >& nodes);
+    void removeNode(FlatTreeNode* parent, int32_t row);
+    void removeChildren(FlatTreeNode* node);
+    void adjustVisibleSizes(FlatTreeNode* node, int32_t delta);
+    void setExpanded(FlatTreeNode* node, bool expanded);
+    void callbackExpansionListeners(const FlatTreeNode* node, bool expanded);
+    void callbackModelChangedListeners();
+    void appendPreorder(FlatTreeNode* node, QVector<FlatTreeNode*>& list) const;
+    std::unique_ptr<FlatTreeNode> newNode(const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex);
+    std::unique_ptr<FlatTreeNode> buildSubtree(const std::vector<int32_t>& structure, size_t& structurePos,
+                                               const std::vector<QVariant>& data, const QVector<int32_t>& roleIndex,
+                                               size_t& dataPos);
+    void releaseSlots(FlatTreeNode* node);
+    void setNodeData(FlatTreeNode* node, int32_t roleIndex, const QVariant& value);
+    void emitNodeChanged(const FlatTreeNode* node);
+    void flatDataMoved(int32_t firstRow);
+    void flushDataChanged();
 
     // Member Variables
     QString m_modelName;
-    QList<QHash<int32_t, QVariant>* > m_flatData;
-
-    QList<QHash<int32_t, QVariant> > m_rowData;
+    FlatTreeNode m_root;
+    RoleStore m_roleData;
+    // Every node except the root whose ancestors are all expanded, in preorder. Kept in sync with the tree by
+    // splicing ranges in and out as subtrees are inserted and removed.
+    QVector<FlatTreeNode*> m_flatData;
+    // Nodes in m_flatData before this position have a correct m_flatIndex.
+    mutable int32_t m_renumberFrom;
+
+    // Rows modified while dataChanged signals are locked. A set, so a row that is
+    // modified repeatedly is only held once.
+    bool m_dataChangedLocked;
+    QSet<int32_t> m_dirtyRows;
 
     QHash<int, QString> m_indexToStringRoleMap;
     QHash<QString, int> m_stringToIndexRoleMap;
     int32_t m_submodelIndex;
     int32_t m_parentRoleIndex;
     int32_t m_flatIndexRoleIndex;
+    int32_t m_expandedRoleIndex;
+    std::vector<jobject> m_expansionCallbacks;
+    std::vector<jobject> m_modelChangedCallbacks;
 
     QHash<int, QByteArray> m_roleNames;
-
-    int32_t m_depth;
 };
-
-
-
@@ -25,6 +25,8 @@
 #include <QString>
 #include <QFont>
 #include <QFontMetrics>
+#include <atomic>
+#include <mutex>
 
 Q_DECL_EXPORT JNINativeMethod JNIUtilities_createJNIMethod(const char* name, const char* sig, void* funcPtr);
 Q_DECL_EXPORT jclass JNIUtilities_findClassGlobalReference(JNIEnv* env, const char* name);
@@ -68,16 +70,17 @@ public:
     }
 
     static JNIEnv* attachThread();
+    static JNIEnv* attachThreadAsDaemon();
     static void dettachThread();
 
     static inline const QFont& getFont(size_t fontIndex)
     {
-        return fontCache[fontIndex];
+        return getFontEntry(fontIndex).font;
     }
 
     static inline const QFontMetrics& getFontMetrics(size_t fontIndex)
     {
-        return fontMetricsCache[fontIndex];
+        return getFontEntry(fontIndex).metrics;
     }
 
     static void cacheFont(size_t fontIndex, const QFont& font);
@@ -90,7 +93,27 @@ private:
     static jclass callbackClass;
     static jmethodID callbackMethod;
     static JavaVM* javaVM;
-    static std::vector<QFont> fontCache;
-    static std::vector<QFontMetrics> fontMetricsCache;
+
+    struct FontEntry {
+        FontEntry();
+
+        QFont font;
+        QFontMetrics metrics;
+    };
+
+    // Fonts are stored in fixed size chunks that are never moved or freed, so
+    // references returned by getFont stay valid and readers on any thread do
+    // not need a lock while cacheFont adds fonts.
+    static constexpr size_t FONT_CHUNK_SIZE = 256;
+    static constexpr size_t FONT_CHUNK_COUNT = 4096;
+
+    static inline const FontEntry& getFontEntry(size_t fontIndex)
+    {
+        const FontEntry* chunk = fontChunks[fontIndex / FONT_CHUNK_SIZE].load(std::memory_order_acquire);
+        return chunk[fontIndex % FONT_CHUNK_SIZE];
+    }
+
+    static std::atomic<FontEntry*> fontChunks[FONT_CHUNK_COUNT];
+    static std::mutex fontCacheMutex;
 };
 
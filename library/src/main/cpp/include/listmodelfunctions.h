@@ -24,6 +24,7 @@
 
 #include <jni.h>
 #include <QAbstractListModel>
+#include <rolestore.h>
 
 class ListModelFunctions
 {
@@ -65,7 +66,7 @@ public:
     void assignRowData(qint32 row, std::vector<QVariant>& data, const QVector<int32_t>& roleIndex);
     void insertRowData(qint32 row, std::vector<QVariant>& data, QVector<int32_t> roleIndex);
 
-    const QVariant& getRowData(qint32 row, int32_t roleIndex) const;
+    QVariant getRowData(qint32 row, int32_t roleIndex) const;
 
     void clear(qint32 row, int32_t roleIndex);
     void clear(qint32 row);
@@ -95,7 +96,7 @@ private:
     QString m_modelName;
     QVariantMap m_root;
 
-    QVector<QVector<QVariant> > m_rowData;
+    RoleStore m_rowData;
     QHash<QString, int> m_stringToIndexRoleMap;
     QHash<int, QByteArray> m_roleNames;
 
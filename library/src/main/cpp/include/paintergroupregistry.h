@@ -0,0 +1,90 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#pragma once
+
+#include <cstdint>
+#include <list>
+#include <memory>
+#include <mutex>
+#include <unordered_map>
+
+#include <QPicture>
+
+#include "painterinstructions.h"
+
+class QPainter;
+
+/**
+ * A retained group of painter instructions. The instructions are recorded into
+ * a QPicture the first time the group is painted and the picture is replayed
+ * afterwards.
+ */
+class PainterGroup
+{
+public:
+    PainterGroup(unsigned int length, unsigned char* instructions);
+
+    void paint(QPainter& p);
+    unsigned int length() const;
+    const PainterInstructions& instructions() const;
+
+private:
+    const unsigned int m_length;
+    PainterInstructions m_instructions;
+    QPicture m_picture;
+    std::once_flag m_recorded;
+};
+
+/**
+ * Process wide, content addressed store of PainterGroups. Java registers a
+ * group once under the hash of its instructions and other instructions refer to
+ * it by that handle. Least recently used groups are evicted once the stored
+ * instructions exceed the byte limit. Thread safe.
+ */
+class PainterGroupRegistry
+{
+public:
+
+    static bool contains(int64_t handle);
+    static void insert(int64_t handle, const std::shared_ptr<PainterGroup>& group);
+    static std::shared_ptr<PainterGroup> get(int64_t handle);
+    static void setMaxBytes(int64_t bytes);
+
+private:
+    PainterGroupRegistry();
+
+    struct Entry
+    {
+        std::shared_ptr<PainterGroup> group;
+        std::list<int64_t>::iterator lruPosition;
+    };
+
+    static void touch(Entry& entry);
+    static void evict();
+
+    static std::mutex mutex;
+    static std::unordered_map<int64_t, Entry> groups;
+    static std::list<int64_t> lru;
+    static int64_t bytes;
+    static int64_t maxBytes;
+};
@@ -0,0 +1,64 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#pragma once
+
+#include <cstdint>
+#include <list>
+#include <mutex>
+#include <unordered_map>
+
+#include <QImage>
+
+/**
+ * Process wide, content addressed store of images drawn by PainterInstructions.
+ * Java registers an image once under the hash of its pixels and instructions
+ * refer to it by that handle. Least recently used images are evicted once the
+ * stored pixels exceed the byte limit. Thread safe.
+ */
+class PainterImageRegistry
+{
+public:
+
+    static bool contains(int64_t handle);
+    static void insert(int64_t handle, const QImage& image);
+    static QImage get(int64_t handle);
+    static void setMaxBytes(int64_t bytes);
+
+private:
+    PainterImageRegistry();
+
+    struct Entry
+    {
+        QImage image;
+        std::list<int64_t>::iterator lruPosition;
+    };
+
+    static void touch(Entry& entry);
+    static void evict();
+
+    static std::mutex mutex;
+    static std::unordered_map<int64_t, Entry> images;
+    static std::list<int64_t> lru;
+    static int64_t bytes;
+    static int64_t maxBytes;
+};
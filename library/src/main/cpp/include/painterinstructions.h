@@ -25,11 +25,17 @@
 #include <memory>
 #include <jni.h>
 #include <unordered_map>
+#include <vector>
 
+#include <QFont>
 #include <QImage>
+#include <QPen>
+#include <QPolygon>
+#include <QPolygonF>
 #include <QString>
 #include <QStaticText>
 
+class PainterGroup;
 class QPainter;
 
 class PainterInstructions
@@ -43,7 +49,9 @@ public:
 
     jbyteArray cloneIntoJavaArray(JNIEnv* env) const;
 
-    QImage toImage(int32_t width, int32_t height);
+    // Images and groups drawn by the instructions, by handle.
+    const std::unordered_map<int64_t, QImage>& images() const;
+    const std::unordered_map<int64_t, std::shared_ptr<PainterGroup>>& groups() const;
 
 private:
 
@@ -56,22 +64,49 @@ private:
         drawArcDouble, drawChordDouble, drawConvexPolygonDouble, drawEllipseDouble, drawImageDouble, drawLineDouble,
         drawLinesDouble, drawPieDouble, drawPointDouble, drawPointsDouble, drawPolygonDouble, drawPolylineDouble,
         drawRectDouble, drawRoundedRectDouble, drawStaticTextDouble, drawTextSimpleDouble, drawTextComplexDouble,
-        fillRectDouble, setClipRectDouble,
+        fillRectDouble, setClipRectDouble, drawGroup,
         none = 9999
     };
 
     inline PainterFunctions getNextFunction(unsigned char*& ptr) const;
     inline unsigned char getByte(unsigned char*& ptr) const;
     inline int32_t getInteger(unsigned char*& ptr) const;
+    inline int64_t getLong(unsigned char*& ptr) const;
     inline double getDouble(unsigned char*& ptr) const;
     inline QString getString(unsigned char*& ptr) const;
 
-    void paint(QPainter& p, PainterFunctions func, unsigned char*& ptr);
+    // A decoded instruction. args points at the instruction's scalar arguments
+    // in the byte stream and object indexes the pre-built object table used by
+    // func, or is -1 if it has none.
+    struct Command {
+        PainterFunctions func;
+        unsigned char* args;
+        int32_t object;
+    };
+
+    inline void skip(unsigned char*& ptr, size_t bytes) const;
+    int32_t addPolygon(unsigned char*& ptr);
+    int32_t addPolygonF(unsigned char*& ptr);
+    int32_t addString(unsigned char*& ptr);
+
+    void decode();
+    void decode(PainterFunctions func, unsigned char*& ptr);
+    void execute(QPainter& p, const Command& c);
+    QImage getImage(int64_t handle);
+    std::shared_ptr<PainterGroup> getGroup(int64_t handle);
 
     unsigned int m_length;
     std::shared_ptr<unsigned char> m_instructions;
     unsigned char* m_end;
-    std::unordered_map<unsigned char*, QImage> m_cachedImages;
-    std::unordered_map<unsigned char*, QStaticText> m_cachedStaticText;
+    std::unordered_map<int64_t, QImage> m_cachedImages;
+    std::unordered_map<int64_t, std::shared_ptr<PainterGroup>> m_cachedGroups;
+
+    std::vector<Command> m_commands;
+    std::vector<QPen> m_pens;
+    std::vector<QFont> m_fonts;
+    std::vector<QString> m_strings;
+    std::vector<QStaticText> m_staticTexts;
+    std::vector<QPolygon> m_polygons;
+    std::vector<QPolygonF> m_polygonsF;
 };
 
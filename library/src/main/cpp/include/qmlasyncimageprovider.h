@@ -0,0 +1,62 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#pragma once
+#include <jni.h>
+#include <QImage>
+#include <QQuickAsyncImageProvider>
+#include <QQuickImageResponse>
+#include <functional>
+
+class QMLAsyncImageResponse : public QQuickImageResponse
+{
+public:
+    QMLAsyncImageResponse(jlong requestID, std::function<void(jlong)> cancelCallback);
+    virtual ~QMLAsyncImageResponse() override;
+
+    virtual QQuickTextureFactory* textureFactory() const override;
+    virtual void cancel() override;
+
+    jlong requestID() const;
+
+    static void complete(jlong requestID, const QImage& image);
+
+private:
+    const jlong m_requestID;
+    std::function<void(jlong)> m_cancelCallback;
+    QImage m_image;
+    bool m_done;
+};
+
+class QMLAsyncImageProvider : public QQuickAsyncImageProvider
+{
+public:
+    QMLAsyncImageProvider(std::function<void(jlong,const QString&,int32_t,int32_t)> javaRequestCallback,
+                          std::function<void(jlong)> javaCancelCallback);
+    virtual ~QMLAsyncImageProvider() override;
+
+    virtual QQuickImageResponse* requestImageResponse(const QString& id, const QSize& requestedSize) override;
+
+private:
+    std::function<void(jlong,const QString&,int32_t,int32_t)> javaRequestCallback;
+    std::function<void(jlong)> javaCancelCallback;
+};
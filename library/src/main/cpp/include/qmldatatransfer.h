@@ -26,6 +26,8 @@
 #include <QVariant>
 #include <QVector>
 
+class PainterInstructions;
+
 Q_DECL_EXPORT void QMLDataTransfer_Store(const QVariant& var, int32_t role);
 Q_DECL_EXPORT void QMLDataTransfer_SetJVariantConverter(
         std::function<jobject(JNIEnv*, jclass, jmethodID, const QVariant&)> func);
@@ -81,6 +83,8 @@ public:
 private:
     QMLDataTransfer();
 
+    static jobject toJVariant(JNIEnv* env, const PainterInstructions& instructions);
+
     static std::function<jobject(JNIEnv*, jclass, jmethodID, const QVariant&)> toJVariantFunc;
 
     static std::vector<QVariant> variants;
@@ -101,9 +105,12 @@ private:
     static jmethodID fromRectangleFMethod;
     static jmethodID fromURLMethod;
     static jmethodID fromUUIDMethod;
-    static jmethodID fromPainterInstructions;
     static jmethodID fromStorableMethod;
 
+    static jclass painterInstructionsClass;
+    static jmethodID painterInstructionsFromNative;
+    static jmethodID painterInstructionsConstructor;
+
     static jmethodID booleanConstructor;
     static jmethodID byteArrayConstructor;
     static jmethodID doubleConstructor;
@@ -0,0 +1,101 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#pragma once
+
+#include <QHash>
+#include <QString>
+#include <QVariant>
+#include <QVector>
+#include <vector>
+
+/**
+ * Columnar storage for the role data of a model's rows, with one column per role.
+ * Columns that only ever hold ints, doubles, bools or strings are kept in typed
+ * contiguous arrays, with strings interned, and a presence bitmap takes the place
+ * of empty QVariants. A column switches to storing QVariants the first time it is
+ * given a value of any other type. QVariants are only constructed on read.
+ */
+class RoleStore
+{
+public:
+    explicit RoleStore(int32_t columnCount);
+
+    int32_t rowCount() const;
+    int32_t columnCount() const;
+
+    QVariant get(int32_t row, int32_t column) const;
+    bool contains(int32_t row, int32_t column) const;
+    void set(int32_t row, int32_t column, const QVariant& value);
+    void clear(int32_t row, int32_t column);
+    void clearRow(int32_t row);
+
+    void insertRows(int32_t row, int32_t count);
+    void removeRows(int32_t row, int32_t count);
+    // Reorders the rows so that new row i is old row ordering[i].
+    void reorder(const std::vector<int32_t>& ordering);
+
+    // For owners that refer to rows by a stable handle instead of by position.
+    // acquireRow returns an empty row, reusing one given back by releaseRow if
+    // possible. Must not be mixed with insertRows/removeRows/reorder.
+    int32_t acquireRow();
+    void releaseRow(int32_t row);
+
+private:
+    enum class Kind : uint8_t
+    {
+        Empty,
+        Int,
+        Double,
+        Bool,
+        String,
+        Variant
+    };
+
+    struct Column
+    {
+        Kind m_kind = Kind::Empty;
+        std::vector<bool> m_present;
+        // Ints, bools and interned string ids.
+        std::vector<int32_t> m_ints;
+        std::vector<double> m_doubles;
+        std::vector<QVariant> m_variants;
+    };
+
+    static Kind kindOf(const QVariant& value);
+    QVariant value(const Column& column, int32_t row) const;
+    void allocate(Column& column, Kind kind);
+    void convertToVariant(Column& column);
+    void releaseValue(Column& column, int32_t row);
+
+    int32_t intern(const QString& str);
+    void releaseString(int32_t id);
+
+    std::vector<Column> m_columns;
+    int32_t m_rowCount;
+    std::vector<int32_t> m_freeRows;
+
+    QVector<QString> m_strings;
+    QVector<int32_t> m_stringRefs;
+    QHash<QString, int32_t> m_stringIds;
+    std::vector<int32_t> m_freeStrings;
+};
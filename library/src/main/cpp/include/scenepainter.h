@@ -0,0 +1,63 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#pragma once
+
+#include <QObject>
+#include <QtQuick/QQuickItem>
+#include "painterinstructions.h"
+
+/**
+ * Alternative to Painter that draws PainterInstructions with scene graph
+ * geometry nodes instead of rasterizing them with QPainter. Lines, polylines,
+ * polygon and path outlines, rectangles and points are supported; other
+ * instructions are ignored. Falls back to rasterizing into a texture when the
+ * software scene graph backend is used, since it has no geometry nodes.
+ */
+class ScenePainter : public QQuickItem
+{
+    Q_OBJECT
+
+    Q_PROPERTY(const PainterInstructions& instructions READ instructions WRITE setInstructions NOTIFY instructionsChanged)
+public:
+
+    ScenePainter(QQuickItem* parent = nullptr);
+    virtual ~ScenePainter();
+
+    const PainterInstructions& instructions() const;
+    void setInstructions(const PainterInstructions& instructions);
+
+signals:
+
+    void instructionsChanged(const PainterInstructions& instructions);
+
+protected:
+
+    virtual QSGNode* updatePaintNode(QSGNode* oldNode, UpdatePaintNodeData* data) override;
+
+private:
+
+    QSGNode* updateGeometryNodes(QSGNode* oldNode);
+    QSGNode* updateImageNode(QSGNode* oldNode);
+
+    PainterInstructions m_instructions;
+};
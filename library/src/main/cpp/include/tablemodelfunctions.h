@@ -0,0 +1,137 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+#pragma once
+
+#include <jni.h>
+#include <QAbstractTableModel>
+
+class TableModelFunctions
+{
+public:
+    static void initialize(JNIEnv* env);
+    static void uninitialize(JNIEnv* env);
+};
+
+class GenericTableModel : public QAbstractTableModel
+{
+    Q_OBJECT
+    Q_PROPERTY(qint32 rows READ rows NOTIFY sizeChanged)
+    Q_PROPERTY(qint32 columns READ columns NOTIFY sizeChanged)
+    Q_PROPERTY(const QString& modelName READ modelName)
+    Q_PROPERTY(const QVariantMap& root READ root NOTIFY rootChanged)
+
+public:
+    explicit GenericTableModel(const QString& modelName, const QHash<int, QByteArray>& roleMap, int32_t rowRoleIndex, int32_t columnRoleIndex, bool sparse);
+
+    const QString& modelName() const;
+    const QVariantMap& root() const;
+
+    void putRootValue(const QString& key, const QVariant& value);
+    void removeRootValue(const QString& key);
+    const QVariant& getRootValue(const QString& key);
+
+    // Basic functionality:
+    int rowCount(const QModelIndex& parent = QModelIndex()) const override;
+    int columnCount(const QModelIndex& parent = QModelIndex()) const override;
+
+    QVariant data(const QModelIndex& index, int role = Qt::DisplayRole) const override;
+    QHash<int, QByteArray> roleNames() const override;
+    bool setData(const QModelIndex &index, const QVariant &value, int role) override;
+    //
+
+    Q_INVOKABLE QVariantMap getData(qint32 row, qint32 column) const;
+    Q_INVOKABLE QVariant getData(qint32 row, qint32 column, const QString& propertyName) const;
+
+    void insertTableRows(qint32 row, qint32 count);
+    void removeTableRows(qint32 row, qint32 count);
+    void insertTableColumns(qint32 column, qint32 count);
+    void removeTableColumns(qint32 column, qint32 count);
+    void resize(qint32 rows, qint32 columns);
+
+    void setCellData(qint32 row, qint32 column, std::vector<QVariant>& data, const QVector<int32_t>& roleIndex);
+    void assignCellData(qint32 row, qint32 column, std::vector<QVariant>& data, const QVector<int32_t>& roleIndex);
+    QVariant getCellData(qint32 row, qint32 column, int32_t roleIndex) const;
+
+    void clear(qint32 row, qint32 column, int32_t roleIndex);
+    void clear(qint32 row, qint32 column);
+
+    bool containsRole(qint32 row, qint32 column, int32_t roleIndex) const;
+
+    void setRoleDefaults(std::vector<QVariant>& data, const QVector<int32_t>& roleIndex);
+    QVector<qint32> getPopulatedCells() const;
+
+    qint32 rows() const;
+    qint32 columns() const;
+
+    void lockDataChangedSignal();
+    void unlockDataChangedSignal();
+
+    void registerModelChangedListener(jobject c);
+
+signals:
+    void sizeChanged();
+    void rootChanged();
+
+private:
+
+    bool isValidCell(qint32 row, qint32 column) const;
+    const QVector<QVariant>* findCell(qint32 row, qint32 column) const;
+    QVector<QVariant>& cellForWrite(qint32 row, qint32 column);
+    bool eraseCell(qint32 row, qint32 column);
+    void emitCellChanged(qint32 row, qint32 column, const QVector<int>& roles = QVector<int>());
+    void callbackModelChangedListeners();
+
+    // Member variables
+    QString m_modelName;
+    QVariantMap m_root;
+
+    // Cell data indexed by [row][column][role - Qt::UserRole]. A cell that has
+    // never been written to has an empty role vector. Only used when not sparse.
+    QVector<QVector<QVector<QVariant> > > m_cells;
+    // Cell data indexed by [row][column][role - Qt::UserRole] that only
+    // contains the cells that have data. Only used when sparse.
+    QVector<QHash<qint32, QVector<QVariant> > > m_sparseCells;
+    const bool m_sparse;
+    qint32 m_rowCount;
+    qint32 m_columnCount;
+
+    // Values returned to QML for roles that a cell does not have.
+    QVector<QVariant> m_roleDefaults;
+
+    QHash<QString, int> m_stringToIndexRoleMap;
+    QHash<int, QByteArray> m_roleNames;
+    int32_t m_rowRoleIndex;
+    int32_t m_columnRoleIndex;
+
+    // While locked, dataChanged and the model changed callbacks are coalesced
+    // and emitted once, for the bounding range of the modified cells, when
+    // unlocked.
+    bool m_dataChangedLocked;
+    bool m_pendingCallback;
+    qint32 m_dirtyTop;
+    qint32 m_dirtyLeft;
+    qint32 m_dirtyBottom;
+    qint32 m_dirtyRight;
+
+    std::vector<jobject> callbacks;
+};
@@ -20,23 +20,14 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
  * THE SOFTWARE.
  */
-import QtQuick 2.11
+import QtQuick 2.12
 import QtQuick.Controls 6.5
 import com.github.sdankbar.jaqumal 0.4
 
-ScrollView {
+TableView {
     id: internalView
+    clip: true
 
-    property alias model: tableRepeater.model
-    property alias delegate: tableRepeater.delegate
-
-    Grid {
-        anchors.fill: parent
-        columns: model.root.column_count
-
-        Repeater {
-            id: tableRepeater
-        }
-    }
-
+    ScrollBar.horizontal: ScrollBar {}
+    ScrollBar.vertical: ScrollBar {}
 }
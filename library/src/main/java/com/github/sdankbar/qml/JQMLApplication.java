@@ -32,6 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -55,6 +56,8 @@ import com.github.sdankbar.qml.eventing.EventFactory;
 import com.github.sdankbar.qml.eventing.builtin.BuiltinEventFactory;
 import com.github.sdankbar.qml.eventing.builtin.BuiltinEventProcessor;
 import com.github.sdankbar.qml.exceptions.QMLException;
+import com.github.sdankbar.qml.images.ImageCache;
+import com.github.sdankbar.qml.images.JQMLAsyncImageProviderWrapper;
 import com.github.sdankbar.qml.images.JQMLImageProvider;
 import com.github.sdankbar.qml.images.JQMLImageProviderWrapper;
 import com.github.sdankbar.qml.invocation.InvokableDispatcher;
@@ -181,6 +184,7 @@ public class JQMLApplication<EType> {
 	private final JQMLDevelopmentTools devTools = new JQMLDevelopmentTools(this);
 
 	private final List<JQMLImageProviderWrapper> imageProviders = new ArrayList<>();
+	private final List<JQMLAsyncImageProviderWrapper> asyncImageProviders = new ArrayList<>();
 
 	@SuppressWarnings("unused")
 	// Used by C++ code
@@ -431,6 +435,30 @@ public class JQMLApplication<EType> {
 		imageProviders.add(new JQMLImageProviderWrapper(providerID, provider));
 	}
 
+	/**
+	 * Registers an asynchronous image provider. See QQuickAsyncImageProvider.
+	 * Images are requested from provider on executor, so many images can load
+	 * concurrently without blocking QML. Loaded images are cached by ID and
+	 * requested size.
+	 *
+	 * @param provider   The image provider. Must be safe to call from executor's
+	 *                   threads.
+	 * @param providerID The ID of the image provider.
+	 * @param executor   Executor that images are loaded on.
+	 * @param cacheBytes Maximum number of bytes of image data to cache. 0 disables
+	 *                   caching.
+	 * @return The cache of loaded images.
+	 */
+	@QtThread
+	public ImageCache registerAsyncImageProvider(final JQMLImageProvider provider, final String providerID,
+			final Executor executor, final long cacheBytes) {
+		verifyEventLoopThread();
+		final JQMLAsyncImageProviderWrapper wrapper = new JQMLAsyncImageProviderWrapper(providerID, provider,
+				executor, new ImageCache(cacheBytes));
+		asyncImageProviders.add(wrapper);
+		return wrapper.getCache();
+	}
+
 	/**
 	 * Requests that Qt reload the QML file at filePath.
 	 *
@@ -26,6 +26,7 @@ import java.io.File;
 import java.time.Duration;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import com.github.sdankbar.qml.exceptions.QMLException;
 import com.github.sdankbar.qml.exceptions.QMLThreadingException;
@@ -39,6 +40,9 @@ import com.github.sdankbar.qml.models.list.JQMLXYSeriesModel;
 import com.github.sdankbar.qml.models.singleton.JQMLConstantsModel;
 import com.github.sdankbar.qml.models.singleton.JQMLSingletonModel;
 import com.github.sdankbar.qml.models.table.JQMLTableModel;
+import com.github.sdankbar.qml.persistence.JournalPolicy;
+import com.github.sdankbar.qml.persistence.PersistenceFormat;
+import com.github.sdankbar.qml.persistence.RestoreBatch;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
@@ -205,8 +209,61 @@ public interface JQMLModelFactory {
 	<K> JQMLTableModel<K> createTableModel(final String modelName, final ImmutableSet<K> keySet,
 			final SelectionMode mode, final PutMode putMode);
 
+	/**
+	 * Creates a new table model that only stores the cells that have been set.
+	 * Useful for large tables where most cells are empty.
+	 *
+	 * @param modelName     Name of the model. Must be unique.
+	 * @param enumClass     The enum class whose values are the model's keys.
+	 * @param defaultValues Values QML reads for roles that are not set in a cell.
+	 * @param putMode       Specifies how put operations behave.
+	 * @return The new model.
+	 */
+	@QtThread
+	<K extends Enum<K>> JQMLTableModel<K> createSparseTableModel(final String modelName, final Class<K> enumClass,
+			final ImmutableMap<K, JVariant> defaultValues, final PutMode putMode);
+
+	/**
+	 * Creates a new table model that only stores the cells that have been set.
+	 * Useful for large tables where most cells are empty.
+	 *
+	 * @param modelName     Name of the model. Must be unique.
+	 * @param keySet        The set of keys that can be used by the new model.
+	 * @param defaultValues Values QML reads for roles that are not set in a cell.
+	 * @param putMode       Specifies how put operations behave.
+	 * @return The new model.
+	 */
+	@QtThread
+	<K> JQMLTableModel<K> createSparseTableModel(final String modelName, final ImmutableSet<K> keySet,
+			final ImmutableMap<K, JVariant> defaultValues, final PutMode putMode);
+
 	void enablePersistence(final Duration writeDelay, final File persistenceDirectory);
 
+	/**
+	 * Enables persistence using the given file format. Models saved in JSON by an
+	 * earlier version can still be restored when using the binary format.
+	 *
+	 * @param writeDelay           Delay between a model changing and it being
+	 *                             written.
+	 * @param persistenceDirectory Directory to write models to.
+	 * @param format               File format to write.
+	 */
+	void enablePersistence(final Duration writeDelay, final File persistenceDirectory,
+			final PersistenceFormat format);
+
+	/**
+	 * Enables persistence that journals changes to list and singleton models
+	 * instead of rewriting them on every save. Other models are written whole.
+	 *
+	 * @param writeDelay           Delay between a model changing and it being
+	 *                             written.
+	 * @param persistenceDirectory Directory to write models to.
+	 * @param format               File format of snapshots.
+	 * @param journalPolicy        When to compact and sync the journals.
+	 */
+	void enablePersistence(final Duration writeDelay, final File persistenceDirectory,
+			final PersistenceFormat format, final JournalPolicy journalPolicy);
+
 	void enableAutoPersistenceForModel(final JQMLSingletonModel<?> model);
 
 	void enableAutoPersistenceForModel(final JQMLListModel<?> model);
@@ -217,6 +274,8 @@ public interface JQMLModelFactory {
 
 	void enableAutoPersistenceForModel(final JQMLTableModel<?> model, ImmutableSet<String> rootKeysToPersist);
 
+	void enableAutoPersistenceForModel(final JQMLFlatTreeModel<?> model);
+
 	void persistModel(final JQMLSingletonModel<?> model);
 
 	void persistModel(final JQMLListModel<?> model);
@@ -227,6 +286,8 @@ public interface JQMLModelFactory {
 
 	void persistModel(final JQMLTableModel<?> model, ImmutableSet<String> rootKeysToPersist);
 
+	void persistModel(final JQMLFlatTreeModel<?> model);
+
 	boolean restoreModel(final JQMLSingletonModel<?> model);
 
 	boolean restoreModel(final JQMLListModel<?> model);
@@ -237,6 +298,19 @@ public interface JQMLModelFactory {
 
 	boolean restoreModel(final JQMLTableModel<?> model, ImmutableSet<String> rootKeysToPersist);
 
+	boolean restoreModel(final JQMLFlatTreeModel<?> model);
+
+	/**
+	 * Restores several models, decoding their files in parallel and assigning
+	 * them on the Qt thread in the order they were added to the batch. Does not
+	 * wait for the models to be restored.
+	 *
+	 * @param batch Models to restore, in priority order.
+	 * @return Future holding the names of the restored models. Completes on the
+	 *         Qt thread, so must not be waited on from it.
+	 */
+	CompletableFuture<ImmutableSet<String>> restoreAll(final RestoreBatch batch);
+
 	void flushPersistence();
 
 	<K> Optional<JQMLListModel<K>> getListModel(final String name);
@@ -57,6 +57,9 @@ import com.github.sdankbar.qml.painting.JPointReal;
 import com.github.sdankbar.qml.painting.JRect;
 import com.github.sdankbar.qml.painting.JRectReal;
 import com.github.sdankbar.qml.painting.PainterInstructions;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.github.sdankbar.qml.utility.ImageTransfer;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 
@@ -394,12 +397,6 @@ public class JVariant implements Comparable<JVariant> {
 		return new JVariant(UUID.fromString(str));
 	}
 
-	// Used by JNI
-	@SuppressWarnings("unused")
-	private static JVariant fromPainterInstructions(final byte[] data) {
-		return new JVariant(new PainterInstructions(data));
-	}
-
 	// Used by JNI
 	@SuppressWarnings("unused")
 	private static JVariant fromStorable(final Storable obj) {
@@ -614,15 +611,136 @@ public class JVariant implements Comparable<JVariant> {
 			return Optional.of(new JVariant(b.build()));
 		}
 		case PAINTER_INSTRUCTIONS: {
-			final JSONArray array = json.getJSONArray("value");
-			final byte[] byteArray = new byte[array.length()];
-			for (int i = 0; i < byteArray.length; ++i) {
-				byteArray[i] = (byte) array.getInt(i);
+			return Optional.of(new JVariant(PainterInstructions.fromJSON(json)));
+		}
+		case CUSTOM:
+		default:
+			return Optional.empty();
+		}// end switch
+	}
+
+	/**
+	 * @param reader Reader positioned at a value written by writeBinary.
+	 * @return The JVariant read or empty if the value could not be converted back
+	 *         to a JVariant.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	public static Optional<JVariant> readBinary(final BinaryModelReader reader) throws IOException {
+		Objects.requireNonNull(reader, "reader is null");
+
+		final String typeName = reader.readString();
+		final Type t;
+		try {
+			t = Type.valueOf(typeName);
+		} catch (final IllegalArgumentException e) {
+			throw new IOException("Unknown type " + typeName, e);
+		}
+		switch (t) {
+		case BOOL: {
+			return Optional.of(JVariant.valueOf(reader.readBoolean()));
+		}
+		case BYTE_ARRAY: {
+			return Optional.of(new JVariant(reader.readBytes()));
+		}
+		case COLOR: {
+			return Optional.of(new JVariant(new Color(reader.readInt(), true)));
+		}
+		case DATE_TIME: {
+			final long seconds = reader.readSignedVarLong();
+			final int nano = reader.readVarInt();
+			return Optional.of(new JVariant(Instant.ofEpochSecond(seconds, nano)));
+		}
+		case DOUBLE: {
+			return Optional.of(new JVariant(reader.readDouble()));
+		}
+		case FLOAT: {
+			return Optional.of(new JVariant(reader.readFloat()));
+		}
+		case IMAGE: {
+			final byte[] png = reader.readBytes();
+			final BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+			return image != null ? Optional.of(new JVariant(image)) : Optional.empty();
+		}
+		case INT: {
+			return Optional.of(new JVariant(reader.readSignedVarInt()));
+		}
+		case LINE: {
+			final double x1 = reader.readDouble();
+			final double y1 = reader.readDouble();
+			final double x2 = reader.readDouble();
+			final double y2 = reader.readDouble();
+			return Optional.of(new JVariant(new Line2D.Double(x1, y1, x2, y2)));
+		}
+		case LONG: {
+			return Optional.of(new JVariant(reader.readSignedVarLong()));
+		}
+		case POINT: {
+			final int x = reader.readSignedVarInt();
+			final int y = reader.readSignedVarInt();
+			return Optional.of(new JVariant(JPoint.point(x, y)));
+		}
+		case POINT_REAL: {
+			final double x = reader.readDouble();
+			final double y = reader.readDouble();
+			return Optional.of(new JVariant(JPointReal.point(x, y)));
+		}
+		case RECTANGLE: {
+			final int x = reader.readSignedVarInt();
+			final int y = reader.readSignedVarInt();
+			final int w = reader.readSignedVarInt();
+			final int h = reader.readSignedVarInt();
+			return Optional.of(new JVariant(JRect.rect(x, y, w, h)));
+		}
+		case RECTANGLE_REAL: {
+			final double x = reader.readDouble();
+			final double y = reader.readDouble();
+			final double w = reader.readDouble();
+			final double h = reader.readDouble();
+			return Optional.of(new JVariant(JRectReal.rect(x, y, w, h)));
+		}
+		case REGULAR_EXPRESSION: {
+			return Optional.of(new JVariant(Pattern.compile(reader.readString())));
+		}
+		case SIZE: {
+			final int w = reader.readSignedVarInt();
+			final int h = reader.readSignedVarInt();
+			return Optional.of(new JVariant(new Dimension(w, h)));
+		}
+		case STRING: {
+			return Optional.of(new JVariant(reader.readString()));
+		}
+		case URL: {
+			final String v = reader.readString();
+			try {
+				return Optional.of(new JVariant(new URL(v)));
+			} catch (final MalformedURLException e) {
+				return Optional.empty();
 			}
-			return Optional.of(new JVariant(new PainterInstructions(byteArray)));
+		}
+		case UUID: {
+			final long most = reader.readLong();
+			final long least = reader.readLong();
+			return Optional.of(new JVariant(new UUID(most, least)));
+		}
+		case FONT: {
+			return Optional.of(new JVariant(JFont.fromString(reader.readString())));
+		}
+		case POLYLINE: {
+			final int count = reader.readCount();
+			final ImmutableList.Builder<Point2D> b = ImmutableList.builder();
+			for (int i = 0; i < count; ++i) {
+				final double x = reader.readDouble();
+				final double y = reader.readDouble();
+				b.add(new Point2D.Double(x, y));
+			}
+			return Optional.of(new JVariant(b.build()));
+		}
+		case PAINTER_INSTRUCTIONS: {
+			return Optional.of(new JVariant(PainterInstructions.read(reader)));
 		}
 		case CUSTOM:
 		default:
+			// Custom types are written without a value
 			return Optional.empty();
 		}// end switch
 	}
@@ -1636,8 +1754,8 @@ public class JVariant implements Comparable<JVariant> {
 		}
 		case IMAGE: {
 			final BufferedImage image = (BufferedImage) obj;
-			final byte[] array = bufferedImageToArray(image);
-			QMLDataTransfer.setImage(image.getWidth(), image.getHeight(), array, role);
+			QMLDataTransfer.setImage(image.getWidth(), image.getHeight(), ImageTransfer.toARGB(image),
+					ImageTransfer.isPremultiplied(image), role);
 			break;
 		}
 		case INT: {
@@ -1713,7 +1831,9 @@ public class JVariant implements Comparable<JVariant> {
 			break;
 		}
 		case PAINTER_INSTRUCTIONS: {
-			final byte[] array = ((PainterInstructions) obj).getArray();
+			final PainterInstructions p = (PainterInstructions) obj;
+			p.register();
+			final byte[] array = p.getArray();
 			QMLDataTransfer.setPainterInstructions(array.length, array, role);
 			break;
 		}
@@ -1894,9 +2014,7 @@ public class JVariant implements Comparable<JVariant> {
 			break;
 		}
 		case PAINTER_INSTRUCTIONS: {
-			final PainterInstructions p = (PainterInstructions) obj;
-			final JSONArray array = byteArrayToJSONArray(p.getArray());
-			json.put("value", array);
+			((PainterInstructions) obj).toJSON(json);
 			break;
 		}
 		case CUSTOM: {
@@ -1912,6 +2030,146 @@ public class JVariant implements Comparable<JVariant> {
 		return json;
 	}
 
+	/**
+	 * Writes this JVariant in the binary persistence format, the type's name
+	 * followed by its value.
+	 *
+	 * @param writer Writer to write to.
+	 * @throws IOException Thrown if writing fails.
+	 */
+	public void writeBinary(final BinaryModelWriter writer) throws IOException {
+		writer.writeString(type.name());
+		switch (type) {
+		case BOOL: {
+			writer.writeBoolean(((Boolean) obj).booleanValue());
+			break;
+		}
+		case BYTE_ARRAY: {
+			writer.writeBytes((byte[]) obj);
+			break;
+		}
+		case COLOR: {
+			writer.writeInt(((Color) obj).getRGB());
+			break;
+		}
+		case DATE_TIME: {
+			final Instant i = (Instant) obj;
+			writer.writeSignedVarLong(i.getEpochSecond());
+			writer.writeVarInt(i.getNano());
+			break;
+		}
+		case DOUBLE: {
+			writer.writeDouble(((Double) obj).doubleValue());
+			break;
+		}
+		case FLOAT: {
+			writer.writeFloat(((Float) obj).floatValue());
+			break;
+		}
+		case IMAGE: {
+			final BufferedImage image = (BufferedImage) obj;
+			final ByteArrayOutputStream stream = new ByteArrayOutputStream(image.getHeight() * image.getWidth() * 4);
+			ImageIO.write(image, "PNG", stream);
+			writer.writeBytes(stream.toByteArray());
+			break;
+		}
+		case INT: {
+			writer.writeSignedVarInt(((Integer) obj).intValue());
+			break;
+		}
+		case LINE: {
+			final Line2D l = (Line2D) obj;
+			writer.writeDouble(l.getX1());
+			writer.writeDouble(l.getY1());
+			writer.writeDouble(l.getX2());
+			writer.writeDouble(l.getY2());
+			break;
+		}
+		case LONG: {
+			writer.writeSignedVarLong(((Long) obj).longValue());
+			break;
+		}
+		case POINT: {
+			final JPoint p = (JPoint) obj;
+			writer.writeSignedVarInt(p.x());
+			writer.writeSignedVarInt(p.y());
+			break;
+		}
+		case POINT_REAL: {
+			final JPointReal p = (JPointReal) obj;
+			writer.writeDouble(p.x());
+			writer.writeDouble(p.y());
+			break;
+		}
+		case RECTANGLE: {
+			final JRect r = (JRect) obj;
+			writer.writeSignedVarInt(r.x());
+			writer.writeSignedVarInt(r.y());
+			writer.writeSignedVarInt(r.width());
+			writer.writeSignedVarInt(r.height());
+			break;
+		}
+		case RECTANGLE_REAL: {
+			final JRectReal r = (JRectReal) obj;
+			writer.writeDouble(r.x());
+			writer.writeDouble(r.y());
+			writer.writeDouble(r.width());
+			writer.writeDouble(r.height());
+			break;
+		}
+		case REGULAR_EXPRESSION: {
+			writer.writeString(((Pattern) obj).pattern());
+			break;
+		}
+		case SIZE: {
+			final Dimension s = (Dimension) obj;
+			writer.writeSignedVarInt(s.width);
+			writer.writeSignedVarInt(s.height);
+			break;
+		}
+		case STRING: {
+			writer.writeString((String) obj);
+			break;
+		}
+		case URL: {
+			writer.writeString(((URL) obj).toExternalForm());
+			break;
+		}
+		case UUID: {
+			final UUID u = (UUID) obj;
+			writer.writeLong(u.getMostSignificantBits());
+			writer.writeLong(u.getLeastSignificantBits());
+			break;
+		}
+		case FONT: {
+			writer.writeString(((JFont) obj).toString());
+			break;
+		}
+		case POLYLINE: {
+			@SuppressWarnings("unchecked")
+			final ImmutableList<Point2D> list = (ImmutableList<Point2D>) obj;
+			writer.writeVarInt(list.size());
+			for (final Point2D p : list) {
+				writer.writeDouble(p.getX());
+				writer.writeDouble(p.getY());
+			}
+			break;
+		}
+		case PAINTER_INSTRUCTIONS: {
+			((PainterInstructions) obj).write(writer);
+			break;
+		}
+		case CUSTOM: {
+			// Persisting custom types is currently not supported
+			break;
+		}
+		default: {
+			logger.error("Unkonwn type {}", type);
+			throw new IllegalStateException("Unkonwn type " + type);
+		}
+		}// end switch
+	}
+
 	private JSONArray byteArrayToJSONArray(final byte[] byteArray) {
 		final JSONArray array = new JSONArray();
 		for (final byte b : byteArray) {
@@ -23,9 +23,10 @@
 package com.github.sdankbar.qml.cpp.jni;
 
 import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
 
 import com.github.sdankbar.qml.JScreen;
-import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.cpp.jni.interfaces.AsyncImageProviderCallback;
 import com.github.sdankbar.qml.cpp.jni.interfaces.ImageProviderCallback;
 import com.github.sdankbar.qml.cpp.jni.interfaces.InvokeCallback;
 import com.github.sdankbar.qml.cpp.jni.interfaces.LoggingCallback;
@@ -120,6 +121,23 @@ public final class ApplicationFunctions {
 	 */
 	public static native void addImageProvider(final String id, final ImageProviderCallback c);
 
+	/**
+	 * Registers a new asynchronous image provider.
+	 *
+	 * @param id Identifier of the image provider.
+	 * @param c  The provider's callback.
+	 */
+	public static native void addAsyncImageProvider(final String id, final AsyncImageProviderCallback c);
+
+	/**
+	 * Completes a request made to an asynchronous image provider. May be called
+	 * from any thread.
+	 *
+	 * @param requestID Identifier of the request.
+	 * @param image     The requested image or null if it could not be loaded.
+	 */
+	public static native void completeImageRequest(final long requestID, final BufferedImage image);
+
 	/**
 	 * @return Array of screens.
 	 */
@@ -176,5 +194,21 @@ public final class ApplicationFunctions {
 
 	public static native void saveScreenshot(String path);
 
-	public static native JVariant renderPainterInstructionsToImage(int length, byte[] data, int width, int height);
+	public static native void renderPainterInstructionsToArray(int length, byte[] data, int width, int height,
+			int[] pixels);
+
+	public static native void renderPainterInstructionsToBuffer(int length, byte[] data, int width, int height,
+			ByteBuffer buffer);
+
+	public static native boolean containsPainterImage(long handle);
+
+	public static native void registerPainterImage(long handle, int w, int h, int[] pixels, boolean premultiplied);
+
+	public static native void setPainterImageCacheSize(long bytes);
+
+	public static native boolean containsPainterGroup(long handle);
+
+	public static native void registerPainterGroup(long handle, int length, byte[] data);
+
+	public static native void setPainterGroupCacheSize(long bytes);
 }
@@ -56,6 +56,10 @@ public class FontFunctions {
 	 */
 	public static native boolean inFont(String fontToString, int character);
 
+	/**
+	 * @return The point size, or pixel size if the font uses pixel sizes, that
+	 *         inputString should be drawn at to fit in w by h.
+	 */
 	public static native int scaleToFit(final int w, final int h, final String inputString, final int fontIndex,
 			final int minimumPointSize);
 
@@ -63,7 +63,7 @@ public class QMLDataTransfer {
 
 	public static native void setDateTime(long seconds, int nanos, int roleIndex);
 
-	public static native void setImage(int w, int h, byte[] data, int roleIndex);
+	public static native void setImage(int w, int h, int[] pixels, boolean premultiplied, int roleIndex);
 
 	public static native void setFont(int fontIndex, int roleIndex);
 
@@ -23,6 +23,8 @@
 package com.github.sdankbar.qml.cpp.jni.flat_tree;
 
 import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.cpp.jni.interfaces.InvokeCallback;
+import com.github.sdankbar.qml.cpp.jni.interfaces.TreeExpansionCallback;
 
 /**
  * Interface to call C++ functions for controlling Flat Tree models.
@@ -85,6 +87,52 @@ public class FlatTreeModelFunctions {
 
 	public static native void assignGenericFlatTreeModelData(long modelPointer, int[] indices);
 
+	/**
+	 * Adds nodes under the node given by indices in a single operation. The data
+	 * for every node is read from the pending data, in preorder.
+	 *
+	 * @param modelPointer Pointer to the model to be modified.
+	 * @param indices      Serialized TreePath of the parent node.
+	 * @param structure    The number of top level nodes followed by a role count,
+	 *                     child count and expanded flag (0 or 1) for each node, in
+	 *                     preorder.
+	 * @param replace      True to replace the parent's existing children.
+	 * @return The index of the first new child or -1 if unable to load.
+	 */
+	public static native int loadGenericFlatTreeModelSubtree(long modelPointer, int[] indices, int[] structure,
+			boolean replace);
+
+	public static native void lockDataChangedSignal(long modelPointer);
+
+	public static native void unlockDataChangedSignal(long modelPointer);
+
+	/**
+	 * Expands or collapses the node given by indices. Descendants of a collapsed
+	 * node are removed from the flattened view.
+	 *
+	 * @param modelPointer Pointer to the model to be modified.
+	 * @param indices      Serialized TreePath of the node.
+	 * @param expanded     True to expand the node, false to collapse it.
+	 */
+	public static native void setGenericFlatTreeModelExpanded(long modelPointer, int[] indices, boolean expanded);
+
+	/**
+	 * Registers a callback that is called when a node is expanded or collapsed
+	 * from QML.
+	 *
+	 * @param modelPointer Pointer to the model.
+	 * @param callback     Callback to register.
+	 */
+	public static native void registerExpansionCallback(long modelPointer, TreeExpansionCallback callback);
+
+	/**
+	 * Registers a callback that is called when node data is changed from QML.
+	 *
+	 * @param modelPointer Pointer to the model.
+	 * @param callback     Callback to register.
+	 */
+	public static native void registerModelChangedCallback(long modelPointer, InvokeCallback callback);
+
 	private FlatTreeModelFunctions() {
 		// Empty Implementation
 	}
@@ -0,0 +1,46 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.cpp.jni.interfaces;
+
+/**
+ * Interface for classes to be called when an image is requested from an
+ * asynchronous image provider. Requests are answered later by calling
+ * ApplicationFunctions.completeImageRequest() with the request's identifier.
+ */
+public interface AsyncImageProviderCallback {
+
+	/**
+	 * @param requestID Identifier used to complete or cancel the request.
+	 * @param id        Identifier of the requested image
+	 * @param w         Requested width in pixels.
+	 * @param h         Requested height in pixels.
+	 */
+	void request(long requestID, String id, int w, int h);
+
+	/**
+	 * Called when QML no longer needs the result of a request.
+	 *
+	 * @param requestID Identifier of the cancelled request.
+	 */
+	void cancel(long requestID);
+}
@@ -0,0 +1,75 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.cpp.jni.table;
+
+import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.cpp.jni.interfaces.InvokeCallback;
+
+public final class TableModelFunctions {
+
+	private TableModelFunctions() {
+		// Empty Implementation
+	}
+
+	public static native long createGenericTableModel(String modelName, String[] roleNames, int[] roleIndices,
+			int rowRoleIndex, int columnRoleIndex, boolean sparse);
+
+	public static native void insertGenericTableModelRows(long modelPointer, int row, int count);
+
+	public static native void removeGenericTableModelRows(long modelPointer, int row, int count);
+
+	public static native void insertGenericTableModelColumns(long modelPointer, int column, int count);
+
+	public static native void removeGenericTableModelColumns(long modelPointer, int column, int count);
+
+	public static native void resizeGenericTableModel(long modelPointer, int rows, int columns);
+
+	public static native void clearAllGenericTableModelData(long modelPointer, int row, int column);
+
+	public static native void clearGenericTableModelData(long modelPointer, int row, int column, int roleIndex);
+
+	public static native JVariant getGenericTableModelData(long modelPointer, int row, int column, int roleIndex);
+
+	public static native boolean isGenericTableModelRolePresent(long modelPointer, int row, int column,
+			int roleIndex);
+
+	public static native void setGenericTableModelData(long modelPointer, int row, int column);
+
+	public static native void assignGenericTableModelData(long modelPointer, int row, int column);
+
+	public static native void setGenericTableModelRoleDefaults(long modelPointer);
+
+	public static native int[] getGenericTableModelPopulatedCells(long modelPointer);
+
+	public static native JVariant getRootValueFromTableModel(long modelPointer, String key);
+
+	public static native void putRootValueIntoTableModel(long modelPointer, String key);
+
+	public static native void removeRootValueFromTableModel(long modelPointer, String key);
+
+	public static native void lockDataChangedSignal(long modelPointer);
+
+	public static native void unlockDataChangedSignal(long modelPointer);
+
+	public static native void registerModelChangedCallback(long modelPointer, InvokeCallback callback);
+}
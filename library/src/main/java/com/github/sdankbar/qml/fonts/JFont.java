@@ -704,7 +704,14 @@ public class JFont {
 		Preconditions.checkArgument(h > 0, "h < 1");
 		Objects.requireNonNull(inputText, "inputText is null");
 		Preconditions.checkArgument(minimumPointSize > 0, "minimumPointSize < 1");
-		return cache.getFont(FontFunctions.scaleToFit(w, h, inputText, fontIndex, minimumPointSize));
+		final int size = FontFunctions.scaleToFit(w, h, inputText, fontIndex, minimumPointSize);
+		final Builder b = toBuilder();
+		if (pixelSize > 0) {
+			b.setPixelSize(size);
+		} else {
+			b.setPointSize(size);
+		}
+		return cache.getFont(b);
 	}
 
 	@Override
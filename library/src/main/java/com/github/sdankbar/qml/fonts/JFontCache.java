@@ -22,19 +22,26 @@
  */
 package com.github.sdankbar.qml.fonts;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Provides methods for fast access to JFonts.
+ * Provides methods for fast access to JFonts. Fonts are created and registered
+ * with the native font cache only when first requested, and each is assigned
+ * the next free index, which it keeps for the life of the application.
+ *
+ * Lookups do not lock. Only creating a font is serialized, so that each font is
+ * registered once and indexes are handed out in order.
  */
 public final class JFontCache {
 
-	private final HashMap<JFont.Builder, JFont> builderCache = new HashMap<>();
-	private final HashMap<String, JFont> stringCache = new HashMap<>();
-	private final List<JFont> indexLookup = new ArrayList<>();
-	private int index = 0;
+	private final ConcurrentHashMap<JFont.Builder, JFont> builderCache = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, JFont> stringCache = new ConcurrentHashMap<>();
+	private final Object insertLock = new Object();
+	// Replaced, or rewritten, by inserts while holding insertLock. Readers only
+	// see entries written before the last volatile write of this field.
+	private volatile JFont[] indexLookup = new JFont[64];
+	private int size = 0;
 
 	/**
 	 * Retrieve a JFont from the cache or create it if it is not in the cache.
@@ -42,13 +49,22 @@ public final class JFontCache {
 	 * @param builder Builder that describes the JFont to return.
 	 * @return The JFont for the provided builder.
 	 */
-	public synchronized JFont getFont(final JFont.Builder builder) {
+	public JFont getFont(final JFont.Builder builder) {
 		final JFont cachedFont = builderCache.get(builder);
 		if (cachedFont != null) {
 			return cachedFont;
-		} else {
-			storeAllSizes(new JFont.Builder(builder));
-			return builderCache.get(builder);
+		}
+
+		synchronized (insertLock) {
+			final JFont existingFont = builderCache.get(builder);
+			if (existingFont != null) {
+				return existingFont;
+			}
+
+			final JFont.Builder key = new JFont.Builder(builder);
+			final JFont f = storeFont(key);
+			builderCache.put(key, f);
+			return f;
 		}
 	}
 
@@ -58,44 +74,49 @@ public final class JFontCache {
 	 * @param fontStr String from QFont used to construct a JFont.
 	 * @return The JFont for the provided builder.
 	 */
-	public synchronized JFont getFont(final String fontStr) {
+	public JFont getFont(final String fontStr) {
 		final JFont cachedFont = stringCache.get(fontStr);
 		if (cachedFont != null) {
 			return cachedFont;
-		} else {
-			storeAllSizes(JFont.builder(fontStr));
-			return stringCache.get(fontStr);
 		}
-	}
 
-	public synchronized JFont getFont(final int fontIndex) {
-		return indexLookup.get(fontIndex);
-	}
-
-	private void storeAllSizes(final JFont.Builder start) {
-		for (int size = JFont.MAX_FONT_SIZE; size > 0; --size) {
-			start.setPointSize(size);
-			storeFont(start);
-		}
-		for (int size = JFont.MAX_FONT_SIZE; size > 0; --size) {
-			start.setPixelSize(size);
-			storeFont(start);
+		final JFont.Builder key = JFont.builder(fontStr);
+		synchronized (insertLock) {
+			JFont f = builderCache.get(key);
+			if (f == null) {
+				f = storeFont(key);
+				builderCache.put(key, f);
+			}
+			// Qt may normalize the string, so also remember the one requested.
+			stringCache.put(fontStr, f);
+			return f;
 		}
+	}
 
-		{
-			start.setDefaultSize();
-			storeFont(start);
+	public JFont getFont(final int fontIndex) {
+		final JFont[] table = indexLookup;
+		final JFont f = (0 <= fontIndex && fontIndex < table.length) ? table[fontIndex] : null;
+		if (f == null) {
+			throw new IndexOutOfBoundsException("Unknown fontIndex " + fontIndex);
 		}
+		return f;
 	}
 
-	private void storeFont(final JFont.Builder builder) {
-		final int fontIndex = index++;
+	private JFont storeFont(final JFont.Builder builder) {
+		final int fontIndex = size;
 		final String fontStr = builder.getQFontString(fontIndex);
 		final JFont f = new JFont(fontStr, fontIndex);
 
-		indexLookup.add(f);
-		builderCache.putIfAbsent(new JFont.Builder(builder), f);
+		JFont[] table = indexLookup;
+		if (fontIndex == table.length) {
+			table = Arrays.copyOf(table, 2 * table.length);
+		}
+		table[fontIndex] = f;
+		++size;
+		indexLookup = table;
+
 		stringCache.putIfAbsent(fontStr, f);
+		return f;
 	}
 
 }
@@ -0,0 +1,146 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.images;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Least recently used cache of provided images, keyed by image ID and
+ * requested size. The cache is bounded by the number of bytes needed to hold
+ * the cached images as 32-bit ARGB. Thread safe.
+ */
+public final class ImageCache {
+
+	private static final class Key {
+		private final String id;
+		private final Dimension size;
+
+		Key(final String id, final Dimension size) {
+			this.id = Objects.requireNonNull(id, "id is null");
+			this.size = new Dimension(Objects.requireNonNull(size, "size is null"));
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(id, size);
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			} else if (obj == null || getClass() != obj.getClass()) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return id.equals(other.id) && size.equals(other.size);
+		}
+	}
+
+	private static long sizeInBytes(final BufferedImage image) {
+		return 4L * image.getWidth() * image.getHeight();
+	}
+
+	private final long maxBytes;
+	private final LinkedHashMap<Key, BufferedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes = 0;
+
+	/**
+	 * Constructs a new, empty cache.
+	 *
+	 * @param maxBytes Maximum number of bytes of image data to cache. 0 disables
+	 *                 caching.
+	 */
+	public ImageCache(final long maxBytes) {
+		Preconditions.checkArgument(maxBytes >= 0, "maxBytes is negative");
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param id            Identifier of the image.
+	 * @param requestedSize Size the image was requested at.
+	 * @return The cached image or null if it is not cached.
+	 */
+	public synchronized BufferedImage get(final String id, final Dimension requestedSize) {
+		return images.get(new Key(id, requestedSize));
+	}
+
+	/**
+	 * Adds an image to the cache, evicting the least recently used images until
+	 * the cache is within its size bound. Images larger than the bound are not
+	 * cached.
+	 *
+	 * @param id            Identifier of the image.
+	 * @param requestedSize Size the image was requested at.
+	 * @param image         The image to cache.
+	 */
+	public synchronized void put(final String id, final Dimension requestedSize, final BufferedImage image) {
+		Objects.requireNonNull(image, "image is null");
+		final long imageBytes = sizeInBytes(image);
+		if (imageBytes > maxBytes) {
+			return;
+		}
+
+		final BufferedImage previous = images.put(new Key(id, requestedSize), image);
+		if (previous != null) {
+			bytes -= sizeInBytes(previous);
+		}
+		bytes += imageBytes;
+
+		final Iterator<Map.Entry<Key, BufferedImage>> iter = images.entrySet().iterator();
+		while (bytes > maxBytes && iter.hasNext()) {
+			bytes -= sizeInBytes(iter.next().getValue());
+			iter.remove();
+		}
+	}
+
+	/**
+	 * Removes all images from the cache.
+	 */
+	public synchronized void clear() {
+		images.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return Number of images in the cache.
+	 */
+	public synchronized int size() {
+		return images.size();
+	}
+
+	/**
+	 * @return Number of bytes of image data in the cache.
+	 */
+	public synchronized long getSizeInBytes() {
+		return bytes;
+	}
+
+}
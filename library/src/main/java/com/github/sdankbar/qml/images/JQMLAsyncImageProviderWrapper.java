@@ -0,0 +1,133 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.images;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.sdankbar.qml.cpp.jni.ApplicationFunctions;
+import com.github.sdankbar.qml.cpp.jni.interfaces.AsyncImageProviderCallback;
+
+/**
+ * Wraps a JQMLImageProvider as an asynchronous image provider. Requests from
+ * QML are loaded on an Executor and the results are kept in an ImageCache.
+ * Requests that QML cancels are cancelled on the Executor as well.
+ */
+public class JQMLAsyncImageProviderWrapper implements AsyncImageProviderCallback {
+
+	private static final Logger log = LoggerFactory.getLogger(JQMLAsyncImageProviderWrapper.class);
+
+	private final String id;
+	private final JQMLImageProvider provider;
+	private final Executor executor;
+	private final ImageCache cache;
+	private final Map<Long, Future<?>> pending = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs new wrapper.
+	 *
+	 * @param id       Identifier of the provider.
+	 * @param provider The provider to wrap. Must be safe to call from the
+	 *                 Executor's threads.
+	 * @param executor Executor that images are loaded on.
+	 * @param cache    Cache of loaded images.
+	 */
+	public JQMLAsyncImageProviderWrapper(final String id, final JQMLImageProvider provider, final Executor executor,
+			final ImageCache cache) {
+		this.id = Objects.requireNonNull(id, "id null");
+		this.provider = Objects.requireNonNull(provider, "provider is null");
+		this.executor = Objects.requireNonNull(executor, "executor is null");
+		this.cache = Objects.requireNonNull(cache, "cache is null");
+
+		ApplicationFunctions.addAsyncImageProvider(id, this);
+	}
+
+	/**
+	 * @return This provider's identifier.
+	 */
+	public String getProviderID() {
+		return id;
+	}
+
+	/**
+	 * @return The cache of loaded images.
+	 */
+	public ImageCache getCache() {
+		return cache;
+	}
+
+	@Override
+	public void request(final long requestID, final String imageID, final int w, final int h) {
+		final Dimension size = new Dimension(w, h);
+		final BufferedImage cached = cache.get(imageID, size);
+		if (cached != null) {
+			ApplicationFunctions.completeImageRequest(requestID, cached);
+			return;
+		}
+
+		final FutureTask<Void> task = new FutureTask<>(() -> load(requestID, imageID, size), null);
+		pending.put(requestID, task);
+		try {
+			executor.execute(task);
+		} catch (final RejectedExecutionException e) {
+			log.warn("Image request rejected: " + imageID, e);
+			pending.remove(requestID);
+			ApplicationFunctions.completeImageRequest(requestID, null);
+		}
+	}
+
+	@Override
+	public void cancel(final long requestID) {
+		final Future<?> task = pending.remove(requestID);
+		if (task != null) {
+			task.cancel(true);
+		}
+	}
+
+	private void load(final long requestID, final String imageID, final Dimension size) {
+		BufferedImage image = null;
+		try {
+			image = provider.requestImage(imageID, size);
+			if (image != null) {
+				cache.put(imageID, size, image);
+			}
+		} catch (final RuntimeException e) {
+			log.warn("Exception when loading image: " + imageID, e);
+		} finally {
+			pending.remove(requestID);
+		}
+
+		ApplicationFunctions.completeImageRequest(requestID, image);
+	}
+
+}
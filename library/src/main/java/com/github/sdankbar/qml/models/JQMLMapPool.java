@@ -23,8 +23,13 @@
 package com.github.sdankbar.qml.models;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.IntFunction;
@@ -50,9 +55,20 @@ public class JQMLMapPool<K> {
 
 	private final JQMLListModel<K> model;
 	private final ImmutableMap<K, JVariant> initialValue;
+	private ImmutableMap<K, JVariant> releaseValue;
 	private IntFunction<Integer> growthFunction = oldSize -> Integer.valueOf(oldSize + 16);
 
-	private final List<Boolean> inUse = new ArrayList<>();
+	// Bit i is set when the item at index i in the list model has been requested.
+	private final BitSet inUse = new BitSet();
+	// Stack of the indices of items that are not in use. Top of the stack is at
+	// freeCount - 1.
+	private int[] freeIndices = new int[16];
+	private int freeCount = 0;
+	// Maps each item handed out by the list model to its index.
+	private final Map<Map<K, JVariant>, Integer> indexLookup = new IdentityHashMap<>();
+	// Contents of each item as last written by this pool. Used by assign() to only
+	// send the roles that changed.
+	private final List<Map<K, JVariant>> lastWritten = new ArrayList<>();
 
 	/**
 	 * Constructs a new pool.
@@ -64,6 +80,7 @@ public class JQMLMapPool<K> {
 	public JQMLMapPool(final JQMLListModel<K> model, final ImmutableMap<K, JVariant> initialValue) {
 		this.model = Objects.requireNonNull(model, "model is null");
 		this.initialValue = Objects.requireNonNull(initialValue, "initialValue is null");
+		this.releaseValue = initialValue;
 	}
 
 	/**
@@ -71,7 +88,7 @@ public class JQMLMapPool<K> {
 	 *         allocation.
 	 */
 	public int getAvailable() {
-		return (int) inUse.stream().filter(a -> !a.booleanValue()).count();
+		return freeCount;
 	}
 
 	/**
@@ -104,39 +121,115 @@ public class JQMLMapPool<K> {
 
 	private void allocate(final int newSize) {
 		final int oldSize = model.size();
+		if (oldSize >= newSize) {
+			return;
+		}
+
 		for (int i = oldSize; i < newSize; ++i) {
-			model.add(initialValue);
-			inUse.add(Boolean.FALSE);
+			final Map<K, JVariant> map = model.add(initialValue);
+			indexLookup.put(map, Integer.valueOf(i));
+			lastWritten.add(new HashMap<>(initialValue));
+		}
+
+		// Push the new indices in reverse order so the lowest index is requested
+		// first.
+		final int added = newSize - oldSize;
+		if (freeIndices.length < freeCount + added) {
+			freeIndices = Arrays.copyOf(freeIndices, Math.max(freeIndices.length * 2, freeCount + added));
+		}
+		for (int i = newSize - 1; i >= oldSize; --i) {
+			freeIndices[freeCount++] = i;
 		}
 	}
 
+	private void pushFree(final int index) {
+		if (freeCount == freeIndices.length) {
+			freeIndices = Arrays.copyOf(freeIndices, freeIndices.length * 2);
+		}
+		freeIndices[freeCount++] = index;
+	}
+
 	/**
 	 * @param map The item to release back to the pool so it can be reused.
 	 */
 	public void release(final Map<K, JVariant> map) {
 		Objects.requireNonNull(map, "map is null");
-		for (int i = 0; i < model.size(); ++i) {
-			// Identity equality check
-			if (model.get(i) == map) {
-				inUse.set(i, Boolean.FALSE);
-				map.putAll(initialValue);
-				return;
-			}
+		final Integer index = indexLookup.get(map);
+		if (index == null) {
+			logger.warn("Map {} not found in model to release", map);
+			return;
 		}
 
-		logger.warn("Map {} not found in model to release", map);
+		final int i = index.intValue();
+		if (inUse.get(i)) {
+			inUse.clear(i);
+			pushFree(i);
+		}
+		map.putAll(releaseValue);
+		lastWritten.get(i).putAll(releaseValue);
 	}
 
 	/**
 	 * Releases all in use items.
 	 */
 	public void releaseAll() {
-		for (int i = 0; i < model.size(); ++i) {
-			if (inUse.get(i).booleanValue()) {
-				inUse.set(i, Boolean.FALSE);
-				model.get(i).putAll(initialValue);
+		for (int i = inUse.nextSetBit(0); i >= 0; i = inUse.nextSetBit(i + 1)) {
+			model.get(i).putAll(releaseValue);
+			lastWritten.get(i).putAll(releaseValue);
+			pushFree(i);
+		}
+		inUse.clear();
+	}
+
+	/**
+	 * Makes the contents of an item from this pool equal to values. Only the roles
+	 * whose value differs from what this pool last wrote to the item are sent to
+	 * QML, so recycling an item for similar data is cheap. Assumes the item has
+	 * only been modified through this pool's assign() and release() functions
+	 * since it was allocated.
+	 *
+	 * @param map    The item to update.
+	 * @param values The new contents of the item.
+	 */
+	public void assign(final Map<K, JVariant> map, final Map<K, JVariant> values) {
+		Objects.requireNonNull(map, "map is null");
+		Objects.requireNonNull(values, "values is null");
+		final Integer index = indexLookup.get(map);
+		if (index == null) {
+			logger.warn("Map {} not found in model to assign", map);
+			return;
+		}
+
+		final Map<K, JVariant> previous = lastWritten.get(index.intValue());
+		boolean removedRole = false;
+		for (final K key : previous.keySet()) {
+			if (!values.containsKey(key)) {
+				removedRole = true;
+				break;
 			}
 		}
+
+		if (removedRole) {
+			if (map instanceof AbstractJQMLMapModel) {
+				((AbstractJQMLMapModel<K>) map).assign(values);
+			} else {
+				map.clear();
+				map.putAll(values);
+			}
+		} else {
+			final Map<K, JVariant> changed = new HashMap<>();
+			for (final Entry<K, JVariant> entry : values.entrySet()) {
+				if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+					changed.put(entry.getKey(), entry.getValue());
+				}
+			}
+			if (!changed.isEmpty()) {
+				map.putAll(changed);
+			}
+		}
+
+		previous.clear();
+		previous.putAll(values);
 	}
 
 	/**
@@ -145,22 +238,17 @@ public class JQMLMapPool<K> {
 	 * @return A new item from the list model
 	 */
 	public Map<K, JVariant> request() {
-		return request(0);
-	}
-
-	private Map<K, JVariant> request(final int hintIndex) {
-		final int currentSize = inUse.size();
-		for (int i = hintIndex; i < currentSize; ++i) {
-			if (!inUse.get(i).booleanValue()) {
-				inUse.set(i, Boolean.TRUE);
-				return model.get(i);
-			}
+		if (freeCount == 0) {
+			final int currentSize = model.size();
+			final int newSize = growthFunction.apply(currentSize).intValue();
+			Preconditions.checkArgument((currentSize + 1) <= newSize, "growthFunction returned a smaller length ",
+					newSize);
+			allocate(newSize);
 		}
 
-		final int newSize = growthFunction.apply(currentSize).intValue();
-		Preconditions.checkArgument((currentSize + 1) <= newSize, "growthFunction returned a smaller length ", newSize);
-		allocate(newSize);
-		return request(currentSize);
+		final int index = freeIndices[--freeCount];
+		inUse.set(index);
+		return model.get(index);
 	}
 
 	/**
@@ -170,13 +258,12 @@ public class JQMLMapPool<K> {
 	 */
 	public int getIndex(final Map<K, JVariant> map) {
 		Objects.requireNonNull(map, "map is null");
-		for (int i = 0; i < model.size(); ++i) {
-			// Identity equality check
-			if (model.get(i) == map) {
-				return i;
-			}
+		final Integer index = indexLookup.get(map);
+		if (index == null) {
+			return -1;
+		} else {
+			return index.intValue();
 		}
-		return -1;
 	}
 
 	/**
@@ -192,6 +279,19 @@ public class JQMLMapPool<K> {
 		allocate(newSize);
 	}
 
+	/**
+	 * Sets the values written to an item when it is released. Defaults to the
+	 * initial value. Setting this to only the role(s) that QML uses to hide an
+	 * item, for example a position of -1, avoids sending every role to QML for an
+	 * item that is about to become invisible.
+	 *
+	 * @param releaseValue Map of the values to put into an item when it is
+	 *                     released.
+	 */
+	public void setReleaseValue(final ImmutableMap<K, JVariant> releaseValue) {
+		this.releaseValue = Objects.requireNonNull(releaseValue, "releaseValue is null");
+	}
+
 	/**
 	 * Sets the strategy used to resize the list model when additional items are
 	 * required. Function must return a new list size that is at least 1 larger than
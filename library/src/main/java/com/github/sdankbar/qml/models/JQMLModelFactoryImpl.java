@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.github.sdankbar.qml.JQMLApplication;
@@ -56,7 +57,11 @@ import com.github.sdankbar.qml.models.singleton.SingletonInvocationHandler;
 import com.github.sdankbar.qml.models.singleton.SingletonMapAccessor;
 import com.github.sdankbar.qml.models.table.JQMLTableModel;
 import com.github.sdankbar.qml.models.table.JQMLTableModelImpl;
+import com.github.sdankbar.qml.models.table.TableAccessor;
+import com.github.sdankbar.qml.persistence.JournalPolicy;
 import com.github.sdankbar.qml.persistence.ModelPersistence;
+import com.github.sdankbar.qml.persistence.PersistenceFormat;
+import com.github.sdankbar.qml.persistence.RestoreBatch;
 import com.github.sdankbar.qml.utility.JQMLUtilities;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
@@ -238,8 +243,12 @@ public class JQMLModelFactoryImpl implements JQMLModelFactory {
 	@QtThread()
 	public <K extends Enum<K>> JQMLTableModel<K> createTableModel(final String modelName, final Class<K> keyClass,
 			final PutMode putMode) {
+		JQMLUtilities.checkThread(eventLoopThread);
+		checkModelName(modelName);
+
 		final ImmutableSet<K> userKeys = ImmutableSet.copyOf(EnumSet.allOf(keyClass));
-		final JQMLTableModelImpl<K> m = new JQMLTableModelImpl<>(modelName, userKeys, app, putMode);
+		final JQMLTableModelImpl<K> m = new JQMLTableModelImpl<>(modelName, userKeys, eventLoopThread,
+				new TableAccessor(), putMode);
 		tableModels.put(modelName, m);
 		return m;
 	}
@@ -248,7 +257,32 @@ public class JQMLModelFactoryImpl implements JQMLModelFactory {
 	@QtThread()
 	public <K> JQMLTableModel<K> createTableModel(final String modelName, final ImmutableSet<K> keySet,
 			final SelectionMode mode, final PutMode putMode) {
-		final JQMLTableModelImpl<K> m = new JQMLTableModelImpl<>(modelName, keySet, app, putMode);
+		JQMLUtilities.checkThread(eventLoopThread);
+		checkModelName(modelName);
+
+		final JQMLTableModelImpl<K> m = new JQMLTableModelImpl<>(modelName, keySet, eventLoopThread,
+				new TableAccessor(), putMode);
+		tableModels.put(modelName, m);
+		return m;
+	}
+
+	@Override
+	@QtThread()
+	public <K extends Enum<K>> JQMLTableModel<K> createSparseTableModel(final String modelName,
+			final Class<K> keyClass, final ImmutableMap<K, JVariant> defaultValues, final PutMode putMode) {
+		return createSparseTableModel(modelName, ImmutableSet.copyOf(EnumSet.allOf(keyClass)), defaultValues,
+				putMode);
+	}
+
+	@Override
+	@QtThread()
+	public <K> JQMLTableModel<K> createSparseTableModel(final String modelName, final ImmutableSet<K> keySet,
+			final ImmutableMap<K, JVariant> defaultValues, final PutMode putMode) {
+		JQMLUtilities.checkThread(eventLoopThread);
+		checkModelName(modelName);
+
+		final JQMLTableModelImpl<K> m = new JQMLTableModelImpl<>(modelName, keySet, eventLoopThread,
+				new TableAccessor(), putMode, true, defaultValues);
 		tableModels.put(modelName, m);
 		return m;
 	}
@@ -263,6 +297,28 @@ public class JQMLModelFactoryImpl implements JQMLModelFactory {
 		persistence = new ModelPersistence(app.getQMLThreadExecutor(), writeDelay, persistenceDirectory);
 	}
 
+	@Override
+	public void enablePersistence(final Duration writeDelay, final File persistenceDirectory,
+			final PersistenceFormat format) {
+		if (persistence != null) {
+			persistence.shutdown();
+		}
+
+		persistence = new ModelPersistence(app.getQMLThreadExecutor(), writeDelay, persistenceDirectory, format);
+	}
+
+	@Override
+	public void enablePersistence(final Duration writeDelay, final File persistenceDirectory,
+			final PersistenceFormat format, final JournalPolicy journalPolicy) {
+		Objects.requireNonNull(journalPolicy, "journalPolicy is null");
+		if (persistence != null) {
+			persistence.shutdown();
+		}
+
+		persistence = new ModelPersistence(app.getQMLThreadExecutor(), writeDelay, persistenceDirectory, format,
+				journalPolicy);
+	}
+
 	@Override
 	public void enableAutoPersistenceForModel(final JQMLSingletonModel<?> model) {
 		Preconditions.checkArgument(persistence != null, "Persistence has not been enabled");
@@ -295,6 +351,12 @@ public class JQMLModelFactoryImpl implements JQMLModelFactory {
 		persistence.autoPersistModel(model, rootKeysToPersist);
 	}
 
+	@Override
+	public void enableAutoPersistenceForModel(final JQMLFlatTreeModel<?> model) {
+		Preconditions.checkArgument(persistence != null, "Persistence has not been enabled");
+		persistence.autoPersistModel(model);
+	}
+
 	@Override
 	public void persistModel(final JQMLSingletonModel<?> model) {
 		Preconditions.checkArgument(persistence != null, "Persistence has not been enabled");
@@ -325,6 +387,12 @@ public class JQMLModelFactoryImpl implements JQMLModelFactory {
 		persistence.persistModel(model, rootKeysToPersist);
 	}
 
+	@Override
+	public void persistModel(final JQMLFlatTreeModel<?> model) {
+		Preconditions.checkArgument(persistence != null, "Persistence has not been enabled");
+		persistence.persistModel(model);
+	}
+
 	@Override
 	public boolean restoreModel(final JQMLSingletonModel<?> model) {
 		Preconditions.checkArgument(persistence != null, "Persistence has not been enabled");
@@ -355,6 +423,19 @@ public class JQMLModelFactoryImpl implements JQMLModelFactory {
 		return persistence.restoreModel(model, rootKeysToPersist);
 	}
 
+	@Override
+	public boolean restoreModel(final JQMLFlatTreeModel<?> model) {
+		Preconditions.checkArgument(persistence != null, "Persistence has not been enabled");
+		return persistence.restoreModel(model);
+	}
+
+	@Override
+	public CompletableFuture<ImmutableSet<String>> restoreAll(final RestoreBatch batch) {
+		Objects.requireNonNull(batch, "batch is null");
+		Preconditions.checkArgument(persistence != null, "Persistence has not been enabled");
+		return persistence.restoreAll(batch);
+	}
+
 	@Override
 	public void flushPersistence() {
 		Preconditions.checkArgument(persistence != null, "Persistence has not been enabled");
@@ -22,7 +22,9 @@
  */
 package com.github.sdankbar.qml.models.flat_tree;
 
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.github.sdankbar.qml.JVariant;
 import com.github.sdankbar.qml.cpp.jni.flat_tree.FlatTreeModelFunctions;
@@ -36,6 +38,16 @@ import com.github.sdankbar.qml.models.TreePath;
 public class FlatTreeAccessor extends MapAccessor {
 
 	private TreePath path;
+	// Serialized copy of path, made once when the path is set instead of on every
+	// JNI call.
+	private int[] pathArray;
+
+	private Runnable changeListener = () -> {
+		// Empty Implementation
+	};
+	private Consumer<TreePath> clearListener = p -> {
+		// Empty Implementation
+	};
 
 	private void checkIndex() {
 		if (path == null) {
@@ -47,8 +59,9 @@ public class FlatTreeAccessor extends MapAccessor {
 	public void clear() {
 		checkIndex();
 
-		FlatTreeModelFunctions.clearAllGenericFlatTreeModelData(modelPointer, path.toArray());
-
+		FlatTreeModelFunctions.clearAllGenericFlatTreeModelData(modelPointer, pathArray);
+		clearListener.accept(path);
+		changeListener.run();
 	}
 
 	/**
@@ -62,6 +75,8 @@ public class FlatTreeAccessor extends MapAccessor {
 		final FlatTreeAccessor a = new FlatTreeAccessor();
 		a.setTreePath(p);
 		a.setModelPointer(modelPointer);
+		a.changeListener = changeListener;
+		a.clearListener = clearListener;
 		return a;
 	}
 
@@ -69,7 +84,7 @@ public class FlatTreeAccessor extends MapAccessor {
 	public Optional<JVariant> get(final int roleIndex) {
 		checkIndex();
 
-		final JVariant received = FlatTreeModelFunctions.getGenericFlatTreeModelData(modelPointer, path.toArray(),
+		final JVariant received = FlatTreeModelFunctions.getGenericFlatTreeModelData(modelPointer, pathArray,
 				roleIndex);
 		return Optional.ofNullable(received);
 	}
@@ -87,7 +102,8 @@ public class FlatTreeAccessor extends MapAccessor {
 
 		final Optional<JVariant> oldValue = get(roleIndex);
 
-		FlatTreeModelFunctions.clearGenericFlatTreeModelData(modelPointer, path.toArray(), roleIndex);
+		FlatTreeModelFunctions.clearGenericFlatTreeModelData(modelPointer, pathArray, roleIndex);
+		changeListener.run();
 
 		return oldValue;
 	}
@@ -97,8 +113,8 @@ public class FlatTreeAccessor extends MapAccessor {
 		checkIndex();
 
 		value.sendToQML(roleIndex);
-		FlatTreeModelFunctions.setGenericFlatTreeModelData(modelPointer, path.toArray());
-
+		FlatTreeModelFunctions.setGenericFlatTreeModelData(modelPointer, pathArray);
+		changeListener.run();
 	}
 
 	@Override
@@ -107,8 +123,8 @@ public class FlatTreeAccessor extends MapAccessor {
 
 		sendToQML(roles, data);
 
-		FlatTreeModelFunctions.setGenericFlatTreeModelData(modelPointer, path.toArray());
-
+		FlatTreeModelFunctions.setGenericFlatTreeModelData(modelPointer, pathArray);
+		changeListener.run();
 	}
 
 	/**
@@ -116,6 +132,7 @@ public class FlatTreeAccessor extends MapAccessor {
 	 */
 	public void setTreePath(final TreePath p) {
 		path = p;
+		pathArray = p != null ? p.toArray() : null;
 	}
 
 	@Override
@@ -124,7 +141,21 @@ public class FlatTreeAccessor extends MapAccessor {
 
 		sendToQML(roles, data);
 
-		FlatTreeModelFunctions.assignGenericFlatTreeModelData(modelPointer, path.toArray());
+		FlatTreeModelFunctions.assignGenericFlatTreeModelData(modelPointer, pathArray);
+		changeListener.run();
+	}
+
+	/**
+	 * Sets the listeners that this accessor, and any copies made from it
+	 * afterwards, notify when they modify the model.
+	 *
+	 * @param changeListener Called after any modification.
+	 * @param clearListener  Called with the cleared node's TreePath after a node
+	 *                       is cleared, which also removes its children.
+	 */
+	public void setListeners(final Runnable changeListener, final Consumer<TreePath> clearListener) {
+		this.changeListener = Objects.requireNonNull(changeListener, "changeListener is null");
+		this.clearListener = Objects.requireNonNull(clearListener, "clearListener is null");
 	}
 
 }
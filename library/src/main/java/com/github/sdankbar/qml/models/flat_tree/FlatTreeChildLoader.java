@@ -0,0 +1,48 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.models.flat_tree;
+
+import java.util.List;
+import java.util.Map;
+
+import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.models.TreePath;
+
+/**
+ * Supplies the children of a flat tree node the first time it is expanded.
+ *
+ * @param <K> The type of the K in the Map.
+ */
+@FunctionalInterface
+public interface FlatTreeChildLoader<K> {
+	/**
+	 * Loads the children of a node. Called off of the Qt Event Loop Thread, so
+	 * implementations must not access the model.
+	 *
+	 * @param path     Path of the node being expanded, at the time it was
+	 *                 expanded.
+	 * @param nodeData Snapshot of the node's data.
+	 * @return The data for each child, in order.
+	 */
+	List<Map<K, JVariant>> loadChildren(TreePath path, Map<K, JVariant> nodeData);
+}
@@ -0,0 +1,138 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.models.flat_tree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.github.sdankbar.qml.JVariant;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Immutable description of a node and its descendants, used to load many nodes
+ * into a JQMLFlatTreeModel at once.
+ *
+ * @param <K> The type of the K in the Map.
+ */
+public final class FlatTreeSubtree<K> {
+
+	/**
+	 * Creates a leaf node.
+	 *
+	 * @param <K>  The type of the K in the Map.
+	 * @param data The node's data.
+	 * @return The new subtree.
+	 */
+	public static <K> FlatTreeSubtree<K> of(final Map<K, JVariant> data) {
+		return new FlatTreeSubtree<>(data, ImmutableList.of(), true);
+	}
+
+	/**
+	 * Creates a node with children.
+	 *
+	 * @param <K>      The type of the K in the Map.
+	 * @param data     The node's data.
+	 * @param children The node's children, in order.
+	 * @return The new subtree.
+	 */
+	@SafeVarargs
+	public static <K> FlatTreeSubtree<K> of(final Map<K, JVariant> data, final FlatTreeSubtree<K>... children) {
+		Objects.requireNonNull(children, "children is null");
+		final List<FlatTreeSubtree<K>> list = new ArrayList<>(children.length);
+		for (final FlatTreeSubtree<K> c : children) {
+			list.add(c);
+		}
+		return new FlatTreeSubtree<>(data, list, true);
+	}
+
+	/**
+	 * Creates a node with children.
+	 *
+	 * @param <K>      The type of the K in the Map.
+	 * @param data     The node's data.
+	 * @param children The node's children, in order.
+	 * @return The new subtree.
+	 */
+	public static <K> FlatTreeSubtree<K> of(final Map<K, JVariant> data, final List<FlatTreeSubtree<K>> children) {
+		return new FlatTreeSubtree<>(data, children, true);
+	}
+
+	private final ImmutableMap<K, JVariant> data;
+	private final ImmutableList<FlatTreeSubtree<K>> children;
+	private final boolean expanded;
+	private final int nodeCount;
+
+	private FlatTreeSubtree(final Map<K, JVariant> data, final List<FlatTreeSubtree<K>> children,
+			final boolean expanded) {
+		this.data = ImmutableMap.copyOf(Objects.requireNonNull(data, "data is null"));
+		this.children = ImmutableList.copyOf(Objects.requireNonNull(children, "children is null"));
+		this.expanded = expanded;
+		int count = 1;
+		for (final FlatTreeSubtree<K> c : this.children) {
+			count += c.nodeCount;
+		}
+		nodeCount = count;
+	}
+
+	/**
+	 * @return The node's data.
+	 */
+	public ImmutableMap<K, JVariant> getData() {
+		return data;
+	}
+
+	/**
+	 * @return The node's children.
+	 */
+	public ImmutableList<FlatTreeSubtree<K>> getChildren() {
+		return children;
+	}
+
+	/**
+	 * @return True if the node is expanded when loaded. Defaults to true.
+	 */
+	public boolean isExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * @param e True if the node should be expanded when loaded.
+	 * @return A copy of this subtree with the root node's expanded state set.
+	 */
+	public FlatTreeSubtree<K> withExpanded(final boolean e) {
+		if (e == expanded) {
+			return this;
+		}
+		return new FlatTreeSubtree<>(data, children, e);
+	}
+
+	/**
+	 * @return The number of nodes in this subtree, including this node.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+}
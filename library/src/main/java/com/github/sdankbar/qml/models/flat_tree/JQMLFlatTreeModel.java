@@ -22,8 +22,20 @@
  */
 package com.github.sdankbar.qml.models.flat_tree;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -34,14 +46,30 @@ import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.json.JSONWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.github.sdankbar.qml.JVariant;
 import com.github.sdankbar.qml.cpp.jni.flat_tree.FlatTreeModelFunctions;
+import com.github.sdankbar.qml.cpp.jni.interfaces.InvokeCallback;
+import com.github.sdankbar.qml.cpp.jni.interfaces.TreeExpansionCallback;
 import com.github.sdankbar.qml.models.AbstractJQMLMapModel.PutMode;
 import com.github.sdankbar.qml.models.AbstractJQMLModel;
 import com.github.sdankbar.qml.models.TreePath;
+import com.github.sdankbar.qml.models.interfaces.DecodedModel;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.github.sdankbar.qml.models.list.SignalLock;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 
 /**
  * A model that is available to QML. Represents a tree of Maps from the key type
@@ -51,47 +79,129 @@ import com.google.common.base.Preconditions;
  */
 public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<Map<K, JVariant>> {
 
-	private static class FlatTreeIterator<K> implements Iterator<Map<K, JVariant>> {
-
-		private TreePath p = TreePath.of(0);
-		private final JQMLFlatTreeModel<K> parent;
+	/**
+	 * Preorder cursor over the descendants of a node. Keeps a stack of the nodes
+	 * above the current position and the next child to visit for each, so each
+	 * step is O(1) and allocates nothing. If visibleOnly is set, the descendants
+	 * of collapsed nodes are skipped.
+	 */
+	private static class PreorderCursor<K> implements Iterator<JQMLFlatTreeModelMap<K>> {
+
+		private final Deque<Node<K>> nodes = new ArrayDeque<>();
+		private int[] nextChild = new int[16];
+		private final boolean visibleOnly;
+		private Node<K> pending;
+
+		public PreorderCursor(final Node<K> start, final boolean visibleOnly) {
+			this.visibleOnly = visibleOnly;
+			nodes.push(start);
+			nextChild[0] = 0;
+			pending = advance();
+		}
 
-		public FlatTreeIterator(final JQMLFlatTreeModel<K> parent) {
-			this.parent = parent;
+		private Node<K> advance() {
+			while (!nodes.isEmpty()) {
+				final int depth = nodes.size() - 1;
+				final Node<K> top = nodes.peek();
+				final int i = nextChild[depth];
+				if (i < top.getChildrenList().size() && (!visibleOnly || top.isExpanded())) {
+					nextChild[depth] = i + 1;
+					final Node<K> child = top.getChildrenList().get(i);
+					if (nextChild.length == nodes.size()) {
+						nextChild = Arrays.copyOf(nextChild, nextChild.length * 2);
+					}
+					nodes.push(child);
+					nextChild[depth + 1] = 0;
+					return child;
+				} else {
+					nodes.pop();
+				}
+			}
+			return null;
 		}
 
 		@Override
 		public boolean hasNext() {
-			final Optional<Node<K>> n = parent.getNode(parent.root, p, 0);
-			return n.isPresent();
+			return pending != null;
 		}
 
 		@Override
 		public JQMLFlatTreeModelMap<K> next() {
-			final Optional<Node<K>> n = parent.getNode(parent.root, p, 0);
-			if (!n.isPresent()) {
+			return nextNode().getMap();
+		}
+
+		public Node<K> nextNode() {
+			if (pending == null) {
 				throw new NoSuchElementException();
 			}
-			final JQMLFlatTreeModelMap<K> model = n.get().getMap();
+			final Node<K> n = pending;
+			pending = advance();
+			return n;
+		}
 
-			if (n.get().getChildrenList().isEmpty()) {
-				final int i = p.getIndex(p.getCount() - 1);
-				p = TreePath.of(p.removeLast(), i + 1);
-			} else {
-				p = TreePath.of(p, 0);
+	}
+
+	private static class ModelChangeListener implements InvokeCallback {
+
+		private final List<Runnable> listeners = new ArrayList<>();
+
+		public void addListener(final Runnable l) {
+			listeners.add(l);
+		}
+
+		public void removeListener(final Runnable l) {
+			listeners.remove(l);
+		}
+
+		public boolean hasListeners() {
+			return !listeners.isEmpty();
+		}
+
+		@Override
+		public void invoke() {
+			for (final Runnable l : listeners) {
+				l.run();
 			}
+		}
+
+	}
 
-			return model;
+	/**
+	 * A node read by deserialize whose children have not all been read yet.
+	 */
+	private static class PendingSubtree<K> {
+		private final Map<K, JVariant> data;
+		private final boolean expanded;
+		private final List<FlatTreeSubtree<K>> children;
+		private int remaining;
+
+		public PendingSubtree(final Map<K, JVariant> data, final boolean expanded, final int childCount) {
+			this.data = data;
+			this.expanded = expanded;
+			this.children = new ArrayList<>(childCount);
+			this.remaining = childCount;
 		}
 
+		public FlatTreeSubtree<K> build() {
+			return FlatTreeSubtree.of(data, children).withExpanded(expanded);
+		}
 	}
 
 	private static class Node<K> {
 		private final JQMLFlatTreeModelMap<K> values;
+		private final Node<K> parent;
 		private final List<Node<K>> children = new ArrayList<>();
+		private boolean expanded = true;
+		private boolean childrenRequested = false;
 
-		public Node(final JQMLFlatTreeModelMap<K> values) {
+		public Node(final JQMLFlatTreeModelMap<K> values, final Node<K> parent) {
 			this.values = values;
+			this.parent = parent;
+		}
+
+		public boolean isExpanded() {
+			// The root is never collapsed.
+			return expanded || parent == null;
 		}
 
 		public List<Node<K>> getChildrenList() {
@@ -101,8 +211,14 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		public JQMLFlatTreeModelMap<K> getMap() {
 			return values;
 		}
+
+		public Node<K> getParent() {
+			return parent;
+		}
 	}
 
+	private static final Logger logger = LoggerFactory.getLogger(JQMLFlatTreeModel.class);
+
 	private final String modelName;
 	private final long modelPointer;
 	private final PutMode putMode;
@@ -111,8 +227,23 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 	private final Set<K> keySet = new HashSet<>();
 
 	private final FlatTreeAccessor accessor;
+	private final ModelChangeListener changeCallback = new ModelChangeListener();
+
+	private final Node<K> root = new Node<>(null, null);
+
+	// The last node looked up by path. Lookups start from here instead of the root
+	// so repeated operations on the same subtree only walk the part of the path
+	// that differs. Cleared whenever indices in the tree shift.
+	private TreePath cachedPath = null;
+	private Node<K> cachedNode = null;
+
+	// Visible nodes in flat (preorder) order. Rebuilt lazily after structural or
+	// expansion changes.
+	private List<Node<K>> flatNodes = null;
 
-	private final Node<K> root = new Node<>(null);
+	private FlatTreeChildLoader<K> childLoader = null;
+	private Executor loaderExecutor = null;
+	private Executor qtExecutor = null;
 
 	/**
 	 * Constructor.
@@ -134,7 +265,7 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		this.accessor = accessor;
 		this.eventLoopThread = eventLoopThread;
 
-		final int roleCount = keySet.size() + 3;
+		final int roleCount = keySet.size() + 4;
 		final String[] roleArray = new String[roleCount];
 		final int[] indicesArray = new int[roleCount];
 		int roleIndex = AbstractJQMLModel.USER_ROLE_STARTING_INDEX;
@@ -161,10 +292,21 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		indicesArray[keySet.size() + 2] = roleIndex++;
 		indexLookup.put("FLAT_INDEX_INDEX", Integer.valueOf(indicesArray[keySet.size() + 2]));
 
+		roleArray[keySet.size() + 3] = "IS_EXPANDED";
+		indicesArray[keySet.size() + 3] = roleIndex++;
+		indexLookup.put("IS_EXPANDED", Integer.valueOf(indicesArray[keySet.size() + 3]));
+
 		verifyEventLoopThread();
 		modelPointer = FlatTreeModelFunctions.createGenericFlatTreeModel(modelName, roleArray, indicesArray);
 
 		accessor.setModelPointer(modelPointer);
+		accessor.setListeners(this::modelChanged, this::nodeCleared);
+		FlatTreeModelFunctions.registerExpansionCallback(modelPointer, new TreeExpansionCallback() {
+			@Override
+			public void invoke(final int[] path, final boolean expanded) {
+				expansionChanged(path, expanded);
+			}
+		});
 	}
 
 	/**
@@ -184,7 +326,8 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		data.sendToQML(indexLookup.get(role.toString()).intValue());
 		final int newIndex = FlatTreeModelFunctions.appendGenericFlatTreeModelData(modelPointer, p.toArray());
 
-		createNode(root, TreePath.of(p, newIndex), 0);
+		createNodes(p, newIndex);
+		modelChanged();
 
 		return newIndex;
 	}
@@ -202,20 +345,130 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		Objects.requireNonNull(p, "p is null");
 		verifyEventLoopThread();
 
-		TreePath path = p;
 		for (final Entry<K, JVariant> entry : data.entrySet()) {
 			entry.getValue().sendToQML(indexLookup.get(entry.getKey().toString()).intValue());
 		}
 
 		final int newIndex = FlatTreeModelFunctions.appendGenericFlatTreeModelData(modelPointer, p.toArray());
 
-		path = TreePath.of(path, newIndex);
-
-		createNode(root, path, 0);
+		createNodes(p, newIndex);
+		modelChanged();
 
 		return newIndex;
 	}
 
+	/**
+	 * Appends subtrees to the end of the list of child nodes given by TreePath.
+	 * The whole structure is sent to C++ in one call and presented to QML as a
+	 * single insertion, so this is much faster than appending the nodes one at a
+	 * time.
+	 *
+	 * @param p     Path to append the subtrees to.
+	 * @param trees Subtrees to append, in order.
+	 * @return Index the first subtree was stored at or -1 if unable to append.
+	 */
+	public int loadSubtree(final TreePath p, final List<FlatTreeSubtree<K>> trees) {
+		return load(p, trees, false);
+	}
+
+	/**
+	 * Appends a subtree to the end of the list of child nodes given by TreePath.
+	 *
+	 * @param p    Path to append the subtree to.
+	 * @param tree Subtree to append.
+	 * @return Index the subtree was stored at or -1 if unable to append.
+	 * @see #loadSubtree(TreePath, List)
+	 */
+	public int loadSubtree(final TreePath p, final FlatTreeSubtree<K> tree) {
+		return load(p, Collections.singletonList(tree), false);
+	}
+
+	/**
+	 * Replaces the child nodes of the node at TreePath with the subtrees. Maps
+	 * for the replaced nodes are no longer valid. Replacing the children of the
+	 * root is presented to QML as a model reset.
+	 *
+	 * @param p     Path to the node whose children are replaced.
+	 * @param trees The new children, in order.
+	 */
+	public void assign(final TreePath p, final List<FlatTreeSubtree<K>> trees) {
+		load(p, trees, true);
+	}
+
+	private int load(final TreePath p, final List<FlatTreeSubtree<K>> trees, final boolean replace) {
+		Objects.requireNonNull(p, "p is null");
+		Objects.requireNonNull(trees, "trees is null");
+		verifyEventLoopThread();
+
+		final Node<K> parent = getNode(p);
+		if (parent == null) {
+			return -1;
+		}
+
+		int nodeCount = 0;
+		for (final FlatTreeSubtree<K> t : trees) {
+			nodeCount += t.getNodeCount();
+		}
+		final int[] structure = new int[1 + 3 * nodeCount];
+		structure[0] = trees.size();
+		int pos = 1;
+		for (final FlatTreeSubtree<K> t : trees) {
+			pos = serialize(t, structure, pos);
+		}
+
+		final int first = FlatTreeModelFunctions.loadGenericFlatTreeModelSubtree(modelPointer, p.toArray(), structure,
+				replace);
+		if (first < 0) {
+			return -1;
+		}
+
+		final List<Node<K>> children = parent.getChildrenList();
+		if (replace) {
+			for (final Node<K> child : children) {
+				invalidateAllMaps(child);
+			}
+			children.clear();
+		}
+		for (final FlatTreeSubtree<K> t : trees) {
+			children.add(buildNode(parent, TreePath.of(p, children.size()), t));
+		}
+		structureChanged();
+		modelChanged();
+
+		return first;
+	}
+
+	/**
+	 * Sends the subtree's data to C++ in preorder and records its shape in
+	 * structure, starting at pos.
+	 *
+	 * @return The position after the subtree's entries.
+	 */
+	private int serialize(final FlatTreeSubtree<K> t, final int[] structure, final int pos) {
+		structure[pos] = t.getData().size();
+		structure[pos + 1] = t.getChildren().size();
+		structure[pos + 2] = t.isExpanded() ? 1 : 0;
+		for (final Entry<K, JVariant> entry : t.getData().entrySet()) {
+			entry.getValue().sendToQML(indexLookup.get(entry.getKey().toString()).intValue());
+		}
+
+		int next = pos + 3;
+		for (final FlatTreeSubtree<K> child : t.getChildren()) {
+			next = serialize(child, structure, next);
+		}
+		return next;
+	}
+
+	private Node<K> buildNode(final Node<K> parent, final TreePath p, final FlatTreeSubtree<K> t) {
+		final Node<K> n = newNode(parent, p);
+		n.expanded = t.isExpanded();
+		final List<FlatTreeSubtree<K>> children = t.getChildren();
+		for (int i = 0; i < children.size(); ++i) {
+			n.getChildrenList().add(buildNode(n, TreePath.of(p, i), children.get(i)));
+		}
+		return n;
+	}
+
 	/**
 	 * Clears all data stored in the Map at TreePath. The Map remains valid, in
 	 * comparison to remove.
@@ -230,40 +483,88 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		accessor.clear();
 	}
 
-	private Node<K> createNode(final Node<K> searchPoint, final TreePath p, final int depth) {
-		final TreePath parent = p.removeLast();
-		final int i = p.getIndex(depth);
-		while (i >= searchPoint.getChildrenList().size()) {
-			final JQMLFlatTreeModelMap<K> map = new JQMLFlatTreeModelMap<>(getModelName(), keySet, eventLoopThread,
-					accessor.copy(TreePath.of(parent, searchPoint.getChildrenList().size())), indexLookup, putMode);
-			final Node<K> n = new Node<>(map);
+	private Node<K> newNode(final Node<K> parent, final TreePath p) {
+		final JQMLFlatTreeModelMap<K> map = new JQMLFlatTreeModelMap<>(getModelName(), keySet, eventLoopThread,
+				accessor.copy(p), indexLookup, putMode);
+		return new Node<>(map, parent);
+	}
 
-			searchPoint.getChildrenList().add(n);
+	/**
+	 * Creates the Java side nodes for the path's missing ancestors and for the
+	 * children of parentPath up to and including index.
+	 */
+	private void createNodes(final TreePath parentPath, final int index) {
+		if (index < 0) {
+			return;
 		}
 
-		if (depth < parent.getCount()) {
-			return createNode(searchPoint.getChildrenList().get(i), p, depth + 1);
-		} else {
-			return searchPoint;
+		Node<K> searchPoint = root;
+		TreePath current = TreePath.of();
+		final int depth = parentPath.getCount();
+		for (int d = 0; d <= depth; ++d) {
+			final int i = d < depth ? parentPath.getIndex(d) : index;
+			while (i >= searchPoint.getChildrenList().size()) {
+				searchPoint.getChildrenList()
+						.add(newNode(searchPoint, TreePath.of(current, searchPoint.getChildrenList().size())));
+				flatNodes = null;
+			}
+			current = TreePath.of(current, i);
+			searchPoint = searchPoint.getChildrenList().get(i);
 		}
 	}
 
 	/**
-	 * Returns a Map that can be used to access data at the given TreePath.
+	 * Returns a Map that can be used to access data at the given TreePath. The
+	 * returned Map is a stable handle to the node. Its TreePath is kept up to date
+	 * as nodes are inserted, removed and sorted around it.
 	 *
 	 * @param p TreePath into this model to get the data for.
 	 * @return The Map at TreePath p or null if no data is at TreePath.
 	 */
 	public JQMLFlatTreeModelMap<K> get(final TreePath p) {
 		Objects.requireNonNull(p, "p is null");
-		final Optional<Node<K>> n = getNode(root, p, 0);
-		if (n.isPresent()) {
-			return n.get().getMap();
+		final Node<K> n = getNode(p);
+		if (n != null) {
+			return n.getMap();
 		} else {
 			return null;
 		}
 	}
 
+	/**
+	 * Returns the Map at a position in the flattened view of the tree, i.e. the
+	 * order the nodes are presented to QML in. Descendants of collapsed nodes are
+	 * not part of the flattened view. The flat view is cached, so walking every
+	 * index is linear in the number of nodes.
+	 *
+	 * @param flatIndex Index into the flattened tree.
+	 * @return The Map at the flat index.
+	 * @throws IndexOutOfBoundsException Thrown if the flat index is out of range.
+	 */
+	public JQMLFlatTreeModelMap<K> getFlat(final int flatIndex) {
+		return getFlatNodes().get(flatIndex).getMap();
+	}
+
+	/**
+	 * @return The total number of visible nodes in the flattened view of the
+	 *         tree.
+	 */
+	public int getFlatSize() {
+		return getFlatNodes().size();
+	}
+
+	private List<Node<K>> getFlatNodes() {
+		if (flatNodes == null) {
+			final List<Node<K>> list = new ArrayList<>();
+			final PreorderCursor<K> cursor = new PreorderCursor<>(root, true);
+			while (cursor.hasNext()) {
+				list.add(cursor.nextNode());
+			}
+			flatNodes = list;
+		}
+		return flatNodes;
+	}
+
 	/**
 	 * Returns data stored at TreePath and under the Role.
 	 *
@@ -287,17 +588,34 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		return modelName;
 	}
 
-	private Optional<Node<K>> getNode(final Node<K> searchPoint, final TreePath p, final int depth) {
-		if (depth < p.getCount()) {
+	private Node<K> getNode(final TreePath p) {
+		Node<K> n = root;
+		int depth = 0;
+		if (cachedNode != null) {
+			// Walk up from the cached node to the deepest ancestor shared with p.
+			final int cachedCount = cachedPath.getCount();
+			final int limit = Math.min(cachedCount, p.getCount());
+			while (depth < limit && cachedPath.getIndex(depth) == p.getIndex(depth)) {
+				++depth;
+			}
+			n = cachedNode;
+			for (int i = cachedCount; i > depth; --i) {
+				n = n.getParent();
+			}
+		}
+
+		for (; depth < p.getCount(); ++depth) {
 			final int i = p.getIndex(depth);
-			if (i < searchPoint.getChildrenList().size()) {
-				return getNode(searchPoint.getChildrenList().get(i), p, depth + 1);
+			if (i < n.getChildrenList().size()) {
+				n = n.getChildrenList().get(i);
 			} else {
-				return Optional.empty();
+				return null;
 			}
-		} else {
-			return Optional.of(searchPoint);
 		}
+
+		cachedPath = p;
+		cachedNode = n;
+		return n;
 	}
 
 	/**
@@ -316,9 +634,17 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		data.sendToQML(indexLookup.get(role.toString()).intValue());
 		FlatTreeModelFunctions.insertGenericFlatTreeModelData(modelPointer, p.toArray());
 
-		createNode(root, p, 0);
-		resetMapIndicies(p.removeLast());
-
+		final TreePath parentPath = p.removeLast();
+		final Node<K> parent = getNode(parentPath);
+		if (parent != null) {
+			final int i = Math.min(p.getLast(), parent.getChildrenList().size());
+			parent.getChildrenList().add(i, newNode(parent, TreePath.of(parentPath, i)));
+			structureChanged();
+			resetMapIndicies(parent, parentPath, i + 1);
+		} else {
+			createNodes(parentPath, p.getLast());
+		}
+		modelChanged();
 	}
 
 	private void invalidateAllMaps(final Node<K> n) {
@@ -346,9 +672,69 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		return a;
 	}
 
+	/**
+	 * Returns true if the node at TreePath p is expanded. Nodes are expanded when
+	 * created.
+	 *
+	 * @param p Path to the node.
+	 * @return True if the node exists and is expanded.
+	 */
+	public boolean isExpanded(final TreePath p) {
+		Objects.requireNonNull(p, "p is null");
+		final Node<K> n = getNode(p);
+		return n != null && n.isExpanded();
+	}
+
 	@Override
 	public Iterator<Map<K, JVariant>> iterator() {
-		return new FlatTreeIterator<>(this);
+		final Iterator<JQMLFlatTreeModelMap<K>> cursor = new PreorderCursor<>(root, false);
+		return new Iterator<Map<K, JVariant>>() {
+			@Override
+			public boolean hasNext() {
+				return cursor.hasNext();
+			}
+
+			@Override
+			public Map<K, JVariant> next() {
+				return cursor.next();
+			}
+		};
+	}
+
+	/**
+	 * Returns an Iterable that visits the descendants of the node at TreePath p in
+	 * preorder, the same order they are flattened in. The node at p itself is not
+	 * visited. Descendants of collapsed nodes are included.
+	 *
+	 * @param p Path to the root of the subtree.
+	 * @return Iterable over the subtree's Maps. Empty if p does not exist.
+	 */
+	public Iterable<JQMLFlatTreeModelMap<K>> subtree(final TreePath p) {
+		Objects.requireNonNull(p, "p is null");
+		final Node<K> n = getNode(p);
+		if (n == null) {
+			return Collections.emptyList();
+		}
+		return () -> new PreorderCursor<>(n, false);
+	}
+
+	/**
+	 * Locks the model from emitting a signal for each modified node. Instead the
+	 * modified rows are collected and a single signal is emitted for each
+	 * contiguous range of them when the lock is closed.
+	 *
+	 * @return Lock to be used in the try with resources to ensure the model is
+	 *         unlocked.
+	 */
+	public SignalLock lockSignals() {
+		verifyEventLoopThread();
+		FlatTreeModelFunctions.lockDataChangedSignal(modelPointer);
+		return new SignalLock(this::unlockSignals);
+	}
+
+	void unlockSignals() {
+		verifyEventLoopThread();
+		FlatTreeModelFunctions.unlockDataChangedSignal(modelPointer);
 	}
 
 	/**
@@ -363,11 +749,16 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		verifyEventLoopThread();
 		FlatTreeModelFunctions.eraseGenericFlatTreeModelData(modelPointer, p.toArray());
 
-		final Optional<Node<K>> n = removeNode(root, p, 0);
-		if (n.isPresent()) {
-			invalidateAllMaps(n.get());
-			resetMapIndicies(p.removeLast());
+		final TreePath parentPath = p.removeLast();
+		final Node<K> parent = getNode(parentPath);
+		final int i = p.getLast();
+		if (parent != null && i < parent.getChildrenList().size()) {
+			final Node<K> n = parent.getChildrenList().remove(i);
+			structureChanged();
+			invalidateAllMaps(n);
+			resetMapIndicies(parent, parentPath, i);
 		}
+		modelChanged();
 	}
 
 	/**
@@ -381,37 +772,400 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		Objects.requireNonNull(role, "role is null");
 
 		verifyEventLoopThread();
+		accessor.setTreePath(p);
 		accessor.remove(indexLookup.get(role.toString()).intValue());
 	}
 
-	private Optional<Node<K>> removeNode(final Node<K> searchPoint, final TreePath p, final int depth) {
-		// Not at depth yet
-		if (depth < p.getCount() - 1) {
-			final int i = p.getIndex(depth);
-			if (i < searchPoint.getChildrenList().size()) {
-				return removeNode(searchPoint.getChildrenList().get(i), p, depth + 1);
-			} else {
-				return Optional.empty();
+	/**
+	 * Updates the TreePaths of the children of parent, starting at index
+	 * firstChild, and of all of their descendants.
+	 */
+	private void resetMapIndicies(final Node<K> parent, final TreePath parentPath, final int firstChild) {
+		final List<Node<K>> children = parent.getChildrenList();
+		for (int i = firstChild; i < children.size(); ++i) {
+			final Node<K> child = children.get(i);
+			final TreePath childPath = TreePath.of(parentPath, i);
+			child.getMap().setIndex(childPath);
+			resetMapIndicies(child, childPath, 0);
+		}
+	}
+
+	/**
+	 * Clearing a node in C++ also removes its children, so drop their Java side
+	 * nodes to match.
+	 */
+	private void nodeCleared(final TreePath p) {
+		final Node<K> n = getNode(p);
+		if (n != null && !n.getChildrenList().isEmpty()) {
+			for (final Node<K> child : n.getChildrenList()) {
+				invalidateAllMaps(child);
 			}
-			// At depth
-		} else {
-			final int i = p.getIndex(depth);
-			if (i < searchPoint.getChildrenList().size()) {
-				return Optional.of(searchPoint.getChildrenList().remove(i));
+			n.getChildrenList().clear();
+			structureChanged();
+		}
+	}
+
+	private void modelChanged() {
+		changeCallback.invoke();
+	}
+
+	/**
+	 * Register to receive callbacks when any part of the model changes, ex. add,
+	 * remove, update, expand, etc.
+	 *
+	 * @param r Callback
+	 */
+	public void registerModelChangedListener(final Runnable r) {
+		verifyEventLoopThread();
+		if (!changeCallback.hasListeners()) {
+			FlatTreeModelFunctions.registerModelChangedCallback(modelPointer, changeCallback);
+		}
+		changeCallback.addListener(Objects.requireNonNull(r, "r is null"));
+	}
+
+	/**
+	 * Unregister a callback that was registered with
+	 * registerModelChangedListener().
+	 *
+	 * @param r Callback
+	 */
+	public void unregisterModelChangedListener(final Runnable r) {
+		verifyEventLoopThread();
+		changeCallback.removeListener(Objects.requireNonNull(r, "r is null"));
+	}
+
+	/**
+	 * Writes the tree to a stream as JSON. Nodes are written one at a time in
+	 * preorder, each with its child count, so no document for the whole tree is
+	 * built in memory.
+	 *
+	 * @param stream Stream to write to.
+	 * @throws IOException Thrown if writing to the stream fails.
+	 */
+	public void serialize(final OutputStream stream) throws IOException {
+		snapshot().write(stream);
+	}
+
+	/**
+	 * Copies the tree's data and structure so it can be serialized on another
+	 * thread.
+	 *
+	 * @return Snapshot that writes the same data as serialize.
+	 */
+	public ModelSnapshot snapshot() {
+		verifyEventLoopThread();
+		final List<ImmutableMap<K, JVariant>> data = new ArrayList<>();
+		final List<Integer> childCounts = new ArrayList<>();
+		final BitSet collapsed = new BitSet();
+		final PreorderCursor<K> cursor = new PreorderCursor<>(root, false);
+		while (cursor.hasNext()) {
+			final Node<K> n = cursor.nextNode();
+			if (!n.expanded) {
+				collapsed.set(data.size());
+			}
+			data.add(ImmutableMap.copyOf(n.getMap()));
+			childCounts.add(Integer.valueOf(n.getChildrenList().size()));
+		}
+
+		return new ModelSnapshot() {
+			@Override
+			public void write(final OutputStream stream) throws IOException {
+				final Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+				try {
+					final JSONWriter writer = new JSONWriter(out);
+					writer.object().key("nodes").array();
+					for (int i = 0; i < data.size(); ++i) {
+						final JSONObject dataObj = new JSONObject();
+						for (final Entry<K, JVariant> entry : data.get(i).entrySet()) {
+							dataObj.put(entry.getKey().toString(), entry.getValue().toJSON());
+						}
+
+						writer.object();
+						writer.key("data").value(dataObj);
+						writer.key("children").value(childCounts.get(i).intValue());
+						if (collapsed.get(i)) {
+							writer.key("expanded").value(false);
+						}
+						writer.endObject();
+					}
+					writer.endArray().endObject();
+				} catch (final JSONException e) {
+					throw new IOException("Failed to serialize " + modelName, e);
+				}
+				out.flush();
+			}
+
+			@Override
+			public void write(final BinaryModelWriter writer) throws IOException {
+				writer.writeVarInt(data.size());
+				for (int i = 0; i < data.size(); ++i) {
+					writer.writeMap(data.get(i));
+					writer.writeVarInt(childCounts.get(i).intValue());
+					writer.writeBoolean(!collapsed.get(i));
+				}
+			}
+		};
+	}
+
+	/**
+	 * Replaces the contents of the tree with data read from a stream written by
+	 * serialize. Nodes are parsed one at a time and the whole tree is then loaded
+	 * into C++ in a single call.
+	 *
+	 * @param stream Stream to read from.
+	 * @throws IOException Thrown if reading fails or the data is invalid.
+	 */
+	public void deserialize(final InputStream stream) throws IOException {
+		verifyEventLoopThread();
+		decode(stream).assign();
+	}
+
+	/**
+	 * Decodes data written by serialize without changing the model. May be called
+	 * from any thread.
+	 *
+	 * @param stream Stream to read from.
+	 * @return The decoded data, to be assigned on the Qt thread.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	public DecodedModel decode(final InputStream stream) throws IOException {
+		final List<FlatTreeSubtree<K>> trees = new ArrayList<>();
+		try {
+			final JSONTokener tokener = new JSONTokener(stream);
+			expect(tokener, '{');
+			for (char c = tokener.nextClean(); c != '}'; c = tokener.nextClean()) {
+				if (c == ',') {
+					continue;
+				}
+				tokener.back();
+				final Object key = tokener.nextValue();
+				expect(tokener, ':');
+				if ("nodes".equals(key)) {
+					readNodes(tokener, trees);
+				} else {
+					tokener.nextValue();
+				}
+			}
+		} catch (final JSONException | ClassCastException e) {
+			throw new IOException("Invalid data for " + modelName, e);
+		}
+
+		return () -> assign(TreePath.of(), trees);
+	}
+
+	private static void expect(final JSONTokener tokener, final char expected) {
+		final char c = tokener.nextClean();
+		if (c != expected) {
+			throw tokener.syntaxError("Expected '" + expected + "' but found '" + c + "'");
+		}
+	}
+
+	private void readNodes(final JSONTokener tokener, final List<FlatTreeSubtree<K>> trees) throws IOException {
+		final Deque<PendingSubtree<K>> open = new ArrayDeque<>();
+		expect(tokener, '[');
+		for (char c = tokener.nextClean(); c != ']'; c = tokener.nextClean()) {
+			if (c == ',') {
+				continue;
+			}
+			tokener.back();
+			final JSONObject obj = (JSONObject) tokener.nextValue();
+			final Map<K, JVariant> data = new HashMap<>();
+			final JSONObject dataObj = obj.getJSONObject("data");
+			for (final K k : keySet) {
+				final JSONObject value = dataObj.optJSONObject(k.toString());
+				if (value != null) {
+					JVariant.fromJSON(value).ifPresent(v -> data.put(k, v));
+				}
+			}
+
+			addNode(open, trees,
+					new PendingSubtree<>(data, obj.optBoolean("expanded", true), obj.getInt("children")));
+		}
+
+		if (!open.isEmpty()) {
+			throw new IOException("Truncated data for " + modelName);
+		}
+	}
+
+	/**
+	 * Adds a node read in preorder. Nodes with children stay open until all of
+	 * their children have been added.
+	 */
+	private static <K> void addNode(final Deque<PendingSubtree<K>> open, final List<FlatTreeSubtree<K>> trees,
+			final PendingSubtree<K> node) {
+		PendingSubtree<K> pending = node;
+		// Complete every subtree whose last child was just read.
+		while (pending != null && pending.remaining == 0) {
+			final FlatTreeSubtree<K> done = pending.build();
+			if (open.isEmpty()) {
+				trees.add(done);
+				pending = null;
 			} else {
-				return Optional.empty();
+				final PendingSubtree<K> parent = open.peek();
+				parent.children.add(done);
+				--parent.remaining;
+				pending = parent.remaining == 0 ? open.pop() : null;
 			}
 		}
+		if (pending != null) {
+			open.push(pending);
+		}
 	}
 
-	private void resetMapIndicies(final TreePath parentPath) {
-		final Optional<Node<K>> n = getNode(root, parentPath, 0);
+	/**
+	 * Replaces the contents of the tree with data written by the binary format.
+	 *
+	 * @param reader Reader to read from.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	public void deserialize(final BinaryModelReader reader) throws IOException {
+		verifyEventLoopThread();
+		decode(reader).assign();
+	}
+
+	/**
+	 * Decodes data written by the binary format without changing the model. May
+	 * be called from any thread.
+	 *
+	 * @param reader Reader to read from.
+	 * @return The decoded data, to be assigned on the Qt thread.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	public DecodedModel decode(final BinaryModelReader reader) throws IOException {
+		final Map<String, K> keysByName = BinaryModelReader.keysByName(keySet);
+		final List<FlatTreeSubtree<K>> trees = new ArrayList<>();
+		final Deque<PendingSubtree<K>> open = new ArrayDeque<>();
+		final int count = reader.readCount();
+		for (int i = 0; i < count; ++i) {
+			final Map<K, JVariant> data = reader.readMap(keysByName);
+			final int children = reader.readCount();
+			final boolean expanded = reader.readBoolean();
+			addNode(open, trees, new PendingSubtree<>(data, expanded, children));
+		}
 
-		if (n.isPresent()) {
-			for (int i = 0; i < n.get().getChildrenList().size(); ++i) {
-				n.get().getChildrenList().get(i).getMap().setIndex(TreePath.of(parentPath, i));
+		if (!open.isEmpty()) {
+			throw new IOException("Truncated data for " + modelName);
+		}
+
+		return () -> assign(TreePath.of(), trees);
+	}
+
+	private void structureChanged() {
+		cachedPath = null;
+		cachedNode = null;
+		flatNodes = null;
+	}
+
+	/**
+	 * Expands or collapses the node at TreePath p. The descendants of a collapsed
+	 * node remain in the model but are removed from the flattened view presented
+	 * to QML. Expanding a node that has no children requests them from the child
+	 * loader, if one is set.
+	 *
+	 * @param p        Path to the node.
+	 * @param expanded True to expand the node, false to collapse it.
+	 */
+	public void setExpanded(final TreePath p, final boolean expanded) {
+		Objects.requireNonNull(p, "p is null");
+		Preconditions.checkArgument(!p.equals(TreePath.of()), "Cannot collapse root node");
+		verifyEventLoopThread();
+
+		final Node<K> n = getNode(p);
+		if (n != null && n.expanded != expanded) {
+			FlatTreeModelFunctions.setGenericFlatTreeModelExpanded(modelPointer, p.toArray(), expanded);
+			n.expanded = expanded;
+			flatNodes = null;
+			modelChanged();
+			if (expanded) {
+				requestChildren(n);
+			}
+		}
+	}
+
+	/**
+	 * Sets a loader that is used to materialize the children of a node the first
+	 * time it is expanded, from Java or from QML. Only nodes without any children
+	 * are loaded. The loader runs on loaderExecutor and the loaded children are
+	 * added on qtExecutor, which must run tasks on the Qt Event Loop Thread.
+	 *
+	 * @param loader         The loader or null to disable loading.
+	 * @param loaderExecutor Executor to run the loader on.
+	 * @param qtExecutor     Executor for the Qt Event Loop Thread.
+	 */
+	public void setChildLoader(final FlatTreeChildLoader<K> loader, final Executor loaderExecutor,
+			final Executor qtExecutor) {
+		verifyEventLoopThread();
+		if (loader != null) {
+			Objects.requireNonNull(loaderExecutor, "loaderExecutor is null");
+			Objects.requireNonNull(qtExecutor, "qtExecutor is null");
+		}
+		this.childLoader = loader;
+		this.loaderExecutor = loaderExecutor;
+		this.qtExecutor = qtExecutor;
+	}
+
+	private void expansionChanged(final int[] path, final boolean expanded) {
+		Node<K> n = root;
+		for (final int i : path) {
+			if (i >= n.getChildrenList().size()) {
+				return;
+			}
+			n = n.getChildrenList().get(i);
+		}
+
+		if (n.expanded != expanded) {
+			n.expanded = expanded;
+			flatNodes = null;
+			modelChanged();
+			if (expanded) {
+				requestChildren(n);
+			}
+		}
+	}
+
+	private void requestChildren(final Node<K> n) {
+		if (childLoader == null || n.childrenRequested || !n.getChildrenList().isEmpty()) {
+			return;
+		}
+		n.childrenRequested = true;
+
+		final JQMLFlatTreeModelMap<K> handle = n.getMap();
+		final TreePath path = handle.getIndex();
+		final ImmutableMap<K, JVariant> snapshot = ImmutableMap.copyOf(handle);
+		final FlatTreeChildLoader<K> loader = childLoader;
+		final Executor resultExecutor = qtExecutor;
+		loaderExecutor.execute(() -> {
+			List<Map<K, JVariant>> children;
+			try {
+				children = loader.loadChildren(path, snapshot);
+			} catch (final RuntimeException e) {
+				logger.warn("Failed to load children of " + path, e);
+				children = null;
 			}
+
+			final List<Map<K, JVariant>> result = children;
+			resultExecutor.execute(() -> childrenLoaded(n, result));
+		});
+	}
+
+	private void childrenLoaded(final Node<K> n, final List<Map<K, JVariant>> children) {
+		// The node's path may have changed, or it may have been removed, while its
+		// children were loading.
+		final TreePath p = n.getMap().getIndex();
+		if (p == null) {
+			return;
+		}
+
+		if (children == null) {
+			n.childrenRequested = false;
+			return;
 		}
+
+		final List<FlatTreeSubtree<K>> trees = new ArrayList<>(children.size());
+		for (final Map<K, JVariant> child : children) {
+			trees.add(FlatTreeSubtree.of(child));
+		}
+		loadSubtree(p, trees);
 	}
 
 	/**
@@ -484,24 +1238,21 @@ public class JQMLFlatTreeModel<K> extends AbstractJQMLModel implements Iterable<
 		Objects.requireNonNull(p, "p is null");
 		verifyEventLoopThread();
 
-		final Optional<Node<K>> node = getNode(root, p, 0);
-		if (node.isPresent()) {
-			final List<Map<K, JVariant>> children = new ArrayList<>(node.get().getChildrenList().size());
-			for (final Node<K> n : node.get().getChildrenList()) {
-				children.add(n.getMap());
-			}
-
-			children.sort(c);
+		final Node<K> node = getNode(p);
+		if (node != null) {
+			final List<Node<K>> children = node.getChildrenList();
+			children.sort((a, b) -> c.compare(a.getMap(), b.getMap()));
 
 			final int[] ordering = new int[children.size()];
 			for (int i = 0; i < children.size(); ++i) {
-				final JQMLFlatTreeModelMap<K> map = (JQMLFlatTreeModelMap<K>) children.get(i);
-				ordering[i] = map.getIndex().getLast();
+				ordering[i] = children.get(i).getMap().getIndex().getLast();
 			}
 
 			FlatTreeModelFunctions.reorderGenericFlatTreeModel(modelPointer, p.toArray(), ordering);
 
-			resetMapIndicies(p);
+			structureChanged();
+			resetMapIndicies(node, p, 0);
+			modelChanged();
 		}
 	}
 }
@@ -0,0 +1,53 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.models.interfaces;
+
+import java.util.Optional;
+
+import com.github.sdankbar.qml.QtThread;
+import com.github.sdankbar.qml.persistence.JournalState;
+
+/**
+ * Persisted data that has been read and decoded, possibly off of the Qt
+ * thread, and is waiting to be assigned to its model.
+ */
+@FunctionalInterface
+public interface DecodedModel {
+
+	/**
+	 * Replaces the model's contents with the decoded data.
+	 */
+	@QtThread
+	void assign();
+
+	/**
+	 * Returns the decoded data as root values and rows so a journal can be
+	 * replayed on top of it before it is assigned. Called off of the Qt thread.
+	 *
+	 * @return The decoded state, or empty if the model is not journaled.
+	 */
+	default Optional<JournalState> journalState() {
+		return Optional.empty();
+	}
+
+}
@@ -0,0 +1,92 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.models.interfaces;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.github.sdankbar.qml.persistence.JournalState;
+
+/**
+ * A copy of the persisted state of a model. Snapshots are taken on the Qt
+ * thread, which is the only thread allowed to read the model, and hold no
+ * references back to it so they can be written from any thread.
+ */
+public interface ModelSnapshot {
+
+	/**
+	 * Writes the JSON object to the stream, indented the same as
+	 * JSONObject.toString(1), without building an intermediate String. The stream
+	 * is flushed but not closed.
+	 *
+	 * @param root   Object to write.
+	 * @param stream Stream to write to.
+	 * @throws IOException Thrown if writing to the stream fails.
+	 */
+	static void writeJSON(final JSONObject root, final OutputStream stream) throws IOException {
+		final Writer out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+		try {
+			root.write(out, 1, 0);
+		} catch (final JSONException e) {
+			throw new IOException(e);
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes the snapshot to a stream in the same format as the model's
+	 * serialize method. The stream is flushed but not closed.
+	 *
+	 * @param stream Stream to write to.
+	 * @throws IOException Thrown if writing to the stream fails.
+	 */
+	void write(OutputStream stream) throws IOException;
+
+	/**
+	 * Writes the snapshot in the binary persistence format.
+	 *
+	 * @param writer Writer to write to.
+	 * @throws IOException Thrown if writing fails.
+	 */
+	void write(BinaryModelWriter writer) throws IOException;
+
+	/**
+	 * Returns the snapshot as root values and rows so journaled persistence can
+	 * save only what changed. Called off of the Qt thread.
+	 *
+	 * @return The snapshot's state, or empty if the model is always saved whole.
+	 */
+	default Optional<JournalState> journalState() {
+		return Optional.empty();
+	}
+
+}
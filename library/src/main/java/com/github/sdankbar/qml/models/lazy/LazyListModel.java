@@ -60,6 +60,7 @@ public class LazyListModel<K, Q extends Enum<Q>> {
 	}
 
 	private static final String SIZE_KEY = "totalSize";
+	private static final JVariant HIDDEN_POSITION = new JVariant(-1);
 
 	private final Map<K, LazyListModelData<Q>> unsortedValues = new HashMap<>();
 	private final List<LazyListModelData<Q>> sortedValues = new ArrayList<>();
@@ -84,6 +85,10 @@ public class LazyListModel<K, Q extends Enum<Q>> {
 		positionKey = getKey(allKeys, "pos", true);
 		this.qmlModel = new JQMLMapPool<>(factory.createListModel(modelName, enumKeyClass, PutMode.RETURN_NULL),
 				defaultValues);
+		// Releasing only needs to move the item out of view, the remaining roles are
+		// overwritten when the item is reused.
+		qmlModel.setReleaseValue(
+				ImmutableMap.of(positionKey, defaultValues.getOrDefault(positionKey, HIDDEN_POSITION)));
 		Preconditions.checkArgument(defaultItemHeight > 0, "defaultItemHeight is <= 0");
 		this.defaultItemHeight = defaultItemHeight;
 		qmlModel.putRootValue(SIZE_KEY, JVariant.NULL_INT);
@@ -221,7 +226,7 @@ public class LazyListModel<K, Q extends Enum<Q>> {
 
 	private void flush() {
 		for (final LazyListModelData<Q> entry : sortedValues) {
-			entry.flush();
+			entry.flush(qmlModel);
 		}
 	}
 
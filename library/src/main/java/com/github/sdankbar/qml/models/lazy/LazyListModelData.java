@@ -152,10 +152,9 @@ class LazyListModelData<Q> implements Comparable<LazyListModelData<Q>> {
 		}
 	}
 
-	public void flush() {
+	public void flush(final JQMLMapPool<Q> qmlModel) {
 		if (needsFlush && qmlData != null) {
-			qmlData.clear();
-			qmlData.putAll(localData);
+			qmlModel.assign(qmlData, localData);
 			needsFlush = false;
 		}
 	}
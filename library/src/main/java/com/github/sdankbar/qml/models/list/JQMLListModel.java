@@ -32,6 +32,8 @@ import java.util.Optional;
 import org.json.JSONObject;
 
 import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -230,6 +232,50 @@ public interface JQMLListModel<K> extends List<Map<K, JVariant>> {
 
 	JSONObject deserialize(InputStream stream, ImmutableSet<String> rootKeysToPersist) throws IOException;
 
+	/**
+	 * Replaces the model's rows and root values with data written by the binary
+	 * format.
+	 *
+	 * @param reader            Reader to read from.
+	 * @param rootKeysToPersist Root values to restore.
+	 * @return The additional JSON passed to snapshot or null if there was none.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	JSONObject deserialize(BinaryModelReader reader, ImmutableSet<String> rootKeysToPersist) throws IOException;
+
+	/**
+	 * Decodes data written by serialize without changing the model. May be called
+	 * from any thread.
+	 *
+	 * @param stream            Stream to read from.
+	 * @param rootKeysToPersist Root values to restore.
+	 * @return The decoded data, to be assigned on the Qt thread.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	DecodedListModel decode(InputStream stream, ImmutableSet<String> rootKeysToPersist) throws IOException;
+
+	/**
+	 * Decodes data written by the binary format without changing the model. May
+	 * be called from any thread.
+	 *
+	 * @param reader            Reader to read from.
+	 * @param rootKeysToPersist Root values to restore.
+	 * @return The decoded data, to be assigned on the Qt thread.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	DecodedListModel decode(BinaryModelReader reader, ImmutableSet<String> rootKeysToPersist) throws IOException;
+
+	/**
+	 * Copies the model's rows and root values so they can be serialized on
+	 * another thread.
+	 *
+	 * @param additionalJSON    Extra JSON to include in the output. Must not be
+	 *                          modified after this call. May be null.
+	 * @param rootKeysToPersist Root values to include.
+	 * @return Snapshot that writes the same data as serialize.
+	 */
+	ModelSnapshot snapshot(JSONObject additionalJSON, ImmutableSet<String> rootKeysToPersist);
+
 	/**
 	 * Register to receive callbacks when any part of the model changes, ex. add,
 	 * remove, update, reorder, root data, etc.
@@ -25,7 +25,6 @@ package com.github.sdankbar.qml.models.list;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -51,6 +50,10 @@ import com.github.sdankbar.qml.cpp.jni.interfaces.InvokeCallback;
 import com.github.sdankbar.qml.cpp.jni.list.ListModelFunctions;
 import com.github.sdankbar.qml.models.AbstractJQMLMapModel.PutMode;
 import com.github.sdankbar.qml.models.AbstractJQMLModel;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.github.sdankbar.qml.persistence.JournalState;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -840,60 +843,95 @@ public class JQMLListModelImpl<K> extends AbstractJQMLModel implements JQMLListM
 	@Override
 	public void serialize(final OutputStream stream, final JSONObject additionalJSON,
 			final ImmutableSet<String> rootKeysToPersist) throws IOException {
-		final JSONObject root = new JSONObject();
+		snapshot(additionalJSON, rootKeysToPersist).write(stream);
+	}
 
-		final JSONObject rootValues = new JSONObject();
+	@Override
+	public ModelSnapshot snapshot(final JSONObject additionalJSON, final ImmutableSet<String> rootKeysToPersist) {
+		verifyEventLoopThread();
+		final ImmutableMap.Builder<String, JVariant> rootBuilder = ImmutableMap.builder();
 		for (final String s : rootKeysToPersist) {
-			final Optional<JVariant> var = getRootValue(s);
-			if (var.isPresent()) {
-				rootValues.put(s, var.get().toJSON());
-			}
+			getRootValue(s).ifPresent(v -> rootBuilder.put(s, v));
 		}
-		root.put("root", rootValues);
+		final ImmutableMap<String, JVariant> rootSnapshot = rootBuilder.build();
 
-		final JSONArray array = new JSONArray();
+		final ImmutableList.Builder<ImmutableMap<K, JVariant>> rowBuilder = ImmutableList.builder();
 		for (final Map<K, JVariant> map : this) {
-			final JSONObject itemObj = new JSONObject();
-			for (final Map.Entry<K, JVariant> entry : map.entrySet()) {
-				itemObj.put(entry.getKey().toString(), entry.getValue().toJSON());
-			}
-			array.put(itemObj);
-		}
-		root.put("list", array);
-		if (additionalJSON != null) {
-			root.put("additional", additionalJSON);
+			rowBuilder.add(ImmutableMap.copyOf(map));
 		}
+		final ImmutableList<ImmutableMap<K, JVariant>> rows = rowBuilder.build();
+
+		return new ModelSnapshot() {
+			@Override
+			public void write(final OutputStream stream) throws IOException {
+				final JSONObject root = new JSONObject();
+
+				final JSONObject rootValues = new JSONObject();
+				for (final Map.Entry<String, JVariant> entry : rootSnapshot.entrySet()) {
+					rootValues.put(entry.getKey(), entry.getValue().toJSON());
+				}
+				root.put("root", rootValues);
+
+				final JSONArray array = new JSONArray();
+				for (final Map<K, JVariant> map : rows) {
+					final JSONObject itemObj = new JSONObject();
+					for (final Map.Entry<K, JVariant> entry : map.entrySet()) {
+						itemObj.put(entry.getKey().toString(), entry.getValue().toJSON());
+					}
+					array.put(itemObj);
+				}
+				root.put("list", array);
+				if (additionalJSON != null) {
+					root.put("additional", additionalJSON);
+				}
+
+				ModelSnapshot.writeJSON(root, stream);
+			}
 
-		final String s = root.toString(1);
-		stream.write(s.getBytes(StandardCharsets.UTF_8));
+			@Override
+			public void write(final BinaryModelWriter writer) throws IOException {
+				writer.writeMap(rootSnapshot);
+				writer.writeVarInt(rows.size());
+				for (final Map<K, JVariant> map : rows) {
+					writer.writeMap(map);
+				}
+				writer.writeBoolean(additionalJSON != null);
+				if (additionalJSON != null) {
+					writer.writeString(additionalJSON.toString());
+				}
+			}
+
+			@Override
+			public Optional<JournalState> journalState() {
+				return Optional.of(new JournalState(rootSnapshot, rows));
+			}
+		};
 	}
 
 	@Override
 	public JSONObject deserialize(final InputStream stream, final ImmutableSet<String> rootKeysToPersist)
 			throws IOException {
+		final DecodedListModel decoded = decode(stream, rootKeysToPersist);
+		decoded.assign();
+		return decoded.getAdditional();
+	}
+
+	@Override
+	public DecodedListModel decode(final InputStream stream, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
 		final JSONTokener tokener = new JSONTokener(stream);
 		final JSONObject object = new JSONObject(tokener);
 		final JSONArray array = object.getJSONArray("list");
 
-		final JSONObject rootValues = object.optJSONObject("root");
-		if (rootValues != null) {
+		final Map<String, JVariant> rootValues = new HashMap<>();
+		final JSONObject rootObj = object.optJSONObject("root");
+		if (rootObj != null) {
 			for (final String s : rootKeysToPersist) {
-				final JSONObject nullableObj = rootValues.optJSONObject(s);
+				final JSONObject nullableObj = rootObj.optJSONObject(s);
 				if (nullableObj != null) {
-					final Optional<JVariant> opt = JVariant.fromJSON(nullableObj);
-					if (opt.isPresent()) {
-						putRootValue(s, opt.get());
-					} else {
-						removeRootValue(s);
-					}
-				} else {
-					removeRootValue(s);
+					JVariant.fromJSON(nullableObj).ifPresent(v -> rootValues.put(s, v));
 				}
 			}
-		} else {
-			for (final String s : rootKeysToPersist) {
-				removeRootValue(s);
-			}
 		}
 
 		final ImmutableList.Builder<Map<K, JVariant>> list = ImmutableList.builder();
@@ -917,13 +955,73 @@ public class JQMLListModelImpl<K> extends AbstractJQMLModel implements JQMLListM
 			list.add(b.build());
 		}
 
-		assign(list.build());
-
+		final JSONObject additional;
 		if (Arrays.asList(JSONObject.getNames(object)).contains("additional")) {
-			return object.getJSONObject("additional");
+			additional = object.getJSONObject("additional");
 		} else {
-			return null;
+			additional = null;
+		}
+		return decoded(rootValues, rootKeysToPersist, list.build(), additional);
+	}
+
+	@Override
+	public JSONObject deserialize(final BinaryModelReader reader, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		final DecodedListModel decoded = decode(reader, rootKeysToPersist);
+		decoded.assign();
+		return decoded.getAdditional();
+	}
+
+	@Override
+	public DecodedListModel decode(final BinaryModelReader reader, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		final Map<String, JVariant> rootValues = reader.readStringMap();
+
+		final Map<String, K> keysByName = BinaryModelReader.keysByName(keySet);
+		final int count = reader.readCount();
+		final List<Map<K, JVariant>> list = new ArrayList<>(count);
+		for (int i = 0; i < count; ++i) {
+			list.add(reader.readMap(keysByName));
 		}
+		final JSONObject additional = reader.readBoolean() ? new JSONObject(reader.readString()) : null;
+
+		return decoded(rootValues, rootKeysToPersist, list, additional);
+	}
+
+	private DecodedListModel decoded(final Map<String, JVariant> rootValues,
+			final ImmutableSet<String> rootKeysToPersist, final List<Map<K, JVariant>> list,
+			final JSONObject additional) {
+		return new DecodedListModel() {
+			@Override
+			public void assign() {
+				for (final String s : rootKeysToPersist) {
+					final JVariant v = rootValues.get(s);
+					if (v != null) {
+						putRootValue(s, v);
+					} else {
+						removeRootValue(s);
+					}
+				}
+				JQMLListModelImpl.this.assign(list);
+			}
+
+			@Override
+			public JSONObject getAdditional() {
+				return additional;
+			}
+
+			@Override
+			public Optional<JournalState> journalState() {
+				final Map<String, JVariant> persistedRoot = new HashMap<>();
+				for (final String s : rootKeysToPersist) {
+					final JVariant v = rootValues.get(s);
+					if (v != null) {
+						persistedRoot.put(s, v);
+					}
+				}
+				return Optional.of(new JournalState(persistedRoot, list));
+			}
+		};
 	}
 
 	@Override
@@ -26,7 +26,7 @@ package com.github.sdankbar.qml.models.list;
  * Class for locking/unlocking a list model.
  */
 public class SignalLock implements AutoCloseable {
-	private final JQMLListModelImpl<?> model;
+	private final Runnable unlock;
 
 	/**
 	 * Constructor
@@ -34,13 +34,23 @@ public class SignalLock implements AutoCloseable {
 	 * @param model The model to lock/unlock. If null, takes no action on close().
 	 */
 	public SignalLock(final JQMLListModelImpl<?> model) {
-		this.model = model;
+		this(model != null ? model::unlockSignals : null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param unlock Unlocks the model's signals when the lock is closed. If null,
+	 *               takes no action on close().
+	 */
+	public SignalLock(final Runnable unlock) {
+		this.unlock = unlock;
 	}
 
 	@Override
 	public void close() {
-		if (model != null) {
-			model.unlockSignals();
+		if (unlock != null) {
+			unlock.run();
 		}
 	}
 
@@ -29,6 +29,9 @@ import java.util.Map;
 
 import com.github.sdankbar.qml.JVariant;
 import com.github.sdankbar.qml.models.interfaces.ChangeListener;
+import com.github.sdankbar.qml.models.interfaces.DecodedModel;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
 
 /**
  * A model that is available to QML. Represents a single Map from the key type
@@ -67,5 +70,40 @@ public interface JQMLSingletonModel<K> extends Map<K, JVariant> {
 
 	void serialize(OutputStream stream) throws IOException;
 
+	/**
+	 * Copies the model's values so they can be serialized on another thread.
+	 *
+	 * @return Snapshot that writes the same data as serialize.
+	 */
+	ModelSnapshot snapshot();
+
 	void deserialize(InputStream stream) throws IOException;
+
+	/**
+	 * Replaces the model's values with data written by the binary format.
+	 *
+	 * @param reader Reader to read from.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	void deserialize(BinaryModelReader reader) throws IOException;
+
+	/**
+	 * Decodes data written by serialize without changing the model. May be called
+	 * from any thread.
+	 *
+	 * @param stream Stream to read from.
+	 * @return The decoded data, to be assigned on the Qt thread.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	DecodedModel decode(InputStream stream) throws IOException;
+
+	/**
+	 * Decodes data written by the binary format without changing the model. May
+	 * be called from any thread.
+	 *
+	 * @param reader Reader to read from.
+	 * @return The decoded data, to be assigned on the Qt thread.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	DecodedModel decode(BinaryModelReader reader) throws IOException;
 }
@@ -25,7 +25,6 @@ package com.github.sdankbar.qml.models.singleton;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +41,12 @@ import com.github.sdankbar.qml.cpp.jni.interfaces.MapChangeCallback;
 import com.github.sdankbar.qml.cpp.jni.singleton.SingletonModelFunctions;
 import com.github.sdankbar.qml.models.AbstractJQMLMapModel;
 import com.github.sdankbar.qml.models.interfaces.ChangeListener;
+import com.github.sdankbar.qml.models.interfaces.DecodedModel;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.github.sdankbar.qml.persistence.JournalState;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 /**
@@ -146,18 +151,41 @@ public class JQMLSingletonModelImpl<K> extends AbstractJQMLMapModel<K> implement
 
 	@Override
 	public void serialize(final OutputStream stream) throws IOException {
-		final JSONObject root = new JSONObject();
+		snapshot().write(stream);
+	}
 
-		for (final Map.Entry<K, JVariant> entry : entrySet()) {
-			root.put(entry.getKey().toString(), entry.getValue().toJSON());
-		}
+	@Override
+	public ModelSnapshot snapshot() {
+		final ImmutableMap<K, JVariant> values = ImmutableMap.copyOf(this);
+		return new ModelSnapshot() {
+			@Override
+			public void write(final OutputStream stream) throws IOException {
+				final JSONObject root = new JSONObject();
+				for (final Map.Entry<K, JVariant> entry : values.entrySet()) {
+					root.put(entry.getKey().toString(), entry.getValue().toJSON());
+				}
+				ModelSnapshot.writeJSON(root, stream);
+			}
 
-		final String s = root.toString(1);
-		stream.write(s.getBytes(StandardCharsets.UTF_8));
+			@Override
+			public void write(final BinaryModelWriter writer) throws IOException {
+				writer.writeMap(values);
+			}
+
+			@Override
+			public Optional<JournalState> journalState() {
+				return Optional.of(new JournalState(ImmutableMap.of(), ImmutableList.of(values)));
+			}
+		};
 	}
 
 	@Override
 	public void deserialize(final InputStream stream) throws IOException {
+		decode(stream).assign();
+	}
+
+	@Override
+	public DecodedModel decode(final InputStream stream) throws IOException {
 		final JSONTokener tokener = new JSONTokener(stream);
 		final JSONObject object = new JSONObject(tokener);
 
@@ -177,7 +205,31 @@ public class JQMLSingletonModelImpl<K> extends AbstractJQMLMapModel<K> implement
 			}
 		}
 
-		assign(b.build());
+		return decoded(b.build());
+	}
+
+	@Override
+	public void deserialize(final BinaryModelReader reader) throws IOException {
+		decode(reader).assign();
+	}
+
+	@Override
+	public DecodedModel decode(final BinaryModelReader reader) throws IOException {
+		return decoded(reader.readMap(BinaryModelReader.keysByName(keys)));
+	}
+
+	private DecodedModel decoded(final Map<K, JVariant> values) {
+		return new DecodedModel() {
+			@Override
+			public void assign() {
+				JQMLSingletonModelImpl.this.assign(values);
+			}
+
+			@Override
+			public Optional<JournalState> journalState() {
+				return Optional.of(new JournalState(ImmutableMap.of(), ImmutableList.of(values)));
+			}
+		};
 	}
 
 }
@@ -30,6 +30,10 @@ import java.util.Map;
 import java.util.Optional;
 
 import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.models.interfaces.DecodedModel;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.github.sdankbar.qml.models.list.SignalLock;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
 import com.google.common.collect.ImmutableSet;
 
 public interface JQMLTableModel<K> {
@@ -38,18 +42,26 @@ public interface JQMLTableModel<K> {
 
 	void addColumn(int column);
 
+	void addColumns(int column, int count);
+
 	void removeColumn();
 
 	void removeColumn(int column);
 
+	void removeColumns(int column, int count);
+
 	void addRow();
 
 	void addRow(final int row);
 
+	void addRows(int row, int count);
+
 	void removeRow();
 
 	void removeRow(int row);
 
+	void removeRows(int row, int count);
+
 	Map<K, JVariant> get(final int row, int column);
 
 	/**
@@ -86,6 +98,47 @@ public interface JQMLTableModel<K> {
 
 	void deserialize(InputStream stream, ImmutableSet<String> rootKeysToPersist) throws IOException;
 
+	/**
+	 * Replaces the model's cells and root values with data written by the binary
+	 * format.
+	 *
+	 * @param reader            Reader to read from.
+	 * @param rootKeysToPersist Root values to restore.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	void deserialize(BinaryModelReader reader, ImmutableSet<String> rootKeysToPersist) throws IOException;
+
+	/**
+	 * Decodes data written by serialize without changing the model. May be called
+	 * from any thread.
+	 *
+	 * @param stream            Stream to read from.
+	 * @param rootKeysToPersist Root values to restore.
+	 * @return The decoded data, to be assigned on the Qt thread.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	DecodedModel decode(InputStream stream, ImmutableSet<String> rootKeysToPersist) throws IOException;
+
+	/**
+	 * Decodes data written by the binary format without changing the model. May
+	 * be called from any thread.
+	 *
+	 * @param reader            Reader to read from.
+	 * @param rootKeysToPersist Root values to restore.
+	 * @return The decoded data, to be assigned on the Qt thread.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	DecodedModel decode(BinaryModelReader reader, ImmutableSet<String> rootKeysToPersist) throws IOException;
+
+	/**
+	 * Copies the model's cells and root values so they can be serialized on
+	 * another thread.
+	 *
+	 * @param rootKeysToPersist Root values to include.
+	 * @return Snapshot that writes the same data as serialize.
+	 */
+	ModelSnapshot snapshot(ImmutableSet<String> rootKeysToPersist);
+
 	/**
 	 * Register to receive callbacks when any part of the model changes, ex. add,
 	 * remove, update, reorder, root data, etc.
@@ -97,6 +150,8 @@ public interface JQMLTableModel<K> {
 	 */
 	void unregisterModelChangedListener(Runnable r);
 
+	SignalLock lockSignals();
+
 	int getRowCount();
 
 	int getColumnCount();
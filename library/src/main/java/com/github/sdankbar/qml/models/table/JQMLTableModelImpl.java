@@ -25,123 +25,280 @@ package com.github.sdankbar.qml.models.table;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
-import com.github.sdankbar.qml.JQMLApplication;
 import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.cpp.jni.interfaces.InvokeCallback;
+import com.github.sdankbar.qml.cpp.jni.table.TableModelFunctions;
+import com.github.sdankbar.qml.exceptions.IllegalKeyException;
 import com.github.sdankbar.qml.models.AbstractJQMLMapModel.PutMode;
-import com.github.sdankbar.qml.models.list.JQMLListModel;
+import com.github.sdankbar.qml.models.AbstractJQMLModel;
+import com.github.sdankbar.qml.models.interfaces.DecodedModel;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.github.sdankbar.qml.models.list.SignalLock;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
-public class JQMLTableModelImpl<K> implements JQMLTableModel<K> {
+/**
+ * A table model that is available to QML. Backed by a C++ QAbstractTableModel,
+ * so rows and columns are inserted and removed as ranges and the "row" and
+ * "column" roles of each cell are derived from the cell's index instead of
+ * being stored.
+ * <p>
+ * A sparse table only stores the cells that have been set, so memory scales
+ * with the number of populated cells instead of rows * columns. QML reads of
+ * an unpopulated cell return the model's role defaults.
+ *
+ * @param <K> The type of the K in the cell Maps.
+ */
+public class JQMLTableModelImpl<K> extends AbstractJQMLModel implements JQMLTableModel<K> {
+
+	private static class ModelChangeListener implements InvokeCallback {
+
+		private final List<Runnable> listeners = new ArrayList<>();
+
+		public void addListener(final Runnable l) {
+			listeners.add(l);
+		}
 
-	private static <K> K getKey(final ImmutableSet<K> keys, final String keyName) {
-		for (final K v : keys) {
-			if (v.toString().equals(keyName)) {
-				return v;
+		public void removeListener(final Runnable l) {
+			listeners.remove(l);
+		}
+
+		public boolean hasListeners() {
+			return !listeners.isEmpty();
+		}
+
+		@Override
+		public void invoke() {
+			for (final Runnable l : listeners) {
+				l.run();
 			}
 		}
-		throw new IllegalArgumentException("Failed to find key: " + keyName);
+
+	}
+
+	private static int getRoleIndex(final Map<String, Integer> indexLookup, final String keyName) {
+		final Integer index = indexLookup.get(keyName);
+		if (index == null) {
+			throw new IllegalArgumentException("Failed to find key: " + keyName);
+		}
+		return index.intValue();
 	}
 
-	private final JQMLListModel<K> listModel;
+	private final String modelName;
+	private final PutMode putMode;
+	private final long modelPointer;
+	private final boolean sparse;
+
+	private final Set<K> keySet;
+	private final AtomicReference<Thread> eventLoopThread;
+	private final TableAccessor accessor;
+
+	private final Map<String, Integer> indexLookup = new HashMap<>();
+	private final ModelChangeListener changeCallback = new ModelChangeListener();
+
 	private int rowCount = 0;
 	private int columnCount = 1;
 
-	private final K rowKey;
-	private final K columnKey;
-
-	public JQMLTableModelImpl(final String modelName, final ImmutableSet<K> keys, final JQMLApplication<?> app,
-			final PutMode putMode) {
-		rowKey = getKey(keys, "row");
-		columnKey = getKey(keys, "column");
-		listModel = app.getModelFactory().createListModel(modelName, keys, putMode);
+	/**
+	 * Constructor.
+	 *
+	 * @param modelName       The name of the model. This is the name that the model
+	 *                        is made available to QML as.
+	 * @param keys            Set of keys this model can use. Must contain keys
+	 *                        named "row" and "column".
+	 * @param eventLoopThread Reference to the Qt Thread.
+	 * @param accessor        Accessor this model will use to to access the C++
+	 *                        portion of this model.
+	 * @param putMode         Specifies how put operations behave.
+	 */
+	public JQMLTableModelImpl(final String modelName, final Set<K> keys, final AtomicReference<Thread> eventLoopThread,
+			final TableAccessor accessor, final PutMode putMode) {
+		this(modelName, keys, eventLoopThread, accessor, putMode, false, ImmutableMap.of());
 	}
 
-	private int index(final int row, final int column) {
-		Preconditions.checkArgument(row < rowCount, "Invalid row index: %s", row);
-		Preconditions.checkArgument(column < columnCount, "Invalid column index: %s", column);
-		return indexNoCheck(row, column);
+	/**
+	 * Constructor.
+	 *
+	 * @param modelName       The name of the model. This is the name that the model
+	 *                        is made available to QML as.
+	 * @param keys            Set of keys this model can use. Must contain keys
+	 *                        named "row" and "column".
+	 * @param eventLoopThread Reference to the Qt Thread.
+	 * @param accessor        Accessor this model will use to to access the C++
+	 *                        portion of this model.
+	 * @param putMode         Specifies how put operations behave.
+	 * @param sparse          If true, only populated cells are stored.
+	 * @param defaultValues   Values QML reads for roles that are not set in a
+	 *                        cell.
+	 */
+	public JQMLTableModelImpl(final String modelName, final Set<K> keys, final AtomicReference<Thread> eventLoopThread,
+			final TableAccessor accessor, final PutMode putMode, final boolean sparse,
+			final ImmutableMap<K, JVariant> defaultValues) {
+		super(eventLoopThread);
+		this.sparse = sparse;
+		Objects.requireNonNull(defaultValues, "defaultValues is null");
+		this.eventLoopThread = eventLoopThread;
+		this.putMode = Objects.requireNonNull(putMode, "putMode is null");
+		this.modelName = Objects.requireNonNull(modelName, "modelName is null");
+		Objects.requireNonNull(keys, "keys is null");
+
+		this.accessor = Objects.requireNonNull(accessor, "accessor is null");
+
+		final String[] roleArray = new String[keys.size()];
+		final int[] indicesArray = new int[keys.size()];
+		int roleIndex = AbstractJQMLModel.USER_ROLE_STARTING_INDEX;
+		int i = 0;
+		for (final K k : keys) {
+			final String s = k.toString();
+			final int temp = roleIndex++;
+			roleArray[i] = s;
+			indicesArray[i] = temp;
+
+			indexLookup.put(s, Integer.valueOf(temp));
+			++i;
+		}
+		final int rowRoleIndex = getRoleIndex(indexLookup, "row");
+		final int columnRoleIndex = getRoleIndex(indexLookup, "column");
+
+		verifyEventLoopThread();
+		modelPointer = TableModelFunctions.createGenericTableModel(modelName, roleArray, indicesArray, rowRoleIndex,
+				columnRoleIndex, sparse);
+		accessor.setModelPointer(modelPointer);
+
+		keySet = keys;
+
+		if (!defaultValues.isEmpty()) {
+			for (final Entry<K, JVariant> entry : defaultValues.entrySet()) {
+				entry.getValue().sendToQML(verifyKey(entry.getKey()));
+			}
+			TableModelFunctions.setGenericTableModelRoleDefaults(modelPointer);
+		}
+
+		TableModelFunctions.resizeGenericTableModel(modelPointer, rowCount, columnCount);
+		updateSize();
 	}
 
-	private int indexNoCheck(final int row, final int column) {
-		return row * columnCount + column;
+	private void checkCell(final int row, final int column) {
+		Preconditions.checkArgument(0 <= row && row < rowCount, "Invalid row index: %s", row);
+		Preconditions.checkArgument(0 <= column && column < columnCount, "Invalid column index: %s", column);
 	}
 
 	@Override
 	public void addColumn() {
-		addColumn(columnCount);
+		addColumns(columnCount, 1);
 	}
 
 	@Override
 	public void addColumn(final int column) {
-		Preconditions.checkArgument(column <= columnCount, "Invalid column index: %s", column);
-		for (int i = rowCount - 1; i >= 0; --i) {
-			final int index = indexNoCheck(i, column);
-			listModel.add(index, ImmutableMap.of());
+		addColumns(column, 1);
+	}
+
+	@Override
+	public void addColumns(final int column, final int count) {
+		Preconditions.checkArgument(0 <= column && column <= columnCount, "Invalid column index: %s", column);
+		Preconditions.checkArgument(count >= 0, "Invalid count: %s", count);
+		verifyEventLoopThread();
+		if (count > 0) {
+			TableModelFunctions.insertGenericTableModelColumns(modelPointer, column, count);
+			columnCount += count;
+			updateSize();
 		}
-		++columnCount;
-		updateIndices();
 	}
 
 	@Override
 	public void removeColumn() {
-		removeColumn(columnCount - 1);
+		removeColumns(columnCount - 1, 1);
 	}
 
 	@Override
 	public void removeColumn(final int column) {
-		Preconditions.checkArgument(column < columnCount, "Invalid column index: %s", column);
-		for (int i = rowCount - 1; i >= 0; --i) {
-			final int index = indexNoCheck(i, column);
-			listModel.remove(index);
+		removeColumns(column, 1);
+	}
+
+	@Override
+	public void removeColumns(final int column, final int count) {
+		Preconditions.checkArgument(0 <= column && column < columnCount, "Invalid column index: %s", column);
+		Preconditions.checkArgument(count >= 0 && column + count <= columnCount, "Invalid count: %s", count);
+		verifyEventLoopThread();
+		if (count > 0) {
+			TableModelFunctions.removeGenericTableModelColumns(modelPointer, column, count);
+			columnCount -= count;
+			updateSize();
 		}
-		--columnCount;
-		updateIndices();
 	}
 
 	@Override
 	public void addRow() {
-		addRow(rowCount);
+		addRows(rowCount, 1);
 	}
 
 	@Override
 	public void addRow(final int row) {
-		Preconditions.checkArgument(row <= rowCount, "Invalid row index: %s", row);
-		final int index = indexNoCheck(row, 0);
-		for (int i = 0; i < columnCount; ++i) {
-			listModel.add(index, ImmutableMap.of());
+		addRows(row, 1);
+	}
+
+	@Override
+	public void addRows(final int row, final int count) {
+		Preconditions.checkArgument(0 <= row && row <= rowCount, "Invalid row index: %s", row);
+		Preconditions.checkArgument(count >= 0, "Invalid count: %s", count);
+		verifyEventLoopThread();
+		if (count > 0) {
+			TableModelFunctions.insertGenericTableModelRows(modelPointer, row, count);
+			rowCount += count;
+			updateSize();
 		}
-		++rowCount;
-		updateIndices();
 	}
 
 	@Override
 	public void removeRow() {
-		removeRow(rowCount - 1);
+		removeRows(rowCount - 1, 1);
 	}
 
 	@Override
 	public void removeRow(final int row) {
-		Preconditions.checkArgument(row < rowCount, "Invalid row index: %s", row);
-		final int index = indexNoCheck(row, 0);
-		for (int i = 0; i < columnCount; ++i) {
-			listModel.remove(index);
+		removeRows(row, 1);
+	}
+
+	@Override
+	public void removeRows(final int row, final int count) {
+		Preconditions.checkArgument(0 <= row && row < rowCount, "Invalid row index: %s", row);
+		Preconditions.checkArgument(count >= 0 && row + count <= rowCount, "Invalid count: %s", count);
+		verifyEventLoopThread();
+		if (count > 0) {
+			TableModelFunctions.removeGenericTableModelRows(modelPointer, row, count);
+			rowCount -= count;
+			updateSize();
 		}
-		--rowCount;
-		updateIndices();
 	}
 
+	/**
+	 * Returns a Map that accesses the cell at row and column. The Map refers to the
+	 * position in the table, not to the cell's data, so inserting or removing rows
+	 * or columns before it changes the data it accesses.
+	 */
 	@Override
 	public Map<K, JVariant> get(final int row, final int column) {
-		return listModel.get(index(row, column));
+		checkCell(row, column);
+		verifyEventLoopThread();
+		return new JQMLTableModelMap<>(modelName, keySet, eventLoopThread, accessor.copy(row, column), indexLookup,
+				putMode);
 	}
 
 	/**
@@ -149,7 +306,7 @@ public class JQMLTableModelImpl<K> implements JQMLTableModel<K> {
 	 */
 	@Override
 	public String getModelName() {
-		return listModel.getModelName();
+		return modelName;
 	}
 
 	/**
@@ -160,7 +317,9 @@ public class JQMLTableModelImpl<K> implements JQMLTableModel<K> {
 	 */
 	@Override
 	public Optional<JVariant> getRootValue(final String key) {
-		return listModel.getRootValue(key);
+		Objects.requireNonNull(key, "key is null");
+		verifyEventLoopThread();
+		return Optional.ofNullable(TableModelFunctions.getRootValueFromTableModel(modelPointer, key));
 	}
 
 	/**
@@ -171,7 +330,11 @@ public class JQMLTableModelImpl<K> implements JQMLTableModel<K> {
 	 */
 	@Override
 	public void putRootValue(final String key, final JVariant data) {
-		listModel.putRootValue(key, data);
+		Objects.requireNonNull(key, "key is null");
+		Objects.requireNonNull(data, "data is null");
+		verifyEventLoopThread();
+		data.sendToQML(0);
+		TableModelFunctions.putRootValueIntoTableModel(modelPointer, key);
 	}
 
 	/**
@@ -181,41 +344,290 @@ public class JQMLTableModelImpl<K> implements JQMLTableModel<K> {
 	 */
 	@Override
 	public void removeRootValue(final String key) {
-		listModel.removeRootValue(key);
+		Objects.requireNonNull(key, "key is null");
+		verifyEventLoopThread();
+		TableModelFunctions.removeRootValueFromTableModel(modelPointer, key);
+	}
+
+	private int verifyKey(final K k) {
+		final Integer index = indexLookup.get(Objects.requireNonNull(k, "key is null").toString());
+		if (index == null) {
+			throw new IllegalKeyException(k + " is not a valid key");
+		}
+		return index.intValue();
 	}
 
 	@Override
 	public void setData(final int row, final int column, final Map<K, JVariant> data) {
-		listModel.setData(index(row, column), data);
-		final Map<K, JVariant> map = get(row, column);
-		map.putAll(ImmutableMap.of(rowKey, new JVariant(row), columnKey, new JVariant(column)));
+		Objects.requireNonNull(data, "data is null");
+		checkCell(row, column);
+		verifyEventLoopThread();
+
+		final int size = data.size();
+		final int[] roles = new int[size];
+		final JVariant[] values = new JVariant[size];
+		int i = 0;
+		for (final Entry<K, JVariant> entry : data.entrySet()) {
+			roles[i] = verifyKey(entry.getKey());
+			values[i] = Objects.requireNonNull(entry.getValue(), "value is null");
+			++i;
+		}
+
+		accessor.setCell(row, column);
+		accessor.set(roles, values);
 	}
 
 	@Override
 	public void serialize(final OutputStream stream, final ImmutableSet<String> rootKeysToPersist) throws IOException {
-		final JSONObject additional = new JSONObject();
-		additional.put("rows", rowCount);
-		additional.put("columns", columnCount);
-		listModel.serialize(stream, additional, rootKeysToPersist);
+		snapshot(rootKeysToPersist).write(stream);
+	}
+
+	@Override
+	public ModelSnapshot snapshot(final ImmutableSet<String> rootKeysToPersist) {
+		verifyEventLoopThread();
+		final ImmutableMap.Builder<String, JVariant> rootBuilder = ImmutableMap.builder();
+		for (final String s : rootKeysToPersist) {
+			getRootValue(s).ifPresent(v -> rootBuilder.put(s, v));
+		}
+		final ImmutableMap<String, JVariant> rootSnapshot = rootBuilder.build();
+
+		// Sparse tables only copy populated cells, dense tables copy every cell in
+		// row major order.
+		final int[] cells = sparse ? TableModelFunctions.getGenericTableModelPopulatedCells(modelPointer) : null;
+		final List<ImmutableMap<K, JVariant>> data = new ArrayList<>();
+		if (sparse) {
+			for (int i = 0; i < cells.length; i += 2) {
+				data.add(ImmutableMap.copyOf(get(cells[i], cells[i + 1])));
+			}
+		} else {
+			for (int row = 0; row < rowCount; ++row) {
+				for (int column = 0; column < columnCount; ++column) {
+					data.add(ImmutableMap.copyOf(get(row, column)));
+				}
+			}
+		}
+		final int rows = rowCount;
+		final int columns = columnCount;
+
+		return new ModelSnapshot() {
+			@Override
+			public void write(final OutputStream stream) throws IOException {
+				final JSONObject root = new JSONObject();
+
+				final JSONObject rootValues = new JSONObject();
+				for (final Entry<String, JVariant> entry : rootSnapshot.entrySet()) {
+					rootValues.put(entry.getKey(), entry.getValue().toJSON());
+				}
+				root.put("root", rootValues);
+
+				final JSONArray array = new JSONArray();
+				if (cells != null) {
+					for (int i = 0; i < cells.length; i += 2) {
+						final JSONObject cellObj = new JSONObject();
+						cellObj.put("row", cells[i]);
+						cellObj.put("column", cells[i + 1]);
+						cellObj.put("data", toJSON(data.get(i / 2)));
+						array.put(cellObj);
+					}
+					root.put("cells", array);
+				} else {
+					for (final Map<K, JVariant> cell : data) {
+						array.put(toJSON(cell));
+					}
+					root.put("list", array);
+				}
+
+				final JSONObject additional = new JSONObject();
+				additional.put("rows", rows);
+				additional.put("columns", columns);
+				root.put("additional", additional);
+
+				ModelSnapshot.writeJSON(root, stream);
+			}
+
+			@Override
+			public void write(final BinaryModelWriter writer) throws IOException {
+				writer.writeMap(rootSnapshot);
+				writer.writeVarInt(rows);
+				writer.writeVarInt(columns);
+				writer.writeBoolean(cells != null);
+				if (cells != null) {
+					writer.writeVarInt(data.size());
+					for (int i = 0; i < cells.length; i += 2) {
+						writer.writeVarInt(cells[i]);
+						writer.writeVarInt(cells[i + 1]);
+						writer.writeMap(data.get(i / 2));
+					}
+				} else {
+					// Dense cells are in row major order, the count is rows * columns
+					for (final Map<K, JVariant> cell : data) {
+						writer.writeMap(cell);
+					}
+				}
+			}
+		};
+	}
+
+	private static <K> JSONObject toJSON(final Map<K, JVariant> cell) {
+		final JSONObject itemObj = new JSONObject();
+		for (final Entry<K, JVariant> entry : cell.entrySet()) {
+			itemObj.put(entry.getKey().toString(), entry.getValue().toJSON());
+		}
+		return itemObj;
+	}
+
+	private Map<K, JVariant> fromJSON(final JSONObject sub) {
+		final Map<K, JVariant> cell = new HashMap<>();
+		for (final K k : keySet) {
+			final JSONObject value = sub.optJSONObject(k.toString());
+			if (value != null) {
+				JVariant.fromJSON(value).ifPresent(v -> cell.put(k, v));
+			}
+		}
+		return cell;
 	}
 
 	@Override
 	public void deserialize(final InputStream stream, final ImmutableSet<String> rootKeysToPersist) throws IOException {
-		final JSONObject obj = listModel.deserialize(stream, rootKeysToPersist);
-		Objects.requireNonNull(obj, "Invalid data");
-		rowCount = obj.getInt("rows");
-		columnCount = obj.getInt("columns");
+		verifyEventLoopThread();
+		decode(stream, rootKeysToPersist).assign();
+	}
 
-		updateIndices();
+	@Override
+	public DecodedModel decode(final InputStream stream, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		final JSONTokener tokener = new JSONTokener(stream);
+		final JSONObject object = new JSONObject(tokener);
+		final JSONObject additional = object.optJSONObject("additional");
+		Objects.requireNonNull(additional, "Invalid data");
+
+		final Map<String, JVariant> rootValues = new HashMap<>();
+		final JSONObject rootObj = object.optJSONObject("root");
+		for (final String s : rootKeysToPersist) {
+			final JSONObject nullableObj = rootObj != null ? rootObj.optJSONObject(s) : null;
+			if (nullableObj != null) {
+				JVariant.fromJSON(nullableObj).ifPresent(v -> rootValues.put(s, v));
+			}
+		}
+
+		final int rows = additional.getInt("rows");
+		final int columns = additional.getInt("columns");
+		final JSONArray cells = object.optJSONArray("cells");
+		if (cells != null) {
+			final int[] cellRows = new int[cells.length()];
+			final int[] cellColumns = new int[cells.length()];
+			final List<Map<K, JVariant>> cellData = new ArrayList<>(cells.length());
+			for (int i = 0; i < cells.length(); ++i) {
+				final JSONObject sub = cells.getJSONObject(i);
+				cellRows[i] = sub.getInt("row");
+				cellColumns[i] = sub.getInt("column");
+				cellData.add(fromJSON(sub.getJSONObject("data")));
+			}
+			return decodedCells(rootValues, rootKeysToPersist, rows, columns, cellRows, cellColumns, cellData);
+		} else {
+			final JSONArray array = object.getJSONArray("list");
+			final List<Map<K, JVariant>> list = new ArrayList<>(array.length());
+			for (int i = 0; i < array.length(); ++i) {
+				list.add(fromJSON(array.getJSONObject(i)));
+			}
+			return decodedDense(rootValues, rootKeysToPersist, rows, columns, list);
+		}
+	}
+
+	@Override
+	public void deserialize(final BinaryModelReader reader, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		verifyEventLoopThread();
+		decode(reader, rootKeysToPersist).assign();
+	}
+
+	@Override
+	public DecodedModel decode(final BinaryModelReader reader, final ImmutableSet<String> rootKeysToPersist)
+			throws IOException {
+		final Map<String, JVariant> rootValues = reader.readStringMap();
+
+		final Map<String, K> keysByName = BinaryModelReader.keysByName(keySet);
+		final int rows = reader.readVarInt();
+		final int columns = reader.readVarInt();
+		if (reader.readBoolean()) {
+			final int count = reader.readCount();
+			final int[] cellRows = new int[count];
+			final int[] cellColumns = new int[count];
+			final List<Map<K, JVariant>> cellData = new ArrayList<>(count);
+			for (int i = 0; i < count; ++i) {
+				cellRows[i] = reader.readVarInt();
+				cellColumns[i] = reader.readVarInt();
+				cellData.add(reader.readMap(keysByName));
+			}
+			return decodedCells(rootValues, rootKeysToPersist, rows, columns, cellRows, cellColumns, cellData);
+		} else {
+			// Every cell takes at least one byte
+			final long cellCount = (long) rows * columns;
+			if (cellCount > reader.remaining()) {
+				throw new IOException("Invalid table size " + rows + "x" + columns);
+			}
+			final List<Map<K, JVariant>> list = new ArrayList<>((int) cellCount);
+			for (int i = 0; i < cellCount; ++i) {
+				list.add(reader.readMap(keysByName));
+			}
+			return decodedDense(rootValues, rootKeysToPersist, rows, columns, list);
+		}
+	}
+
+	private void assignRootValues(final Map<String, JVariant> rootValues,
+			final ImmutableSet<String> rootKeysToPersist) {
+		for (final String s : rootKeysToPersist) {
+			final JVariant v = rootValues.get(s);
+			if (v != null) {
+				putRootValue(s, v);
+			} else {
+				removeRootValue(s);
+			}
+		}
+	}
+
+	private DecodedModel decodedCells(final Map<String, JVariant> rootValues,
+			final ImmutableSet<String> rootKeysToPersist, final int rows, final int columns, final int[] cellRows,
+			final int[] cellColumns, final List<Map<K, JVariant>> cellData) {
+		return () -> {
+			verifyEventLoopThread();
+			assignRootValues(rootValues, rootKeysToPersist);
+			final SignalLock lock = lockSignals();
+			try {
+				TableModelFunctions.resizeGenericTableModel(modelPointer, rows, columns);
+				rowCount = rows;
+				columnCount = columns;
+				for (int i = 0; i < cellData.size(); ++i) {
+					setData(cellRows[i], cellColumns[i], cellData.get(i));
+				}
+			} finally {
+				lock.close();
+			}
+			updateSize();
+		};
+	}
+
+	private DecodedModel decodedDense(final Map<String, JVariant> rootValues,
+			final ImmutableSet<String> rootKeysToPersist, final int rows, final int columns,
+			final List<Map<K, JVariant>> list) {
+		return () -> {
+			verifyEventLoopThread();
+			assignRootValues(rootValues, rootKeysToPersist);
+			assign(rows, columns, list);
+		};
 	}
 
 	/**
 	 * Register to receive callbacks when any part of the model changes, ex. add,
-	 * remove, update, reorder, root data, etc.
+	 * remove, update, root data, etc.
 	 */
 	@Override
 	public void registerModelChangedListener(final Runnable r) {
-		listModel.registerModelChangedListener(r);
+		verifyEventLoopThread();
+		if (!changeCallback.hasListeners()) {
+			TableModelFunctions.registerModelChangedCallback(modelPointer, changeCallback);
+		}
+		changeCallback.addListener(Objects.requireNonNull(r, "r is null"));
 	}
 
 	/**
@@ -223,7 +635,28 @@ public class JQMLTableModelImpl<K> implements JQMLTableModel<K> {
 	 */
 	@Override
 	public void unregisterModelChangedListener(final Runnable r) {
-		listModel.unregisterModelChangedListener(r);
+		verifyEventLoopThread();
+		changeCallback.removeListener(r);
+	}
+
+	/**
+	 * Locks the table model from emitting a signal for each modified cell. Instead
+	 * a single signal covering all of the cells modified while locked is emitted
+	 * when the lock is closed.
+	 *
+	 * @return Lock to be used in the try with resources to ensure the model is
+	 *         unlocked.
+	 */
+	@Override
+	public SignalLock lockSignals() {
+		verifyEventLoopThread();
+		TableModelFunctions.lockDataChangedSignal(modelPointer);
+		return new SignalLock(this::unlockSignals);
+	}
+
+	void unlockSignals() {
+		verifyEventLoopThread();
+		TableModelFunctions.unlockDataChangedSignal(modelPointer);
 	}
 
 	@Override
@@ -236,14 +669,7 @@ public class JQMLTableModelImpl<K> implements JQMLTableModel<K> {
 		return columnCount;
 	}
 
-	private void updateIndices() {
-		for (int row = 0; row < rowCount; ++row) {
-			for (int column = 0; column < columnCount; ++column) {
-				final Map<K, JVariant> map = get(row, column);
-				map.putAll(ImmutableMap.of(rowKey, new JVariant(row), columnKey, new JVariant(column)));
-			}
-		}
-
+	private void updateSize() {
 		putRootValue("row_count", new JVariant(rowCount));
 		putRootValue("column_count", new JVariant(columnCount));
 	}
@@ -251,11 +677,28 @@ public class JQMLTableModelImpl<K> implements JQMLTableModel<K> {
 	@Override
 	public void assign(final int rows, final int columns, final List<Map<K, JVariant>> list) {
 		Objects.requireNonNull(list, "list is null");
+		Preconditions.checkArgument(rows >= 0 && columns >= 0, "Invalid table size");
 		Preconditions.checkArgument(rows * columns == list.size(), "list length does not equal rows * columns");
-
-		listModel.assign(list);
-		rowCount = rows;
-		columnCount = columns;
-		updateIndices();
+		verifyEventLoopThread();
+
+		final SignalLock lock = lockSignals();
+		try {
+			TableModelFunctions.resizeGenericTableModel(modelPointer, rows, columns);
+			rowCount = rows;
+			columnCount = columns;
+
+			int i = 0;
+			for (int row = 0; row < rows; ++row) {
+				for (int column = 0; column < columns; ++column) {
+					final Map<K, JVariant> cell = list.get(i++);
+					if (!cell.isEmpty()) {
+						setData(row, column, cell);
+					}
+				}
+			}
+		} finally {
+			lock.close();
+		}
+		updateSize();
 	}
 }
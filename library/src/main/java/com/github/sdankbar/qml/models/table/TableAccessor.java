@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.models.table;
+
+import java.util.Optional;
+
+import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.cpp.jni.table.TableModelFunctions;
+import com.github.sdankbar.qml.models.MapAccessor;
+
+/**
+ * Implementation of MapAccessor that is used to modify one of the cells in a
+ * table model.
+ */
+public class TableAccessor extends MapAccessor {
+
+	private int row;
+	private int column;
+
+	@Override
+	public void assign(final int[] roles, final JVariant[] data) {
+		sendToQML(roles, data);
+
+		TableModelFunctions.assignGenericTableModelData(modelPointer, row, column);
+	}
+
+	@Override
+	public void clear() {
+		TableModelFunctions.clearAllGenericTableModelData(modelPointer, row, column);
+	}
+
+	/**
+	 * Creates a copy of this TableAccessor that accesses a different cell.
+	 *
+	 * @param row    Row of the cell the new TableAccessor will modify.
+	 * @param column Column of the cell the new TableAccessor will modify.
+	 * @return The copied accessor.
+	 */
+	public TableAccessor copy(final int row, final int column) {
+		final TableAccessor a = new TableAccessor();
+		a.setModelPointer(modelPointer);
+		a.setCell(row, column);
+		return a;
+	}
+
+	@Override
+	public Optional<JVariant> get(final int roleIndex) {
+		final JVariant received = TableModelFunctions.getGenericTableModelData(modelPointer, row, column,
+				roleIndex);
+		return Optional.ofNullable(received);
+	}
+
+	/**
+	 * @return Row of the cell this accessor modifies.
+	 */
+	public int getRow() {
+		return row;
+	}
+
+	/**
+	 * @return Column of the cell this accessor modifies.
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	@Override
+	public Optional<JVariant> remove(final int roleIndex) {
+		final Optional<JVariant> existingValue = get(roleIndex);
+
+		TableModelFunctions.clearGenericTableModelData(modelPointer, row, column, roleIndex);
+
+		return existingValue;
+	}
+
+	@Override
+	public void set(final JVariant value, final int roleIndex) {
+		value.sendToQML(roleIndex);
+		TableModelFunctions.setGenericTableModelData(modelPointer, row, column);
+	}
+
+	@Override
+	public void set(final int[] roles, final JVariant[] data) {
+		sendToQML(roles, data);
+
+		TableModelFunctions.setGenericTableModelData(modelPointer, row, column);
+	}
+
+	/**
+	 * @param row    Row of the cell this accessor will modify.
+	 * @param column Column of the cell this accessor will modify.
+	 */
+	public void setCell(final int row, final int column) {
+		this.row = row;
+		this.column = column;
+	}
+}
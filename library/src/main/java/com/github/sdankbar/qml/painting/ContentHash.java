@@ -0,0 +1,86 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.painting;
+
+/**
+ * 64-bit content hash used to address images and groups in the native
+ * registries.
+ */
+final class ContentHash {
+
+	private static final long SEED = 0xCBF29CE484222325L;
+	private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * @return Initial hash value.
+	 */
+	static long seed() {
+		return SEED;
+	}
+
+	/**
+	 * @param hash  Current hash value.
+	 * @param value Value to add to the hash.
+	 * @return Updated hash value.
+	 */
+	static long mix(final long hash, final int value) {
+		final long h = (hash ^ (value & 0xFFFFFFFFL)) * MULTIPLIER;
+		return h ^ (h >>> 29);
+	}
+
+	/**
+	 * @param hash Current hash value.
+	 * @return Final, avalanched hash value.
+	 */
+	static long finish(final long hash) {
+		long h = hash;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * @param data Bytes to hash.
+	 * @return Hash of data's length and content.
+	 */
+	static long of(final byte[] data) {
+		long hash = mix(SEED, data.length);
+		int i = 0;
+		for (; i + 3 < data.length; i += 4) {
+			hash = mix(hash, (data[i] & 0xFF) | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF) << 16
+					| (data[i + 3] & 0xFF) << 24);
+		}
+		for (; i < data.length; ++i) {
+			hash = mix(hash, data[i]);
+		}
+		return finish(hash);
+	}
+
+	private ContentHash() {
+		// Empty Implementation
+	}
+
+}
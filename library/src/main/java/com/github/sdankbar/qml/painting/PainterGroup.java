@@ -0,0 +1,246 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.painting;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.github.sdankbar.qml.cpp.jni.ApplicationFunctions;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * An immutable, retained group of painter instructions. A group is sent to C++
+ * once, the first time it is drawn, and is then cached natively as a QPicture
+ * under the hash of its instructions. Instructions that draw the group only
+ * contain that hash, so a drawing split into groups only re-sends and
+ * re-records the groups that changed. Created by
+ * PainterInstructionsBuilder.buildGroup().
+ */
+public final class PainterGroup {
+
+	/**
+	 * Sets the maximum number of bytes of instructions the native group cache
+	 * keeps. Defaults to 64 MiB.
+	 *
+	 * @param bytes Maximum number of bytes.
+	 */
+	public static void setCacheSize(final long bytes) {
+		ApplicationFunctions.setPainterGroupCacheSize(bytes);
+	}
+
+	/**
+	 * Reads a group written by write(BinaryModelWriter).
+	 *
+	 * @param images Images read so far, by handle.
+	 * @param groups Groups read so far, by handle.
+	 */
+	static PainterGroup read(final BinaryModelReader reader, final Map<Long, PainterImage> images,
+			final Map<Long, PainterGroup> groups) throws IOException {
+		final byte[] data = reader.readBytes();
+		final int imageCount = reader.readCount();
+		final List<PainterImage> groupImages = new ArrayList<>(imageCount);
+		for (int i = 0; i < imageCount; ++i) {
+			final PainterImage image = images.get(reader.readLong());
+			if (image == null) {
+				throw new IOException("Unknown painter image handle");
+			}
+			groupImages.add(image);
+		}
+		final int groupCount = reader.readCount();
+		final List<PainterGroup> groupGroups = new ArrayList<>(groupCount);
+		for (int i = 0; i < groupCount; ++i) {
+			final PainterGroup group = groups.get(reader.readLong());
+			if (group == null) {
+				throw new IOException("Unknown painter group handle");
+			}
+			groupGroups.add(group);
+		}
+		return new PainterGroup(data, groupImages, groupGroups);
+	}
+
+	/**
+	 * Reads a group written by toJSON().
+	 *
+	 * @param images Images read so far, by handle.
+	 * @param groups Groups read so far, by handle.
+	 */
+	static PainterGroup fromJSON(final JSONObject json, final Map<Long, PainterImage> images,
+			final Map<Long, PainterGroup> groups) {
+		final JSONArray array = json.getJSONArray("value");
+		final byte[] data = new byte[array.length()];
+		for (int i = 0; i < data.length; ++i) {
+			data[i] = (byte) array.getInt(i);
+		}
+		final JSONArray imageArray = json.getJSONArray("images");
+		final List<PainterImage> groupImages = new ArrayList<>(imageArray.length());
+		for (int i = 0; i < imageArray.length(); ++i) {
+			final PainterImage image = images.get(imageArray.getLong(i));
+			if (image == null) {
+				throw new JSONException("Unknown painter image handle");
+			}
+			groupImages.add(image);
+		}
+		final JSONArray groupArray = json.getJSONArray("groups");
+		final List<PainterGroup> groupGroups = new ArrayList<>(groupArray.length());
+		for (int i = 0; i < groupArray.length(); ++i) {
+			final PainterGroup group = groups.get(groupArray.getLong(i));
+			if (group == null) {
+				throw new JSONException("Unknown painter group handle");
+			}
+			groupGroups.add(group);
+		}
+		return new PainterGroup(data, groupImages, groupGroups);
+	}
+
+	private final byte[] data;
+	// Images and groups drawn by the group
+	private final ImmutableList<PainterImage> images;
+	private final ImmutableList<PainterGroup> groups;
+	private final long handle;
+
+	PainterGroup(final byte[] data) {
+		this(data, ImmutableList.of(), ImmutableList.of());
+	}
+
+	PainterGroup(final byte[] data, final Collection<PainterImage> images, final Collection<PainterGroup> groups) {
+		this.data = Objects.requireNonNull(data, "data is null");
+		this.images = ImmutableList.copyOf(images);
+		this.groups = ImmutableList.copyOf(groups);
+		handle = ContentHash.of(data);
+	}
+
+	/**
+	 * @return The handle instructions use to refer to this group.
+	 */
+	public long getHandle() {
+		return handle;
+	}
+
+	/**
+	 * @return Size of the group's instructions in bytes.
+	 */
+	public int getSizeInBytes() {
+		return data.length;
+	}
+
+	/**
+	 * Registers this group with the native cache, if it is not already
+	 * registered, along with any of its images and groups that have been evicted.
+	 */
+	void register() {
+		for (final PainterImage image : images) {
+			image.register();
+		}
+		for (final PainterGroup group : groups) {
+			group.register();
+		}
+		if (!ApplicationFunctions.containsPainterGroup(handle)) {
+			ApplicationFunctions.registerPainterGroup(handle, data.length, data);
+		}
+	}
+
+	/**
+	 * Adds this group, and the images and groups it draws, to the maps. Each
+	 * group is added after the groups it draws so they can be read back in order.
+	 */
+	void collect(final Map<Long, PainterImage> allImages, final Map<Long, PainterGroup> allGroups) {
+		if (allGroups.containsKey(handle)) {
+			return;
+		}
+		for (final PainterImage image : images) {
+			allImages.putIfAbsent(image.getHandle(), image);
+		}
+		for (final PainterGroup group : groups) {
+			group.collect(allImages, allGroups);
+		}
+		allGroups.put(handle, this);
+	}
+
+	/**
+	 * Writes the group's instructions and the handles of the images and groups
+	 * it draws, which are written separately.
+	 */
+	void write(final BinaryModelWriter writer) throws IOException {
+		writer.writeBytes(data);
+		writer.writeVarInt(images.size());
+		for (final PainterImage image : images) {
+			writer.writeLong(image.getHandle());
+		}
+		writer.writeVarInt(groups.size());
+		for (final PainterGroup group : groups) {
+			writer.writeLong(group.getHandle());
+		}
+	}
+
+	JSONObject toJSON() {
+		final JSONObject json = new JSONObject();
+		final JSONArray array = new JSONArray();
+		for (final byte b : data) {
+			array.put(b);
+		}
+		json.put("value", array);
+		final JSONArray imageArray = new JSONArray();
+		for (final PainterImage image : images) {
+			imageArray.put(image.getHandle());
+		}
+		json.put("images", imageArray);
+		final JSONArray groupArray = new JSONArray();
+		for (final PainterGroup group : groups) {
+			groupArray.put(group.getHandle());
+		}
+		json.put("groups", groupArray);
+		return json;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(handle);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final PainterGroup other = (PainterGroup) obj;
+		return handle == other.handle && Arrays.equals(data, other.data);
+	}
+
+}
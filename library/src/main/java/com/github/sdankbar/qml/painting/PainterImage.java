@@ -0,0 +1,151 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.painting;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Objects;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.github.sdankbar.qml.cpp.jni.ApplicationFunctions;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.github.sdankbar.qml.utility.ImageTransfer;
+import com.google.common.base.Preconditions;
+
+/**
+ * Copy of an image drawn by PainterInstructions. Instructions only contain the
+ * image's handle, so they keep the pixels here to register the image again if
+ * the native registry has evicted it and to persist it along with them.
+ */
+final class PainterImage {
+
+	/**
+	 * @param image The image to copy.
+	 * @return Copy of image's pixels.
+	 */
+	static PainterImage of(final BufferedImage image) {
+		// toARGB may return the image's backing array, which the caller is free to
+		// keep drawing into.
+		return new PainterImage(image.getWidth(), image.getHeight(), ImageTransfer.isPremultiplied(image),
+				ImageTransfer.toARGB(image).clone());
+	}
+
+	/**
+	 * @param width         Width of the image.
+	 * @param height        Height of the image.
+	 * @param premultiplied True if pixels are premultiplied by alpha.
+	 * @param pixels        The image's width * height ARGB pixels. Not copied.
+	 * @return The image.
+	 */
+	static PainterImage of(final int width, final int height, final boolean premultiplied, final int[] pixels) {
+		return new PainterImage(width, height, premultiplied, pixels);
+	}
+
+	/**
+	 * Reads an image written by write(BinaryModelWriter).
+	 */
+	static PainterImage read(final BinaryModelReader reader) throws IOException {
+		final int width = reader.readVarInt();
+		final int height = reader.readVarInt();
+		final boolean premultiplied = reader.readBoolean();
+		final int count = reader.readCount();
+		if (count != (long) width * height) {
+			throw new IOException("Invalid painter image size");
+		}
+		final int[] pixels = new int[count];
+		for (int i = 0; i < count; ++i) {
+			pixels[i] = reader.readInt();
+		}
+		return new PainterImage(width, height, premultiplied, pixels);
+	}
+
+	/**
+	 * Reads an image written by toJSON().
+	 */
+	static PainterImage fromJSON(final JSONObject json) {
+		final JSONArray array = json.getJSONArray("pixels");
+		final int[] pixels = new int[array.length()];
+		for (int i = 0; i < pixels.length; ++i) {
+			pixels[i] = array.getInt(i);
+		}
+		return new PainterImage(json.getInt("width"), json.getInt("height"), json.getBoolean("premultiplied"),
+				pixels);
+	}
+
+	private final int width;
+	private final int height;
+	private final boolean premultiplied;
+	private final int[] pixels;
+	private final long handle;
+
+	private PainterImage(final int width, final int height, final boolean premultiplied, final int[] pixels) {
+		Preconditions.checkArgument(width >= 0 && height >= 0, "Invalid image size");
+		Objects.requireNonNull(pixels, "pixels is null");
+		Preconditions.checkArgument(pixels.length == (long) width * height, "pixels doesn't match the image size");
+		this.width = width;
+		this.height = height;
+		this.premultiplied = premultiplied;
+		this.pixels = pixels;
+		handle = PainterImageRegistry.hash(width, height, premultiplied, pixels);
+	}
+
+	/**
+	 * @return The handle instructions use to refer to this image.
+	 */
+	long getHandle() {
+		return handle;
+	}
+
+	/**
+	 * Registers this image with the native registry, if it is not already
+	 * registered.
+	 */
+	void register() {
+		if (!ApplicationFunctions.containsPainterImage(handle)) {
+			ApplicationFunctions.registerPainterImage(handle, width, height, pixels, premultiplied);
+		}
+	}
+
+	void write(final BinaryModelWriter writer) throws IOException {
+		writer.writeVarInt(width);
+		writer.writeVarInt(height);
+		writer.writeBoolean(premultiplied);
+		writer.writeVarInt(pixels.length);
+		for (final int p : pixels) {
+			writer.writeInt(p);
+		}
+	}
+
+	JSONObject toJSON() {
+		final JSONObject json = new JSONObject();
+		json.put("width", width);
+		json.put("height", height);
+		json.put("premultiplied", premultiplied);
+		json.put("pixels", new JSONArray(pixels));
+		return json;
+	}
+
+}
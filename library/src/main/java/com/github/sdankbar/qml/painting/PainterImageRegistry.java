@@ -0,0 +1,71 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.painting;
+
+import com.github.sdankbar.qml.cpp.jni.ApplicationFunctions;
+
+/**
+ * Java side of the native, content addressed image registry used by
+ * PainterInstructions. Images are identified by a 64-bit hash of their size and
+ * pixels, so an image is only sent to C++ the first time it is drawn, no matter
+ * how many instructions or BufferedImage objects reference it. The native
+ * registry evicts least recently used images once it exceeds its cache size,
+ * so instructions keep a copy of each image they draw and register it again
+ * before they are sent to C++ if it has been evicted.
+ */
+public final class PainterImageRegistry {
+
+	/**
+	 * Sets the maximum number of bytes of pixel data the native registry keeps.
+	 * Defaults to 64 MiB.
+	 *
+	 * @param bytes Maximum number of bytes.
+	 */
+	public static void setCacheSize(final long bytes) {
+		ApplicationFunctions.setPainterImageCacheSize(bytes);
+	}
+
+	/**
+	 * @param w             Width of the image.
+	 * @param h             Height of the image.
+	 * @param premultiplied True if pixels are premultiplied by alpha.
+	 * @param pixels        The image's w * h ARGB pixels.
+	 * @return Content hash of the image.
+	 */
+	static long hash(final int w, final int h, final boolean premultiplied, final int[] pixels) {
+		long hash = ContentHash.seed();
+		hash = ContentHash.mix(hash, w);
+		hash = ContentHash.mix(hash, h);
+		hash = ContentHash.mix(hash, premultiplied ? 1 : 0);
+		final int length = w * h;
+		for (int i = 0; i < length; ++i) {
+			hash = ContentHash.mix(hash, pixels[i]);
+		}
+		return ContentHash.finish(hash);
+	}
+
+	private PainterImageRegistry() {
+		// Empty Implementation
+	}
+
+}
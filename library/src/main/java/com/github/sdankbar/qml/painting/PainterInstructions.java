@@ -23,11 +23,27 @@
 package com.github.sdankbar.qml.painting;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
 
-import com.github.sdankbar.qml.JVariant;
 import com.github.sdankbar.qml.cpp.jni.ApplicationFunctions;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 
 public class PainterInstructions {
 
@@ -79,27 +95,273 @@ public class PainterInstructions {
 		drawChordDouble, drawConvexPolygonDouble, drawEllipseDouble, drawImageDouble, drawLineDouble, drawLinesDouble,
 		drawPieDouble, drawPointDouble, drawPointsDouble, drawPolygonDouble, drawPolylineDouble, drawRectDouble,
 		drawRoundedRectDouble, drawStaticTextDouble, drawTextSimpleDouble, drawTextComplexDouble, fillRectDouble,
-		setClipRectDouble;
+		setClipRectDouble, drawGroup;
+	}
+
+	/**
+	 * Reads instructions written by toJSON().
+	 *
+	 * @param json JSON to read.
+	 * @return The instructions.
+	 */
+	public static PainterInstructions fromJSON(final JSONObject json) {
+		final JSONArray array = json.getJSONArray("value");
+		final byte[] byteArray = new byte[array.length()];
+		for (int i = 0; i < byteArray.length; ++i) {
+			byteArray[i] = (byte) array.getInt(i);
+		}
+
+		final Map<Long, PainterImage> images = new LinkedHashMap<>();
+		final JSONArray imageArray = json.optJSONArray("images");
+		if (imageArray != null) {
+			for (int i = 0; i < imageArray.length(); ++i) {
+				final PainterImage image = PainterImage.fromJSON(imageArray.getJSONObject(i));
+				images.put(image.getHandle(), image);
+			}
+		}
+		final Map<Long, PainterGroup> groups = new LinkedHashMap<>();
+		final JSONArray groupArray = json.optJSONArray("groups");
+		if (groupArray != null) {
+			for (int i = 0; i < groupArray.length(); ++i) {
+				final PainterGroup group = PainterGroup.fromJSON(groupArray.getJSONObject(i), images, groups);
+				groups.put(group.getHandle(), group);
+			}
+		}
+		return new PainterInstructions(byteArray, images.values(), groups.values());
+	}
+
+	/**
+	 * Reads instructions written by write().
+	 *
+	 * @param reader Reader to read from.
+	 * @return The instructions.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	public static PainterInstructions read(final BinaryModelReader reader) throws IOException {
+		final byte[] data = reader.readBytes();
+		final int imageCount = reader.readCount();
+		final Map<Long, PainterImage> images = new LinkedHashMap<>();
+		for (int i = 0; i < imageCount; ++i) {
+			final PainterImage image = PainterImage.read(reader);
+			images.put(image.getHandle(), image);
+		}
+		final int groupCount = reader.readCount();
+		final Map<Long, PainterGroup> groups = new LinkedHashMap<>();
+		for (int i = 0; i < groupCount; ++i) {
+			final PainterGroup group = PainterGroup.read(reader, images, groups);
+			groups.put(group.getHandle(), group);
+		}
+		return new PainterInstructions(data, images.values(), groups.values());
+	}
+
+	// Used by JNI. Rebuilds instructions read back from C++ along with the images
+	// and groups they draw. images and groups index the images and groups drawn
+	// directly by the instructions, as groupImages and groupGroups do for each
+	// group. imageSizes holds the width and height of each image and each group
+	// comes after the groups it draws.
+	@SuppressWarnings("unused")
+	private static PainterInstructions fromNative(final byte[] data, final int[] images, final int[] groups,
+			final int[] imageSizes, final boolean[] premultiplied, final int[][] pixels, final byte[][] groupData,
+			final int[][] groupImages, final int[][] groupGroups) {
+		final List<PainterImage> allImages = new ArrayList<>(pixels.length);
+		for (int i = 0; i < pixels.length; ++i) {
+			allImages.add(PainterImage.of(imageSizes[2 * i], imageSizes[(2 * i) + 1], premultiplied[i], pixels[i]));
+		}
+		final List<PainterGroup> allGroups = new ArrayList<>(groupData.length);
+		for (int i = 0; i < groupData.length; ++i) {
+			allGroups.add(new PainterGroup(groupData[i], select(allImages, groupImages[i]),
+					select(allGroups, groupGroups[i])));
+		}
+		return new PainterInstructions(data, select(allImages, images), select(allGroups, groups));
+	}
+
+	private static <T> List<T> select(final List<T> list, final int[] indexes) {
+		final List<T> selected = new ArrayList<>(indexes.length);
+		for (final int i : indexes) {
+			selected.add(list.get(i));
+		}
+		return selected;
 	}
 
 	private final byte[] data;
+	// Images and groups drawn by the instructions. Empty if the instructions were
+	// created from bytes alone.
+	private final ImmutableList<PainterImage> images;
+	private final ImmutableList<PainterGroup> groups;
 	private int hash = 0;
 
 	public PainterInstructions(final byte[] data) {
+		this(data, ImmutableList.of(), ImmutableList.of());
+	}
+
+	PainterInstructions(final byte[] data, final Collection<PainterImage> images,
+			final Collection<PainterGroup> groups) {
 		this.data = Objects.requireNonNull(data, "data is null");
+		this.images = ImmutableList.copyOf(images);
+		this.groups = ImmutableList.copyOf(groups);
 	}
 
 	public byte[] getArray() {
 		return data;
 	}
 
+	/**
+	 * Registers any of the images and groups drawn by the instructions that the
+	 * native registries have evicted. Called before the instructions are sent to
+	 * C++.
+	 */
+	public void register() {
+		for (final PainterImage image : images) {
+			image.register();
+		}
+		for (final PainterGroup group : groups) {
+			group.register();
+		}
+	}
+
+	/**
+	 * Adds the instructions, and the images and groups they draw, to json.
+	 *
+	 * @param json JSON to add to.
+	 */
+	public void toJSON(final JSONObject json) {
+		final JSONArray array = new JSONArray();
+		for (final byte b : data) {
+			array.put(b);
+		}
+		json.put("value", array);
+
+		final Map<Long, PainterImage> allImages = new LinkedHashMap<>();
+		final Map<Long, PainterGroup> allGroups = new LinkedHashMap<>();
+		collect(allImages, allGroups);
+		final JSONArray imageArray = new JSONArray();
+		for (final PainterImage image : allImages.values()) {
+			imageArray.put(image.toJSON());
+		}
+		json.put("images", imageArray);
+		final JSONArray groupArray = new JSONArray();
+		for (final PainterGroup group : allGroups.values()) {
+			groupArray.put(group.toJSON());
+		}
+		json.put("groups", groupArray);
+	}
+
+	/**
+	 * Writes the instructions, and the images and groups they draw, in the binary
+	 * persistence format.
+	 *
+	 * @param writer Writer to write to.
+	 * @throws IOException Thrown if writing fails.
+	 */
+	public void write(final BinaryModelWriter writer) throws IOException {
+		writer.writeBytes(data);
+
+		final Map<Long, PainterImage> allImages = new LinkedHashMap<>();
+		final Map<Long, PainterGroup> allGroups = new LinkedHashMap<>();
+		collect(allImages, allGroups);
+		writer.writeVarInt(allImages.size());
+		for (final PainterImage image : allImages.values()) {
+			image.write(writer);
+		}
+		writer.writeVarInt(allGroups.size());
+		for (final PainterGroup group : allGroups.values()) {
+			group.write(writer);
+		}
+	}
+
+	/**
+	 * Collects every image and group drawn by the instructions, directly or by
+	 * their groups, so each is persisted once.
+	 */
+	private void collect(final Map<Long, PainterImage> allImages, final Map<Long, PainterGroup> allGroups) {
+		for (final PainterImage image : images) {
+			allImages.putIfAbsent(image.getHandle(), image);
+		}
+		for (final PainterGroup group : groups) {
+			group.collect(allImages, allGroups);
+		}
+	}
+
+	/**
+	 * Renders the instructions into a new image. May be called from any thread;
+	 * the image is rasterized on the calling thread.
+	 *
+	 * @param width  Width of the image in pixels.
+	 * @param height Height of the image in pixels.
+	 * @return The rendered image.
+	 */
 	public BufferedImage render(final int width, final int height) {
-		final JVariant ret = ApplicationFunctions.renderPainterInstructionsToImage(data.length, data, width, height);
-		if (ret != null) {
-			return ret.asImage(null);
-		} else {
-			return null;
+		final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		render(width, height, ((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+		return image;
+	}
+
+	/**
+	 * Renders the instructions into pixels as row-major ARGB ints. May be called
+	 * from any thread; the image is rasterized on the calling thread.
+	 *
+	 * @param width  Width of the image in pixels.
+	 * @param height Height of the image in pixels.
+	 * @param pixels Destination for the pixels. Must hold at least width * height
+	 *               ints.
+	 */
+	public void render(final int width, final int height, final int[] pixels) {
+		Objects.requireNonNull(pixels, "pixels is null");
+		Preconditions.checkArgument(width > 0, "width must be > 0");
+		Preconditions.checkArgument(height > 0, "height must be > 0");
+		Preconditions.checkArgument(pixels.length >= (long) width * height, "pixels is too small for the image");
+
+		register();
+		ApplicationFunctions.renderPainterInstructionsToArray(data.length, data, width, height, pixels);
+	}
+
+	/**
+	 * Renders the instructions directly into a direct buffer as row-major ARGB
+	 * ints in native byte order, starting at the buffer's address. May be called
+	 * from any thread; the image is rasterized on the calling thread.
+	 *
+	 * @param width  Width of the image in pixels.
+	 * @param height Height of the image in pixels.
+	 * @param buffer Direct buffer with a capacity of at least width * height * 4
+	 *               bytes.
+	 */
+	public void render(final int width, final int height, final ByteBuffer buffer) {
+		Objects.requireNonNull(buffer, "buffer is null");
+		Preconditions.checkArgument(width > 0, "width must be > 0");
+		Preconditions.checkArgument(height > 0, "height must be > 0");
+		Preconditions.checkArgument(buffer.isDirect(), "buffer is not direct");
+		Preconditions.checkArgument(buffer.capacity() >= (long) width * height * Integer.BYTES,
+				"buffer is too small for the image");
+
+		register();
+		ApplicationFunctions.renderPainterInstructionsToBuffer(data.length, data, width, height, buffer);
+	}
+
+	/**
+	 * Renders each set of instructions into its own image, in parallel on
+	 * executor.
+	 *
+	 * @param instructions Instructions to render.
+	 * @param width        Width of the images in pixels.
+	 * @param height       Height of the images in pixels.
+	 * @param executor     Executor the rendering is run on.
+	 * @return The rendered images, in the same order as instructions.
+	 */
+	public static List<BufferedImage> renderAll(final List<PainterInstructions> instructions, final int width,
+			final int height, final Executor executor) {
+		Objects.requireNonNull(instructions, "instructions is null");
+		Objects.requireNonNull(executor, "executor is null");
+
+		final List<CompletableFuture<BufferedImage>> futures = new ArrayList<>(instructions.size());
+		for (final PainterInstructions i : instructions) {
+			futures.add(CompletableFuture.supplyAsync(() -> i.render(width, height), executor));
+		}
+
+		final List<BufferedImage> images = new ArrayList<>(futures.size());
+		for (final CompletableFuture<BufferedImage> f : futures) {
+			images.add(f.join());
 		}
+		return images;
 	}
 
 	@Override
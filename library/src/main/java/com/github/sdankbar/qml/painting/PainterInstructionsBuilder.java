@@ -28,9 +28,10 @@ import java.awt.Rectangle;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import com.github.sdankbar.qml.fonts.JFont;
@@ -40,21 +41,16 @@ import com.github.sdankbar.qml.painting.PainterInstructions.FillMode;
 import com.github.sdankbar.qml.painting.PainterInstructions.PainterFunction;
 import com.github.sdankbar.qml.painting.PainterInstructions.RenderHint;
 import com.github.sdankbar.qml.utility.ResizableByteBuffer;
+import com.google.common.base.Preconditions;
 
 public class PainterInstructionsBuilder {
 
 	private final ResizableByteBuffer buffer = new ResizableByteBuffer();
-	private JFont currentFont = JFont.builder().build();
-
-	private byte[] bufferedImageToArray(final BufferedImage image) {
-		final int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
-		final ByteBuffer b = ByteBuffer.allocate(4 * pixels.length);
-		b.order(ByteOrder.nativeOrder());
-		for (final int p : pixels) {
-			b.putInt(p);
-		}
-		return b.array();
-	}
+	// Images and groups drawn so far, by handle
+	private final Map<Long, PainterImage> images = new LinkedHashMap<>();
+	private final Map<Long, PainterGroup> groups = new LinkedHashMap<>();
+	private final JFont initialFont = JFont.builder().build();
+	private JFont currentFont = initialFont;
 
 	public JFont getFont() {
 		return currentFont;
@@ -140,6 +136,15 @@ public class PainterInstructionsBuilder {
 		buffer.putDouble(height);
 	}
 
+	public void drawGroup(final PainterGroup group) {
+		Objects.requireNonNull(group, "group is null");
+
+		group.register();
+		groups.putIfAbsent(group.getHandle(), group);
+		buffer.putInt(PainterFunction.drawGroup.ordinal());
+		buffer.putLong(group.getHandle());
+	}
+
 	public void drawImage(final Rectangle target, final Rectangle source, final BufferedImage image) {
 		Objects.requireNonNull(target, "target is null");
 		Objects.requireNonNull(source, "source is null");
@@ -154,9 +159,7 @@ public class PainterInstructionsBuilder {
 		buffer.putInt(source.y);
 		buffer.putInt(source.width);
 		buffer.putInt(source.height);
-		buffer.putInt(image.getWidth());
-		buffer.putInt(image.getHeight());
-		buffer.putBytes(bufferedImageToArray(image));
+		buffer.putLong(addImage(image));
 	}
 
 	public void drawImage(final Rectangle2D.Double target, final Rectangle2D.Double source, final BufferedImage image) {
@@ -173,9 +176,7 @@ public class PainterInstructionsBuilder {
 		buffer.putDouble(source.getY());
 		buffer.putDouble(source.getWidth());
 		buffer.putDouble(source.getHeight());
-		buffer.putInt(image.getWidth());
-		buffer.putInt(image.getHeight());
-		buffer.putBytes(bufferedImageToArray(image));
+		buffer.putLong(addImage(image));
 	}
 
 	public void drawLine(final int x1, final int y1, final int x2, final int y2) {
@@ -216,6 +217,46 @@ public class PainterInstructionsBuilder {
 		}
 	}
 
+	/**
+	 * @param xy Interleaved x,y coordinates of the line end points. Each line
+	 *           uses two consecutive points, so xy's length must be a multiple
+	 *           of 4.
+	 */
+	public void drawLines(final int[] xy) {
+		final int count = lineEndPointCount(pointCount(xy));
+
+		buffer.putInt(PainterFunction.drawLinesInteger.ordinal());
+		buffer.putInt(count);
+		buffer.putInts(xy, 0, xy.length);
+	}
+
+	/**
+	 * @param xy Interleaved x,y coordinates of the line end points. Each line
+	 *           uses two consecutive points, so xy's length must be a multiple
+	 *           of 4.
+	 */
+	public void drawLines(final double[] xy) {
+		final int count = lineEndPointCount(pointCount(xy));
+
+		buffer.putInt(PainterFunction.drawLinesDouble.ordinal());
+		buffer.putInt(count);
+		buffer.putDoubles(xy, 0, xy.length);
+	}
+
+	/**
+	 * @param xy Interleaved x,y coordinates of the line end points, read from
+	 *           the buffer's position to its limit. Each line uses two
+	 *           consecutive points, so the number of floats remaining must be a
+	 *           multiple of 4.
+	 */
+	public void drawLines(final FloatBuffer xy) {
+		final int count = lineEndPointCount(pointCount(xy));
+
+		buffer.putInt(PainterFunction.drawLinesDouble.ordinal());
+		buffer.putInt(count);
+		buffer.putFloatsAsDoubles(xy);
+	}
+
 	public void drawPie(final int x, final int y, final int width, final int height, final int startAngle,
 			final int spanAngle) {
 		buffer.putInt(PainterFunction.drawPieInteger.ordinal());
@@ -272,6 +313,40 @@ public class PainterInstructionsBuilder {
 		}
 	}
 
+	/**
+	 * @param xy Interleaved x,y coordinates of the points.
+	 */
+	public void drawPoints(final int[] xy) {
+		final int count = pointCount(xy);
+
+		buffer.putInt(PainterFunction.drawPointsInteger.ordinal());
+		buffer.putInt(count);
+		buffer.putInts(xy, 0, xy.length);
+	}
+
+	/**
+	 * @param xy Interleaved x,y coordinates of the points.
+	 */
+	public void drawPoints(final double[] xy) {
+		final int count = pointCount(xy);
+
+		buffer.putInt(PainterFunction.drawPointsDouble.ordinal());
+		buffer.putInt(count);
+		buffer.putDoubles(xy, 0, xy.length);
+	}
+
+	/**
+	 * @param xy Interleaved x,y coordinates of the points, read from the
+	 *           buffer's position to its limit.
+	 */
+	public void drawPoints(final FloatBuffer xy) {
+		final int count = pointCount(xy);
+
+		buffer.putInt(PainterFunction.drawPointsDouble.ordinal());
+		buffer.putInt(count);
+		buffer.putFloatsAsDoubles(xy);
+	}
+
 	public void drawPolygon(final List<Point> points, final FillMode mode) {
 		Objects.requireNonNull(points, "points is null");
 		Objects.requireNonNull(mode, "mode is null");
@@ -298,6 +373,49 @@ public class PainterInstructionsBuilder {
 		}
 	}
 
+	/**
+	 * @param xy   Interleaved x,y coordinates of the polygon's vertices.
+	 * @param mode Fill rule used for the polygon.
+	 */
+	public void drawPolygon(final int[] xy, final FillMode mode) {
+		Objects.requireNonNull(mode, "mode is null");
+		final int count = pointCount(xy);
+
+		buffer.putInt(PainterFunction.drawPolygonInteger.ordinal());
+		buffer.putInt(mode.ordinal());
+		buffer.putInt(count);
+		buffer.putInts(xy, 0, xy.length);
+	}
+
+	/**
+	 * @param xy   Interleaved x,y coordinates of the polygon's vertices.
+	 * @param mode Fill rule used for the polygon.
+	 */
+	public void drawPolygon(final double[] xy, final FillMode mode) {
+		Objects.requireNonNull(mode, "mode is null");
+		final int count = pointCount(xy);
+
+		buffer.putInt(PainterFunction.drawPolygonDouble.ordinal());
+		buffer.putInt(mode.ordinal());
+		buffer.putInt(count);
+		buffer.putDoubles(xy, 0, xy.length);
+	}
+
+	/**
+	 * @param xy   Interleaved x,y coordinates of the polygon's vertices, read
+	 *             from the buffer's position to its limit.
+	 * @param mode Fill rule used for the polygon.
+	 */
+	public void drawPolygon(final FloatBuffer xy, final FillMode mode) {
+		Objects.requireNonNull(mode, "mode is null");
+		final int count = pointCount(xy);
+
+		buffer.putInt(PainterFunction.drawPolygonDouble.ordinal());
+		buffer.putInt(mode.ordinal());
+		buffer.putInt(count);
+		buffer.putFloatsAsDoubles(xy);
+	}
+
 	public void drawPolyline(final List<Point> points) {
 		Objects.requireNonNull(points, "points is null");
 
@@ -320,6 +438,40 @@ public class PainterInstructionsBuilder {
 		}
 	}
 
+	/**
+	 * @param xy Interleaved x,y coordinates of the polyline's vertices.
+	 */
+	public void drawPolyline(final int[] xy) {
+		final int count = pointCount(xy);
+
+		buffer.putInt(PainterFunction.drawPolylineInteger.ordinal());
+		buffer.putInt(count);
+		buffer.putInts(xy, 0, xy.length);
+	}
+
+	/**
+	 * @param xy Interleaved x,y coordinates of the polyline's vertices.
+	 */
+	public void drawPolyline(final double[] xy) {
+		final int count = pointCount(xy);
+
+		buffer.putInt(PainterFunction.drawPolylineDouble.ordinal());
+		buffer.putInt(count);
+		buffer.putDoubles(xy, 0, xy.length);
+	}
+
+	/**
+	 * @param xy Interleaved x,y coordinates of the polyline's vertices, read
+	 *           from the buffer's position to its limit.
+	 */
+	public void drawPolyline(final FloatBuffer xy) {
+		final int count = pointCount(xy);
+
+		buffer.putInt(PainterFunction.drawPolylineDouble.ordinal());
+		buffer.putInt(count);
+		buffer.putFloatsAsDoubles(xy);
+	}
+
 	public void drawRect(final int x, final int y, final int width, final int height) {
 		buffer.putInt(PainterFunction.drawRectInteger.ordinal());
 		buffer.putInt(x);
@@ -557,7 +709,58 @@ public class PainterInstructionsBuilder {
 		buffer.putDouble(dy);
 	}
 
+	/**
+	 * Discards all instructions added so far so the builder, and its already
+	 * grown buffer, can be reused for the next frame.
+	 */
+	public void reset() {
+		buffer.clear();
+		images.clear();
+		groups.clear();
+		currentFont = initialFont;
+	}
+
 	public PainterInstructions build() {
-		return new PainterInstructions(buffer.toArray());
+		return new PainterInstructions(buffer.toArray(), images.values(), groups.values());
+	}
+
+	public PainterGroup buildGroup() {
+		return new PainterGroup(buffer.toArray(), images.values(), groups.values());
+	}
+
+	/**
+	 * Registers the image with the native registry and keeps a copy of it for the
+	 * instructions being built.
+	 *
+	 * @return The image's handle.
+	 */
+	private long addImage(final BufferedImage image) {
+		final PainterImage copy = PainterImage.of(image);
+		copy.register();
+		images.putIfAbsent(copy.getHandle(), copy);
+		return copy.getHandle();
+	}
+
+	private static int pointCount(final int[] xy) {
+		Objects.requireNonNull(xy, "xy is null");
+		Preconditions.checkArgument(xy.length % 2 == 0, "xy must contain x,y pairs");
+		return xy.length / 2;
+	}
+
+	private static int pointCount(final double[] xy) {
+		Objects.requireNonNull(xy, "xy is null");
+		Preconditions.checkArgument(xy.length % 2 == 0, "xy must contain x,y pairs");
+		return xy.length / 2;
+	}
+
+	private static int lineEndPointCount(final int pointCount) {
+		Preconditions.checkArgument(pointCount % 2 == 0, "xy must contain pairs of line end points");
+		return pointCount;
+	}
+
+	private static int pointCount(final FloatBuffer xy) {
+		Objects.requireNonNull(xy, "xy is null");
+		Preconditions.checkArgument(xy.remaining() % 2 == 0, "xy must contain x,y pairs");
+		return xy.remaining() / 2;
 	}
 }
@@ -0,0 +1,96 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.painting;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Retained scene made of named layers. Each layer is a PainterGroup and layers
+ * are drawn in the order they were first added. Replacing one layer only
+ * re-sends that layer's instructions; the instructions built by the scene just
+ * reference each layer's group. Not thread safe.
+ */
+public class PainterScene {
+
+	private final Map<String, PainterGroup> layers = new LinkedHashMap<>();
+
+	/**
+	 * Sets the contents of a layer. New layers are drawn above existing layers.
+	 * Existing layers keep their position.
+	 *
+	 * @param name  Name of the layer.
+	 * @param group The layer's contents.
+	 */
+	public void setLayer(final String name, final PainterGroup group) {
+		Objects.requireNonNull(name, "name is null");
+		Objects.requireNonNull(group, "group is null");
+		layers.put(name, group);
+	}
+
+	/**
+	 * Sets the contents of a layer to the instructions added to builder.
+	 *
+	 * @param name    Name of the layer.
+	 * @param builder Builder containing the layer's contents.
+	 */
+	public void setLayer(final String name, final PainterInstructionsBuilder builder) {
+		setLayer(name, builder.buildGroup());
+	}
+
+	/**
+	 * @param name Name of the layer.
+	 * @return The layer's contents or null if there is no layer named name.
+	 */
+	public PainterGroup getLayer(final String name) {
+		return layers.get(name);
+	}
+
+	/**
+	 * @param name Name of the layer to remove.
+	 * @return True if the layer existed.
+	 */
+	public boolean removeLayer(final String name) {
+		return layers.remove(name) != null;
+	}
+
+	/**
+	 * Removes all layers.
+	 */
+	public void clear() {
+		layers.clear();
+	}
+
+	/**
+	 * @return Instructions that draw every layer.
+	 */
+	public PainterInstructions build() {
+		final PainterInstructionsBuilder builder = new PainterInstructionsBuilder();
+		for (final PainterGroup group : layers.values()) {
+			builder.drawGroup(group);
+		}
+		return builder.build();
+	}
+
+}
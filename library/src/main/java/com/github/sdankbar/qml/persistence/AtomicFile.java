@@ -0,0 +1,90 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Checksum;
+
+/**
+ * Replaces files by writing to a temporary file and then renaming it over the
+ * old file, so a failure part way through leaves the old file in place.
+ */
+final class AtomicFile {
+
+	@FunctionalInterface
+	interface Body {
+		void write(OutputStream stream) throws IOException;
+	}
+
+	private AtomicFile() {
+		// Static utility class
+	}
+
+	/**
+	 * @param target   File to replace.
+	 * @param sync     If true, the data is synced to disk before the rename.
+	 * @param checksum If not null, updated with the bytes written.
+	 * @param body     Writes the new contents.
+	 * @return Length of the new file.
+	 * @throws IOException Thrown if writing fails. The temporary file is deleted.
+	 */
+	static long write(final File target, final boolean sync, final Checksum checksum, final Body body)
+			throws IOException {
+		final File directory = target.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+		final File temp = File.createTempFile(target.getName(), ".tmp", directory);
+		try {
+			try (FileOutputStream file = new FileOutputStream(temp)) {
+				final OutputStream stream = new BufferedOutputStream(
+						checksum != null ? new CheckedOutputStream(file, checksum) : file);
+				body.write(stream);
+				stream.flush();
+				if (sync) {
+					file.getFD().sync();
+				}
+			}
+
+			final long length = temp.length();
+			try {
+				Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (final AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			return length;
+		} catch (final IOException | RuntimeException e) {
+			if (temp.exists() && !temp.delete()) {
+				e.addSuppressed(new IOException("Failed to delete " + temp));
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import com.github.sdankbar.qml.JVariant;
+
+/**
+ * Reads data written by BinaryModelWriter. Reads directly from a ByteBuffer
+ * holding the whole file, so values are decoded as the model is rebuilt
+ * without an intermediate document.
+ */
+public class BinaryModelReader {
+
+	/**
+	 * Reads a file and its header.
+	 *
+	 * @param file File to read.
+	 * @return Reader positioned after the header.
+	 * @throws IOException Thrown if the file can't be read or is not in the
+	 *                     binary format.
+	 */
+	public static BinaryModelReader open(final File file) throws IOException {
+		// Read onto the heap rather than memory mapping the file. A mapping stays
+		// open until it is garbage collected, which on Windows stops the next save
+		// from replacing the file.
+		return new BinaryModelReader(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+	}
+
+	/**
+	 * @param keys A model's keys.
+	 * @return Map from each key's toString() value to the key, for use with
+	 *         readMap.
+	 */
+	public static <K> Map<String, K> keysByName(final Collection<K> keys) {
+		final Map<String, K> lookup = new HashMap<>();
+		for (final K k : keys) {
+			lookup.put(k.toString(), k);
+		}
+		return lookup;
+	}
+
+	private final ByteBuffer buffer;
+	private final List<String> strings = new ArrayList<>();
+
+	/**
+	 * Reads the header from the buffer.
+	 *
+	 * @param buffer Buffer to read from.
+	 * @throws IOException Thrown if the buffer is not in the binary format or is
+	 *                     a newer version.
+	 */
+	public BinaryModelReader(final ByteBuffer buffer) throws IOException {
+		this.buffer = Objects.requireNonNull(buffer, "buffer is null").order(ByteOrder.BIG_ENDIAN);
+		if (readInt() != BinaryModelWriter.MAGIC) {
+			throw new IOException("Not a binary model file");
+		}
+		final int version = readByte();
+		if (version != BinaryModelWriter.VERSION) {
+			throw new IOException("Unsupported binary model version " + version);
+		}
+	}
+
+	/**
+	 * @return Number of bytes left to read.
+	 */
+	public int remaining() {
+		return buffer.remaining();
+	}
+
+	private void require(final int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			throw new EOFException("Unexpected end of binary model data");
+		}
+	}
+
+	private int readByte() throws IOException {
+		require(1);
+		return buffer.get() & 0xFF;
+	}
+
+	public boolean readBoolean() throws IOException {
+		return readByte() != 0;
+	}
+
+	public int readInt() throws IOException {
+		require(4);
+		return buffer.getInt();
+	}
+
+	public long readLong() throws IOException {
+		require(8);
+		return buffer.getLong();
+	}
+
+	public float readFloat() throws IOException {
+		require(4);
+		return buffer.getFloat();
+	}
+
+	public double readDouble() throws IOException {
+		require(8);
+		return buffer.getDouble();
+	}
+
+	public int readVarInt() throws IOException {
+		final long v = readVarLong();
+		if ((v & ~0xFFFFFFFFL) != 0) {
+			throw new IOException("Variable length integer out of range");
+		}
+		return (int) v;
+	}
+
+	public long readVarLong() throws IOException {
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = readByte();
+			v |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return v;
+			}
+		}
+		throw new IOException("Malformed variable length integer");
+	}
+
+	public int readSignedVarInt() throws IOException {
+		final int v = readVarInt();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	public long readSignedVarLong() throws IOException {
+		final long v = readVarLong();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/**
+	 * Reads a count and checks that at least that many bytes remain, so corrupt
+	 * data can't cause huge allocations.
+	 *
+	 * @return The count.
+	 * @throws IOException Thrown if the count is larger than the remaining data.
+	 */
+	public int readCount() throws IOException {
+		final int count = readVarInt();
+		if (count < 0 || count > remaining()) {
+			throw new IOException("Invalid count " + count);
+		}
+		return count;
+	}
+
+	public byte[] readBytes() throws IOException {
+		final int length = readCount();
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	public String readString() throws IOException {
+		final long header = readVarLong();
+		if ((header & 1) == 1) {
+			final long index = header >>> 1;
+			if (index >= strings.size()) {
+				throw new IOException("Invalid string index " + index);
+			}
+			return strings.get((int) index);
+		} else {
+			final long length = header >>> 1;
+			if (length > buffer.remaining()) {
+				throw new IOException("Invalid string length " + length);
+			}
+			final byte[] bytes = new byte[(int) length];
+			buffer.get(bytes);
+			final String s = new String(bytes, StandardCharsets.UTF_8);
+			if (length <= BinaryModelWriter.MAX_INTERNED_LENGTH) {
+				strings.add(s);
+			}
+			return s;
+		}
+	}
+
+	public Optional<JVariant> readVariant() throws IOException {
+		return JVariant.readBinary(this);
+	}
+
+	/**
+	 * Reads a map written by BinaryModelWriter.writeMap. Entries whose key is not
+	 * in keysByName or whose value can't be decoded are skipped.
+	 *
+	 * @param keysByName Lookup from name to key, see keysByName().
+	 * @return The map.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	public <K> Map<K, JVariant> readMap(final Map<String, K> keysByName) throws IOException {
+		final int count = readCount();
+		final Map<K, JVariant> map = new HashMap<>(count * 2);
+		for (int i = 0; i < count; ++i) {
+			final K key = keysByName.get(readString());
+			final Optional<JVariant> value = readVariant();
+			if (key != null && value.isPresent()) {
+				map.put(key, value.get());
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Reads a map keyed by string, such as a model's root values.
+	 *
+	 * @return The map.
+	 * @throws IOException Thrown if the data is invalid.
+	 */
+	public Map<String, JVariant> readStringMap() throws IOException {
+		final int count = readCount();
+		final Map<String, JVariant> map = new HashMap<>(count * 2);
+		for (int i = 0; i < count; ++i) {
+			final String key = readString();
+			readVariant().ifPresent(v -> map.put(key, v));
+		}
+		return map;
+	}
+}
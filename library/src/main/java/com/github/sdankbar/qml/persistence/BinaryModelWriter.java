@@ -0,0 +1,168 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import com.github.sdankbar.qml.JVariant;
+
+/**
+ * Writes models in the binary persistence format.
+ *
+ * The format starts with the magic number "JQMB" and a version byte. Numbers
+ * are big endian. Counts and lengths are unsigned variable length integers
+ * (7 bits per byte, low bits first) and small signed integers are zig zag
+ * encoded so small negative values stay short.
+ *
+ * Strings go through a string table that is built as the data is written. The
+ * first occurrence of a string is written as (length &lt;&lt; 1) followed by
+ * its UTF-8 bytes. Later occurrences are written as (index &lt;&lt; 1 | 1).
+ * Only strings up to MAX_INTERNED_LENGTH bytes are added to the table, so
+ * large unique values do not fill it up. Role names and variant type names
+ * are strings, so after their first use they take a byte or two.
+ */
+public class BinaryModelWriter {
+
+	static final int MAGIC = 0x4A514D42;
+	static final int VERSION = 1;
+	static final int MAX_INTERNED_LENGTH = 256;
+
+	private final DataOutputStream out;
+	private final Map<String, Integer> strings = new HashMap<>();
+
+	/**
+	 * Writes the header to the stream.
+	 *
+	 * @param stream Stream to write to. Should be buffered.
+	 * @throws IOException Thrown if writing to the stream fails.
+	 */
+	public BinaryModelWriter(final OutputStream stream) throws IOException {
+		out = new DataOutputStream(Objects.requireNonNull(stream, "stream is null"));
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+	}
+
+	public void writeBoolean(final boolean v) throws IOException {
+		out.writeBoolean(v);
+	}
+
+	public void writeInt(final int v) throws IOException {
+		out.writeInt(v);
+	}
+
+	public void writeLong(final long v) throws IOException {
+		out.writeLong(v);
+	}
+
+	public void writeFloat(final float v) throws IOException {
+		out.writeFloat(v);
+	}
+
+	public void writeDouble(final double v) throws IOException {
+		out.writeDouble(v);
+	}
+
+	/**
+	 * @param v Unsigned value to write.
+	 * @throws IOException Thrown if writing to the stream fails.
+	 */
+	public void writeVarInt(final int v) throws IOException {
+		writeVarLong(v & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param v Unsigned value to write.
+	 * @throws IOException Thrown if writing to the stream fails.
+	 */
+	public void writeVarLong(final long v) throws IOException {
+		long remaining = v;
+		while ((remaining & ~0x7FL) != 0) {
+			out.writeByte((int) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		out.writeByte((int) remaining);
+	}
+
+	public void writeSignedVarInt(final int v) throws IOException {
+		writeVarInt((v << 1) ^ (v >> 31));
+	}
+
+	public void writeSignedVarLong(final long v) throws IOException {
+		writeVarLong((v << 1) ^ (v >> 63));
+	}
+
+	/**
+	 * Writes a length prefixed byte array.
+	 *
+	 * @param bytes Bytes to write.
+	 * @throws IOException Thrown if writing to the stream fails.
+	 */
+	public void writeBytes(final byte[] bytes) throws IOException {
+		writeVarInt(bytes.length);
+		out.write(bytes);
+	}
+
+	public void writeString(final String s) throws IOException {
+		final Integer index = strings.get(s);
+		if (index != null) {
+			writeVarLong(((long) index.intValue() << 1) | 1);
+		} else {
+			final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			writeVarLong((long) bytes.length << 1);
+			out.write(bytes);
+			if (bytes.length <= MAX_INTERNED_LENGTH) {
+				strings.put(s, Integer.valueOf(strings.size()));
+			}
+		}
+	}
+
+	public void writeVariant(final JVariant v) throws IOException {
+		v.writeBinary(this);
+	}
+
+	/**
+	 * Writes the number of entries followed by each key's toString() value and
+	 * its variant.
+	 *
+	 * @param map Map to write.
+	 * @throws IOException Thrown if writing to the stream fails.
+	 */
+	public void writeMap(final Map<?, JVariant> map) throws IOException {
+		writeVarInt(map.size());
+		for (final Entry<?, JVariant> entry : map.entrySet()) {
+			writeString(entry.getKey().toString());
+			writeVariant(entry.getValue());
+		}
+	}
+
+	public void flush() throws IOException {
+		out.flush();
+	}
+}
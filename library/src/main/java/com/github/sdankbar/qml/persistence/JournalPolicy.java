@@ -0,0 +1,71 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import java.util.Objects;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Settings for journaled persistence. When journaling, a save appends the rows
+ * and roles that changed since the last save to a journal instead of rewriting
+ * the whole model. The journal is compacted into a new snapshot after
+ * compactAfterAppends appends, or once it is larger than the snapshot so
+ * replaying it never costs more than reading the snapshot again.
+ */
+public final class JournalPolicy {
+
+	private final int compactAfterAppends;
+	private final FsyncPolicy fsyncPolicy;
+
+	/**
+	 * @param compactAfterAppends Maximum number of saves appended to the journal
+	 *                            before it is compacted.
+	 * @param fsyncPolicy         When writes are synced to disk.
+	 */
+	public JournalPolicy(final int compactAfterAppends, final FsyncPolicy fsyncPolicy) {
+		Preconditions.checkArgument(compactAfterAppends > 0, "compactAfterAppends must be positive");
+		this.compactAfterAppends = compactAfterAppends;
+		this.fsyncPolicy = Objects.requireNonNull(fsyncPolicy, "fsyncPolicy is null");
+	}
+
+	/**
+	 * @return Maximum number of saves appended to the journal before it is
+	 *         compacted.
+	 */
+	public int getCompactAfterAppends() {
+		return compactAfterAppends;
+	}
+
+	/**
+	 * @return When writes are synced to disk.
+	 */
+	public FsyncPolicy getFsyncPolicy() {
+		return fsyncPolicy;
+	}
+
+	@Override
+	public String toString() {
+		return "JournalPolicy [compactAfterAppends=" + compactAfterAppends + ", fsyncPolicy=" + fsyncPolicy + "]";
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import com.github.sdankbar.qml.JVariant;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * The persisted values of a model as root values and rows of roles, keyed by
+ * name. Journaled persistence compares the state of consecutive saves to find
+ * the rows and roles that changed.
+ */
+public final class JournalState {
+
+	private static ImmutableMap<String, JVariant> byName(final Map<?, JVariant> map) {
+		final ImmutableMap.Builder<String, JVariant> b = ImmutableMap.builder();
+		for (final Map.Entry<?, JVariant> entry : map.entrySet()) {
+			b.put(entry.getKey().toString(), entry.getValue());
+		}
+		return b.build();
+	}
+
+	private final ImmutableMap<String, JVariant> root;
+	private final ImmutableList<ImmutableMap<String, JVariant>> rows;
+
+	/**
+	 * @param root Root values of the model.
+	 * @param rows Rows of the model. Keys are converted to their names.
+	 */
+	public JournalState(final Map<String, JVariant> root, final List<? extends Map<?, JVariant>> rows) {
+		this.root = ImmutableMap.copyOf(Objects.requireNonNull(root, "root is null"));
+		final ImmutableList.Builder<ImmutableMap<String, JVariant>> b = ImmutableList.builder();
+		for (final Map<?, JVariant> row : Objects.requireNonNull(rows, "rows is null")) {
+			b.add(byName(row));
+		}
+		this.rows = b.build();
+	}
+
+	/**
+	 * @return Root values of the model.
+	 */
+	public ImmutableMap<String, JVariant> getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return Rows of the model.
+	 */
+	public ImmutableList<ImmutableMap<String, JVariant>> getRows() {
+		return rows;
+	}
+
+}
@@ -0,0 +1,393 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Journaled persistence of a single model. The model is stored as a snapshot
+ * file, in the configured format, plus an append-only journal of the changes
+ * made since the snapshot was written.
+ *
+ * The journal starts with the magic number "JQMJ", a version byte and the
+ * CRC32 and length of the snapshot it applies to, so a journal left over from
+ * an older snapshot is never replayed. It is followed by batches, one per
+ * save, each written as its length, the CRC32 of its payload and the payload.
+ * A batch that was only partially written is detected by its CRC and dropped
+ * along with anything after it.
+ *
+ * A payload is a sequence of records in the binary persistence format:
+ * ROOT_PUT (key, value), ROOT_REMOVE (key), RESIZE (row count) and ROW
+ * (index, changed roles, count of removed roles, removed role names).
+ *
+ * Saving, compaction and reading are only done on the I/O thread.
+ */
+final class ModelJournal {
+
+	/**
+	 * Batches read from a journal that matches its snapshot.
+	 */
+	static final class Contents {
+		private final ImmutableList<ByteBuffer> batches;
+		private final long snapshotLength;
+		private final long validLength;
+		// Journal's write count when it was read
+		private final long writes;
+
+		private Contents(final ImmutableList<ByteBuffer> batches, final long snapshotLength,
+				final long validLength, final long writes) {
+			this.batches = batches;
+			this.snapshotLength = snapshotLength;
+			this.validLength = validLength;
+			this.writes = writes;
+		}
+
+		ImmutableList<ByteBuffer> getBatches() {
+			return batches;
+		}
+	}
+
+	static final int MAGIC = 0x4A514D4A;
+	static final int VERSION = 1;
+	private static final int HEADER_LENGTH = 17;
+	private static final int BATCH_HEADER_LENGTH = 8;
+
+	private static final int ROOT_PUT = 1;
+	private static final int ROOT_REMOVE = 2;
+	private static final int RESIZE = 3;
+	private static final int ROW = 4;
+
+	private static boolean sameValue(final JVariant a, final JVariant b) {
+		// Byte arrays and images are only equal by identity, so fall back to
+		// comparing their contents.
+		return a.equals(b) || a.compareTo(b) == 0;
+	}
+
+	/**
+	 * Writes the records that change the previous state into the current state.
+	 *
+	 * @return Number of records written.
+	 */
+	static int writeChanges(final JournalState previous, final JournalState current, final BinaryModelWriter writer)
+			throws IOException {
+		int records = 0;
+		for (final Map.Entry<String, JVariant> entry : current.getRoot().entrySet()) {
+			final JVariant old = previous.getRoot().get(entry.getKey());
+			if (old == null || !sameValue(old, entry.getValue())) {
+				writer.writeVarInt(ROOT_PUT);
+				writer.writeString(entry.getKey());
+				writer.writeVariant(entry.getValue());
+				++records;
+			}
+		}
+		for (final String key : previous.getRoot().keySet()) {
+			if (!current.getRoot().containsKey(key)) {
+				writer.writeVarInt(ROOT_REMOVE);
+				writer.writeString(key);
+				++records;
+			}
+		}
+
+		final ImmutableList<ImmutableMap<String, JVariant>> oldRows = previous.getRows();
+		final ImmutableList<ImmutableMap<String, JVariant>> newRows = current.getRows();
+		if (oldRows.size() != newRows.size()) {
+			writer.writeVarInt(RESIZE);
+			writer.writeVarInt(newRows.size());
+			++records;
+		}
+		for (int i = 0; i < newRows.size(); ++i) {
+			final ImmutableMap<String, JVariant> oldRow = i < oldRows.size() ? oldRows.get(i) : ImmutableMap.of();
+			final ImmutableMap<String, JVariant> newRow = newRows.get(i);
+
+			final Map<String, JVariant> changed = new HashMap<>();
+			for (final Map.Entry<String, JVariant> entry : newRow.entrySet()) {
+				final JVariant old = oldRow.get(entry.getKey());
+				if (old == null || !sameValue(old, entry.getValue())) {
+					changed.put(entry.getKey(), entry.getValue());
+				}
+			}
+			final List<String> removed = new ArrayList<>();
+			for (final String key : oldRow.keySet()) {
+				if (!newRow.containsKey(key)) {
+					removed.add(key);
+				}
+			}
+
+			if (!changed.isEmpty() || !removed.isEmpty()) {
+				writer.writeVarInt(ROW);
+				writer.writeVarInt(i);
+				writer.writeMap(changed);
+				writer.writeVarInt(removed.size());
+				for (final String key : removed) {
+					writer.writeString(key);
+				}
+				++records;
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Applies the records in a batch to a state.
+	 *
+	 * @return The new state.
+	 * @throws IOException Thrown if the batch is invalid.
+	 */
+	static JournalState apply(final JournalState state, final ByteBuffer batch) throws IOException {
+		final Map<String, JVariant> root = new HashMap<>(state.getRoot());
+		final List<Map<String, JVariant>> rows = new ArrayList<>(state.getRows());
+
+		final BinaryModelReader reader = new BinaryModelReader(batch.duplicate());
+		while (reader.remaining() > 0) {
+			final int type = reader.readVarInt();
+			switch (type) {
+			case ROOT_PUT: {
+				final String key = reader.readString();
+				reader.readVariant().ifPresent(v -> root.put(key, v));
+				break;
+			}
+			case ROOT_REMOVE: {
+				root.remove(reader.readString());
+				break;
+			}
+			case RESIZE: {
+				final int size = reader.readVarInt();
+				while (rows.size() > size) {
+					rows.remove(rows.size() - 1);
+				}
+				while (rows.size() < size) {
+					rows.add(ImmutableMap.of());
+				}
+				break;
+			}
+			case ROW: {
+				final int index = reader.readVarInt();
+				if (index >= rows.size()) {
+					throw new IOException("Invalid journal row " + index);
+				}
+				final Map<String, JVariant> row = new HashMap<>(rows.get(index));
+				row.putAll(reader.readStringMap());
+				final int removed = reader.readCount();
+				for (int i = 0; i < removed; ++i) {
+					row.remove(reader.readString());
+				}
+				rows.set(index, row);
+				break;
+			}
+			default:
+				throw new IOException("Invalid journal record " + type);
+			}
+		}
+		return new JournalState(root, rows);
+	}
+
+	private final File snapshotFile;
+	private final File journalFile;
+	private final PersistenceFormat format;
+	private final JournalPolicy policy;
+
+	// State described by the snapshot and journal on disk. Null if unknown, in
+	// which case the next save compacts.
+	private JournalState persisted = null;
+	private long snapshotLength = 0;
+	private long journalLength = 0;
+	private int appends = 0;
+	// Number of times the snapshot or journal has been written. Lets restored()
+	// tell if a save happened after the journal it was given was read.
+	private long writes = 0;
+
+	ModelJournal(final File persistenceDirectory, final String modelName, final PersistenceFormat format,
+			final JournalPolicy policy) {
+		Objects.requireNonNull(persistenceDirectory, "persistenceDirectory is null");
+		Objects.requireNonNull(modelName, "modelName is null");
+		this.format = Objects.requireNonNull(format, "format is null");
+		this.policy = Objects.requireNonNull(policy, "policy is null");
+		snapshotFile = new File(persistenceDirectory, modelName + format.getExtension());
+		journalFile = new File(persistenceDirectory, modelName + ".journal");
+	}
+
+	/**
+	 * Saves the state, appending to the journal when possible and compacting
+	 * otherwise. Runs on the I/O thread.
+	 *
+	 * @param snapshot Snapshot of the model, written if compacting.
+	 * @param state    State of the model in the snapshot.
+	 * @throws IOException Thrown if writing fails.
+	 */
+	void save(final ModelSnapshot snapshot, final JournalState state) throws IOException {
+		if (persisted == null) {
+			compact(snapshot, state);
+			return;
+		}
+
+		final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+		final BinaryModelWriter writer = new BinaryModelWriter(payload);
+		final int records = writeChanges(persisted, state, writer);
+		writer.flush();
+		if (records == 0) {
+			return;
+		}
+
+		final long batchLength = BATCH_HEADER_LENGTH + payload.size();
+		if (appends >= policy.getCompactAfterAppends() || journalLength + batchLength > snapshotLength) {
+			compact(snapshot, state);
+			return;
+		}
+
+		final CRC32 crc = new CRC32();
+		crc.update(payload.toByteArray());
+		persisted = null;
+		try (FileOutputStream file = new FileOutputStream(journalFile, true)) {
+			final DataOutputStream out = new DataOutputStream(file);
+			out.writeInt(payload.size());
+			out.writeInt((int) crc.getValue());
+			payload.writeTo(out);
+			out.flush();
+			if (policy.getFsyncPolicy() == FsyncPolicy.EVERY_WRITE) {
+				file.getFD().sync();
+			}
+		}
+		persisted = state;
+		journalLength += batchLength;
+		++appends;
+		++writes;
+	}
+
+	/**
+	 * Writes a new snapshot and then starts a new journal for it. If interrupted
+	 * in between, the old journal no longer matches the snapshot and is ignored.
+	 */
+	private void compact(final ModelSnapshot snapshot, final JournalState state) throws IOException {
+		persisted = null;
+		++writes;
+		final boolean sync = policy.getFsyncPolicy() != FsyncPolicy.NEVER;
+		final CRC32 crc = new CRC32();
+		final long length = AtomicFile.write(snapshotFile, sync, crc, stream -> format.write(snapshot, stream));
+		AtomicFile.write(journalFile, sync, null, stream -> {
+			final DataOutputStream out = new DataOutputStream(stream);
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt((int) crc.getValue());
+			out.writeLong(length);
+			out.flush();
+		});
+		persisted = state;
+		snapshotLength = length;
+		journalLength = HEADER_LENGTH;
+		appends = 0;
+	}
+
+	/**
+	 * Reads the journal if it applies to the snapshot. Runs on the I/O thread.
+	 *
+	 * @param restoredFrom Snapshot file the model was restored from.
+	 * @param snapshot     Contents of the snapshot file.
+	 * @return The journal's batches, or null if there is no journal for the
+	 *         snapshot.
+	 * @throws IOException Thrown if reading fails.
+	 */
+	Contents read(final File restoredFrom, final byte[] snapshot) throws IOException {
+		if (!restoredFrom.equals(snapshotFile) || !journalFile.exists()) {
+			return null;
+		}
+
+		final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(journalFile.toPath()));
+		if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC || buffer.get() != VERSION) {
+			return null;
+		}
+		final long snapshotCRC = buffer.getInt() & 0xFFFFFFFFL;
+		final long length = buffer.getLong();
+		final CRC32 checksum = new CRC32();
+		checksum.update(snapshot);
+		if (length != snapshot.length || snapshotCRC != checksum.getValue()) {
+			return null;
+		}
+
+		final ImmutableList.Builder<ByteBuffer> batches = ImmutableList.builder();
+		int validLength = buffer.position();
+		while (buffer.remaining() >= BATCH_HEADER_LENGTH) {
+			final int size = buffer.getInt();
+			final long batchCRC = buffer.getInt() & 0xFFFFFFFFL;
+			if (size < 0 || size > buffer.remaining()) {
+				break;
+			}
+			final ByteBuffer batch = buffer.slice();
+			batch.limit(size);
+			final CRC32 crc = new CRC32();
+			crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), size);
+			if (crc.getValue() != batchCRC) {
+				break;
+			}
+			batches.add(batch);
+			buffer.position(buffer.position() + size);
+			validLength = buffer.position();
+		}
+		return new Contents(batches.build(), length, validLength, writes);
+	}
+
+	/**
+	 * Sets the state on disk after a restore so the next save can append to the
+	 * journal. Drops a partially written batch from the end of the journal. Does
+	 * neither if the model was saved after the journal was read, so the next save
+	 * compacts instead. Runs on the I/O thread.
+	 *
+	 * @param state    The restored state, or null if the journal couldn't be
+	 *                 used.
+	 * @param contents The journal that was replayed.
+	 * @throws IOException Thrown if the journal can't be truncated.
+	 */
+	void restored(final JournalState state, final Contents contents) throws IOException {
+		persisted = null;
+		if (state == null || contents == null || contents.writes != writes) {
+			return;
+		}
+
+		if (journalFile.length() > contents.validLength) {
+			try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+				file.setLength(contents.validLength);
+			}
+		}
+		persisted = state;
+		snapshotLength = contents.snapshotLength;
+		journalLength = contents.validLength;
+		appends = contents.batches.size();
+	}
+}
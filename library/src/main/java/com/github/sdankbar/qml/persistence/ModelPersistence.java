@@ -22,15 +22,29 @@
  */
 package com.github.sdankbar.qml.persistence;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -40,35 +54,77 @@ import org.slf4j.LoggerFactory;
 
 import com.github.sdankbar.qml.JVariant;
 import com.github.sdankbar.qml.QtThread;
+import com.github.sdankbar.qml.models.flat_tree.JQMLFlatTreeModel;
 import com.github.sdankbar.qml.models.interfaces.ChangeListener;
+import com.github.sdankbar.qml.models.interfaces.DecodedModel;
 import com.github.sdankbar.qml.models.list.JQMLListModel;
 import com.github.sdankbar.qml.models.singleton.JQMLSingletonModel;
 import com.github.sdankbar.qml.models.table.JQMLTableModel;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 public class ModelPersistence {
 
 	private static final Logger log = LoggerFactory.getLogger(ModelPersistence.class);
 
+	@FunctionalInterface
+	private interface Decoder<T> {
+		DecodedModel decode(T source) throws IOException;
+	}
+
 	private final ScheduledExecutorService qtExecutor;
 
 	private final Duration writeDelay;
 	private final File persistenceDirectory;
+	private final PersistenceFormat format;
+	// Null if journaling is disabled
+	private final JournalPolicy journalPolicy;
 
 	private final Map<String, QMLThreadPersistanceTask> taskMap = new HashMap<>();
 
+	// Encodes and writes snapshots off of the Qt thread. Single threaded so writes
+	// for a model complete in order.
+	private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor(
+			new ThreadFactoryBuilder().setNameFormat("ModelPersistence-IO").setDaemon(true).build());
+	private final Map<String, Future<?>> pendingWrites = new HashMap<>();
+	// Created on the Qt thread, but only used on the I/O thread.
+	private final Map<String, ModelJournal> journals = new HashMap<>();
+
 	private final Map<JQMLSingletonModel<?>, ChangeListener> autoPersistedSingletonModels = new IdentityHashMap<>();
 	private final Map<JQMLListModel<?>, Runnable> autoPersistedListModels = new IdentityHashMap<>();
 	private final Map<JQMLTableModel<?>, Runnable> autoPersistedTableModels = new IdentityHashMap<>();
+	private final Map<JQMLFlatTreeModel<?>, Runnable> autoPersistedFlatTreeModels = new IdentityHashMap<>();
 
 	public ModelPersistence(final ScheduledExecutorService qtExecutor, final Duration writeDelay,
 			final File persistenceDirectory) {
+		this(qtExecutor, writeDelay, persistenceDirectory, PersistenceFormat.JSON);
+	}
+
+	public ModelPersistence(final ScheduledExecutorService qtExecutor, final Duration writeDelay,
+			final File persistenceDirectory, final PersistenceFormat format) {
+		this(qtExecutor, writeDelay, persistenceDirectory, format, null);
+	}
+
+	/**
+	 * @param qtExecutor           Executor that runs on the Qt thread.
+	 * @param writeDelay           Delay between a model changing and it being
+	 *                             written.
+	 * @param persistenceDirectory Directory to write models to.
+	 * @param format               Format of snapshot files.
+	 * @param journalPolicy        How to journal list and singleton models, or null
+	 *                             to always write them whole.
+	 */
+	public ModelPersistence(final ScheduledExecutorService qtExecutor, final Duration writeDelay,
+			final File persistenceDirectory, final PersistenceFormat format, final JournalPolicy journalPolicy) {
 		this.qtExecutor = Objects.requireNonNull(qtExecutor, "qtExecutor is null");
 		this.writeDelay = Objects.requireNonNull(writeDelay, "writeDelay is null");
 		Preconditions.checkArgument(!writeDelay.isNegative(), "writeDelay is negative");
 		this.persistenceDirectory = Objects.requireNonNull(persistenceDirectory, "persistenceDirectory is null");
+		this.format = Objects.requireNonNull(format, "format is null");
+		this.journalPolicy = journalPolicy;
 	}
 
 	@QtThread
@@ -82,12 +138,18 @@ public class ModelPersistence {
 		for (final Entry<JQMLTableModel<?>, Runnable> m : autoPersistedTableModels.entrySet()) {
 			m.getKey().unregisterModelChangedListener(m.getValue());
 		}
+		for (final Entry<JQMLFlatTreeModel<?>, Runnable> m : autoPersistedFlatTreeModels.entrySet()) {
+			m.getKey().unregisterModelChangedListener(m.getValue());
+		}
 
 		flush();
 
 		autoPersistedListModels.clear();
 		autoPersistedSingletonModels.clear();
 		autoPersistedTableModels.clear();
+		autoPersistedFlatTreeModels.clear();
+
+		ioExecutor.shutdown();
 	}
 
 	@QtThread
@@ -96,6 +158,32 @@ public class ModelPersistence {
 			task.finishImmediately();
 		}
 		taskMap.clear();
+
+		for (final Future<?> f : pendingWrites.values()) {
+			awaitWrite(f);
+		}
+		pendingWrites.clear();
+	}
+
+	private static void awaitWrite(final Future<?> f) {
+		try {
+			f.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException e) {
+			log.warn("Failed to persist model", e);
+		}
+	}
+
+	/**
+	 * Waits for any write of the model that is still in progress so the file is
+	 * complete before it is read.
+	 */
+	private void awaitWrite(final String modelName) {
+		final Future<?> f = pendingWrites.remove(modelName);
+		if (f != null) {
+			awaitWrite(f);
+		}
 	}
 
 	@QtThread
@@ -119,63 +207,343 @@ public class ModelPersistence {
 		model.registerModelChangedListener(l);
 	}
 
+	@QtThread
+	public <K> void autoPersistModel(final JQMLFlatTreeModel<K> model) {
+		final Runnable l = () -> scheduleSave(model);
+		autoPersistedFlatTreeModels.put(model, l);
+		model.registerModelChangedListener(l);
+	}
+
 	@QtThread
 	public void persistModel(final JQMLSingletonModel<?> model) {
-		final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap);
+		final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap,
+				ioExecutor, pendingWrites, format, journal(model.getModelName()));
 		task.run();
+		awaitWrite(model.getModelName());
 	}
 
 	@QtThread
 	public void persistModel(final JQMLListModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
 		final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap,
-				rootKeysToPersist);
+				ioExecutor, pendingWrites, format, journal(model.getModelName()), rootKeysToPersist);
 		task.run();
+		awaitWrite(model.getModelName());
 	}
 
 	@QtThread
 	public void persistModel(final JQMLTableModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
 		final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap,
-				rootKeysToPersist);
+				ioExecutor, pendingWrites, format, journal(model.getModelName()), rootKeysToPersist);
+		task.run();
+		awaitWrite(model.getModelName());
+	}
+
+	@QtThread
+	public void persistModel(final JQMLFlatTreeModel<?> model) {
+		final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap,
+				ioExecutor, pendingWrites, format, journal(model.getModelName()));
 		task.run();
+		awaitWrite(model.getModelName());
 	}
 
 	@QtThread
 	public boolean restoreModel(final JQMLSingletonModel<?> model) {
-		try (FileInputStream s = new FileInputStream(new File(persistenceDirectory, model.getModelName() + ".json"))) {
-			model.deserialize(s);
-			return true;
-		} catch (final IOException e) {
-			log.info("No data restored to " + model.getModelName(), e);
-			return false;
-		}
+		return restore(restorer(model));
 	}
 
 	@QtThread
 	public boolean restoreModel(final JQMLListModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
-		try (FileInputStream s = new FileInputStream(new File(persistenceDirectory, model.getModelName() + ".json"))) {
-			model.deserialize(s, rootKeysToPersist);
-			return true;
-		} catch (final IOException e) {
-			log.info("No data restored to " + model.getModelName(), e);
-			return false;
-		}
+		return restore(restorer(model, rootKeysToPersist));
 	}
 
 	@QtThread
 	public boolean restoreModel(final JQMLTableModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
-		try (FileInputStream s = new FileInputStream(new File(persistenceDirectory, model.getModelName() + ".json"))) {
-			model.deserialize(s, rootKeysToPersist);
-			return true;
-		} catch (final IOException e) {
-			log.info("No data restored to " + model.getModelName(), e);
+		return restore(restorer(model, rootKeysToPersist));
+	}
+
+	@QtThread
+	public boolean restoreModel(final JQMLFlatTreeModel<?> model) {
+		return restore(restorer(model));
+	}
+
+	/**
+	 * Restores several models at once. Their files are read and decoded in
+	 * parallel on a worker pool, and the decoded data is assigned on the Qt
+	 * thread in the order the models were added to the batch, each as soon as it
+	 * and every model before it are ready. Returns without waiting, so the Qt
+	 * thread keeps processing events while later models are decoded.
+	 *
+	 * The returned future completes on the Qt thread, so it must not be waited on
+	 * from the Qt thread.
+	 *
+	 * @param batch Models to restore, in priority order.
+	 * @return Future holding the names of the models that were restored.
+	 */
+	@QtThread
+	public CompletableFuture<ImmutableSet<String>> restoreAll(final RestoreBatch batch) {
+		final ImmutableList<ModelRestore> restores = batch.create(this);
+		if (restores.isEmpty()) {
+			return CompletableFuture.completedFuture(ImmutableSet.of());
+		}
+
+		final ExecutorService decodeExecutor = Executors.newFixedThreadPool(
+				Math.min(restores.size(), Runtime.getRuntime().availableProcessors()),
+				new ThreadFactoryBuilder().setNameFormat("ModelPersistence-Restore-%d").setDaemon(true).build());
+		// Only modified on the Qt thread
+		final Set<String> restored = new LinkedHashSet<>();
+
+		CompletableFuture<Void> previous = CompletableFuture.completedFuture(null);
+		for (final ModelRestore r : restores) {
+			awaitWrite(r.modelName);
+			final File file = snapshotFile(r.modelName);
+			final ModelJournal journal = r.journalDecoder != null ? journal(r.modelName) : null;
+			final CompletableFuture<DecodedModel> decoded = read(file, journal, decodeExecutor)
+					.thenApplyAsync(p -> {
+						try {
+							return decode(r, p, journal);
+						} catch (final IOException e) {
+							throw new CompletionException(e);
+						}
+					}, decodeExecutor).handle((d, e) -> {
+						if (e == null) {
+							return d;
+						}
+						final Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+						if (cause instanceof IOException) {
+							log.info("No data restored to " + r.modelName, cause);
+						} else {
+							// Malformed files must not stop the rest of the batch from
+							// being restored.
+							log.warn("Failed to decode " + r.modelName, cause);
+						}
+						return null;
+					});
+
+			previous = previous.thenCombineAsync(decoded, (v, d) -> {
+				if (d != null) {
+					try {
+						d.assign();
+						restored.add(r.modelName);
+					} catch (final RuntimeException e) {
+						log.warn("Failed to restore " + r.modelName, e);
+					}
+				}
+				return null;
+			}, qtExecutor);
+		}
+
+		return previous.handle((v, e) -> {
+			decodeExecutor.shutdown();
+			if (e != null) {
+				log.warn("Restoring models failed", e);
+			}
+			return ImmutableSet.copyOf(restored);
+		});
+	}
+
+	/**
+	 * How to decode and assign a model's persisted data.
+	 */
+	static final class ModelRestore {
+		private final String modelName;
+		private final Decoder<InputStream> jsonDecoder;
+		private final Decoder<BinaryModelReader> binaryDecoder;
+		// Decodes the state left by replaying the journal. Null if the model is not
+		// journaled.
+		private final Decoder<JournalState> journalDecoder;
+
+		private ModelRestore(final String modelName, final Decoder<InputStream> jsonDecoder,
+				final Decoder<BinaryModelReader> binaryDecoder, final Decoder<JournalState> journalDecoder) {
+			this.modelName = modelName;
+			this.jsonDecoder = jsonDecoder;
+			this.binaryDecoder = binaryDecoder;
+			this.journalDecoder = journalDecoder;
+		}
+	}
+
+	ModelRestore restorer(final JQMLSingletonModel<?> model) {
+		return new ModelRestore(model.getModelName(), model::decode, model::decode, state -> {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final BinaryModelWriter writer = new BinaryModelWriter(bytes);
+			writer.writeMap(state.getRows().get(0));
+			writer.flush();
+			return model.decode(new BinaryModelReader(ByteBuffer.wrap(bytes.toByteArray())));
+		});
+	}
+
+	ModelRestore restorer(final JQMLListModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
+		return new ModelRestore(model.getModelName(), s -> model.decode(s, rootKeysToPersist),
+				r -> model.decode(r, rootKeysToPersist), state -> {
+					// Same layout as the list's binary snapshot
+					final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					final BinaryModelWriter writer = new BinaryModelWriter(bytes);
+					writer.writeMap(state.getRoot());
+					writer.writeVarInt(state.getRows().size());
+					for (final Map<String, JVariant> row : state.getRows()) {
+						writer.writeMap(row);
+					}
+					writer.writeBoolean(false);
+					writer.flush();
+					return model.decode(new BinaryModelReader(ByteBuffer.wrap(bytes.toByteArray())),
+							rootKeysToPersist);
+				});
+	}
+
+	ModelRestore restorer(final JQMLTableModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
+		return new ModelRestore(model.getModelName(), s -> model.decode(s, rootKeysToPersist),
+				r -> model.decode(r, rootKeysToPersist), null);
+	}
+
+	ModelRestore restorer(final JQMLFlatTreeModel<?> model) {
+		return new ModelRestore(model.getModelName(), model::decode, model::decode, null);
+	}
+
+	private boolean restore(final ModelRestore r) {
+		awaitWrite(r.modelName);
+		final ModelJournal journal = r.journalDecoder != null ? journal(r.modelName) : null;
+		final DecodedModel decoded;
+		try {
+			decoded = decode(r, read(snapshotFile(r.modelName), journal, MoreExecutors.directExecutor()).get(),
+					journal);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (final ExecutionException | IOException e) {
+			log.info("No data restored to " + r.modelName, e instanceof ExecutionException ? e.getCause() : e);
 			return false;
 		}
+		decoded.assign();
+		return true;
+	}
+
+	/**
+	 * Contents of a snapshot file and of the journal that applies to it.
+	 */
+	private static final class Persisted {
+		private final File file;
+		private final byte[] snapshot;
+		// Null if the model is not journaled or the journal could not be read
+		private final ModelJournal.Contents journal;
+
+		private Persisted(final File file, final byte[] snapshot, final ModelJournal.Contents journal) {
+			this.file = file;
+			this.snapshot = snapshot;
+			this.journal = journal;
+		}
+	}
+
+	/**
+	 * Reads the snapshot file, and the journal if the model has one. A journaled
+	 * model is read on the I/O thread, so the read can't interleave with a save of
+	 * the model, and everything else on the given executor.
+	 *
+	 * @param journal The model's journal, or null if it is not journaled.
+	 */
+	private CompletableFuture<Persisted> read(final File file, final ModelJournal journal, final Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			final byte[] snapshot;
+			try {
+				snapshot = Files.readAllBytes(file.toPath());
+			} catch (final IOException e) {
+				throw new CompletionException(e);
+			}
+			ModelJournal.Contents contents = null;
+			if (journal != null) {
+				try {
+					contents = journal.read(file, snapshot);
+				} catch (final IOException e) {
+					log.warn("Failed to read journal of " + file, e);
+				}
+			}
+			return new Persisted(file, snapshot, contents);
+		}, journal != null ? ioExecutor : executor);
+	}
+
+	/**
+	 * Decodes the binary snapshot when using the binary format and it exists,
+	 * otherwise the JSON snapshot. May be called from any thread.
+	 */
+	private static DecodedModel decode(final ModelRestore r, final Persisted p) throws IOException {
+		if (p.file.getName().endsWith(PersistenceFormat.BINARY.getExtension())) {
+			return r.binaryDecoder.decode(new BinaryModelReader(ByteBuffer.wrap(p.snapshot)));
+		} else {
+			return r.jsonDecoder.decode(new ByteArrayInputStream(p.snapshot));
+		}
+	}
+
+	private File snapshotFile(final String modelName) {
+		final File binaryFile = new File(persistenceDirectory, modelName + PersistenceFormat.BINARY.getExtension());
+		if (format == PersistenceFormat.BINARY && binaryFile.exists()) {
+			return binaryFile;
+		} else {
+			return new File(persistenceDirectory, modelName + PersistenceFormat.JSON.getExtension());
+		}
+	}
+
+	/**
+	 * @return The model's journal, or null if journaling is disabled.
+	 */
+	private ModelJournal journal(final String modelName) {
+		if (journalPolicy == null) {
+			return null;
+		}
+		return journals.computeIfAbsent(modelName,
+				n -> new ModelJournal(persistenceDirectory, n, format, journalPolicy));
+	}
+
+	/**
+	 * Decodes the snapshot and replays the model's journal on top of it, so the
+	 * model is assigned once with the journaled changes already applied. When
+	 * assigned, tells the journal what is on disk so the next save can append to
+	 * it. May be called from any thread.
+	 *
+	 * @param journal The model's journal, or null if it is not journaled.
+	 */
+	private DecodedModel decode(final ModelRestore r, final Persisted p, final ModelJournal journal)
+			throws IOException {
+		final DecodedModel snapshot = decode(r, p);
+		if (journal == null) {
+			return snapshot;
+		}
+
+		DecodedModel decoded = snapshot;
+		JournalState state = null;
+		final ModelJournal.Contents contents = p.journal;
+		try {
+			if (contents != null) {
+				state = snapshot.journalState().orElse(null);
+				if (state != null && !contents.getBatches().isEmpty()) {
+					for (final ByteBuffer batch : contents.getBatches()) {
+						state = ModelJournal.apply(state, batch);
+					}
+					decoded = r.journalDecoder.decode(state);
+				}
+			}
+		} catch (final IOException e) {
+			log.warn("Failed to replay journal of " + r.modelName, e);
+			decoded = snapshot;
+			state = null;
+		}
+
+		final DecodedModel replayed = decoded;
+		final JournalState restoredState = state;
+		final ModelJournal.Contents restoredContents = contents;
+		return () -> {
+			replayed.assign();
+			final FutureTask<Void> task = new FutureTask<>(() -> {
+				journal.restored(restoredState, restoredContents);
+				return null;
+			});
+			pendingWrites.put(r.modelName, task);
+			ioExecutor.execute(task);
+		};
 	}
 
 	private void scheduleSave(final JQMLSingletonModel<?> model) {
 		final String name = model.getModelName();
 		if (!taskMap.containsKey(name)) {
-			final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap);
+			final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap,
+				ioExecutor, pendingWrites, format, journal(model.getModelName()));
 
 			if (writeDelay.isZero()) {
 				task.run();
@@ -190,7 +558,7 @@ public class ModelPersistence {
 		final String name = model.getModelName();
 		if (!taskMap.containsKey(name)) {
 			final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap,
-					rootKeysToPersist);
+					ioExecutor, pendingWrites, format, journal(model.getModelName()), rootKeysToPersist);
 
 			if (writeDelay.isZero()) {
 				task.run();
@@ -205,7 +573,22 @@ public class ModelPersistence {
 		final String name = model.getModelName();
 		if (!taskMap.containsKey(name)) {
 			final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap,
-					rootKeysToPersist);
+					ioExecutor, pendingWrites, format, journal(model.getModelName()), rootKeysToPersist);
+
+			if (writeDelay.isZero()) {
+				task.run();
+			} else {
+				final ScheduledFuture<?> f = qtExecutor.schedule(task, writeDelay.toMillis(), TimeUnit.MILLISECONDS);
+				task.setFuture(f);
+			}
+		}
+	}
+
+	private void scheduleSave(final JQMLFlatTreeModel<?> model) {
+		final String name = model.getModelName();
+		if (!taskMap.containsKey(name)) {
+			final QMLThreadPersistanceTask task = new QMLThreadPersistanceTask(persistenceDirectory, model, taskMap,
+				ioExecutor, pendingWrites, format, journal(model.getModelName()));
 
 			if (writeDelay.isZero()) {
 				task.run();
@@ -0,0 +1,73 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+
+/**
+ * File formats that ModelPersistence can write.
+ */
+public enum PersistenceFormat {
+	/**
+	 * Human readable JSON, see the models' serialize methods.
+	 */
+	JSON(".json"),
+	/**
+	 * Compact binary format, see BinaryModelWriter. Models that only have a JSON
+	 * file from an earlier save are still restored from it.
+	 */
+	BINARY(".bin");
+
+	private final String extension;
+
+	private PersistenceFormat(final String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * @return Extension of files in this format, including the leading '.'.
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * Writes the snapshot in this format. The stream is flushed but not closed.
+	 *
+	 * @param snapshot Snapshot to write.
+	 * @param stream   Stream to write to. Should be buffered.
+	 * @throws IOException Thrown if writing fails.
+	 */
+	public void write(final ModelSnapshot snapshot, final OutputStream stream) throws IOException {
+		if (this == BINARY) {
+			final BinaryModelWriter writer = new BinaryModelWriter(stream);
+			snapshot.write(writer);
+			writer.flush();
+		} else {
+			snapshot.write(stream);
+		}
+	}
+}
@@ -22,22 +22,30 @@
  */
 package com.github.sdankbar.qml.persistence;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ScheduledFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.sdankbar.qml.models.flat_tree.JQMLFlatTreeModel;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
 import com.github.sdankbar.qml.models.list.JQMLListModel;
 import com.github.sdankbar.qml.models.singleton.JQMLSingletonModel;
 import com.github.sdankbar.qml.models.table.JQMLTableModel;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.io.Files;
 
+/**
+ * Persists a model. Runs on the Qt thread but only takes a snapshot of the
+ * model there. Encoding and writing the file happen on the I/O executor.
+ */
 public class QMLThreadPersistanceTask implements Runnable {
 
 	private static final Logger log = LoggerFactory.getLogger(QMLThreadPersistanceTask.class);
@@ -46,9 +54,16 @@ public class QMLThreadPersistanceTask implements Runnable {
 
 	private final Map<String, QMLThreadPersistanceTask> scheduled;
 
+	private final Executor ioExecutor;
+	private final Map<String, Future<?>> pendingWrites;
+	private final PersistenceFormat format;
+	// Null if journaling is disabled
+	private final ModelJournal journal;
+
 	private final JQMLSingletonModel<?> singletonModel;
 	private final JQMLListModel<?> listModel;
 	private final JQMLTableModel<?> tableModel;
+	private final JQMLFlatTreeModel<?> flatTreeModel;
 
 	private final ImmutableSet<String> rootKeysToPersist;
 
@@ -57,41 +72,83 @@ public class QMLThreadPersistanceTask implements Runnable {
 	private boolean isRunning = false;
 
 	public QMLThreadPersistanceTask(final File persistenceDirectory, final JQMLSingletonModel<?> singletonModel,
-			final Map<String, QMLThreadPersistanceTask> scheduled) {
+			final Map<String, QMLThreadPersistanceTask> scheduled, final Executor ioExecutor,
+			final Map<String, Future<?>> pendingWrites, final PersistenceFormat format,
+			final ModelJournal journal) {
 		this.persistenceDirectory = Objects.requireNonNull(persistenceDirectory, "persistenceDirectory is null");
 		this.scheduled = Objects.requireNonNull(scheduled, "scheduled is null");
+		this.ioExecutor = Objects.requireNonNull(ioExecutor, "ioExecutor is null");
+		this.pendingWrites = Objects.requireNonNull(pendingWrites, "pendingWrites is null");
+		this.format = Objects.requireNonNull(format, "format is null");
+		this.journal = journal;
 		this.singletonModel = Objects.requireNonNull(singletonModel, "singletonModel is null");
 		rootKeysToPersist = ImmutableSet.of();
 		listModel = null;
 		tableModel = null;
+		flatTreeModel = null;
 
 		scheduled.put(singletonModel.getModelName(), this);
 	}
 
 	public QMLThreadPersistanceTask(final File persistenceDirectory, final JQMLListModel<?> listModel,
-			final Map<String, QMLThreadPersistanceTask> scheduled, final ImmutableSet<String> rootKeysToPersist) {
+			final Map<String, QMLThreadPersistanceTask> scheduled, final Executor ioExecutor,
+			final Map<String, Future<?>> pendingWrites, final PersistenceFormat format,
+			final ModelJournal journal,
+			final ImmutableSet<String> rootKeysToPersist) {
 		this.persistenceDirectory = Objects.requireNonNull(persistenceDirectory, "persistenceDirectory is null");
 		this.scheduled = Objects.requireNonNull(scheduled, "scheduled is null");
+		this.ioExecutor = Objects.requireNonNull(ioExecutor, "ioExecutor is null");
+		this.pendingWrites = Objects.requireNonNull(pendingWrites, "pendingWrites is null");
+		this.format = Objects.requireNonNull(format, "format is null");
+		this.journal = journal;
 		singletonModel = null;
 		this.listModel = Objects.requireNonNull(listModel, "listModel is null");
 		tableModel = null;
+		flatTreeModel = null;
 		this.rootKeysToPersist = Objects.requireNonNull(rootKeysToPersist, "rootKeysToPersist is null");
 
 		scheduled.put(listModel.getModelName(), this);
 	}
 
 	public QMLThreadPersistanceTask(final File persistenceDirectory, final JQMLTableModel<?> tableModel,
-			final Map<String, QMLThreadPersistanceTask> scheduled, final ImmutableSet<String> rootKeysToPersist) {
+			final Map<String, QMLThreadPersistanceTask> scheduled, final Executor ioExecutor,
+			final Map<String, Future<?>> pendingWrites, final PersistenceFormat format,
+			final ModelJournal journal,
+			final ImmutableSet<String> rootKeysToPersist) {
 		this.persistenceDirectory = Objects.requireNonNull(persistenceDirectory, "persistenceDirectory is null");
 		this.scheduled = Objects.requireNonNull(scheduled, "scheduled is null");
+		this.ioExecutor = Objects.requireNonNull(ioExecutor, "ioExecutor is null");
+		this.pendingWrites = Objects.requireNonNull(pendingWrites, "pendingWrites is null");
+		this.format = Objects.requireNonNull(format, "format is null");
+		this.journal = journal;
 		singletonModel = null;
 		listModel = null;
 		this.tableModel = Objects.requireNonNull(tableModel, "listModel is null");
+		flatTreeModel = null;
 		this.rootKeysToPersist = Objects.requireNonNull(rootKeysToPersist, "rootKeysToPersist is null");
 
 		scheduled.put(tableModel.getModelName(), this);
 	}
 
+	public QMLThreadPersistanceTask(final File persistenceDirectory, final JQMLFlatTreeModel<?> flatTreeModel,
+			final Map<String, QMLThreadPersistanceTask> scheduled, final Executor ioExecutor,
+			final Map<String, Future<?>> pendingWrites, final PersistenceFormat format,
+			final ModelJournal journal) {
+		this.persistenceDirectory = Objects.requireNonNull(persistenceDirectory, "persistenceDirectory is null");
+		this.scheduled = Objects.requireNonNull(scheduled, "scheduled is null");
+		this.ioExecutor = Objects.requireNonNull(ioExecutor, "ioExecutor is null");
+		this.pendingWrites = Objects.requireNonNull(pendingWrites, "pendingWrites is null");
+		this.format = Objects.requireNonNull(format, "format is null");
+		this.journal = journal;
+		singletonModel = null;
+		listModel = null;
+		tableModel = null;
+		this.flatTreeModel = Objects.requireNonNull(flatTreeModel, "flatTreeModel is null");
+		rootKeysToPersist = ImmutableSet.of();
+
+		scheduled.put(flatTreeModel.getModelName(), this);
+	}
+
 	public void setFuture(final ScheduledFuture<?> future) {
 		qtThreadFuture = Objects.requireNonNull(future, "future is null");
 	}
@@ -107,53 +164,45 @@ public class QMLThreadPersistanceTask implements Runnable {
 	@Override
 	public void run() {
 		isRunning = true;
+		final String modelName;
+		final ModelSnapshot snapshot;
 		if (singletonModel != null) {
-			qtThreadSaveModel(singletonModel);
+			modelName = singletonModel.getModelName();
+			snapshot = singletonModel.snapshot();
 		} else if (listModel != null) {
-			qtThreadSaveModel(listModel);
-		} else {// tableModel != null
-			qtThreadSaveModel(tableModel);
+			modelName = listModel.getModelName();
+			snapshot = listModel.snapshot(null, rootKeysToPersist);
+		} else if (tableModel != null) {
+			modelName = tableModel.getModelName();
+			snapshot = tableModel.snapshot(rootKeysToPersist);
+		} else {// flatTreeModel != null
+			modelName = flatTreeModel.getModelName();
+			snapshot = flatTreeModel.snapshot();
 		}
-	}
-
-	private void qtThreadSaveModel(final JQMLSingletonModel<?> model) {
-		scheduled.remove(model.getModelName());
-		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
-		try {
-			model.serialize(stream);
-			saveModel(model.getModelName(), stream.toByteArray());
-		} catch (final IOException e) {
-			log.warn("Failed to persist " + model.getModelName(), e);
-		}
-	}
+		scheduled.remove(modelName);
 
-	private void qtThreadSaveModel(final JQMLListModel<?> model) {
-		scheduled.remove(model.getModelName());
-		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
-		try {
-			model.serialize(stream, null, rootKeysToPersist);
-			saveModel(model.getModelName(), stream.toByteArray());
-		} catch (final IOException e) {
-			log.warn("Failed to persist " + model.getModelName(), e);
-		}
-	}
-
-	private void qtThreadSaveModel(final JQMLTableModel<?> model) {
-		scheduled.remove(model.getModelName());
-		final ByteArrayOutputStream stream = new ByteArrayOutputStream();
-		try {
-			model.serialize(stream, rootKeysToPersist);
-			saveModel(model.getModelName(), stream.toByteArray());
-		} catch (final IOException e) {
-			log.warn("Failed to persist " + model.getModelName(), e);
-		}
+		// The I/O executor is single threaded so writes to the same file happen in
+		// the order they were snapshotted.
+		final FutureTask<Void> write = new FutureTask<>(() -> saveModel(modelName, snapshot), null);
+		pendingWrites.put(modelName, write);
+		ioExecutor.execute(write);
 	}
 
-	private void saveModel(final String modelName, final byte[] data) {
+	/**
+	 * Writes to a temporary file and then renames it over the old file so a
+	 * failure part way through leaves the last complete save in place. When
+	 * journaling, only the changes are written if the model supports it.
+	 */
+	private void saveModel(final String modelName, final ModelSnapshot snapshot) {
 		try {
-			persistenceDirectory.mkdirs();
-			Files.write(data, new File(persistenceDirectory, modelName + ".json"));
-		} catch (final IOException e) {
+			final Optional<JournalState> state = journal != null ? snapshot.journalState() : Optional.empty();
+			if (state.isPresent()) {
+				journal.save(snapshot, state.get());
+			} else {
+				AtomicFile.write(new File(persistenceDirectory, modelName + format.getExtension()), true, null,
+						stream -> format.write(snapshot, stream));
+			}
+		} catch (final IOException | RuntimeException e) {
 			log.warn("Failed to persist " + modelName, e);
 		}
 	}
@@ -0,0 +1,86 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.github.sdankbar.qml.models.flat_tree.JQMLFlatTreeModel;
+import com.github.sdankbar.qml.models.list.JQMLListModel;
+import com.github.sdankbar.qml.models.singleton.JQMLSingletonModel;
+import com.github.sdankbar.qml.models.table.JQMLTableModel;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Models to restore together with ModelPersistence.restoreAll. Models are
+ * assigned in the order they are added, so add the models that are visible
+ * when the application starts first.
+ */
+public final class RestoreBatch {
+
+	private final List<Function<ModelPersistence, ModelPersistence.ModelRestore>> entries = new ArrayList<>();
+
+	public RestoreBatch add(final JQMLSingletonModel<?> model) {
+		Objects.requireNonNull(model, "model is null");
+		entries.add(p -> p.restorer(model));
+		return this;
+	}
+
+	public RestoreBatch add(final JQMLListModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
+		Objects.requireNonNull(model, "model is null");
+		Objects.requireNonNull(rootKeysToPersist, "rootKeysToPersist is null");
+		entries.add(p -> p.restorer(model, rootKeysToPersist));
+		return this;
+	}
+
+	public RestoreBatch add(final JQMLTableModel<?> model, final ImmutableSet<String> rootKeysToPersist) {
+		Objects.requireNonNull(model, "model is null");
+		Objects.requireNonNull(rootKeysToPersist, "rootKeysToPersist is null");
+		entries.add(p -> p.restorer(model, rootKeysToPersist));
+		return this;
+	}
+
+	public RestoreBatch add(final JQMLFlatTreeModel<?> model) {
+		Objects.requireNonNull(model, "model is null");
+		entries.add(p -> p.restorer(model));
+		return this;
+	}
+
+	/**
+	 * @return Number of models in the batch.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	ImmutableList<ModelPersistence.ModelRestore> create(final ModelPersistence persistence) {
+		final ImmutableList.Builder<ModelPersistence.ModelRestore> b = ImmutableList.builder();
+		for (final Function<ModelPersistence, ModelPersistence.ModelRestore> e : entries) {
+			b.add(e.apply(persistence));
+		}
+		return b.build();
+	}
+}
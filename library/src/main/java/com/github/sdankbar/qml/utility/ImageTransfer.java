@@ -0,0 +1,88 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.utility;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Utilities for handing BufferedImage pixels to Qt. Pixels are passed as 32-bit
+ * ARGB ints in native byte order, which matches the memory layout of
+ * QImage::Format_ARGB32 and QImage::Format_ARGB32_Premultiplied.
+ */
+public final class ImageTransfer {
+
+	/**
+	 * @param image The image to check.
+	 * @return True if the pixels returned by toARGB() for image are premultiplied
+	 *         by alpha.
+	 */
+	public static boolean isPremultiplied(final BufferedImage image) {
+		return image.getType() == BufferedImage.TYPE_INT_ARGB_PRE && isPacked(image);
+	}
+
+	/**
+	 * Returns image's pixels as width * height ARGB ints. TYPE_INT_ARGB and
+	 * TYPE_INT_ARGB_PRE images whose raster is not a sub-image return their
+	 * backing array without copying or converting any pixels. Other images are
+	 * converted to non-premultiplied ARGB with getRGB().
+	 *
+	 * @param image The image to read.
+	 * @return The image's pixels. May be the image's backing array, so must not
+	 *         be modified.
+	 */
+	public static int[] toARGB(final BufferedImage image) {
+		if (isPacked(image)) {
+			return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		} else {
+			return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+		}
+	}
+
+	private static boolean isPacked(final BufferedImage image) {
+		final int type = image.getType();
+		if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_ARGB_PRE) {
+			return false;
+		}
+
+		final WritableRaster raster = image.getRaster();
+		final DataBuffer data = raster.getDataBuffer();
+		if (!(data instanceof DataBufferInt) || data.getNumBanks() != 1 || data.getOffset() != 0
+				|| raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+				|| !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+			return false;
+		}
+
+		final SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+		return model.getScanlineStride() == image.getWidth()
+				&& data.getSize() == image.getWidth() * image.getHeight();
+	}
+
+	private ImageTransfer() {
+		// Empty Implementation
+	}
+
+}
@@ -24,6 +24,7 @@ package com.github.sdankbar.qml.utility;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.charset.StandardCharsets;
 
 public class ResizableByteBuffer {
@@ -68,11 +69,47 @@ public class ResizableByteBuffer {
 		b.put(array);
 	}
 
+	public void putInts(final int[] array, final int length) {
+		putInts(array, 0, length);
+	}
+
+	public void putInts(final int[] array, final int offset, final int length) {
+		checkSize(length * Integer.BYTES);
+		b.asIntBuffer().put(array, offset, length);
+		b.position(b.position() + length * Integer.BYTES);
+	}
+
+	public void putDoubles(final double[] array, final int offset, final int length) {
+		checkSize(length * Double.BYTES);
+		b.asDoubleBuffer().put(array, offset, length);
+		b.position(b.position() + length * Double.BYTES);
+	}
+
+	/**
+	 * Writes the remaining floats in src as doubles. src's position is not
+	 * modified.
+	 *
+	 * @param src Floats to write.
+	 */
+	public void putFloatsAsDoubles(final FloatBuffer src) {
+		final int length = src.remaining();
+		checkSize(length * Double.BYTES);
+		final int start = src.position();
+		for (int i = 0; i < length; ++i) {
+			b.putDouble(src.get(start + i));
+		}
+	}
+
 	public void putInt(final int i) {
 		checkSize(Integer.BYTES);
 		b.putInt(i);
 	}
 
+	public void putLong(final long l) {
+		checkSize(Long.BYTES);
+		b.putLong(l);
+	}
+
 	public void putDouble(final double d) {
 		checkSize(Double.BYTES);
 		b.putDouble(d);
@@ -85,6 +122,21 @@ public class ResizableByteBuffer {
 		b.put(array);
 	}
 
+	/**
+	 * @return Number of bytes written to the buffer.
+	 */
+	public int size() {
+		return b.position();
+	}
+
+	/**
+	 * Discards the contents of the buffer while keeping its capacity so it can
+	 * be refilled without reallocating.
+	 */
+	public void clear() {
+		b.clear();
+	}
+
 	public byte[] toArray() {
 		final int oldPosition = b.position();
 		final byte[] dst = new byte[oldPosition];
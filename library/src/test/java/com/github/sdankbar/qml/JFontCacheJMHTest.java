@@ -0,0 +1,121 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.github.sdankbar.qml.eventing.NullEventFactory;
+import com.github.sdankbar.qml.eventing.NullEventProcessor;
+import com.github.sdankbar.qml.fonts.JFont;
+
+/**
+ * Measures the cost of requesting a font the cache has not seen before, which
+ * dominates startup for applications that use many font families, and of
+ * requesting one it has, from one thread and from several threads at once.
+ */
+public class JFontCacheJMHTest {
+
+	/**
+	 * Shared state.
+	 */
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		JQMLApplication<NullEventProcessor> app;
+		final AtomicInteger family = new AtomicInteger();
+
+		/**
+		 * Sets up shared state.
+		 */
+		@Setup(Level.Trial)
+		public void setup() {
+			app = JQMLApplication.create(new String[0], new NullEventFactory<>());
+		}
+
+		/**
+		 * Cleanup after benchmark
+		 */
+		@TearDown(Level.Trial)
+		public void teardown() {
+			JQMLApplication.delete();
+		}
+	}
+
+	/**
+	 * @param state
+	 * @return blackhole
+	 */
+	@Benchmark
+	public JFont benchmark_newFont(final BenchmarkState state) {
+		return JFont.builder().setFamily("Family" + state.family.getAndIncrement()).setPointSize(12).build();
+	}
+
+	/**
+	 * @param state
+	 * @return blackhole
+	 */
+	@Benchmark
+	public JFont benchmark_cachedFont(final BenchmarkState state) {
+		return JFont.builder().setFamily("Arial").setPointSize(12).build();
+	}
+
+	/**
+	 * @param state
+	 * @return blackhole
+	 */
+	@Benchmark
+	@Threads(4)
+	public JFont benchmark_cachedFontContended(final BenchmarkState state) {
+		return JFont.builder().setFamily("Arial").setPointSize(12).build();
+	}
+
+	/**
+	 * @throws RunnerException
+	 */
+	@Test
+	public void runBenchmarks() throws RunnerException {
+		final Options options = new OptionsBuilder().include(JFontCacheJMHTest.class.getName() + ".*")
+				.mode(Mode.AverageTime).timeUnit(TimeUnit.MICROSECONDS).warmupTime(TimeValue.seconds(1))
+				.warmupIterations(5).measurementIterations(5).forks(1).shouldFailOnError(false)
+				.shouldDoGC(true).build();
+
+		new Runner(options).run();
+	}
+
+}
@@ -28,7 +28,11 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
@@ -42,8 +46,11 @@ import com.github.sdankbar.qml.eventing.NullEventFactory;
 import com.github.sdankbar.qml.exceptions.QMLException;
 import com.github.sdankbar.qml.models.AbstractJQMLMapModel.PutMode;
 import com.github.sdankbar.qml.models.TreePath;
+import com.github.sdankbar.qml.models.flat_tree.FlatTreeSubtree;
 import com.github.sdankbar.qml.models.flat_tree.JQMLFlatTreeModel;
 import com.github.sdankbar.qml.models.flat_tree.JQMLFlatTreeModelMap;
+import com.github.sdankbar.qml.models.list.SignalLock;
+import com.google.common.collect.ImmutableMap;
 
 /**
  * Test JQMLFlatTreeModel
@@ -445,4 +452,203 @@ public class JQMLFlatTreeModelTest {
 		assertEquals(new JVariant(6), model.get(TreePath.of(0, 5)).get(Roles.R1));
 		assertEquals(new JVariant(7), model.get(TreePath.of(0, 6)).get(Roles.R1));
 	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void subtreeAndFlatIndex() {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLFlatTreeModel<Roles> model = app.getModelFactory().createFlatTreeModel("other", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+
+		model.append(TreePath.of(), Roles.R1, new JVariant(0));
+		model.append(TreePath.of(0), Roles.R1, new JVariant(1));
+		model.append(TreePath.of(0, 0), Roles.R1, new JVariant(2));
+		model.append(TreePath.of(0), Roles.R1, new JVariant(3));
+		model.append(TreePath.of(), Roles.R1, new JVariant(4));
+
+		final List<Integer> values = new ArrayList<>();
+		for (final JQMLFlatTreeModelMap<Roles> m : model.subtree(TreePath.of(0))) {
+			values.add(Integer.valueOf(m.get(Roles.R1).asInteger()));
+		}
+		assertEquals(Arrays.asList(1, 2, 3), values);
+
+		assertEquals(5, model.getFlatSize());
+		for (int i = 0; i < model.getFlatSize(); ++i) {
+			assertEquals(new JVariant(i), model.getFlat(i).get(Roles.R1));
+		}
+
+		// Handles follow their node when siblings are inserted before them.
+		final JQMLFlatTreeModelMap<Roles> grandchild = model.get(TreePath.of(0, 0, 0));
+		model.insert(TreePath.of(0, 0), Roles.R1, new JVariant(5));
+		assertEquals(TreePath.of(0, 1, 0), grandchild.getIndex());
+		assertEquals(new JVariant(2), grandchild.get(Roles.R1));
+		assertEquals(6, model.getFlatSize());
+		assertEquals(new JVariant(5), model.getFlat(1).get(Roles.R1));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void lockSignals() {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLFlatTreeModel<Roles> model = app.getModelFactory().createFlatTreeModel("other", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+
+		for (int i = 0; i < 10; ++i) {
+			model.append(TreePath.of(), Roles.R1, new JVariant(i));
+			model.append(TreePath.of(i), Roles.R1, new JVariant(i));
+		}
+
+		final SignalLock lock = model.lockSignals();
+		try {
+			for (int i = 0; i < 10; ++i) {
+				model.setData(TreePath.of(i, 0), Roles.R2, new JVariant(i));
+			}
+			model.remove(TreePath.of(5));
+			model.setData(TreePath.of(5, 0), Roles.R3, new JVariant(5));
+		} finally {
+			lock.close();
+		}
+
+		assertEquals(9, model.size(TreePath.of()));
+		assertEquals(new JVariant(4), model.getData(TreePath.of(4, 0), Roles.R2).get());
+		assertEquals(new JVariant(6), model.getData(TreePath.of(5, 0), Roles.R2).get());
+		assertEquals(new JVariant(5), model.getData(TreePath.of(5, 0), Roles.R3).get());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void expandCollapse() {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLFlatTreeModel<Roles> model = app.getModelFactory().createFlatTreeModel("other", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+
+		model.append(TreePath.of(), Roles.R1, new JVariant(0));
+		model.append(TreePath.of(0), Roles.R1, new JVariant(1));
+		model.append(TreePath.of(0), Roles.R1, new JVariant(2));
+		model.append(TreePath.of(), Roles.R1, new JVariant(3));
+		assertTrue(model.isExpanded(TreePath.of(0)));
+		assertEquals(4, model.getFlatSize());
+
+		model.setExpanded(TreePath.of(0), false);
+		assertFalse(model.isExpanded(TreePath.of(0)));
+		assertEquals(2, model.getFlatSize());
+		assertEquals(new JVariant(3), model.getFlat(1).get(Roles.R1));
+		assertEquals(2, model.size(TreePath.of(0)));
+
+		final List<TreePath> loaded = new ArrayList<>();
+		model.setChildLoader((p, data) -> {
+			loaded.add(p);
+			final List<Map<Roles, JVariant>> children = new ArrayList<>();
+			children.add(ImmutableMap.of(Roles.R2, data.get(Roles.R1)));
+			children.add(ImmutableMap.of(Roles.R2, new JVariant(10)));
+			return children;
+		}, Runnable::run, Runnable::run);
+
+		// Nodes that already have children are not loaded.
+		model.setExpanded(TreePath.of(0), true);
+		assertEquals(4, model.getFlatSize());
+		assertTrue(loaded.isEmpty());
+
+		model.setExpanded(TreePath.of(1), false);
+		model.setExpanded(TreePath.of(1), true);
+		assertEquals(Arrays.asList(TreePath.of(1)), loaded);
+		assertEquals(2, model.size(TreePath.of(1)));
+		assertEquals(new JVariant(3), model.getData(TreePath.of(1, 0), Roles.R2).get());
+		assertEquals(6, model.getFlatSize());
+
+		// Children are only requested once.
+		model.setExpanded(TreePath.of(1), false);
+		model.setExpanded(TreePath.of(1), true);
+		assertEquals(1, loaded.size());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void loadSubtree() {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLFlatTreeModel<Roles> model = app.getModelFactory().createFlatTreeModel("other", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+
+		model.append(TreePath.of(), Roles.R1, new JVariant(0));
+
+		final List<FlatTreeSubtree<Roles>> trees = new ArrayList<>();
+		for (int i = 0; i < 100; ++i) {
+			final List<FlatTreeSubtree<Roles>> children = new ArrayList<>();
+			for (int j = 0; j < 10; ++j) {
+				children.add(FlatTreeSubtree.of(ImmutableMap.of(Roles.R1, new JVariant(i), Roles.R2, new JVariant(j))));
+			}
+			trees.add(FlatTreeSubtree.of(ImmutableMap.of(Roles.R1, new JVariant(i)), children));
+		}
+
+		assertEquals(0, model.loadSubtree(TreePath.of(0), trees));
+		assertEquals(100, model.size(TreePath.of(0)));
+		assertEquals(10, model.size(TreePath.of(0, 42)));
+		assertEquals(1101, model.getFlatSize());
+		assertEquals(new JVariant(7), model.getData(TreePath.of(0, 42, 7), Roles.R2).get());
+		assertEquals(TreePath.of(0, 42, 7), model.get(TreePath.of(0, 42, 7)).getIndex());
+
+		final JQMLFlatTreeModelMap<Roles> replaced = model.get(TreePath.of(0, 1));
+		model.assign(TreePath.of(0), Arrays.asList(FlatTreeSubtree.of(ImmutableMap.of(Roles.R3, new JVariant(5)),
+				FlatTreeSubtree.of(ImmutableMap.of(Roles.R3, new JVariant(6))))));
+		assertNull(replaced.getIndex());
+		assertEquals(1, model.size(TreePath.of(0)));
+		assertEquals(3, model.getFlatSize());
+		assertEquals(new JVariant(6), model.getFlat(2).get(Roles.R3));
+
+		model.assign(TreePath.of(), Arrays.asList(FlatTreeSubtree.of(ImmutableMap.of(Roles.R1, new JVariant(1)))));
+		assertEquals(1, model.size(TreePath.of()));
+		assertEquals(new JVariant(1), model.getData(TreePath.of(0), Roles.R1).get());
+		assertEquals(0, model.size(TreePath.of(0)));
+	}
+
+	/**
+	 * @throws IOException
+	 *
+	 */
+	@Test
+	public void serialize() throws IOException {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLFlatTreeModel<Roles> model = app.getModelFactory().createFlatTreeModel("other", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+
+		final int[] changes = new int[1];
+		model.registerModelChangedListener(() -> ++changes[0]);
+
+		model.append(TreePath.of(), Roles.R1, new JVariant(0));
+		model.append(TreePath.of(0), ImmutableMap.of(Roles.R1, new JVariant(1), Roles.R2, new JVariant("a")));
+		model.append(TreePath.of(0, 0), Roles.R1, new JVariant(2));
+		model.append(TreePath.of(), Roles.R3, new JVariant(3.5));
+		model.setExpanded(TreePath.of(0, 0), false);
+		assertEquals(5, changes[0]);
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		model.serialize(out);
+
+		final JQMLFlatTreeModel<Roles> restored = app.getModelFactory().createFlatTreeModel("restored", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+		restored.deserialize(new ByteArrayInputStream(out.toByteArray()));
+
+		assertEquals(2, restored.size(TreePath.of()));
+		assertEquals(1, restored.size(TreePath.of(0)));
+		assertEquals(1, restored.size(TreePath.of(0, 0)));
+		assertEquals(new JVariant("a"), restored.getData(TreePath.of(0, 0), Roles.R2).get());
+		assertEquals(new JVariant(2), restored.getData(TreePath.of(0, 0, 0), Roles.R1).get());
+		assertEquals(new JVariant(3.5), restored.getData(TreePath.of(1), Roles.R3).get());
+		assertFalse(restored.isExpanded(TreePath.of(0, 0)));
+		assertTrue(restored.isExpanded(TreePath.of(0)));
+		assertEquals(3, restored.getFlatSize());
+	}
 }
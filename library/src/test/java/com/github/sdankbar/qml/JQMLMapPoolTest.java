@@ -86,4 +86,58 @@ public class JQMLMapPoolTest {
 		assertSame(map, map2);
 	}
 
+	/**
+	 *
+	 */
+	@Test
+	public void availableAndIndex() {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLMapPool<Roles> pool = app.getModelFactory().createPool("other", Roles.class,
+				ImmutableMap.of(Roles.R1, new JVariant("INIT")), PutMode.RETURN_PREVIOUS_VALUE);
+		pool.reserve(4);
+		assertEquals(4, pool.getAvailable());
+
+		final Map<Roles, JVariant> map1 = pool.request();
+		final Map<Roles, JVariant> map2 = pool.request();
+		assertEquals(0, pool.getIndex(map1));
+		assertEquals(1, pool.getIndex(map2));
+		assertEquals(2, pool.getAvailable());
+
+		pool.release(map1);
+		assertEquals(3, pool.getAvailable());
+		assertSame(map1, pool.request());
+
+		pool.releaseAll();
+		assertEquals(4, pool.getAvailable());
+		assertEquals(4, pool.getAllocated());
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void releaseValueAndAssign() {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLMapPool<Roles> pool = app.getModelFactory().createPool("other", Roles.class,
+				ImmutableMap.of(Roles.R1, new JVariant("INIT")), PutMode.RETURN_PREVIOUS_VALUE);
+		pool.setReleaseValue(ImmutableMap.of(Roles.R2, new JVariant(-1)));
+
+		final Map<Roles, JVariant> map = pool.request();
+		pool.assign(map, ImmutableMap.of(Roles.R1, new JVariant("A"), Roles.R2, new JVariant(5)));
+		assertEquals("A", map.get(Roles.R1).asString());
+		assertEquals(5, map.get(Roles.R2).asInteger());
+
+		pool.release(map);
+		assertEquals("A", map.get(Roles.R1).asString());
+		assertEquals(-1, map.get(Roles.R2).asInteger());
+
+		final Map<Roles, JVariant> map2 = pool.request();
+		assertSame(map, map2);
+		pool.assign(map2, ImmutableMap.of(Roles.R2, new JVariant(7)));
+		assertEquals(null, map2.get(Roles.R1));
+		assertEquals(7, map2.get(Roles.R2).asInteger());
+	}
+
 }
@@ -29,6 +29,7 @@ import org.junit.Test;
 
 import com.github.sdankbar.qml.eventing.NullEventFactory;
 import com.github.sdankbar.qml.models.AbstractJQMLMapModel.PutMode;
+import com.github.sdankbar.qml.models.list.SignalLock;
 import com.github.sdankbar.qml.models.table.JQMLTableModel;
 import com.google.common.collect.ImmutableMap;
 
@@ -184,4 +185,81 @@ public class JQMLTableModelTest {
 
 	}
 
+	@Test
+	public void addRemoveRanges() {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLTableModel<Roles> model = app.getModelFactory().createTableModel("other", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+
+		model.addRows(0, 100);
+		model.addColumns(1, 19);
+
+		assertEquals(20, model.getColumnCount());
+		assertEquals(100, model.getRowCount());
+
+		final SignalLock lock = model.lockSignals();
+		try {
+			for (int row = 0; row < 100; ++row) {
+				model.setData(row, 5, ImmutableMap.of(Roles.R1, new JVariant(row)));
+			}
+		} finally {
+			lock.close();
+		}
+
+		model.addColumns(0, 5);
+		model.addRows(10, 10);
+
+		assertEquals(25, model.getColumnCount());
+		assertEquals(110, model.getRowCount());
+		assertEquals(9, model.get(9, 10).get(Roles.R1).asInteger());
+		assertEquals(null, model.get(10, 10).get(Roles.R1));
+		assertEquals(10, model.get(20, 10).get(Roles.R1).asInteger());
+		assertEquals(20, model.get(20, 10).get(Roles.row).asInteger());
+		assertEquals(10, model.get(20, 10).get(Roles.column).asInteger());
+
+		model.removeRows(10, 10);
+		model.removeColumns(0, 5);
+
+		assertEquals(20, model.getColumnCount());
+		assertEquals(100, model.getRowCount());
+		for (int row = 0; row < 100; ++row) {
+			assertEquals(row, model.get(row, 5).get(Roles.R1).asInteger());
+		}
+	}
+
+	@Test
+	public void sparse() {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLTableModel<Roles> model = app.getModelFactory().createSparseTableModel("other", Roles.class,
+				ImmutableMap.of(Roles.R2, new JVariant("empty")), PutMode.RETURN_PREVIOUS_VALUE);
+
+		model.addRows(0, 100000);
+		model.addColumns(1, 199);
+
+		assertEquals(200, model.getColumnCount());
+		assertEquals(100000, model.getRowCount());
+
+		model.setData(50000, 100, ImmutableMap.of(Roles.R1, new JVariant(7)));
+		model.setData(99999, 199, ImmutableMap.of(Roles.R1, new JVariant(8)));
+
+		assertEquals(null, model.get(0, 0).get(Roles.R1));
+		assertEquals(7, model.get(50000, 100).get(Roles.R1).asInteger());
+
+		model.addColumns(0, 10);
+		model.removeRows(0, 10);
+
+		assertEquals(null, model.get(50000, 100).get(Roles.R1));
+		assertEquals(7, model.get(49990, 110).get(Roles.R1).asInteger());
+		assertEquals(49990, model.get(49990, 110).get(Roles.row).asInteger());
+		assertEquals(110, model.get(49990, 110).get(Roles.column).asInteger());
+		assertEquals(8, model.get(99989, 209).get(Roles.R1).asInteger());
+
+		model.removeColumns(100, 20);
+
+		assertEquals(null, model.get(49990, 100).get(Roles.R1));
+		assertEquals(8, model.get(99989, 189).get(Roles.R1).asInteger());
+	}
+
 }
@@ -35,6 +35,8 @@ import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -45,6 +47,10 @@ import com.github.sdankbar.qml.models.AbstractJQMLMapModel.PutMode;
 import com.github.sdankbar.qml.models.list.JQMLListModel;
 import com.github.sdankbar.qml.models.singleton.JQMLSingletonModel;
 import com.github.sdankbar.qml.models.table.JQMLTableModel;
+import com.github.sdankbar.qml.persistence.FsyncPolicy;
+import com.github.sdankbar.qml.persistence.JournalPolicy;
+import com.github.sdankbar.qml.persistence.PersistenceFormat;
+import com.github.sdankbar.qml.persistence.RestoreBatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -298,6 +304,131 @@ public class ModelPersistenceTest {
 		assertEquals("rootValue", model.getRootValue("rootTest").get().asString());
 	}
 
+	/**
+	 * @throws InterruptedException
+	 * @throws IOException
+	 *
+	 */
+	@Test
+	public void test_readData_list_binary() throws InterruptedException, IOException {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLListModel<Roles> model = app.getModelFactory().createListModel("binary1", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+
+		app.getModelFactory().enablePersistence(Duration.ZERO, new File("persistenceTest"), PersistenceFormat.BINARY);
+
+		for (int i = 0; i < 100; ++i) {
+			model.add(ImmutableMap.of(Roles.R1, new JVariant(i), Roles.R2, new JVariant("name"), Roles.R3,
+					new JVariant(new Point2D.Double(i, 2))));
+		}
+		model.putRootValue("rootTest", new JVariant(7));
+		final ImmutableList<HashMap<Roles, JVariant>> copy = model.stream().map(HashMap::new)
+				.collect(ImmutableList.toImmutableList());
+
+		app.getModelFactory().persistModel(model, ImmutableSet.of("rootTest"));
+
+		assertTrue(new File("persistenceTest/binary1.bin").exists());
+		assertFalse(new File("persistenceTest/binary1.json").exists());
+
+		model.clear();
+		model.removeRootValue("rootTest");
+		assertEquals(model.size(), 0);
+
+		assertTrue(app.getModelFactory().restoreModel(model, ImmutableSet.of("rootTest")));
+
+		assertEquals(100, model.size());
+		for (int i = 0; i < 100; ++i) {
+			assertEquals(copy.get(i), model.get(i));
+		}
+		assertEquals(new JVariant(7), model.getRootValue("rootTest").get());
+	}
+
+	/**
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 *
+	 */
+	@Test
+	public void test_restoreAll() throws InterruptedException, ExecutionException {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLListModel<Roles> list1 = app.getModelFactory().createListModel("restoreAll1", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+		final JQMLListModel<Roles> list2 = app.getModelFactory().createListModel("restoreAll2", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+		final JQMLSingletonModel<Roles> singleton = app.getModelFactory().createSingletonModel("restoreAll3",
+				Roles.class, PutMode.RETURN_PREVIOUS_VALUE);
+
+		app.getModelFactory().enablePersistence(Duration.ZERO, new File("persistenceTest"));
+
+		for (int i = 0; i < 1000; ++i) {
+			list1.add(ImmutableMap.of(Roles.R1, new JVariant(i)));
+			list2.add(ImmutableMap.of(Roles.R2, new JVariant(-i)));
+		}
+		singleton.put(Roles.R3, new JVariant("value"));
+		app.getModelFactory().persistModel(list1, ImmutableSet.of());
+		app.getModelFactory().persistModel(list2, ImmutableSet.of());
+		app.getModelFactory().persistModel(singleton);
+
+		list1.clear();
+		list2.clear();
+		singleton.clear();
+
+		final CompletableFuture<ImmutableSet<String>> restored = app.getModelFactory()
+				.restoreAll(new RestoreBatch().add(singleton).add(list2, ImmutableSet.of()).add(list1,
+						ImmutableSet.of()));
+		restored.thenRun(app::quitApp);
+		app.execute();
+
+		assertEquals(ImmutableSet.of("restoreAll1", "restoreAll2", "restoreAll3"), restored.get());
+		assertEquals(1000, list1.size());
+		assertEquals(1000, list2.size());
+		assertEquals(new JVariant(999), list1.get(999).get(Roles.R1));
+		assertEquals(new JVariant(-999), list2.get(999).get(Roles.R2));
+		assertEquals(new JVariant("value"), singleton.get(Roles.R3));
+	}
+
+	/**
+	 * @throws InterruptedException
+	 * @throws IOException
+	 *
+	 */
+	@Test
+	public void test_readData_list_journal() throws InterruptedException, IOException {
+		final String[] args = new String[0];
+		final JQMLApplication<EventProcessor> app = JQMLApplication.create(args, new NullEventFactory<>());
+		final JQMLListModel<Roles> model = app.getModelFactory().createListModel("journal1", Roles.class,
+				PutMode.RETURN_PREVIOUS_VALUE);
+
+		app.getModelFactory().enablePersistence(Duration.ZERO, new File("persistenceTest"), PersistenceFormat.BINARY,
+				new JournalPolicy(100, FsyncPolicy.NEVER));
+
+		for (int i = 0; i < 100; ++i) {
+			model.add(ImmutableMap.of(Roles.R1, new JVariant(i), Roles.R2, new JVariant("name")));
+		}
+		app.getModelFactory().persistModel(model, ImmutableSet.of());
+		final long snapshotLength = new File("persistenceTest/journal1.bin").length();
+
+		model.setData(10, Roles.R2, new JVariant("changed"));
+		model.remove(20, Roles.R1);
+		model.add(ImmutableMap.of(Roles.R1, new JVariant(100)));
+		app.getModelFactory().persistModel(model, ImmutableSet.of());
+
+		assertEquals(snapshotLength, new File("persistenceTest/journal1.bin").length());
+		assertTrue(new File("persistenceTest/journal1.journal").exists());
+		final ImmutableList<HashMap<Roles, JVariant>> copy = model.stream().map(HashMap::new)
+				.collect(ImmutableList.toImmutableList());
+
+		model.clear();
+		assertTrue(app.getModelFactory().restoreModel(model, ImmutableSet.of()));
+
+		assertEquals(101, model.size());
+		for (int i = 0; i < 101; ++i) {
+			assertEquals(copy.get(i), model.get(i));
+		}
+	}
+
 	/**
 	 * @throws InterruptedException
 	 * @throws IOException
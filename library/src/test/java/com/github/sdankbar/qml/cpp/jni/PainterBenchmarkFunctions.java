@@ -0,0 +1,58 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.cpp.jni;
+
+import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.utility.LibraryUtilities;
+
+/**
+ * Native helpers that only the painter benchmarks use. The native library
+ * registers them only if this class is on the classpath, so they are not part
+ * of the production API.
+ */
+public final class PainterBenchmarkFunctions {
+
+	static {
+		LibraryUtilities.loadLibrary("Jaqumal");
+	}
+
+	private PainterBenchmarkFunctions() {
+		// Empty Implementation
+	}
+
+	public static native JVariant renderPainterInstructionsWithSceneGraph(int length, byte[] data, int width,
+			int height);
+
+	public static native void repaintPainterInstructions(int length, byte[] data, int width, int height,
+			int repaints);
+
+	/**
+	 * Selects the Qt Quick scene graph backend, for example "software". Must be
+	 * called before the QApplication is created. See
+	 * QQuickWindow::setSceneGraphBackend().
+	 *
+	 * @param backend Name of the backend. Empty string selects the default.
+	 */
+	public static native void setSceneGraphBackend(String backend);
+
+}
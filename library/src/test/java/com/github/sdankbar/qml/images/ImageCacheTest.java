@@ -0,0 +1,91 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.images;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+/**
+ * Tests ImageCache.
+ */
+public class ImageCacheTest {
+
+	private static BufferedImage image(final int w, final int h) {
+		return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	@Test
+	public void keyedByIdAndSize() {
+		final ImageCache cache = new ImageCache(1000);
+		final BufferedImage small = image(2, 2);
+		final BufferedImage large = image(4, 4);
+		cache.put("a", new Dimension(2, 2), small);
+		cache.put("a", new Dimension(4, 4), large);
+
+		assertSame(small, cache.get("a", new Dimension(2, 2)));
+		assertSame(large, cache.get("a", new Dimension(4, 4)));
+		assertNull(cache.get("b", new Dimension(2, 2)));
+		assertEquals(80, cache.getSizeInBytes());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		final ImageCache cache = new ImageCache(48);
+		final Dimension size = new Dimension(2, 2);
+		cache.put("a", size, image(2, 2));
+		cache.put("b", size, image(2, 2));
+		cache.put("c", size, image(2, 2));
+		cache.get("a", size);
+		cache.put("d", size, image(2, 2));
+
+		assertEquals(3, cache.size());
+		assertEquals(48, cache.getSizeInBytes());
+		assertNull(cache.get("b", size));
+		assertEquals(2, cache.get("a", size).getWidth());
+	}
+
+	@Test
+	public void replaceAndOversized() {
+		final ImageCache cache = new ImageCache(64);
+		final Dimension size = new Dimension(2, 2);
+		cache.put("a", size, image(2, 2));
+		cache.put("a", size, image(4, 4));
+		assertEquals(1, cache.size());
+		assertEquals(64, cache.getSizeInBytes());
+
+		cache.put("b", size, image(8, 8));
+		assertNull(cache.get("b", size));
+		assertEquals(1, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getSizeInBytes());
+	}
+
+}
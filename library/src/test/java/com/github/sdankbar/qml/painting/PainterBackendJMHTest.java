@@ -0,0 +1,143 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.painting;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.github.sdankbar.qml.JQMLApplication;
+import com.github.sdankbar.qml.cpp.jni.PainterBenchmarkFunctions;
+import com.github.sdankbar.qml.eventing.NullEventFactory;
+import com.github.sdankbar.qml.eventing.NullEventProcessor;
+
+/**
+ * Compares rasterizing PainterInstructions with QPainter, as Painter does, to
+ * rendering them with ScenePainter's scene graph nodes, under both the software
+ * and default scene graph backends. Each operation draws PRIMITIVES primitives,
+ * so primitives per millisecond is the score multiplied by PRIMITIVES. Run
+ * with QT_QPA_PLATFORM=offscreen when headless.
+ */
+public class PainterBackendJMHTest {
+
+	private static final int PRIMITIVES = 10000;
+	private static final int SIZE = 1000;
+
+	/**
+	 * Shared state.
+	 */
+	@State(Scope.Thread)
+	public static class BenchmarkState {
+
+		@Param({ "software", "default" })
+		String backend;
+
+		JQMLApplication<NullEventProcessor> app;
+		PainterInstructions instructions;
+
+		/**
+		 * Sets up shared state.
+		 */
+		@Setup(Level.Trial)
+		public void setup() {
+			PainterBenchmarkFunctions.setSceneGraphBackend("default".equals(backend) ? "" : backend);
+			app = JQMLApplication.create(new String[0], new NullEventFactory<>());
+
+			final PainterInstructionsBuilder builder = new PainterInstructionsBuilder();
+			final Color[] colors = { Color.RED, Color.GREEN, Color.BLUE, Color.BLACK };
+			final List<Point> polyline = new ArrayList<>();
+			for (int i = 0; i < PRIMITIVES / 4; ++i) {
+				final int x = (i * 37) % SIZE;
+				final int y = (i * 91) % SIZE;
+				builder.setPen(colors[i % colors.length]);
+				builder.drawLine(x, y, SIZE - x, SIZE - y);
+				builder.drawRect(x, y, 20, 10);
+				builder.drawPoint(y, x);
+				polyline.add(new Point(x, y));
+			}
+			builder.drawPolyline(polyline);
+			instructions = builder.build();
+		}
+
+		/**
+		 * Cleanup after benchmark
+		 */
+		@TearDown(Level.Trial)
+		public void teardown() {
+			JQMLApplication.delete();
+		}
+	}
+
+	/**
+	 * @param state
+	 * @return blackhole
+	 */
+	@Benchmark
+	public BufferedImage benchmark_raster(final BenchmarkState state) {
+		return state.instructions.render(SIZE, SIZE);
+	}
+
+	/**
+	 * @param state
+	 * @return blackhole
+	 */
+	@Benchmark
+	public BufferedImage benchmark_sceneGraph(final BenchmarkState state) {
+		state.instructions.register();
+		final byte[] data = state.instructions.getArray();
+		return PainterBenchmarkFunctions.renderPainterInstructionsWithSceneGraph(data.length, data, SIZE, SIZE)
+				.asImage(null);
+	}
+
+	/**
+	 * @throws RunnerException
+	 */
+	@Test
+	public void runBenchmarks() throws RunnerException {
+		final Options options = new OptionsBuilder().include(PainterBackendJMHTest.class.getName() + ".*")
+				.mode(Mode.Throughput).timeUnit(TimeUnit.MILLISECONDS).warmupTime(TimeValue.seconds(1))
+				.warmupIterations(5).threads(1).measurementIterations(5).forks(1).shouldFailOnError(false)
+				.shouldDoGC(true).build();
+
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,114 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.painting;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.github.sdankbar.qml.painting.PainterInstructions.PainterFunction;
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.github.sdankbar.qml.utility.ResizableByteBuffer;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the PainterGroup class.
+ */
+public class PainterGroupTest {
+
+	private static PainterGroup group(final double x) {
+		return new PainterGroup(data(x));
+	}
+
+	private static byte[] data(final double x) {
+		final ResizableByteBuffer buffer = new ResizableByteBuffer();
+		buffer.putInt(PainterFunction.drawEllipseDouble.ordinal());
+		buffer.putDouble(x);
+		buffer.putDouble(2);
+		buffer.putDouble(3);
+		buffer.putDouble(4);
+		return buffer.toArray();
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void test_handle() {
+		assertEquals(group(1).getHandle(), group(1).getHandle());
+		assertEquals(group(1), group(1));
+		assertNotEquals(group(1).getHandle(), group(1.5).getHandle());
+		assertEquals(group(1).getSizeInBytes(), group(1.5).getSizeInBytes());
+
+		assertNotEquals(ContentHash.of(new byte[] { 0 }), ContentHash.of(new byte[] { 0, 0 }));
+		assertNotEquals(ContentHash.of(new byte[] { 1, 2, 3, 4, 5 }), ContentHash.of(new byte[] { 1, 2, 3, 4, 6 }));
+	}
+
+	private static byte[] write(final PainterInstructions instructions) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final BinaryModelWriter writer = new BinaryModelWriter(out);
+		instructions.write(writer);
+		writer.flush();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Persisted instructions must include the groups they draw, and the groups
+	 * and images those groups draw, so they can be registered again after a
+	 * restart.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void test_persistedGroups() throws IOException {
+		final PainterImage image = PainterImage.of(new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB));
+		final PainterGroup inner = new PainterGroup(data(1), ImmutableList.of(image), ImmutableList.of());
+		final PainterGroup outer = new PainterGroup(data(2), ImmutableList.of(image),
+				ImmutableList.of(inner));
+		final PainterInstructions instructions = new PainterInstructions(new byte[] { 1, 2, 3 }, ImmutableList.of(),
+				ImmutableList.of(outer, inner));
+
+		final byte[] binary = write(instructions);
+		final PainterInstructions fromBinary = PainterInstructions
+				.read(new BinaryModelReader(ByteBuffer.wrap(binary)));
+		assertEquals(instructions, fromBinary);
+		assertArrayEquals(binary, write(fromBinary));
+
+		final JSONObject json = new JSONObject();
+		instructions.toJSON(json);
+		assertEquals(1, json.getJSONArray("images").length());
+		assertEquals(2, json.getJSONArray("groups").length());
+		final PainterInstructions fromJSON = PainterInstructions.fromJSON(new JSONObject(json.toString()));
+		assertArrayEquals(binary, write(fromJSON));
+	}
+
+}
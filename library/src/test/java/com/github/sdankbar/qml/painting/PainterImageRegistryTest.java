@@ -0,0 +1,114 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.painting;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import com.github.sdankbar.qml.persistence.BinaryModelReader;
+import com.github.sdankbar.qml.persistence.BinaryModelWriter;
+import com.github.sdankbar.qml.utility.ImageTransfer;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Tests the PainterImageRegistry class.
+ */
+public class PainterImageRegistryTest {
+
+	private static long hash(final BufferedImage image) {
+		return PainterImageRegistry.hash(image.getWidth(), image.getHeight(), ImageTransfer.isPremultiplied(image),
+				ImageTransfer.toARGB(image));
+	}
+
+	/**
+	 *
+	 */
+	@Test
+	public void test_hash() {
+		final BufferedImage a = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+		final BufferedImage b = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+		a.setRGB(1, 2, 0xFF102030);
+		b.setRGB(1, 2, 0xFF102030);
+		assertEquals(hash(a), hash(b));
+
+		b.setRGB(3, 3, 0x01000000);
+		assertNotEquals(hash(a), hash(b));
+
+		final BufferedImage wide = new BufferedImage(8, 2, BufferedImage.TYPE_INT_ARGB);
+		final BufferedImage tall = new BufferedImage(2, 8, BufferedImage.TYPE_INT_ARGB);
+		assertNotEquals(hash(wide), hash(tall));
+
+		final BufferedImage pre = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB_PRE);
+		assertNotEquals(hash(new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB)), hash(pre));
+	}
+
+	private static byte[] write(final PainterInstructions instructions) throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final BinaryModelWriter writer = new BinaryModelWriter(out);
+		instructions.write(writer);
+		writer.flush();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Persisted instructions must include the pixels of the images they draw so
+	 * the images can be registered again after a restart.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void test_persistedImages() throws IOException {
+		final BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_INT_ARGB_PRE);
+		image.setRGB(1, 1, 0x80402010);
+		final PainterImage copy = PainterImage.of(image);
+
+		// Drawing into the image afterwards must not change the copy
+		image.setRGB(0, 0, 0xFFFFFFFF);
+		assertNotEquals(hash(image), copy.getHandle());
+
+		final PainterInstructions instructions = new PainterInstructions(new byte[] { 1, 2, 3 },
+				ImmutableList.of(copy), ImmutableList.of());
+
+		final byte[] binary = write(instructions);
+		final PainterInstructions fromBinary = PainterInstructions
+				.read(new BinaryModelReader(ByteBuffer.wrap(binary)));
+		assertEquals(instructions, fromBinary);
+		assertArrayEquals(binary, write(fromBinary));
+
+		final JSONObject json = new JSONObject();
+		instructions.toJSON(json);
+		final PainterInstructions fromJSON = PainterInstructions.fromJSON(new JSONObject(json.toString()));
+		assertEquals(instructions, fromJSON);
+		assertArrayEquals(binary, write(fromJSON));
+	}
+
+}
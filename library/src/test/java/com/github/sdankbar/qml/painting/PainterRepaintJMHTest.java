@@ -0,0 +1,140 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.painting;
+
+import java.awt.Color;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.github.sdankbar.qml.JQMLApplication;
+import com.github.sdankbar.qml.cpp.jni.ApplicationFunctions;
+import com.github.sdankbar.qml.cpp.jni.PainterBenchmarkFunctions;
+import com.github.sdankbar.qml.eventing.NullEventFactory;
+import com.github.sdankbar.qml.eventing.NullEventProcessor;
+import com.github.sdankbar.qml.fonts.JFont;
+
+/**
+ * Measures the native cost of repainting large instruction streams. Each
+ * operation paints the stream REPAINTS times, either decoding it on every paint
+ * (benchmark_decodeEachPaint) or decoding it once and replaying the decoded
+ * commands (benchmark_repaint), as a Painter item does between instruction
+ * changes. Run with QT_QPA_PLATFORM=offscreen when headless.
+ */
+public class PainterRepaintJMHTest {
+
+	private static final int REPAINTS = 10;
+	private static final int SIZE = 500;
+
+	/**
+	 * Shared state.
+	 */
+	@State(Scope.Thread)
+	public static class BenchmarkState {
+
+		@Param({ "1000", "100000" })
+		int commands;
+
+		JQMLApplication<NullEventProcessor> app;
+		byte[] data;
+		int[] pixels;
+
+		/**
+		 * Sets up shared state.
+		 */
+		@Setup(Level.Trial)
+		public void setup() {
+			app = JQMLApplication.create(new String[0], new NullEventFactory<>());
+
+			final PainterInstructionsBuilder builder = new PainterInstructionsBuilder();
+			final JFont font = JFont.builder().setPointSize(10).build();
+			final Color[] colors = { Color.RED, Color.GREEN, Color.BLUE, Color.BLACK };
+			for (int i = 0; i < commands / 4; ++i) {
+				final int x = (i * 37) % SIZE;
+				final int y = (i * 91) % SIZE;
+				builder.setPen(new JPen(colors[i % colors.length]));
+				builder.setFont(font);
+				builder.drawText(x, y, "Label " + (i % 100));
+				builder.drawLine(x, y, SIZE - x, SIZE - y);
+			}
+			data = builder.build().getArray();
+			pixels = new int[SIZE * SIZE];
+		}
+
+		/**
+		 * Cleanup after benchmark
+		 */
+		@TearDown(Level.Trial)
+		public void teardown() {
+			JQMLApplication.delete();
+		}
+	}
+
+	/**
+	 * @param state
+	 * @return blackhole
+	 */
+	@Benchmark
+	public int[] benchmark_decodeEachPaint(final BenchmarkState state) {
+		for (int i = 0; i < REPAINTS; ++i) {
+			ApplicationFunctions.renderPainterInstructionsToArray(state.data.length, state.data, SIZE, SIZE,
+					state.pixels);
+		}
+		return state.pixels;
+	}
+
+	/**
+	 * @param state
+	 */
+	@Benchmark
+	public void benchmark_repaint(final BenchmarkState state) {
+		PainterBenchmarkFunctions.repaintPainterInstructions(state.data.length, state.data, SIZE, SIZE, REPAINTS);
+	}
+
+	/**
+	 * @throws RunnerException
+	 */
+	@Test
+	public void runBenchmarks() throws RunnerException {
+		final Options options = new OptionsBuilder().include(PainterRepaintJMHTest.class.getName() + ".*")
+				.mode(Mode.Throughput).timeUnit(TimeUnit.MILLISECONDS).warmupTime(TimeValue.seconds(1))
+				.warmupIterations(5).threads(1).measurementIterations(5).forks(1).shouldFailOnError(false)
+				.shouldDoGC(true).build();
+
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,189 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.painting.JPoint;
+import com.github.sdankbar.qml.painting.JPointReal;
+import com.github.sdankbar.qml.painting.JRect;
+import com.github.sdankbar.qml.painting.JRectReal;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Tests BinaryModelWriter and BinaryModelReader.
+ */
+public class BinaryModelFormatTest {
+
+	private enum Roles {
+		R1, R2, R3;
+	}
+
+	private static void save(final File file, final int value) throws IOException {
+		AtomicFile.write(file, false, null, stream -> {
+			final BinaryModelWriter writer = new BinaryModelWriter(stream);
+			writer.writeMap(ImmutableMap.of(Roles.R1, new JVariant(value)));
+			writer.flush();
+		});
+	}
+
+	private static Map<Roles, JVariant> restore(final File file) throws IOException {
+		return BinaryModelReader.open(file).readMap(BinaryModelReader.keysByName(ImmutableSet.of(Roles.R1)));
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * @throws IOException
+	 *
+	 */
+	@Test
+	public void variants() throws IOException {
+		final ImmutableList<JVariant> values = ImmutableList.of(new JVariant(true), new JVariant(new byte[] { 1, 2, 3 }),
+				new JVariant(new Color(1, 2, 3, 4)), new JVariant(Instant.ofEpochSecond(-5, 7)), new JVariant(1.5),
+				new JVariant(2.5f), new JVariant(-7), new JVariant(new Line2D.Double(1.5, 2, 3, 4)),
+				new JVariant(Long.MIN_VALUE), new JVariant(JPoint.point(-1, 2)), new JVariant(JPointReal.point(1.5, 2)),
+				new JVariant(JRect.rect(1, 2, 3, 4)), new JVariant(JRectReal.rect(1, 2, 3.5, 4)),
+				new JVariant(new Dimension(5, 6)), new JVariant("text"), new JVariant(new URL("http://localhost/a")),
+				new JVariant(new UUID(3, 4)), new JVariant(ImmutableList.of(new Point2D.Double(1, 2))));
+
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final BinaryModelWriter writer = new BinaryModelWriter(out);
+		for (final JVariant v : values) {
+			writer.writeVariant(v);
+		}
+		writer.flush();
+
+		final BinaryModelReader reader = new BinaryModelReader(ByteBuffer.wrap(out.toByteArray()));
+		for (final JVariant v : values) {
+			assertEquals(0, v.compareTo(reader.readVariant().get()));
+		}
+		assertEquals(0, reader.remaining());
+	}
+
+	/**
+	 * @throws IOException
+	 *
+	 */
+	@Test
+	public void stringTable() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final BinaryModelWriter writer = new BinaryModelWriter(out);
+		for (int i = 0; i < 100; ++i) {
+			writer.writeMap(ImmutableMap.of(Roles.R1, new JVariant("value"), Roles.R2, new JVariant(i % 10)));
+		}
+		writer.flush();
+
+		// Header, the first map with its strings and then 7 bytes for each map
+		// that only references the string table.
+		assertEquals(5 + 25 + 99 * 7, out.size());
+
+		final BinaryModelReader reader = new BinaryModelReader(ByteBuffer.wrap(out.toByteArray()));
+		final Map<String, Roles> keys = BinaryModelReader.keysByName(ImmutableSet.of(Roles.R1, Roles.R2));
+		for (int i = 0; i < 100; ++i) {
+			final Map<Roles, JVariant> map = reader.readMap(keys);
+			assertEquals(new JVariant("value"), map.get(Roles.R1));
+			assertEquals(new JVariant(i % 10), map.get(Roles.R2));
+		}
+	}
+
+	/**
+	 * @throws IOException
+	 *
+	 */
+	@Test
+	public void unknownKeysSkipped() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final BinaryModelWriter writer = new BinaryModelWriter(out);
+		writer.writeMap(ImmutableMap.of(Roles.R1, new JVariant(1), Roles.R3, new JVariant(3)));
+		writer.flush();
+
+		final BinaryModelReader reader = new BinaryModelReader(ByteBuffer.wrap(out.toByteArray()));
+		final Map<Roles, JVariant> map = reader.readMap(BinaryModelReader.keysByName(ImmutableSet.of(Roles.R1)));
+		assertEquals(ImmutableMap.of(Roles.R1, new JVariant(1)), map);
+		assertFalse(map.containsKey(Roles.R3));
+	}
+
+	/**
+	 * @throws IOException
+	 *
+	 */
+	@Test(expected = IOException.class)
+	public void truncated() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final BinaryModelWriter writer = new BinaryModelWriter(out);
+		writer.writeMap(ImmutableMap.of(Roles.R1, new JVariant("value")));
+		writer.flush();
+
+		final byte[] data = out.toByteArray();
+		final BinaryModelReader reader = new BinaryModelReader(ByteBuffer.wrap(data, 0, data.length - 2));
+		reader.readMap(BinaryModelReader.keysByName(ImmutableSet.of(Roles.R1)));
+	}
+
+	/**
+	 * @throws IOException
+	 *
+	 */
+	@Test(expected = IOException.class)
+	public void badHeader() throws IOException {
+		new BinaryModelReader(ByteBuffer.wrap(new byte[] { '{', '}', 0, 0, 0 }));
+	}
+
+	/**
+	 * The file must not be held open after restoring so it can be replaced by the
+	 * next save.
+	 *
+	 * @throws IOException
+	 */
+	@Test
+	public void saveAfterRestore() throws IOException {
+		final File file = new File(folder.getRoot(), "model.bin");
+		save(file, 1);
+		assertEquals(ImmutableMap.of(Roles.R1, new JVariant(1)), restore(file));
+
+		save(file, 2);
+		assertEquals(ImmutableMap.of(Roles.R1, new JVariant(2)), restore(file));
+	}
+}
@@ -0,0 +1,227 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.github.sdankbar.qml.JVariant;
+import com.github.sdankbar.qml.models.interfaces.ModelSnapshot;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests ModelJournal.
+ */
+public class ModelJournalTest {
+
+	private static ModelSnapshot snapshot(final JournalState state) {
+		return new ModelSnapshot() {
+			@Override
+			public void write(final OutputStream stream) throws IOException {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void write(final BinaryModelWriter writer) throws IOException {
+				writer.writeMap(state.getRoot());
+				writer.writeVarInt(state.getRows().size());
+				for (final Map<String, JVariant> row : state.getRows()) {
+					writer.writeMap(row);
+				}
+			}
+
+			@Override
+			public Optional<JournalState> journalState() {
+				return Optional.of(state);
+			}
+		};
+	}
+
+	private static JournalState state(final int rows, final int changedRow) {
+		final List<Map<String, JVariant>> list = new ArrayList<>();
+		for (int i = 0; i < rows; ++i) {
+			list.add(ImmutableMap.of("R1", new JVariant(i), "R2", new JVariant(i == changedRow ? "changed" : "name")));
+		}
+		return new JournalState(ImmutableMap.of("root", new JVariant(rows)), list);
+	}
+
+	private static JournalState replay(final JournalState base, final ModelJournal.Contents contents)
+			throws IOException {
+		JournalState state = base;
+		for (final ByteBuffer batch : contents.getBatches()) {
+			state = ModelJournal.apply(state, batch);
+		}
+		return state;
+	}
+
+	private static ModelJournal.Contents read(final ModelJournal journal, final File snapshotFile) throws IOException {
+		return journal.read(snapshotFile, Files.readAllBytes(snapshotFile.toPath()));
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final JournalPolicy policy = new JournalPolicy(10, FsyncPolicy.NEVER);
+
+	@Test
+	public void appendsChanges() throws IOException {
+		final File dir = folder.getRoot();
+		final File snapshotFile = new File(dir, "m.bin");
+		final File journalFile = new File(dir, "m.journal");
+
+		final JournalState initial = state(100, -1);
+		final ModelJournal journal = new ModelJournal(dir, "m", PersistenceFormat.BINARY, policy);
+		journal.save(snapshot(initial), initial);
+		final long snapshotLength = snapshotFile.length();
+		final long headerLength = journalFile.length();
+
+		final JournalState changed = state(100, 50);
+		journal.save(snapshot(changed), changed);
+		assertEquals(snapshotLength, snapshotFile.length());
+		assertTrue(journalFile.length() > headerLength);
+		assertTrue(journalFile.length() - headerLength < snapshotLength / 10);
+
+		// Saving the same state again appends nothing.
+		final long journalLength = journalFile.length();
+		journal.save(snapshot(changed), changed);
+		assertEquals(journalLength, journalFile.length());
+
+		final JournalState shrunk = new JournalState(ImmutableMap.of(), changed.getRows().subList(0, 90));
+		journal.save(snapshot(shrunk), shrunk);
+
+		final ModelJournal.Contents contents = read(new ModelJournal(dir, "m", PersistenceFormat.BINARY, policy),
+				snapshotFile);
+		assertNotNull(contents);
+		assertEquals(2, contents.getBatches().size());
+		final JournalState replayed = replay(initial, contents);
+		assertEquals(shrunk.getRoot(), replayed.getRoot());
+		assertEquals(shrunk.getRows(), replayed.getRows());
+	}
+
+	@Test
+	public void compacts() throws IOException {
+		final File dir = folder.getRoot();
+		final File journalFile = new File(dir, "m.journal");
+
+		final ModelJournal journal = new ModelJournal(dir, "m", PersistenceFormat.BINARY,
+				new JournalPolicy(2, FsyncPolicy.NEVER));
+		for (int i = 0; i < 3; ++i) {
+			final JournalState s = state(100, i);
+			journal.save(snapshot(s), s);
+		}
+		final long afterTwo = journalFile.length();
+
+		final JournalState s = state(100, 3);
+		journal.save(snapshot(s), s);
+		assertTrue(journalFile.length() < afterTwo);
+
+		final ModelJournal.Contents contents = read(journal, new File(dir, "m.bin"));
+		assertEquals(0, contents.getBatches().size());
+	}
+
+	@Test
+	public void tornBatchDropped() throws IOException {
+		final File dir = folder.getRoot();
+		final File snapshotFile = new File(dir, "m.bin");
+		final File journalFile = new File(dir, "m.journal");
+
+		final JournalState initial = state(10, -1);
+		final ModelJournal journal = new ModelJournal(dir, "m", PersistenceFormat.BINARY, policy);
+		journal.save(snapshot(initial), initial);
+		final JournalState changed = state(10, 5);
+		journal.save(snapshot(changed), changed);
+		final long validLength = journalFile.length();
+
+		try (OutputStream stream = new FileOutputStream(journalFile, true)) {
+			stream.write(new byte[] { 0, 0, 0, 40, 1, 2, 3, 4, 5 });
+		}
+
+		final ModelJournal restored = new ModelJournal(dir, "m", PersistenceFormat.BINARY, policy);
+		final ModelJournal.Contents contents = read(restored, snapshotFile);
+		assertEquals(1, contents.getBatches().size());
+		assertEquals(changed.getRows(), replay(initial, contents).getRows());
+
+		restored.restored(changed, contents);
+		assertEquals(validLength, journalFile.length());
+	}
+
+	@Test
+	public void saveAfterReadCompacts() throws IOException {
+		final File dir = folder.getRoot();
+		final File snapshotFile = new File(dir, "m.bin");
+		final File journalFile = new File(dir, "m.journal");
+
+		final JournalState initial = state(10, -1);
+		final ModelJournal journal = new ModelJournal(dir, "m", PersistenceFormat.BINARY, policy);
+		journal.save(snapshot(initial), initial);
+		final long headerLength = journalFile.length();
+		final JournalState changed = state(10, 5);
+		journal.save(snapshot(changed), changed);
+
+		// The model is saved between the journal being read and the restored
+		// state being assigned, so the journal that was read is out of date.
+		final ModelJournal restored = new ModelJournal(dir, "m", PersistenceFormat.BINARY, policy);
+		final ModelJournal.Contents contents = read(restored, snapshotFile);
+		final JournalState empty = state(0, -1);
+		restored.save(snapshot(empty), empty);
+		restored.restored(changed, contents);
+
+		final JournalState next = state(10, 6);
+		restored.save(snapshot(next), next);
+		assertEquals(headerLength, journalFile.length());
+		assertEquals(0, read(restored, snapshotFile).getBatches().size());
+	}
+
+	@Test
+	public void staleJournalIgnored() throws IOException {
+		final File dir = folder.getRoot();
+		final File snapshotFile = new File(dir, "m.bin");
+
+		final JournalState initial = state(10, -1);
+		new ModelJournal(dir, "m", PersistenceFormat.BINARY, policy).save(snapshot(initial), initial);
+
+		final JournalState other = state(10, 2);
+		AtomicFile.write(snapshotFile, false, null, stream -> PersistenceFormat.BINARY.write(snapshot(other), stream));
+
+		assertNull(read(new ModelJournal(dir, "m", PersistenceFormat.BINARY, policy), snapshotFile));
+		assertNull(new ModelJournal(dir, "m", PersistenceFormat.BINARY, policy).read(new File(dir, "m.json"),
+				Files.readAllBytes(snapshotFile.toPath())));
+	}
+}
@@ -0,0 +1,157 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.utility;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Performance benchmarks for transferring a 1 megapixel image. Average time is
+ * therefore the per-megapixel cost.
+ */
+public class ImageTransferJMHTest {
+
+	private static final int SIZE = 1000;
+
+	/**
+	 * Shared state.
+	 */
+	@State(Scope.Thread)
+	public static class BenchmarkState {
+
+		BufferedImage argb;
+		BufferedImage argbPre;
+		BufferedImage rgb;
+
+		/**
+		 * Sets up shared state.
+		 */
+		@Setup(Level.Trial)
+		public void setup() {
+			argb = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+			argbPre = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB_PRE);
+			rgb = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+		}
+
+	}
+
+	private static byte[] getRGBCopy(final BufferedImage image) {
+		final int[] pixels = image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+		final ByteBuffer b = ByteBuffer.allocate(4 * pixels.length);
+		b.order(ByteOrder.nativeOrder());
+		for (final int p : pixels) {
+			b.putInt(p);
+		}
+		return b.array();
+	}
+
+	private static ResizableByteBuffer putImage(final BufferedImage image) {
+		final ResizableByteBuffer buffer = new ResizableByteBuffer(4 * SIZE * SIZE + 1);
+		buffer.putBoolean(ImageTransfer.isPremultiplied(image));
+		buffer.putInts(ImageTransfer.toARGB(image), image.getWidth() * image.getHeight());
+		return buffer;
+	}
+
+	/**
+	 * @param state
+	 * @return
+	 */
+	@Benchmark
+	public byte[] benchmark_getRGB_argb(final BenchmarkState state) {
+		return getRGBCopy(state.argb);
+	}
+
+	/**
+	 * @param state
+	 * @return
+	 */
+	@Benchmark
+	public int[] benchmark_toARGB_argb(final BenchmarkState state) {
+		return ImageTransfer.toARGB(state.argb);
+	}
+
+	/**
+	 * @param state
+	 * @return
+	 */
+	@Benchmark
+	public int[] benchmark_toARGB_argbPre(final BenchmarkState state) {
+		return ImageTransfer.toARGB(state.argbPre);
+	}
+
+	/**
+	 * @param state
+	 * @return
+	 */
+	@Benchmark
+	public int[] benchmark_toARGB_rgb(final BenchmarkState state) {
+		return ImageTransfer.toARGB(state.rgb);
+	}
+
+	/**
+	 * @param state
+	 * @return
+	 */
+	@Benchmark
+	public ResizableByteBuffer benchmark_putImage_argb(final BenchmarkState state) {
+		return putImage(state.argb);
+	}
+
+	/**
+	 * @param state
+	 * @return
+	 */
+	@Benchmark
+	public ResizableByteBuffer benchmark_putImage_rgb(final BenchmarkState state) {
+		return putImage(state.rgb);
+	}
+
+	/**
+	 * @throws RunnerException
+	 */
+	@Test
+	public void runBenchmarks() throws RunnerException {
+		final Options options = new OptionsBuilder().include(ImageTransferJMHTest.class.getName() + ".*")
+				.mode(Mode.AverageTime).timeUnit(TimeUnit.MILLISECONDS).warmupTime(TimeValue.seconds(1))
+				.warmupIterations(5).threads(1).measurementIterations(5).forks(1).shouldFailOnError(false)
+				.shouldDoGC(true).build();
+
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,89 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.utility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+/**
+ * Tests ImageTransfer.
+ */
+public class ImageTransferTest {
+
+	private static int[] backing(final BufferedImage image) {
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+
+	@Test
+	public void packedImagesAreNotCopied() {
+		final BufferedImage argb = new BufferedImage(3, 2, BufferedImage.TYPE_INT_ARGB);
+		argb.setRGB(1, 1, 0x80FF0000);
+		assertSame(backing(argb), ImageTransfer.toARGB(argb));
+		assertFalse(ImageTransfer.isPremultiplied(argb));
+
+		final BufferedImage pre = new BufferedImage(3, 2, BufferedImage.TYPE_INT_ARGB_PRE);
+		assertSame(backing(pre), ImageTransfer.toARGB(pre));
+		assertTrue(ImageTransfer.isPremultiplied(pre));
+	}
+
+	@Test
+	public void otherImagesAreConverted() {
+		final BufferedImage rgb = new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB);
+		rgb.setRGB(2, 1, 0x123456);
+		final int[] pixels = ImageTransfer.toARGB(rgb);
+		assertNotSame(backing(rgb), pixels);
+		assertEquals(0xFF123456, pixels[5]);
+		assertFalse(ImageTransfer.isPremultiplied(rgb));
+
+		final BufferedImage parent = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB_PRE);
+		parent.setRGB(1, 1, 0xFFABCDEF);
+		final BufferedImage sub = parent.getSubimage(1, 1, 2, 2);
+		assertEquals(4, ImageTransfer.toARGB(sub).length);
+		assertEquals(0xFFABCDEF, ImageTransfer.toARGB(sub)[0]);
+		assertFalse(ImageTransfer.isPremultiplied(sub));
+	}
+
+	@Test
+	public void putInts() {
+		final ResizableByteBuffer buffer = new ResizableByteBuffer(2);
+		buffer.put((byte) 7);
+		buffer.putInts(new int[] { 1, 2, 3 }, 2);
+		buffer.putInt(4);
+
+		final ByteBuffer expected = ByteBuffer.allocate(13).order(ByteOrder.nativeOrder());
+		expected.put((byte) 7).putInt(1).putInt(2).putInt(4);
+		assertArrayEquals(expected.array(), buffer.toArray());
+	}
+
+}
@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright © 2020 Stephen Dankbar
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.sdankbar.qml.utility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import org.junit.Test;
+
+/**
+ * Tests the ResizableByteBuffer class.
+ */
+public class ResizableByteBufferTest {
+
+	/**
+	 * Tests that bulk writes match element-wise writes and grow the buffer.
+	 */
+	@Test
+	public void bulkWrites() {
+		final ResizableByteBuffer bulk = new ResizableByteBuffer(4);
+		bulk.putInts(new int[] { 9, 1, 2, 3 }, 1, 3);
+		bulk.putDoubles(new double[] { 1.5, 2.5, 3.5 }, 0, 2);
+		bulk.putFloatsAsDoubles(FloatBuffer.wrap(new float[] { 0.25f, 4, 8 }, 1, 2));
+
+		final ResizableByteBuffer single = new ResizableByteBuffer(4);
+		single.putInt(1);
+		single.putInt(2);
+		single.putInt(3);
+		single.putDouble(1.5);
+		single.putDouble(2.5);
+		single.putDouble(4);
+		single.putDouble(8);
+
+		assertEquals(3 * Integer.BYTES + 4 * Double.BYTES, bulk.size());
+		assertArrayEquals(single.toArray(), bulk.toArray());
+	}
+
+	/**
+	 * Tests that putFloatsAsDoubles leaves the source buffer's position alone.
+	 */
+	@Test
+	public void floatBufferPosition() {
+		final FloatBuffer src = FloatBuffer.wrap(new float[] { 1, 2, 3, 4 });
+		src.position(2);
+
+		final ResizableByteBuffer b = new ResizableByteBuffer();
+		b.putFloatsAsDoubles(src);
+
+		assertEquals(2, src.position());
+		final ByteBuffer result = ByteBuffer.wrap(b.toArray()).order(ByteOrder.nativeOrder());
+		assertEquals(3, result.getDouble(), 0);
+		assertEquals(4, result.getDouble(), 0);
+	}
+
+	/**
+	 * Tests that clear discards the contents so the buffer can be reused.
+	 */
+	@Test
+	public void clear() {
+		final ResizableByteBuffer b = new ResizableByteBuffer(4);
+		b.putLong(7);
+		b.putLong(8);
+		b.clear();
+
+		assertEquals(0, b.size());
+		assertArrayEquals(new byte[0], b.toArray());
+
+		b.putInt(5);
+		assertEquals(Integer.BYTES, b.size());
+	}
+}